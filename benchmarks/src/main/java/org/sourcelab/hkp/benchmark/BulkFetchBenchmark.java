@@ -0,0 +1,96 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.request.HashQueryRequest;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to fetch many keys via {@link HkpClient#getAll(HashQueryRequest)}, comparing batched
+ * /pks/hashquery requests against the parallel op=hget fallback used for servers without that endpoint.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class BulkFetchBenchmark {
+    @Param({RestClients.HTTPCLIENT5, RestClients.PIPELINING})
+    public String client;
+
+    @Param({"true", "false"})
+    public boolean hashQuery;
+
+    @Param({"1000"})
+    public int keys;
+
+    private LoopbackKeyServer server;
+    private HkpClient hkpClient;
+    private HashQueryRequest request;
+
+    /**
+     * Start the server and initialize the client.
+     * @throws IOException if unable to start.
+     */
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackKeyServer(4096, hashQuery);
+        hkpClient = new HkpClient(Configuration.newBuilder()
+            .withKeyServerHost(server.getHost())
+            .withMaxConnections(8), RestClients.create(client));
+        hkpClient.warmUp();
+
+        final List<String> hashes = new ArrayList<>(keys);
+        for (int index = 0; index < keys; index++) {
+            hashes.add(String.format(Locale.ROOT, "%032x", index));
+        }
+        request = new HashQueryRequest(hashes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hkpClient.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<PgpPublicKey> getAll() {
+        return hkpClient.getAll(request);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcelab.hkp.index.FingerprintIndex;
+import org.sourcelab.hkp.index.Hex;
+import org.sourcelab.hkp.index.LongHashIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up and building indexes of key ids, keyed by primitive long key ids or packed fingerprints,
+ * against a HashMap keyed by the key id Strings the key server sends.
+ *
+ * Each key id is taken as a newly read String, as a cache would receive it from a response, so the HashMap pays for
+ * hashing it and the long keyed indexes pay for parsing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class KeyIdIndexBenchmark {
+    private static final int LOOKUPS = 1_000;
+
+    @Param({"10000", "1000000"})
+    public int keys;
+
+    private String[] fingerprints;
+    private char[][] keyIds;
+    private char[][] lookups;
+    private Map<String, Integer> hashMap;
+    private LongHashIndex<Integer> longIndex;
+    private FingerprintIndex<Integer> fingerprintIndex;
+
+    /**
+     * Build the indexes, and a set of lookups of which half are present.
+     */
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        fingerprints = new String[keys];
+        keyIds = new char[keys][];
+        hashMap = new HashMap<>();
+        longIndex = new LongHashIndex<>();
+        fingerprintIndex = new FingerprintIndex<>();
+        for (int key = 0; key < keys; key++) {
+            fingerprints[key] = String.format("%08X%016X%016X", random.nextInt(), random.nextLong(), random.nextLong());
+            keyIds[key] = fingerprints[key].substring(24).toCharArray();
+            hashMap.put(new String(keyIds[key]), key);
+            longIndex.put(Hex.parseKeyId(new String(keyIds[key])), key);
+            fingerprintIndex.put(fingerprints[key], key);
+        }
+        lookups = new char[LOOKUPS][];
+        for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+            lookups[lookup] = lookup % 2 == 0 ? keyIds[random.nextInt(keys)] : Hex.toKeyId(random.nextLong()).toCharArray();
+        }
+    }
+
+    @Benchmark
+    public int hashMapGet() {
+        int found = 0;
+        for (final char[] lookup : lookups) {
+            if (hashMap.get(new String(lookup)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int longHashIndexGet() {
+        int found = 0;
+        for (final char[] lookup : lookups) {
+            if (longIndex.get(Hex.parseKeyId(new String(lookup))) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int fingerprintIndexGetByKeyId() {
+        int found = 0;
+        for (final char[] lookup : lookups) {
+            if (fingerprintIndex.getByKeyId(Hex.parseKeyId(new String(lookup))) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Map<String, Integer> hashMapBuild() {
+        final Map<String, Integer> map = new HashMap<>();
+        for (int key = 0; key < keys; key++) {
+            map.put(new String(keyIds[key]), key);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public LongHashIndex<Integer> longHashIndexBuild() {
+        final LongHashIndex<Integer> index = new LongHashIndex<>();
+        for (int key = 0; key < keys; key++) {
+            index.put(Hex.parseKeyId(new String(keyIds[key])), key);
+        }
+        return index;
+    }
+
+    @Benchmark
+    public FingerprintIndex<Integer> fingerprintIndexBuild() {
+        final FingerprintIndex<Integer> index = new FingerprintIndex<>();
+        for (int key = 0; key < keys; key++) {
+            index.put(fingerprints[key], key);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal in-process HKP server bound to the loopback interface, serving canned responses.
+ * Keeps the network out of the measurement so benchmarks reflect client side overhead.
+ *
+ * Each connection is served by its own thread, reading requests one after another, so persistent
+ * and pipelined HTTP/1.1 connections are both supported.
+ */
+public class LoopbackKeyServer implements AutoCloseable {
+    /**
+     * Canned /pks/add response.
+     */
+    private static final byte[] ADD_RESPONSE = "Key added".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Canned op=index response.
+     */
+    public static final String INDEX_RESPONSE = "info:1:3\n"
+        + "pub:92E73960FC59970DFB12F0146D712A2D27F74CE9:1:4096:1515212983:1641443383:\n"
+        + "uid:SourceLab.org (SourceLab.org Key) <sxxxx.pxxxxx@gmail.com>:1515212983::\n"
+        + "pub:AADC291B6541ADCA3F702527FD50A4D1D8D54DA6:1:4096:1510193131:1636423531:\n"
+        + "uid:Key <sxxxx.pxxxxx@gmail.com>:1510193131::\n"
+        + "pub:BD07DDB80A5FB180185FE1436E9BE863114AC1F2:1:4096:1502550853::\n"
+        + "uid:Stevie <sxxxx.pxxxxx@gmail.com>:1502550853::\n";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executorService;
+    private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final byte[] keyResponse;
+    private final byte[] binaryKey;
+    private final byte[] indexResponse;
+    private final boolean isHashQuerySupported;
+
+    /**
+     * Constructor, starts the server on an ephemeral port.
+     * @param keyBytes Size of the canned op=get response body.
+     * @throws IOException if unable to bind.
+     */
+    public LoopbackKeyServer(final int keyBytes) throws IOException {
+        this(keyBytes, true);
+    }
+
+    /**
+     * Constructor, starts the server on an ephemeral port.
+     * @param keyBytes Size of the canned op=get response body.
+     * @param isHashQuerySupported Whether to serve /pks/hashquery, or respond 404 as servers other than Hockeypuck and SKS do.
+     * @throws IOException if unable to bind.
+     */
+    public LoopbackKeyServer(final int keyBytes, final boolean isHashQuerySupported) throws IOException {
+        this.keyResponse = syntheticArmoredKey(keyBytes).getBytes(StandardCharsets.US_ASCII);
+        this.binaryKey = new byte[keyBytes * 3 / 4];
+        this.indexResponse = INDEX_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        this.isHashQuerySupported = isHashQuerySupported;
+
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        executorService = Executors.newCachedThreadPool((runnable) -> {
+            final Thread thread = new Thread(runnable, "loopback-key-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.submit(this::acceptLoop);
+    }
+
+    /**
+     * The URL to configure as the client's key server host.
+     * @return Host URL.
+     */
+    public String getHost() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                executorService.submit(() -> serve(socket));
+            } catch (final IOException exception) {
+                // Server socket closed.
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try {
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            final StringBuilder line = new StringBuilder();
+
+            while (readLine(input, line)) {
+                final String[] requestLine = line.toString().split(" ");
+                if (requestLine.length < 3) {
+                    return;
+                }
+                final String method = requestLine[0];
+                final String target = requestLine[1];
+                boolean keepAlive = !"HTTP/1.0".equals(requestLine[2]);
+
+                // Read headers, noting any that affect the connection.
+                int contentLength = 0;
+                while (readLine(input, line) && line.length() > 0) {
+                    final String header = line.toString().toLowerCase();
+                    if (header.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    } else if (header.startsWith("connection:") && header.contains("close")) {
+                        keepAlive = false;
+                    }
+                }
+                final DataInputStream requestBody = new DataInputStream(input);
+                final byte[] content = new byte[contentLength];
+                requestBody.readFully(content);
+
+                final byte[] body;
+                if (target.startsWith("/pks/lookup") && target.contains("op=index")) {
+                    body = indexResponse;
+                } else if (target.startsWith("/pks/lookup") && (target.contains("op=get") || target.contains("op=hget"))) {
+                    body = keyResponse;
+                } else if (target.startsWith("/pks/hashquery") && isHashQuerySupported && content.length >= 4) {
+                    body = hashQueryResponse(ByteBuffer.wrap(content).getInt());
+                } else if (target.startsWith("/pks/add") && content.length > 0) {
+                    body = ADD_RESPONSE;
+                } else {
+                    body = new byte[0];
+                }
+                final String status = body.length == 0 ? "404 Not Found" : "200 OK";
+                output.write(("HTTP/1.1 " + status + "\r\n"
+                    + "Content-Type: text/plain; charset=utf-8\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + (keepAlive ? "" : "Connection: close\r\n")
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                if (!"HEAD".equals(method)) {
+                    output.write(body);
+                }
+
+                // Hold back while further pipelined requests are already waiting, writing responses in batches.
+                if (input.available() == 0 || !keepAlive) {
+                    output.flush();
+                }
+                if (!keepAlive) {
+                    return;
+                }
+            }
+        } catch (final IOException exception) {
+            // Client went away.
+        } finally {
+            sockets.remove(socket);
+            try {
+                socket.close();
+            } catch (final IOException exception) {
+                // Ignored.
+            }
+        }
+    }
+
+    /**
+     * One binary key for every requested hash.
+     */
+    private byte[] hashQueryResponse(final int count) {
+        final ByteBuffer response = ByteBuffer.allocate(4 + count * (4 + binaryKey.length) + 2)
+            .putInt(count);
+        for (int index = 0; index < count; index++) {
+            response.putInt(binaryKey.length).put(binaryKey);
+        }
+        return response.put((byte) '\r').put((byte) '\n').array();
+    }
+
+    private static boolean readLine(final InputStream input, final StringBuilder line) throws IOException {
+        line.setLength(0);
+        int value;
+        while ((value = input.read()) != -1) {
+            if (value == '\n') {
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                }
+                return true;
+            }
+            line.append((char) value);
+        }
+        return false;
+    }
+
+    /**
+     * Generate an armored key shaped response of roughly the requested size.
+     * @param size Approximate size in bytes.
+     * @return Armored key text.
+     */
+    public static String syntheticArmoredKey(final int size) {
+        final StringBuilder builder = new StringBuilder(size + 128)
+            .append("-----BEGIN PGP PUBLIC KEY BLOCK-----\n\n");
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        int index = 0;
+        while (builder.length() < size) {
+            for (int column = 0; column < 64; column++) {
+                builder.append(alphabet.charAt(index++ % alphabet.length()));
+            }
+            builder.append('\n');
+        }
+        return builder
+            .append("=ABCD\n")
+            .append("-----END PGP PUBLIC KEY BLOCK-----\n")
+            .toString();
+    }
+
+    /**
+     * Generate an op=index response listing the requested number of keys, each with a single uid.
+     * @param entries Number of keys.
+     * @return Index response text.
+     */
+    public static String syntheticIndex(final int entries) {
+        final StringBuilder builder = new StringBuilder(entries * 160 + 16)
+            .append("info:1:").append(entries).append('\n');
+        for (int index = 0; index < entries; index++) {
+            final long created = 1500000000L + index * 3600L;
+            builder
+                .append("pub:").append(String.format("%040X", (long) index * 2654435761L)).append(":1:4096:")
+                .append(created).append(':').append(index % 3 == 0 ? "" : Long.toString(created + 126230400L)).append(":\n")
+                .append("uid:User ").append(index).append(" (Synthetic Key) <user").append(index).append("@example.com>:")
+                .append(created).append("::\n");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (final IOException exception) {
+            // Ignored.
+        }
+        for (final Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (final IOException exception) {
+                // Ignored.
+            }
+        }
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.rest.PipeliningRestClient;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures bulk fetch throughput of {@link PipeliningRestClient} over a fixed, small, number of connections
+ * as the pipeline depth grows.  A depth of 1 is equivalent to a plain keep-alive connection pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@State(Scope.Benchmark)
+public class PipelinedBulkFetchBenchmark {
+    @Param({"1", "4", "16"})
+    public int pipelineDepth;
+
+    @Param({"2"})
+    public int connections;
+
+    private LoopbackKeyServer server;
+    private PipeliningRestClient restClient;
+    private GetRequest getRequest;
+
+    /**
+     * Start the server and initialize the client.
+     * @throws IOException if unable to start.
+     */
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackKeyServer(4096);
+        restClient = new PipeliningRestClient();
+        restClient.init(Configuration.newBuilder()
+            .withKeyServerHost(server.getHost())
+            .withMaxConnections(connections)
+            .withPipelineDepth(pipelineDepth)
+            .build());
+        restClient.warmUp();
+
+        getRequest = new GetRequest("0x92E73960FC59970DFB12F0146D712A2D27F74CE9");
+    }
+
+    @TearDown
+    public void tearDown() {
+        restClient.close();
+        server.close();
+    }
+
+    @Benchmark
+    public RestResponse get() {
+        return restClient.submitRequest(getRequest);
+    }
+}
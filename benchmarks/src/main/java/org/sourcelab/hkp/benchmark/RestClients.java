@@ -0,0 +1,64 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import org.sourcelab.hkp.rest.HttpClient5RestClient;
+import org.sourcelab.hkp.rest.JdkHttpRestClient;
+import org.sourcelab.hkp.rest.PipeliningRestClient;
+import org.sourcelab.hkp.rest.RestClient;
+
+/**
+ * Creates the RestClient implementations under comparison, by name, for use as a JMH {@code @Param}.
+ */
+public final class RestClients {
+    /**
+     * {@link HttpClient5RestClient}.
+     */
+    public static final String HTTPCLIENT5 = "httpclient5";
+
+    /**
+     * {@link JdkHttpRestClient}.
+     */
+    public static final String JDK = "jdk";
+
+    /**
+     * {@link PipeliningRestClient}.
+     */
+    public static final String PIPELINING = "pipelining";
+
+    private RestClients() {
+    }
+
+    /**
+     * Create a new, uninitialized, RestClient.
+     * @param name Name of the implementation.
+     * @return RestClient instance.
+     */
+    public static RestClient create(final String name) {
+        switch (name) {
+            case HTTPCLIENT5:
+                return new HttpClient5RestClient();
+            case JDK:
+                return new JdkHttpRestClient();
+            case PIPELINING:
+                return new PipeliningRestClient();
+            default:
+                throw new IllegalArgumentException("Unknown RestClient implementation: " + name);
+        }
+    }
+}
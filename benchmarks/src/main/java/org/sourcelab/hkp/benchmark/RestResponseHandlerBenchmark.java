@@ -0,0 +1,82 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.benchmark;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcelab.hkp.rest.RestResponse;
+import org.sourcelab.hkp.rest.handlers.RestResponseHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a response body with {@link RestResponseHandler}, with and without then decoding it as text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class RestResponseHandlerBenchmark {
+    /**
+     * Size of the response body.
+     */
+    @Param({"4096", "65536"})
+    public int bodyBytes;
+
+    /**
+     * Content-Type the response declares.
+     */
+    @Param({"application/pgp-keys", "text/plain; charset=ISO-8859-1"})
+    public String contentType;
+
+    private BasicClassicHttpResponse response;
+    private RestResponseHandler handler;
+
+    @Setup
+    public void setup() {
+        final byte[] body = LoopbackKeyServer.syntheticArmoredKey(bodyBytes).getBytes(StandardCharsets.US_ASCII);
+        response = new BasicClassicHttpResponse(200);
+        response.setEntity(new ByteArrayEntity(body, ContentType.parse(contentType)));
+        handler = new RestResponseHandler();
+    }
+
+    @Benchmark
+    public RestResponse handle() {
+        return handler.handleResponse(response);
+    }
+
+    @Benchmark
+    public String handleAndDecode() {
+        return handler.handleResponse(response).getResponseStr();
+    }
+}
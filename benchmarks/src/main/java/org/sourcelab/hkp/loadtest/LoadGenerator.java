@@ -0,0 +1,245 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.loadtest;
+
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.listener.LatencyHistogram;
+import org.sourcelab.hkp.rest.ConnectionPoolStats;
+import org.sourcelab.hkp.rest.Recording;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link Workload} through an {@link HkpClient}, either at a fixed arrival rate (open loop) or with a fixed
+ * number of requests in flight (closed loop).
+ *
+ * An open loop schedules each request at a fixed interval regardless of how earlier requests fared, as independent
+ * users would, and measures latency from the scheduled time.  Requests which can not be sent on time because every
+ * worker is busy wait in a queue, and that wait is counted, so a stall is reflected in the latency of every request
+ * it delayed rather than hidden by the generator slowing down.  A closed loop measures how much throughput the client
+ * sustains at a given concurrency, but by design its latency omits that queueing.
+ */
+public final class LoadGenerator {
+    private static final long POOL_SAMPLE_MILLIS = 20;
+
+    private final HkpClient client;
+    private final Workload workload;
+
+    /**
+     * Constructor.
+     * @param client Client to drive.
+     * @param workload Requests to send, or null if only replaying recordings.
+     */
+    public LoadGenerator(final HkpClient client, final Workload workload) {
+        this.client = client;
+        this.workload = workload;
+    }
+
+    /**
+     * Send requests at a fixed rate.
+     * @param ratePerSecond Requests to schedule per second.
+     * @param maxInFlight Maximum requests in flight, each needs its own thread as the client blocks.
+     * @param duration How long to schedule requests for.
+     * @return Results.
+     * @throws InterruptedException if interrupted.
+     */
+    public LoadResult runOpenLoop(final double ratePerSecond, final int maxInFlight, final Duration duration) throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be greater than 0.");
+        }
+        final Recorder recorder = new Recorder();
+        final ExecutorService workers = newWorkers(maxInFlight, recorder);
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + duration.toNanos();
+
+        // Compute each send time from the start, rather than the previous send, so scheduling delays don't accumulate.
+        for (long index = 0; ; index++) {
+            final long scheduledNanos = startNanos + index * intervalNanos;
+            if (scheduledNanos >= endNanos) {
+                break;
+            }
+            long remaining;
+            while ((remaining = scheduledNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+            recorder.scheduled.incrementAndGet();
+            workers.execute(() -> recorder.execute(scheduledNanos, () -> workload.execute(client)));
+        }
+        return drain(workers, recorder, "open", ratePerSecond, maxInFlight, startNanos, duration);
+    }
+
+    /**
+     * Resend recorded gets and searches, in their recorded order, at their recorded arrival times.
+     * Other recorded requests are skipped.
+     * @param recordings Recordings to resend.
+     * @param timeScale Multiplier applied to the time between recorded requests, 0 to send as fast as possible.
+     * @param maxInFlight Maximum requests in flight, each needs its own thread as the client blocks.
+     * @return Results.
+     * @throws InterruptedException if interrupted.
+     */
+    public LoadResult runReplay(final List<Recording> recordings, final double timeScale, final int maxInFlight) throws InterruptedException {
+        final Recorder recorder = new Recorder();
+        final ExecutorService workers = newWorkers(maxInFlight, recorder);
+        final long startNanos = System.nanoTime();
+        final long firstMillis = recordings.isEmpty() ? 0 : recordings.get(0).getTimestampMillis();
+        long scheduledNanos = startNanos;
+        for (final Recording recording : recordings) {
+            if (!Workload.isReplayable(recording)) {
+                continue;
+            }
+            scheduledNanos = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(recording.getTimestampMillis() - firstMillis) * timeScale);
+            long remaining;
+            while ((remaining = scheduledNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+            recorder.scheduled.incrementAndGet();
+            final long scheduled = scheduledNanos;
+            workers.execute(() -> recorder.execute(scheduled, () -> Workload.replay(client, recording)));
+        }
+        final Duration duration = Duration.ofNanos(Math.max(0, scheduledNanos - startNanos));
+        final double rate = duration.isZero() ? 0 : recorder.scheduled.get() * 1e9 / duration.toNanos();
+        return drain(workers, recorder, "replay", rate, maxInFlight, startNanos, duration);
+    }
+
+    /**
+     * Send requests back to back from a fixed number of threads.
+     * @param concurrency Requests in flight.
+     * @param duration How long to send requests for.
+     * @return Results.
+     * @throws InterruptedException if interrupted.
+     */
+    public LoadResult runClosedLoop(final int concurrency, final Duration duration) throws InterruptedException {
+        final Recorder recorder = new Recorder();
+        final ExecutorService workers = newWorkers(concurrency, recorder);
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + duration.toNanos();
+        for (int thread = 0; thread < concurrency; thread++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < endNanos && !Thread.currentThread().isInterrupted()) {
+                    recorder.scheduled.incrementAndGet();
+                    recorder.execute(System.nanoTime(), () -> workload.execute(client));
+                }
+            });
+        }
+        return drain(workers, recorder, "closed", 0, concurrency, startNanos, duration);
+    }
+
+    private LoadResult drain(
+        final ExecutorService workers,
+        final Recorder recorder,
+        final String mode,
+        final double ratePerSecond,
+        final int concurrency,
+        final long startNanos,
+        final Duration duration) throws InterruptedException {
+
+        // Give requests still queued or in flight as long again as the step to finish.
+        workers.shutdown();
+        if (!workers.awaitTermination(Math.max(duration.toNanos(), TimeUnit.SECONDS.toNanos(10)), TimeUnit.NANOSECONDS)) {
+            workers.shutdownNow();
+        }
+        recorder.poolSampler.shutdownNow();
+        final long completed = recorder.found.sum() + recorder.notFound.sum() + recorder.errorCount.sum();
+        final Map<String, Long> errors = new HashMap<>();
+        recorder.errors.forEach((type, count) -> errors.put(type, count.sum()));
+        return new LoadResult(
+            mode, ratePerSecond, concurrency,
+            Math.max(0, recorder.lastCompletedNanos.get() - startNanos),
+            recorder.found.sum(), recorder.notFound.sum(), recorder.scheduled.get() - completed,
+            errors, recorder.responseTime.snapshot(), recorder.serviceTime.snapshot(),
+            recorder.peakLeased.get(), recorder.peakPending.get(), recorder.maxConnections.get()
+        );
+    }
+
+    private ExecutorService newWorkers(final int threads, final Recorder recorder) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+        }
+
+        // Sample connection pool usage while the step runs, as it has drained by the time the step ends.
+        recorder.poolSampler.scheduleAtFixedRate(() -> {
+            final ConnectionPoolStats stats = client.getStats().getConnectionPoolStats();
+            if (stats != null) {
+                recorder.peakLeased.accumulateAndGet(stats.getLeased(), Math::max);
+                recorder.peakPending.accumulateAndGet(stats.getPending(), Math::max);
+                recorder.maxConnections.set(stats.getMax());
+            }
+        }, 0, POOL_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, (runnable) -> {
+            final Thread thread = new Thread(runnable, "load-generator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends requests and records their outcome.
+     */
+    private final class Recorder {
+        private final LatencyHistogram responseTime = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final AtomicLong scheduled = new AtomicLong();
+        private final LongAdder found = new LongAdder();
+        private final LongAdder notFound = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final AtomicLong lastCompletedNanos = new AtomicLong();
+        private final AtomicInteger peakLeased = new AtomicInteger(-1);
+        private final AtomicInteger peakPending = new AtomicInteger(-1);
+        private final AtomicInteger maxConnections = new AtomicInteger(-1);
+        private final ScheduledExecutorService poolSampler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            final Thread thread = new Thread(runnable, "load-generator-pool-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private void execute(final long scheduledNanos, final BooleanSupplier request) {
+            final long sentNanos = System.nanoTime();
+            try {
+                if (request.getAsBoolean()) {
+                    found.increment();
+                } else {
+                    notFound.increment();
+                }
+            } catch (final RuntimeException exception) {
+                errors.computeIfAbsent(exception.getClass().getSimpleName(), (type) -> new LongAdder()).increment();
+                errorCount.increment();
+            }
+            final long completedNanos = System.nanoTime();
+            responseTime.record(completedNanos - scheduledNanos);
+            serviceTime.record(completedNanos - sentNanos);
+            lastCompletedNanos.accumulateAndGet(completedNanos, Math::max);
+        }
+    }
+}
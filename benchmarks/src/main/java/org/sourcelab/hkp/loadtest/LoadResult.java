@@ -0,0 +1,212 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.loadtest;
+
+import org.sourcelab.hkp.listener.HistogramSnapshot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one step of a load test, at a single request rate or concurrency.
+ *
+ * Response time is measured from when each request was scheduled to be sent, so includes any time spent queued
+ * behind earlier requests, and is free of coordinated omission.  Service time is measured from when each request was
+ * actually sent.  Under a closed loop the two are the same.  Peak pool usage is shown as leased/max+pending.
+ */
+public final class LoadResult {
+    private final String mode;
+    private final double targetRate;
+    private final int concurrency;
+    private final long elapsedNanos;
+    private final long found;
+    private final long notFound;
+    private final long unfinished;
+    private final Map<String, Long> errors;
+    private final HistogramSnapshot responseTime;
+    private final HistogramSnapshot serviceTime;
+    private final int peakLeased;
+    private final int peakPending;
+    private final int maxConnections;
+
+    /**
+     * Constructor.
+     * @param mode "open" or "closed".
+     * @param targetRate Requests per second scheduled, or 0 under a closed loop.
+     * @param concurrency Maximum requests in flight.
+     * @param elapsedNanos Time from the first request being scheduled until the last completed.
+     * @param found Requests which found a key.
+     * @param notFound Requests answered 404.
+     * @param unfinished Requests still in flight when the step gave up waiting.
+     * @param errors Failed requests, counted by exception type.
+     * @param responseTime Latency from when each request was scheduled.
+     * @param serviceTime Latency from when each request was sent.
+     * @param peakLeased Most connections leased at once, or -1 if not reported by the RestClient.
+     * @param peakPending Most requests waiting for a connection at once, or -1 if not reported by the RestClient.
+     * @param maxConnections Size of the connection pool, or -1 if not reported by the RestClient.
+     */
+    public LoadResult(
+        final String mode,
+        final double targetRate,
+        final int concurrency,
+        final long elapsedNanos,
+        final long found,
+        final long notFound,
+        final long unfinished,
+        final Map<String, Long> errors,
+        final HistogramSnapshot responseTime,
+        final HistogramSnapshot serviceTime,
+        final int peakLeased,
+        final int peakPending,
+        final int maxConnections) {
+        this.mode = mode;
+        this.targetRate = targetRate;
+        this.concurrency = concurrency;
+        this.elapsedNanos = elapsedNanos;
+        this.found = found;
+        this.notFound = notFound;
+        this.unfinished = unfinished;
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+        this.peakLeased = peakLeased;
+        this.peakPending = peakPending;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Column headings matching {@link #toRow()}.
+     * @return Header row.
+     */
+    public static String header() {
+        return String.format("%-6s %8s %7s %10s %8s %8s %8s %9s %9s %9s %9s %9s %11s %11s",
+            "mode", "target/s", "threads", "achieved/s", "ok", "notfound", "errors",
+            "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms", "peak pool");
+    }
+
+    /**
+     * One row of the throughput/latency curve.
+     * @return Formatted row.
+     */
+    public String toRow() {
+        return String.format("%-6s %8s %7d %10.1f %8d %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f %11s",
+            mode, targetRate == 0 ? "-" : String.format("%.0f", targetRate), concurrency, getAchievedRate(),
+            found, notFound, getErrorCount(),
+            toMillis(responseTime.getPercentileNanos(50)),
+            toMillis(responseTime.getPercentileNanos(90)),
+            toMillis(responseTime.getPercentileNanos(99)),
+            toMillis(responseTime.getPercentileNanos(99.9)),
+            toMillis(responseTime.getMaxNanos()),
+            toMillis(serviceTime.getPercentileNanos(99)),
+            maxConnections < 0 ? "-" : peakLeased + "/" + maxConnections + "+" + peakPending);
+    }
+
+    /**
+     * Requests completed per second, successfully or otherwise.
+     * @return Throughput.
+     */
+    public double getAchievedRate() {
+        return elapsedNanos == 0 ? 0 : (found + notFound + getErrorCount()) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Total requests which failed.
+     * @return Error count.
+     */
+    public long getErrorCount() {
+        long count = 0;
+        for (final long value : errors.values()) {
+            count += value;
+        }
+        return count;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getFound() {
+        return found;
+    }
+
+    public long getNotFound() {
+        return notFound;
+    }
+
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    public HistogramSnapshot getResponseTime() {
+        return responseTime;
+    }
+
+    public HistogramSnapshot getServiceTime() {
+        return serviceTime;
+    }
+
+    public int getPeakLeased() {
+        return peakLeased;
+    }
+
+    public int getPeakPending() {
+        return peakPending;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult{"
+            + "mode='" + mode + '\''
+            + ", targetRate=" + targetRate
+            + ", concurrency=" + concurrency
+            + ", achievedRate=" + getAchievedRate()
+            + ", found=" + found
+            + ", notFound=" + notFound
+            + ", unfinished=" + unfinished
+            + ", errors=" + errors
+            + ", responseTime=" + responseTime
+            + ", serviceTime=" + serviceTime
+            + '}';
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.loadtest;
+
+import org.sourcelab.hkp.ConfigurationBuilder;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.benchmark.RestClients;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.rest.ReplayingRestClient;
+import org.sourcelab.hkp.server.LatencyDistribution;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line load test, printing a throughput/latency curve as the request rate, or concurrency, steps up.
+ *
+ * Runs against an in-process {@link StubKeyServer} unless --host is given.  Run with --help for options.
+ */
+public final class LoadTest {
+    private static final String USAGE = String.join("\n",
+        "Usage: java -cp benchmarks.jar org.sourcelab.hkp.loadtest.LoadTest [options]",
+        "",
+        "  --client NAME          RestClient: httpclient5, jdk or pipelining (default httpclient5)",
+        "  --mode MODE            open: fixed arrival rate, closed: fixed concurrency (default open)",
+        "  --rates LIST           Open loop requests per second, one step each (default 100,200,400,800,1600)",
+        "  --threads N            Open loop maximum requests in flight (default 256)",
+        "  --concurrency LIST     Closed loop requests in flight, one step each (default 1,4,16,64)",
+        "  --duration SECS        Length of each step (default 10)",
+        "  --warmup SECS          Closed loop warm up before the first step (default 5)",
+        "  --get-ratio RATIO      Fraction of requests which are gets, the rest are searches (default 0.8)",
+        "  --max-connections N    Client connection pool size (default the client's default)",
+        "",
+        "  --replay FILE          Resend the gets and searches in a RecordingRestClient file, answered from the",
+        "                         recording by a ReplayingRestClient, instead of stepping through rates",
+        "  --time-scale SCALE     Replay multiplier for recorded arrival times and latency, 0 for none (default 1)",
+        "",
+        "  --host URL             Key server to test against, instead of the stub server",
+        "  --key-ids LIST         Key ids to get from --host",
+        "  --search-terms LIST    Terms to search --host for",
+        "",
+        "  --keys N               Stub server synthetic keys (default 10000)",
+        "  --latency-ms MS        Stub server median latency, log-normally distributed (default 1)",
+        "  --error-rate RATE      Stub server fraction of requests answered 503 (default 0)",
+        "  --reset-rate RATE      Stub server fraction of connections reset (default 0)",
+        "  --seed N               Stub server random seed (default 0)");
+
+    private LoadTest() {
+    }
+
+    /**
+     * Run the load test.
+     * @param args Command line options.
+     * @throws Exception on failure.
+     */
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        if (options.containsKey("help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        final String client = options.getOrDefault("client", RestClients.HTTPCLIENT5);
+        final String mode = options.getOrDefault("mode", "open");
+        final Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10")));
+        final Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        final double getRatio = Double.parseDouble(options.getOrDefault("get-ratio", "0.8"));
+
+        if (options.containsKey("replay")) {
+            replay(Paths.get(options.get("replay")), Double.parseDouble(options.getOrDefault("time-scale", "1")),
+                Integer.parseInt(options.getOrDefault("threads", "256")));
+            return;
+        }
+
+        StubKeyServer server = null;
+        final String host;
+        final Workload workload;
+        if (options.containsKey("host")) {
+            host = options.get("host");
+            workload = new Workload(getRatio, parseList(options.get("key-ids")), parseList(options.get("search-terms")));
+        } else {
+            server = StubKeyServer.newBuilder()
+                .withSyntheticKeys(Integer.parseInt(options.getOrDefault("keys", "10000")))
+                .withLatency(LatencyDistribution.logNormal(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency-ms", "1"))), 0.5))
+                .withErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .withResetRate(Double.parseDouble(options.getOrDefault("reset-rate", "0")))
+                .withSeed(Long.parseLong(options.getOrDefault("seed", "0")))
+                .build();
+            host = server.getHost();
+            workload = Workload.fromKeys(getRatio, server.getKeys());
+        }
+
+        final ConfigurationBuilder configuration = Configuration.newBuilder().withKeyServerHost(host);
+        if (options.containsKey("max-connections")) {
+            configuration.withMaxConnections(Integer.parseInt(options.get("max-connections")));
+        }
+
+        try (final HkpClient hkpClient = new HkpClient(configuration, RestClients.create(client))) {
+            final LoadGenerator generator = new LoadGenerator(hkpClient, workload);
+            System.out.println("client=" + client + " mode=" + mode + " host=" + host + " " + workload);
+
+            // Warm up connections and the JIT with a short closed loop, discarding the result.
+            generator.runClosedLoop(4, warmup);
+
+            final List<LoadResult> results = new ArrayList<>();
+            System.out.println(LoadResult.header());
+            if ("closed".equals(mode)) {
+                for (final String concurrency : parseList(options.getOrDefault("concurrency", "1,4,16,64"))) {
+                    results.add(print(generator.runClosedLoop(Integer.parseInt(concurrency), duration)));
+                }
+            } else if ("open".equals(mode)) {
+                final int threads = Integer.parseInt(options.getOrDefault("threads", "256"));
+                for (final String rate : parseList(options.getOrDefault("rates", "100,200,400,800,1600"))) {
+                    results.add(print(generator.runOpenLoop(Double.parseDouble(rate), threads, duration)));
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+
+            for (final LoadResult result : results) {
+                if (result.getErrorCount() > 0 || result.getUnfinished() > 0) {
+                    System.out.println(result.getMode() + " " + result.getTargetRate() + "/s x" + result.getConcurrency()
+                        + ": errors=" + result.getErrors() + " unfinished=" + result.getUnfinished());
+                }
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Resend recorded traffic against its own recorded responses, so no key server is needed.
+     */
+    private static void replay(final Path file, final double timeScale, final int threads) throws Exception {
+        final ReplayingRestClient restClient = new ReplayingRestClient(file, timeScale);
+        try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost("http://localhost"), restClient)) {
+            System.out.println("replay=" + file + " recordings=" + restClient.getRecordings().size() + " timeScale=" + timeScale);
+            System.out.println(LoadResult.header());
+            final LoadResult result = print(new LoadGenerator(hkpClient, null).runReplay(restClient.getRecordings(), timeScale, threads));
+            if (result.getErrorCount() > 0 || result.getUnfinished() > 0) {
+                System.out.println("errors=" + result.getErrors() + " unfinished=" + result.getUnfinished());
+            }
+        }
+    }
+
+    private static LoadResult print(final LoadResult result) {
+        System.out.println(result.toRow());
+        return result;
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (int index = 0; index < args.length; index++) {
+            if (!args[index].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[index] + "\n" + USAGE);
+            }
+            final String name = args[index].substring(2);
+            if ("help".equals(name)) {
+                options.put(name, "");
+            } else if (index + 1 < args.length) {
+                options.put(name, args[++index]);
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + name + "\n" + USAGE);
+            }
+        }
+        return options;
+    }
+
+    private static List<String> parseList(final String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(value.trim().split("\\s*,\\s*"));
+    }
+}
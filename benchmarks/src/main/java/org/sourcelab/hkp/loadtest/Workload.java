@@ -0,0 +1,151 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.loadtest;
+
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.response.Result;
+import org.sourcelab.hkp.response.search.SearchIndexResponse;
+import org.sourcelab.hkp.rest.Recording;
+import org.sourcelab.hkp.server.StubKey;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The mix of requests a load test sends: gets by key id and exact searches by email address, in a fixed ratio,
+ * each picked at random from a set of keys.
+ */
+public final class Workload {
+    private final double getRatio;
+    private final List<String> keyIds;
+    private final List<String> searchTerms;
+
+    /**
+     * Constructor.
+     * @param getRatio Fraction of requests which are gets, between 0 and 1, the remainder are searches.
+     * @param keyIds Key ids to get.
+     * @param searchTerms Terms to search for.
+     */
+    public Workload(final double getRatio, final List<String> keyIds, final List<String> searchTerms) {
+        if (!(getRatio >= 0 && getRatio <= 1)) {
+            throw new IllegalArgumentException("Get ratio must be between 0 and 1.");
+        }
+        if ((getRatio > 0 && keyIds.isEmpty()) || (getRatio < 1 && searchTerms.isEmpty())) {
+            throw new IllegalArgumentException("Workload requires key ids to get and terms to search for.");
+        }
+        this.getRatio = getRatio;
+        this.keyIds = Collections.unmodifiableList(new ArrayList<>(keyIds));
+        this.searchTerms = Collections.unmodifiableList(new ArrayList<>(searchTerms));
+    }
+
+    /**
+     * A workload over the keys served by a {@link org.sourcelab.hkp.server.StubKeyServer}, searching for the email
+     * address within each key's first user id.
+     * @param getRatio Fraction of requests which are gets, between 0 and 1, the remainder are searches.
+     * @param keys Keys to request.
+     * @return Workload instance.
+     */
+    public static Workload fromKeys(final double getRatio, final List<StubKey> keys) {
+        final List<String> keyIds = new ArrayList<>(keys.size());
+        final List<String> searchTerms = new ArrayList<>(keys.size());
+        for (final StubKey key : keys) {
+            keyIds.add("0x" + key.getKeyId());
+            if (!key.getUids().isEmpty()) {
+                final String uid = key.getUids().get(0);
+                final int start = uid.indexOf('<');
+                final int end = uid.indexOf('>', start);
+                searchTerms.add(start != -1 && end != -1 ? uid.substring(start + 1, end) : uid);
+            }
+        }
+        return new Workload(getRatio, keyIds, searchTerms);
+    }
+
+    /**
+     * Send the next request, chosen at random, and wait for its response.
+     * @param client Client to send with.
+     * @return True if found, false if the key server responded 404.
+     * @throws RuntimeException if the request failed.
+     */
+    public boolean execute(final HkpClient client) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < getRatio) {
+            return client.get(new GetRequest(keyIds.get(random.nextInt(keyIds.size())))).isPresent();
+        }
+        return isFound(client.trySearch(new SearchRequest(searchTerms.get(random.nextInt(searchTerms.size()))).withExactMatch(true)));
+    }
+
+    /**
+     * Whether a recorded request is a get or search, which {@link #replay(HkpClient, Recording)} can resend.
+     * @param recording Recorded request.
+     * @return True if replayable.
+     */
+    public static boolean isReplayable(final Recording recording) {
+        final String operation = parseQuery(recording.getQueryString()).get("op");
+        return recording.getPath() == null && ("get".equals(operation) || "index".equals(operation));
+    }
+
+    /**
+     * Resend a recorded get or search, and wait for its response.
+     * @param client Client to send with.
+     * @param recording Recorded request.
+     * @return True if found, false if the key server responded 404.
+     * @throws RuntimeException if the request failed.
+     */
+    public static boolean replay(final HkpClient client, final Recording recording) {
+        final Map<String, String> params = parseQuery(recording.getQueryString());
+        if ("get".equals(params.get("op"))) {
+            return client.get(new GetRequest(params.get("search"))).isPresent();
+        }
+        return isFound(client.trySearch(new SearchRequest(params.get("search")).withExactMatch("on".equals(params.get("exact")))));
+    }
+
+    private static boolean isFound(final Result<SearchIndexResponse> result) {
+        return result.orElseThrowInvalidRequestException().getCount() > 0;
+    }
+
+    private static Map<String, String> parseQuery(final String queryString) {
+        final Map<String, String> params = new HashMap<>();
+        for (final String param : queryString.split("&")) {
+            final int separator = param.indexOf('=');
+            if (separator != -1) {
+                params.put(
+                    URLDecoder.decode(param.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8)
+                );
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        return "Workload{"
+            + "getRatio=" + getRatio
+            + ", keyIds=" + keyIds.size()
+            + ", searchTerms=" + searchTerms.size()
+            + '}';
+    }
+}
@@ -18,8 +18,17 @@
 package org.sourcelab.hkp;
 
 import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.config.LimitConfiguration;
+import org.sourcelab.hkp.config.PoolConfiguration;
 import org.sourcelab.hkp.config.ProxyConfiguration;
+import org.sourcelab.hkp.listener.CompositeListener;
+import org.sourcelab.hkp.listener.HkpClientListener;
+import org.sourcelab.hkp.rest.RestInterceptor;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -45,6 +54,36 @@ public class ConfigurationBuilder {
     // Optional setting to define request timeout.
     private int requestTimeoutSecs = 10;
 
+    // Optional setting to define the maximum number of pooled connections, 0 uses the underlying client's default.
+    private int maxConnections = 0;
+
+    // Optional settings for eagerly opening and maintaining idle connections.
+    private int warmUpConnections = 1;
+    private int keepWarmIntervalSecs = 0;
+
+    // Optional setting for transports that pipeline requests over a single connection.
+    private int pipelineDepth = 8;
+
+    // Optional setting to share a single request between identical concurrent get requests, disabled by default.
+    private boolean getDeduplication = false;
+
+    // Optional limits on responses from the key server, 0 for unlimited.
+    private long maxResponseBytes = 0;
+    private int maxIndexEntries = 0;
+    private int maxKeyBytes = 0;
+
+    // Optional listeners notified of each request's progress.
+    private final List<HkpClientListener> listeners = new ArrayList<>();
+
+    // Optional name to register statistics under as a JMX MBean.
+    private String jmxName = null;
+
+    // Optional interceptors wrapping each request to the RestClient.
+    private final List<RestInterceptor> interceptors = new ArrayList<>();
+
+    // Optional setting to skip capturing stack traces for error responses.
+    private boolean stacklessExceptions = false;
+
     /**
      * Allow setting optional proxy configuration over HTTP.
      *
@@ -100,9 +139,24 @@ public class ConfigurationBuilder {
      *
      * @param host the key server host in format of "http://my.host:80" or "https://my.host".
      * @return Builder instance.
+     * @throws IllegalArgumentException if the host is not an http or https URL.
      */
     public ConfigurationBuilder withKeyServerHost(final String host) {
-        this.keyServerHost = Objects.requireNonNull(host);
+        Objects.requireNonNull(host);
+        // Catch a missing scheme here, rather than once the RestClient has started building its connection pool.
+        final URI uri;
+        try {
+            uri = new URI(host);
+        } catch (final URISyntaxException exception) {
+            throw new IllegalArgumentException("Invalid key server host: " + host, exception);
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("Key server host must start with http:// or https://, got: " + host);
+        }
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid key server host: " + host);
+        }
+        this.keyServerHost = host;
         return this;
     }
 
@@ -133,6 +187,180 @@ public class ConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Define the maximum number of connections the client will pool to the key server.
+     *
+     * @param maxConnections Maximum number of pooled connections, must be at least 1.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withMaxConnections(final int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1.");
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Define how many idle connections {@link HkpClient#warmUp()} should open ahead of the first request.
+     * Each connection is fully established, including DNS resolution and the TLS handshake.
+     *
+     * @param warmUpConnections Number of connections to open, 0 disables opening connections during warm up.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withWarmUpConnections(final int warmUpConnections) {
+        if (warmUpConnections < 0) {
+            throw new IllegalArgumentException("warmUpConnections may not be negative.");
+        }
+        this.warmUpConnections = warmUpConnections;
+        return this;
+    }
+
+    /**
+     * After {@link HkpClient#warmUp()}, periodically recycle idle connections and top the pool back up to the
+     * configured number of warm up connections, so they remain usable even if the server times out idle connections.
+     *
+     * @param keepWarmIntervalSecs How often (in seconds) to refresh idle connections, 0 disables.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withKeepWarmInterval(final int keepWarmIntervalSecs) {
+        if (keepWarmIntervalSecs < 0) {
+            throw new IllegalArgumentException("keepWarmIntervalSecs may not be negative.");
+        }
+        this.keepWarmIntervalSecs = keepWarmIntervalSecs;
+        return this;
+    }
+
+    /**
+     * Define how many requests may be written to a single connection before their responses are received.
+     * Only applies to transports that support HTTP/1.1 pipelining, such as {@link org.sourcelab.hkp.rest.PipeliningRestClient}.
+     *
+     * @param pipelineDepth Maximum requests awaiting a response per connection, 1 disables pipelining.
+     * @return ConfigurationBuilder instance.
+     */
+    public ConfigurationBuilder withPipelineDepth(final int pipelineDepth) {
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("pipelineDepth must be at least 1.");
+        }
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
+    /**
+     * Share a single request to the key server between identical {@link HkpClient#get(org.sourcelab.hkp.request.GetRequest)}
+     * calls made concurrently from any number of threads.  Requests are never delayed, so only those made while an
+     * identical request is still awaiting its response are deduplicated.  Each caller receives the same response.
+     * Installs {@link org.sourcelab.hkp.rest.CoalescingInterceptor#forGets()} ahead of any configured interceptors.
+     *
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withGetDeduplication() {
+        this.getDeduplication = true;
+        return this;
+    }
+
+    /**
+     * Limit how large a response body the client will read.  As soon as a response is known to exceed the limit,
+     * from its Content-Length or while reading it, the request fails with {@link ResponseTooLargeException} and
+     * the connection is discarded rather than the rest of the body read.
+     *
+     * @param maxResponseBytes Largest response body (in bytes) to read, must be at least 1.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withMaxResponseBytes(final long maxResponseBytes) {
+        if (maxResponseBytes < 1) {
+            throw new IllegalArgumentException("maxResponseBytes must be at least 1.");
+        }
+        this.maxResponseBytes = maxResponseBytes;
+        return this;
+    }
+
+    /**
+     * Limit how many entries a search may return.  A search index response declaring or holding more entries
+     * fails with {@link ResponseTooLargeException}, without parsing the rest of it.
+     *
+     * @param maxIndexEntries Most entries to accept, must be at least 1.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withMaxIndexEntries(final int maxIndexEntries) {
+        if (maxIndexEntries < 1) {
+            throw new IllegalArgumentException("maxIndexEntries must be at least 1.");
+        }
+        this.maxIndexEntries = maxIndexEntries;
+        return this;
+    }
+
+    /**
+     * Limit how large a single key may be.  Retrieving a larger key fails with {@link ResponseTooLargeException}.
+     *
+     * @param maxKeyBytes Largest key (in bytes) to accept, must be at least 1.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withMaxKeyBytes(final int maxKeyBytes) {
+        if (maxKeyBytes < 1) {
+            throw new IllegalArgumentException("maxKeyBytes must be at least 1.");
+        }
+        this.maxKeyBytes = maxKeyBytes;
+        return this;
+    }
+
+    /**
+     * Register a listener to be notified as each request to the key server starts, completes each phase, and ends.
+     * May be called more than once to register several listeners, which are notified in the order registered.
+     * See {@link org.sourcelab.hkp.listener.LatencyHistogramListener} and
+     * {@link org.sourcelab.hkp.listener.AccessLogListener} for ready made implementations.
+     *
+     * @param listener Listener to notify.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withListener(final HkpClientListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener));
+        return this;
+    }
+
+    /**
+     * Register the client's statistics as a JMX MBean named
+     * {@code org.sourcelab.hkp:type=HkpClient,name=<name>}, so that connection pool usage and request outcomes
+     * can be monitored live with tools such as JConsole.  The MBean is unregistered when the client is closed.
+     *
+     * @param name Name distinguishing this client from any others in the same JVM.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withJmx(final String name) {
+        if (Objects.requireNonNull(name).trim().isEmpty()) {
+            throw new IllegalArgumentException("name may not be empty.");
+        }
+        this.jmxName = name;
+        return this;
+    }
+
+    /**
+     * Register an interceptor to wrap each request submitted to the RestClient, for example to cache, retry or
+     * coalesce requests.  May be called more than once, interceptors run in the order registered, the first outermost.
+     * See {@link org.sourcelab.hkp.rest.CoalescingInterceptor} for a ready made implementation.
+     *
+     * @param interceptor Interceptor to add.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withInterceptor(final RestInterceptor interceptor) {
+        this.interceptors.add(Objects.requireNonNull(interceptor));
+        return this;
+    }
+
+    /**
+     * Skip capturing a stack trace when throwing {@link InvalidRequestException} for an error response from the key
+     * server, such as a search with no matches.  Capturing the stack trace is the bulk of the cost of an exception,
+     * so enable this where such errors are routine.  Failures to reach the key server keep their stack traces.
+     * See also {@link HkpClient#trySearch(org.sourcelab.hkp.request.SearchRequest)}, which does not throw on errors.
+     *
+     * @param stacklessExceptions Pass a value of true to skip capturing stack traces.
+     * @return Builder instance.
+     */
+    public ConfigurationBuilder withStacklessExceptions(final boolean stacklessExceptions) {
+        this.stacklessExceptions = stacklessExceptions;
+        return this;
+    }
+
     /**
      * Create {@link Configuration} instance using properties defined on the builder.
      * @return Configuration instance.
@@ -154,12 +382,30 @@ public class ConfigurationBuilder {
             );
         }
 
+        // Notify each listener in turn if there is more than one.
+        final HkpClientListener listener;
+        if (listeners.isEmpty()) {
+            listener = null;
+        } else if (listeners.size() == 1) {
+            listener = listeners.get(0);
+        } else {
+            listener = new CompositeListener(listeners);
+        }
+
         // Create instance.
         return new Configuration(
             keyServerHost,
             proxyConfiguration,
             ignoreInvalidSslCertificates,
-            requestTimeoutSecs
+            requestTimeoutSecs,
+            new Configuration.Options()
+                .withPoolConfiguration(new PoolConfiguration(maxConnections, warmUpConnections, keepWarmIntervalSecs, pipelineDepth))
+                .withGetDeduplication(getDeduplication)
+                .withLimitConfiguration(new LimitConfiguration(maxResponseBytes, maxIndexEntries, maxKeyBytes))
+                .withListener(listener)
+                .withJmxName(jmxName)
+                .withInterceptors(interceptors)
+                .withStacklessExceptions(stacklessExceptions)
         );
     }
 }
@@ -20,44 +20,136 @@ package org.sourcelab.hkp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.CacheOutcome;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.Phase;
 import org.sourcelab.hkp.parser.GetResponseParser;
+import org.sourcelab.hkp.parser.HashQueryResponseParser;
 import org.sourcelab.hkp.parser.ResponseParser;
+import org.sourcelab.hkp.parser.SearchCountResponseParser;
 import org.sourcelab.hkp.parser.SearchIndexResponseParser;
+import org.sourcelab.hkp.request.AddRequest;
 import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.HashGetRequest;
+import org.sourcelab.hkp.request.HashQueryRequest;
 import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
 import org.sourcelab.hkp.request.SearchRequest;
 import org.sourcelab.hkp.response.ErrorResponse;
 import org.sourcelab.hkp.response.Result;
+import org.sourcelab.hkp.response.add.AddResponse;
+import org.sourcelab.hkp.response.add.KeyAddResult;
 import org.sourcelab.hkp.response.get.PgpPublicKey;
 import org.sourcelab.hkp.response.search.SearchIndexResponse;
+import org.sourcelab.hkp.rest.CoalescingInterceptor;
 import org.sourcelab.hkp.rest.HttpClient5RestClient;
+import org.sourcelab.hkp.rest.InterceptingRestClient;
 import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestInterceptor;
 import org.sourcelab.hkp.rest.RestResponse;
+import org.sourcelab.hkp.stats.ClientStats;
+import org.sourcelab.hkp.stats.JmxClientStats;
 
+import javax.management.JMException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * HKS Key Server Client.
+ *
+ * Instances are thread safe and intended to be shared.  The underlying {@link RestClient} is lazily
+ * initialized exactly once, on first use, regardless of how many threads race to use it.
  */
 public class HkpClient implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(HkpClient.class);
 
+    /**
+     * How many key hashes to request in a single /pks/hashquery request.
+     */
+    private static final int HASH_QUERY_BATCH_SIZE = 256;
+
+    /**
+     * How many individual requests to run concurrently when falling back from /pks/hashquery,
+     * unless a maximum number of connections has been configured.
+     */
+    private static final int DEFAULT_BULK_PARALLELISM = 8;
+
+    /**
+     * Returned by {@link #trySearch(SearchRequest)} when nothing matches.
+     */
+    private static final SearchIndexResponse EMPTY_SEARCH_RESPONSE = new SearchIndexResponse(1, 0, Collections.emptyList());
+
+    /**
+     * Most bytes of the response body read by {@link #count(SearchRequest)} and {@link #exists(GetRequest)}.
+     * Far more than any header line, while responses this small are read in full so their connection is reused.
+     */
+    private static final int PARTIAL_BODY_BYTES = 8 * 1024;
+
     /**
      * Our API Configuration.
      */
     private final Configuration configuration;
 
     /**
-     * Underlying RestClient to use.
+     * Underlying RestClient to use, wrapped in the configured interceptors if there are any.
      */
     private final RestClient restClient;
 
+    /**
+     * Completes once the underlying RestClient has been initialized.  Set exactly once via compare-and-set by
+     * whichever thread wins the race to initialize, every other thread waits on the same future.
+     */
+    private final AtomicReference<CompletableFuture<RestClient>> initialized = new AtomicReference<>();
+
     /**
      * Internal State flag.
      */
-    private boolean isInitialized = false;
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * Whether the key server supports /pks/hashquery, null until we find out.
+     */
+    private volatile Boolean isHashQuerySupported = null;
+
+    /**
+     * Whether the key server accepts gzipped /pks/add request bodies, null until we find out.
+     */
+    private volatile Boolean isAddCompressionSupported = null;
+
+    /**
+     * Runs individual requests concurrently for bulk operations, lazily created.
+     */
+    private final AtomicReference<ExecutorService> bulkExecutor = new AtomicReference<>();
+
+    /**
+     * Request outcomes, see {@link #getStats()}.
+     */
+    private final LongAdder requestsSucceeded = new LongAdder();
+    private final LongAdder requestsNotFound = new LongAdder();
+    private final LongAdder requestsClientError = new LongAdder();
+    private final LongAdder requestsServerError = new LongAdder();
+    private final LongAdder requestsFailed = new LongAdder();
+    private final LongAdder requestsInFlight = new LongAdder();
+
+    /**
+     * Statistics registered with JMX, if enabled.
+     */
+    private final JmxClientStats jmxClientStats;
 
     /**
      * Default Constructor.
@@ -92,36 +184,210 @@ public class HkpClient implements AutoCloseable {
      */
     HkpClient(final Configuration configuration, final RestClient restClient) {
         this.configuration = Objects.requireNonNull(configuration);
-        this.restClient = Objects.requireNonNull(restClient);
+        this.restClient = configuration.hasInterceptors() || configuration.isGetDeduplication()
+            ? new InterceptingRestClient(Objects.requireNonNull(restClient), getInterceptors(configuration))
+            : Objects.requireNonNull(restClient);
+        this.jmxClientStats = configuration.isJmxEnabled() ? registerJmx(configuration.getJmxName()) : null;
+    }
+
+    /**
+     * The configured interceptors, preceded by one coalescing gets if deduplicating them.
+     */
+    private static List<RestInterceptor> getInterceptors(final Configuration configuration) {
+        if (!configuration.isGetDeduplication()) {
+            return configuration.getInterceptors();
+        }
+        final List<RestInterceptor> interceptors = new ArrayList<>(configuration.getInterceptors().size() + 1);
+        interceptors.add(CoalescingInterceptor.forGets());
+        interceptors.addAll(configuration.getInterceptors());
+        return interceptors;
     }
 
     private <T> Result<T> submitRequest(final Request request, final ResponseParser<T> responseParser) {
-        // Submit request
-        final RestResponse restResponse = getRestClient().submitRequest(request);
-        final int responseCode = restResponse.getHttpCode();
-        String responseStr = restResponse.getResponseStr();
+        return submitRequest(request, -1, responseParser);
+    }
+
+    /**
+     * Submit a request and parse its response.
+     * @param request The request to submit.
+     * @param maxBodyBytes Most bytes of the response body to read, or -1 for all of it.
+     * @param responseParser Parses a successful response.
+     * @param <T> The parsed response type.
+     * @return Result holding the parsed response, or the key server's error response.
+     */
+    private <T> Result<T> submitRequest(final Request request, final int maxBodyBytes, final ResponseParser<T> responseParser) {
+        return execute(request, maxBodyBytes, (restResponse) -> {
+            final int responseCode = restResponse.getHttpCode();
+            String responseStr = restResponse.getResponseStr();
+
+            // Bodies can be large, only log them when explicitly asked to.
+            if (logger.isTraceEnabled()) {
+                logger.trace("Response: {}", restResponse);
+            }
+
+            // If not a success response code
+            if (responseCode != 200) {
+                // Parse error response
+                final ErrorResponse error = new ErrorResponse(
+                    responseStr,
+                    restResponse.getHttpCode()
+                );
+
+                // Return error response.
+                return Result.newError(error);
+            }
+
+            // Attempt to parse and return a Success result.
+            try {
+                return Result.newSuccess(
+                    responseParser.parseResponse(restResponse.getResponseStr())
+                );
+            } catch (final IOException exception) {
+                throw new ParserException(exception.getMessage(), exception);
+            }
+        });
+    }
+
+    /**
+     * Submit a request and handle its response.  If a listener is configured, the request is reported to it,
+     * with handling the response timed as the parse phase.  The request is also reported to Flight Recorder,
+     * when running on Java 11 or newer and the event is enabled.
+     *
+     * @param request The request to submit.
+     * @param responseHandler Handles the response.
+     * @param <T> The handled response type.
+     * @return The handled response.
+     */
+    private <T> T execute(final Request request, final Function<RestResponse, T> responseHandler) {
+        return execute(request, -1, responseHandler);
+    }
+
+    private <T> T execute(final Request request, final int maxBodyBytes, final Function<RestResponse, T> responseHandler) {
+        final Exchange exchange = configuration.hasListener() ? newExchange(request) : null;
+        final LookupEvent lookupEvent = LookupEvent.start();
+        RestResponse restResponse = null;
+        requestsInFlight.increment();
+        try {
+            try {
+                if (maxBodyBytes >= 0) {
+                    restResponse = getRestClient().submitPartialRequest(request, exchange, maxBodyBytes);
+                } else if (exchange == null) {
+                    restResponse = getRestClient().submitRequest(request);
+                } else {
+                    restResponse = getRestClient().submitRequest(request, exchange);
+                }
+            } catch (final RuntimeException exception) {
+                requestsFailed.increment();
+                throw exception;
+            } finally {
+                requestsInFlight.decrement();
+            }
+            recordOutcome(restResponse);
+            if (exchange == null) {
+                return responseHandler.apply(restResponse);
+            }
+
+            if (restResponse != null) {
+                final RequestBody requestBody = request.getRequestBody();
+                exchange.recordResponse(
+                    restResponse.getHttpCode(),
+                    requestBody == null ? 0 : requestBody.getContent().length,
+                    restResponse.getResponseLength()
+                );
+                exchange.recordCacheOutcome(restResponse.getCacheOutcome());
+            }
+
+            final long parseStart = System.nanoTime();
+            final T result = responseHandler.apply(restResponse);
+            exchange.recordPhase(Phase.PARSE, parseStart, System.nanoTime());
+            return result;
+        } catch (final RuntimeException exception) {
+            if (exchange != null) {
+                exchange.recordError(exception);
+            }
+            throw exception;
+        } finally {
+            if (exchange != null) {
+                exchange.end();
+            }
+            if (lookupEvent.shouldCommit()) {
+                commitLookupEvent(lookupEvent, request, restResponse);
+            }
+        }
+    }
+
+    private Exchange newExchange(final Request request) {
+        final String endpoint = getEndpoint(request);
+        return new Exchange(configuration.getListener(), getOperation(request, endpoint), endpoint);
+    }
+
+    private void commitLookupEvent(final LookupEvent lookupEvent, final Request request, final RestResponse restResponse) {
+        final String endpoint = getEndpoint(request);
+        final String search = request.getRequestParameters().get("search");
+        final RequestBody requestBody = request.getRequestBody();
+        lookupEvent.setDetails(
+            getOperation(request, endpoint),
+            endpoint,
+            // Search terms may be email addresses, so only record a hash.
+            search == null ? 0 : search.hashCode(),
+            restResponse == null ? 0 : restResponse.getHttpCode(),
+            requestBody == null ? 0 : requestBody.getContent().length,
+            restResponse == null ? 0 : restResponse.getResponseLength(),
+            restResponse == null ? CacheOutcome.NONE.name() : restResponse.getCacheOutcome().name()
+        );
+        lookupEvent.commit();
+    }
 
-        logger.info("Response: {}", restResponse);
+    private String getEndpoint(final Request request) {
+        return request.getPath() == null ? configuration.getBasePath() : request.getPath();
+    }
 
-        // If not a success response code
-        if (responseCode != 200) {
-            // Parse error response
-            final ErrorResponse error = new ErrorResponse(
-                responseStr,
-                restResponse.getHttpCode()
-            );
+    private static String getOperation(final Request request, final String endpoint) {
+        final String operation = request.getRequestParameters().get("op");
+        return operation == null ? endpoint.substring(endpoint.lastIndexOf('/') + 1) : operation;
+    }
 
-            // Return error response.
-            return Result.newError(error);
+    private void recordOutcome(final RestResponse restResponse) {
+        if (restResponse == null) {
+            requestsFailed.increment();
+            return;
         }
+        final int responseCode = restResponse.getHttpCode();
+        if (responseCode >= 200 && responseCode < 300) {
+            requestsSucceeded.increment();
+        } else if (responseCode == 404) {
+            requestsNotFound.increment();
+        } else if (responseCode < 500) {
+            requestsClientError.increment();
+        } else {
+            requestsServerError.increment();
+        }
+    }
 
-        // Attempt to parse and return a Success result.
+    /**
+     * Snapshot of request outcomes so far, and of the RestClient's connection pool usage where it exposes it.
+     *
+     * @return Client statistics.
+     */
+    public ClientStats getStats() {
+        return new ClientStats(
+            requestsSucceeded.sum(),
+            requestsNotFound.sum(),
+            requestsClientError.sum(),
+            requestsServerError.sum(),
+            requestsFailed.sum(),
+            requestsInFlight.sum(),
+            restClient.getConnectionPoolStats()
+        );
+    }
+
+    private JmxClientStats registerJmx(final String name) {
         try {
-            return Result.newSuccess(
-                responseParser.parseResponse(restResponse.getResponseStr())
-            );
-        } catch (final IOException exception) {
-            throw new ParserException(exception.getMessage(), exception);
+            return JmxClientStats.register(name, this::getStats);
+        } catch (final JMException exception) {
+            // Monitoring is not worth failing the client over.
+            logger.warn("Unable to register JMX MBean {}: {}", name, exception.getMessage());
+            return null;
         }
     }
 
@@ -139,24 +405,87 @@ public class HkpClient implements AutoCloseable {
      * @return Rest Client.
      */
     RestClient getRestClient() {
-        // If we haven't initialized.
-        if (!isInitialized) {
-            // Call Init.
-            restClient.init(getConfiguration());
+        CompletableFuture<RestClient> future = initialized.get();
+        while (future == null) {
+            // Attempt to claim initialization.
+            final CompletableFuture<RestClient> candidate = new CompletableFuture<>();
+            if (initialized.compareAndSet(null, candidate)) {
+                try {
+                    // Call Init.
+                    restClient.init(getConfiguration());
+                    candidate.complete(restClient);
+                } catch (final RuntimeException exception) {
+                    // Release our claim so a later call may retry, and fail anyone waiting on us.
+                    initialized.compareAndSet(candidate, null);
+                    candidate.completeExceptionally(exception);
+                    throw exception;
+                }
+            }
+            future = initialized.get();
+        }
 
-            // Flip state flag
-            isInitialized = true;
+        // Wait for whoever claimed initialization to finish.
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
         }
+    }
 
-        // return our rest client.
-        return restClient;
+    /**
+     * Eagerly initialize the client and open connections to the key server, so that the first request
+     * does not pay for initialization, DNS resolution, connecting or the TLS handshake.
+     * See {@link ConfigurationBuilder#withWarmUpConnections(int)} and {@link ConfigurationBuilder#withKeepWarmInterval(int)}.
+     *
+     * @return How many new connections were opened.
+     */
+    public int warmUp() {
+        return getRestClient().warmUp();
     }
 
     /**
      * Clean up instance, releasing any resources held internally.
+     * Safe to call multiple times and from multiple threads, the underlying RestClient is closed at most once.
      */
     public void close() {
-        getRestClient().close();
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+
+        // Stop publishing statistics.
+        if (jmxClientStats != null) {
+            try {
+                jmxClientStats.unregister();
+            } catch (final JMException exception) {
+                logger.warn("Unable to unregister JMX MBean {}: {}", jmxClientStats.getObjectName(), exception.getMessage());
+            }
+        }
+
+        // Stop any bulk operation threads.
+        final ExecutorService executor = bulkExecutor.getAndSet(null);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        // Prevent any further initialization.
+        final CompletableFuture<RestClient> closedFuture = new CompletableFuture<>();
+        closedFuture.completeExceptionally(new IllegalStateException("HkpClient has been closed."));
+        final CompletableFuture<RestClient> previous = initialized.getAndSet(closedFuture);
+
+        // Never initialized, nothing to release.
+        if (previous == null) {
+            return;
+        }
+
+        // Wait for any in-flight initialization to finish before closing.
+        try {
+            previous.join().close();
+        } catch (final CompletionException exception) {
+            logger.debug("RestClient failed to initialize, nothing to close: {}", exception.getMessage());
+        }
     }
 
     /**
@@ -165,26 +494,307 @@ public class HkpClient implements AutoCloseable {
      * @return Response value.
      */
     public SearchIndexResponse search(final SearchRequest request) {
-        return submitRequest(request, new SearchIndexResponseParser())
+        return submitRequest(request, newSearchIndexResponseParser(request))
             .handleError((error) -> {
-                throw new InvalidRequestException(error.getMessage(), error.getCode());
+                throw newInvalidRequestException(error);
             });
     }
 
+    /**
+     * Issue a Search Request, without throwing if the key server responds with an error.
+     *
+     * Key servers respond 404 when nothing matches, which is reported as a successful, empty response.
+     * Failures to reach the key server are still thrown.
+     *
+     * @param request Defines the search request parameters.
+     * @return Result holding the response, or the key server's error response.
+     */
+    public Result<SearchIndexResponse> trySearch(final SearchRequest request) {
+        final Result<SearchIndexResponse> result = submitRequest(request, newSearchIndexResponseParser(request));
+        if (result.isError() && result.getError().getCode() == 404) {
+            return Result.newSuccess(EMPTY_SEARCH_RESPONSE);
+        }
+        return result;
+    }
+
+    /**
+     * Parser for a search, applying its filter and top K selection, and the configured entry limit.
+     */
+    private SearchIndexResponseParser newSearchIndexResponseParser(final SearchRequest request) {
+        return new SearchIndexResponseParser(
+            configuration.getLimitConfiguration().getMaxIndexEntries(),
+            request.getFilter(),
+            request.getTopK(),
+            request.getRanking()
+        );
+    }
+
+    /**
+     * Count the keys matching a search, without retrieving them.
+     *
+     * Only the start of the response is read, for the count the key server declares in its first line, and the
+     * rest of a large response is abandoned unread.  Key servers respond 404 when nothing matches, counted as 0.
+     *
+     * @param request Defines the search request parameters.
+     * @return Number of matching keys.
+     */
+    public int count(final SearchRequest request) {
+        final Result<Integer> result = submitRequest(request, PARTIAL_BODY_BYTES, new SearchCountResponseParser());
+        if (result.isError() && result.getError().getCode() == 404) {
+            return 0;
+        }
+        return result.handleError((error) -> {
+            throw newInvalidRequestException(error);
+        });
+    }
+
+    /**
+     * Check whether the key server has a key, without retrieving it.
+     *
+     * Only the status and start of the response are read, and the rest of a large key is abandoned unread.
+     * Requests are never batched, even when get batching is enabled.
+     *
+     * @param request Defines the Get Key Request.
+     * @return True if the key server has a matching key, false if it responded 404.
+     */
+    public boolean exists(final GetRequest request) {
+        final Result<Boolean> result = submitRequest(request, PARTIAL_BODY_BYTES, (responseStr) -> true);
+        if (result.isError() && result.getError().getCode() == 404) {
+            return false;
+        }
+        return result.handleError((error) -> {
+            throw newInvalidRequestException(error);
+        });
+    }
+
     /**
      * Get a PublicKey.
+     *
+     * When enabled via {@link ConfigurationBuilder#withGetDeduplication()}, a request identical to one already in
+     * flight waits for and shares its response rather than being sent again.
+     *
      * @param request Defines the Get Key Request.
      * @return Optional of PgpPublicKey.  Optional will be empty if no key found.
      */
     public Optional<PgpPublicKey> get(final GetRequest request) {
-        return Optional.ofNullable(submitRequest(request, new GetResponseParser())
+        return tryGet(request).handleError((error) -> {
+            throw newInvalidRequestException(error);
+        });
+    }
+
+    /**
+     * Get a PublicKey, without throwing if the key server responds with an error.
+     *
+     * Key servers respond 404 when no key matches, which is reported as a successful, empty Optional.
+     * Failures to reach the key server are still thrown.
+     *
+     * @param request Defines the Get Key Request.
+     * @return Result holding an Optional of PgpPublicKey, or the key server's error response.
+     */
+    public Result<Optional<PgpPublicKey>> tryGet(final GetRequest request) {
+        final Result<PgpPublicKey> result = submitRequest(request, new GetResponseParser(configuration.getLimitConfiguration().getMaxKeyBytes()));
+        if (result.isSuccess()) {
+            return Result.newSuccess(Optional.of(result.get()));
+        }
+        // On 404 just return empty Optional.
+        if (result.getError().getCode() == 404) {
+            return Result.newSuccess(Optional.empty());
+        }
+        return Result.newError(result.getError());
+    }
+
+    /**
+     * Exception for an error response from the key server, without a stack trace if so configured.
+     */
+    private InvalidRequestException newInvalidRequestException(final ErrorResponse error) {
+        return new InvalidRequestException(error.getMessage(), error.getCode(), !configuration.isStacklessExceptions());
+    }
+
+    /**
+     * Get many PublicKeys by their SKS key hashes, in as few round trips as possible.
+     *
+     * Keys are requested in batches via /pks/hashquery.  If the key server does not support that endpoint,
+     * each key is instead requested individually via op=hget, several at a time.  Hashes with no matching key
+     * are skipped.
+     *
+     * @param request Defines the key hashes to retrieve.
+     * @return All keys found, keys retrieved via /pks/hashquery are in the order the server returned them.
+     */
+    public List<PgpPublicKey> getAll(final HashQueryRequest request) {
+        final List<String> hashes = request.getHashes();
+        final List<PgpPublicKey> keys = new ArrayList<>(hashes.size());
+        for (int from = 0; from < hashes.size(); from += HASH_QUERY_BATCH_SIZE) {
+            final List<String> batch = hashes.subList(from, Math.min(hashes.size(), from + HASH_QUERY_BATCH_SIZE));
+            keys.addAll(getBatch(batch));
+        }
+        return keys;
+    }
+
+    private List<PgpPublicKey> getBatch(final List<String> hashes) {
+        if (!Boolean.FALSE.equals(isHashQuerySupported)) {
+            final List<PgpPublicKey> keys = execute(new HashQueryRequest(hashes), (restResponse) -> {
+                final int responseCode = restResponse.getHttpCode();
+                if (responseCode == 200) {
+                    isHashQuerySupported = true;
+                    try {
+                        return new HashQueryResponseParser(configuration.getLimitConfiguration().getMaxKeyBytes()).parseResponse(restResponse.getResponseBytes());
+                    } catch (final IOException exception) {
+                        throw new ParserException(exception.getMessage(), exception);
+                    }
+                }
+
+                // Not Found, Method Not Allowed or Not Implemented all signal the endpoint is unavailable.
+                if (responseCode != 404 && responseCode != 405 && responseCode != 501) {
+                    throw newInvalidRequestException(new ErrorResponse(restResponse.getResponseStr(), responseCode));
+                }
+                logger.info("Key server does not support /pks/hashquery (HTTP {}), falling back to op=hget", responseCode);
+                isHashQuerySupported = false;
+                return null;
+            });
+            if (keys != null) {
+                return keys;
+            }
+        }
+
+        // Fall back to requesting each key individually, several at a time.
+        final ExecutorService executor = getBulkExecutor();
+        final List<CompletableFuture<Optional<PgpPublicKey>>> futures = new ArrayList<>(hashes.size());
+        for (final String hash : hashes) {
+            futures.add(CompletableFuture.supplyAsync(() -> getByHash(hash), executor));
+        }
+
+        final List<PgpPublicKey> keys = new ArrayList<>(hashes.size());
+        for (final CompletableFuture<Optional<PgpPublicKey>> future : futures) {
+            try {
+                future.join().ifPresent(keys::add);
+            } catch (final CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exception.getCause();
+                }
+                throw exception;
+            }
+        }
+        return keys;
+    }
+
+    private Optional<PgpPublicKey> getByHash(final String hash) {
+        return Optional.ofNullable(submitRequest(new HashGetRequest(hash), new GetResponseParser(configuration.getLimitConfiguration().getMaxKeyBytes()))
             .handleError((error) -> {
                 // On 404
                 if (error.getCode() == 404) {
                     // Just return empty Optional.
                     return null;
                 }
-                throw new InvalidRequestException(error.getMessage(), error.getCode());
+                throw newInvalidRequestException(error);
             }));
     }
-}
\ No newline at end of file
+
+    /**
+     * Publish PublicKeys to the key server.
+     *
+     * Keys are uploaded in batches of {@link AddRequest#getBatchSize()}, each sent as a single concatenated keyring,
+     * with up to {@link AddRequest#getParallelism()} batches in flight at once.  A batch the server rejects, or that
+     * fails to send, is reported against each of its keys without affecting the other batches.
+     *
+     * @param request Defines the keys to publish.
+     * @return One result per key, in request order.
+     */
+    public AddResponse add(final AddRequest request) {
+        final List<String> keys = request.getKeys();
+        final int batchSize = request.getBatchSize();
+        final int batchCount = (keys.size() + batchSize - 1) / batchSize;
+        final KeyAddResult[] results = new KeyAddResult[keys.size()];
+
+        // Each worker takes the next unsent batch until none remain.
+        final AtomicInteger nextBatch = new AtomicInteger();
+        final Runnable worker = () -> {
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                addBatch(request, batch * batchSize, Math.min(keys.size(), (batch + 1) * batchSize), results);
+            }
+        };
+
+        final ExecutorService executor = getBulkExecutor();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int index = 0; index < Math.min(request.getParallelism(), batchCount); index++) {
+            futures.add(CompletableFuture.runAsync(worker, executor));
+        }
+        for (final CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (final CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exception.getCause();
+                }
+                throw exception;
+            }
+        }
+        return new AddResponse(Arrays.asList(results));
+    }
+
+    private void addBatch(final AddRequest request, final int from, final int to, final KeyAddResult[] results) {
+        AddRequest batch = new AddRequest(request.getKeys().subList(from, to))
+            .withCompression(request.isCompressed() && !Boolean.FALSE.equals(isAddCompressionSupported));
+
+        RestResponse restResponse;
+        try {
+            restResponse = execute(batch, Function.identity());
+
+            // Unsupported Media Type signals the server does not accept compressed bodies.
+            if (restResponse != null && restResponse.getHttpCode() == 415 && batch.isCompressed()) {
+                logger.info("Key server does not accept compressed /pks/add requests, retrying uncompressed");
+                isAddCompressionSupported = false;
+                batch = batch.withCompression(false);
+                restResponse = execute(batch, Function.identity());
+            }
+        } catch (final RestException | InvalidRequestException exception) {
+            for (int index = from; index < to; index++) {
+                results[index] = new KeyAddResult(index, false, 0, exception.getMessage());
+            }
+            return;
+        }
+
+        if (restResponse == null) {
+            for (int index = from; index < to; index++) {
+                results[index] = new KeyAddResult(index, false, 0, "No response received");
+            }
+            return;
+        }
+
+        final int responseCode = restResponse.getHttpCode();
+        final boolean accepted = responseCode >= 200 && responseCode < 300;
+        if (accepted && batch.isCompressed()) {
+            isAddCompressionSupported = true;
+        }
+        final String responseStr = restResponse.getResponseStr();
+        for (int index = from; index < to; index++) {
+            results[index] = new KeyAddResult(index, accepted, responseCode, responseStr);
+        }
+    }
+
+    private ExecutorService getBulkExecutor() {
+        ExecutorService executor = bulkExecutor.get();
+        if (executor != null) {
+            return executor;
+        }
+        if (isClosed.get()) {
+            throw new IllegalStateException("HkpClient has been closed.");
+        }
+
+        final int parallelism = configuration.getPoolConfiguration().hasMaxConnections()
+            ? configuration.getPoolConfiguration().getMaxConnections()
+            : DEFAULT_BULK_PARALLELISM;
+        executor = Executors.newFixedThreadPool(parallelism, (runnable) -> {
+            final Thread thread = new Thread(runnable, "hkp-client-bulk");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Only ever keep a single executor.
+        if (!bulkExecutor.compareAndSet(null, executor)) {
+            executor.shutdownNow();
+            return getBulkExecutor();
+        }
+        return executor;
+    }
+}
@@ -33,6 +33,18 @@ public class InvalidRequestException extends RuntimeException {
         this.errorCode = errorCode;
     }
 
+    /**
+     * Constructor, optionally without a stack trace.  Filling in the stack trace is the bulk of the cost of an
+     * exception, and is of little use for errors a caller expects and handles, such as a search with no matches.
+     * @param message Error message returned by server.
+     * @param errorCode Error code returned by server.
+     * @param writableStackTrace False to skip capturing the stack trace.
+     */
+    public InvalidRequestException(final String message, final int errorCode, final boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+        this.errorCode = errorCode;
+    }
+
     public InvalidRequestException(final String message, final Throwable cause) {
         super(message, cause);
         this.errorCode = -1;
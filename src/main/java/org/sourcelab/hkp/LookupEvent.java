@@ -0,0 +1,56 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+/**
+ * Flight Recorder event describing a single request to the key server, from submitting it through to handling
+ * its response.
+ *
+ * Flight Recorder is only available on Java 11 and newer, where this no-op class is replaced by one extending
+ * {@code jdk.jfr.Event} via the Multi-Release jar.  Callers should follow the usual pattern of calling
+ * {@link #start()}, then only filling in details and committing if {@link #shouldCommit()}.
+ */
+final class LookupEvent {
+    private static final LookupEvent DISABLED = new LookupEvent();
+
+    /**
+     * Start timing a lookup.  Without Flight Recorder there is nothing to record, so a shared instance is returned
+     * rather than allocating one per request.
+     * @return The started event.
+     */
+    static LookupEvent start() {
+        return DISABLED;
+    }
+
+    boolean shouldCommit() {
+        return false;
+    }
+
+    void setDetails(
+        final String operation,
+        final String endpoint,
+        final int searchHash,
+        final int statusCode,
+        final long bytesSent,
+        final long bytesReceived,
+        final String cacheOutcome) {
+    }
+
+    void commit() {
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+/**
+ * A response from the key server exceeded a limit configured with
+ * {@link ConfigurationBuilder#withMaxResponseBytes(long)}, {@link ConfigurationBuilder#withMaxIndexEntries(int)} or
+ * {@link ConfigurationBuilder#withMaxKeyBytes(int)}.  Where the limit was crossed while the response was still
+ * being read, the rest of it was not read and the connection was discarded.
+ */
+public class ResponseTooLargeException extends InvalidRequestException {
+    private final long limit;
+
+    /**
+     * Constructor.
+     * @param message Describes which limit was exceeded.
+     * @param limit The limit that was exceeded.
+     */
+    public ResponseTooLargeException(final String message, final long limit) {
+        super(message, (Throwable) null);
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
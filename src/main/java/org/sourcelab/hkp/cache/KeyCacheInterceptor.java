@@ -0,0 +1,134 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import org.sourcelab.hkp.index.Hex;
+import org.sourcelab.hkp.listener.CacheOutcome;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestInterceptor;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interceptor answering gets by long key id or v4 fingerprint from an {@link OffHeapKeyCache}, and caching the keys
+ * the key server returns.  Configure with {@link org.sourcelab.hkp.ConfigurationBuilder#withInterceptor(RestInterceptor)}.
+ *
+ * A key fetched by fingerprint is cached with its full fingerprint, and a get by fingerprint is only answered from the
+ * cache by a key cached with that same fingerprint, never by one merely sharing its key id.  Gets by short key id
+ * are never cached.  Responses are marked with their {@link CacheOutcome}.
+ */
+public class KeyCacheInterceptor implements RestInterceptor {
+    private final OffHeapKeyCache cache;
+
+    /**
+     * Constructor.
+     * @param cache Cache to answer from and add to.
+     */
+    public KeyCacheInterceptor(final OffHeapKeyCache cache) {
+        this.cache = Objects.requireNonNull(cache, "Cache may not be null.");
+    }
+
+    public OffHeapKeyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public RestResponse intercept(final Request request, final Exchange exchange, final Chain chain) throws RestException {
+        final String keyId = cacheableKeyId(request);
+        if (keyId == null) {
+            return chain.proceed(request, exchange);
+        }
+        final RestResponse cached = lookup(keyId);
+        if (cached != null) {
+            return cached;
+        }
+        return store(keyId, chain.proceed(request, exchange));
+    }
+
+    @Override
+    public CompletableFuture<RestResponse> interceptAsync(final Request request, final Chain chain) {
+        final String keyId = cacheableKeyId(request);
+        if (keyId == null) {
+            return chain.proceedAsync(request);
+        }
+        final RestResponse cached = lookup(keyId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return chain.proceedAsync(request).thenApply((response) -> store(keyId, response));
+    }
+
+    private RestResponse lookup(final String keyId) {
+        final byte[] cached = isFingerprint(keyId) ? cache.get(keyId) : cache.get(Hex.parseKeyId(keyId));
+        if (cached == null) {
+            return null;
+        }
+        return new RestResponse(cached, StandardCharsets.UTF_8, 200).withCacheOutcome(CacheOutcome.HIT);
+    }
+
+    private RestResponse store(final String keyId, final RestResponse response) {
+        // RestClients may return null on an I/O error.
+        if (response == null) {
+            return null;
+        }
+        final byte[] key = response.getResponseBytes();
+        if (response.getHttpCode() == 200 && !response.isPartial() && key != null && key.length > 0) {
+            if (isFingerprint(keyId)) {
+                cache.put(keyId, key);
+            } else {
+                cache.put(Hex.parseKeyId(keyId), key);
+            }
+        }
+
+        // Left alone if answered by a cache further down the chain.
+        return response.getCacheOutcome() == CacheOutcome.NONE ? response.withCacheOutcome(CacheOutcome.MISS) : response;
+    }
+
+    private static boolean isFingerprint(final String keyId) {
+        return keyId.length() == 42;
+    }
+
+    /**
+     * The key id of an op=get request by long key id or v4 fingerprint, as normalized by GetRequest to "0x" and 16
+     * or 40 upper case hex digits, or null if the request is anything else.
+     */
+    static String cacheableKeyId(final Request request) {
+        if (request.getRequestBody() != null || request.getPath() != null) {
+            return null;
+        }
+        final Map<String, String> params = request.getRequestParameters();
+        final String search = params.get("search");
+        if (!"get".equals(params.get("op")) || search == null
+            || (search.length() != 18 && search.length() != 42) || !search.startsWith("0x")) {
+            return null;
+        }
+        for (int index = 2; index < search.length(); index++) {
+            final char character = search.charAt(index);
+            if (!(character >= '0' && character <= '9') && !(character >= 'A' && character <= 'F')) {
+                return null;
+            }
+        }
+        return search;
+    }
+}
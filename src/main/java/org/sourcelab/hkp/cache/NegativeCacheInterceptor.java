@@ -0,0 +1,110 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import org.sourcelab.hkp.index.Hex;
+import org.sourcelab.hkp.listener.CacheOutcome;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestInterceptor;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.security.SecureRandom;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interceptor answering gets by long key id or v4 fingerprint with a 404, without a round trip, when the key server
+ * responded 404 for the same key id or fingerprint recently, as recorded in a {@link NegativeKeyCache}.
+ * Configure with {@link org.sourcelab.hkp.ConfigurationBuilder#withInterceptor(RestInterceptor)}.
+ *
+ * Fingerprints are recorded by a 64-bit hash of all 160 bits, seeded randomly per interceptor, so a missing
+ * fingerprint crafted to share a key's long key id does not make that key appear missing.  A false positive in the
+ * cache makes a key the key server has appear missing until it expires, at about the cache's false positive rate.
+ * Gets by short key id are never answered from the cache.  Responses are marked with their {@link CacheOutcome}.
+ */
+public class NegativeCacheInterceptor implements RestInterceptor {
+    private static final String NOT_FOUND = "No keys found";
+
+    private final NegativeKeyCache cache;
+    private final long fingerprintSeed = new SecureRandom().nextLong();
+
+    /**
+     * Constructor.
+     * @param cache Cache to answer from and record missing key ids in.
+     */
+    public NegativeCacheInterceptor(final NegativeKeyCache cache) {
+        this.cache = Objects.requireNonNull(cache, "Cache may not be null.");
+    }
+
+    public NegativeKeyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public RestResponse intercept(final Request request, final Exchange exchange, final Chain chain) throws RestException {
+        final String keyId = KeyCacheInterceptor.cacheableKeyId(request);
+        if (keyId == null) {
+            return chain.proceed(request, exchange);
+        }
+        final long cacheKey = cacheKey(keyId);
+        if (cache.mightContain(cacheKey)) {
+            return notFound();
+        }
+        return record(cacheKey, chain.proceed(request, exchange));
+    }
+
+    @Override
+    public CompletableFuture<RestResponse> interceptAsync(final Request request, final Chain chain) {
+        final String keyId = KeyCacheInterceptor.cacheableKeyId(request);
+        if (keyId == null) {
+            return chain.proceedAsync(request);
+        }
+        final long cacheKey = cacheKey(keyId);
+        if (cache.mightContain(cacheKey)) {
+            return CompletableFuture.completedFuture(notFound());
+        }
+        return chain.proceedAsync(request).thenApply((response) -> record(cacheKey, response));
+    }
+
+    /**
+     * The value recorded for a long key id or fingerprint, as normalized by GetRequest: the key id itself, or a
+     * seeded hash of the whole fingerprint.
+     */
+    private long cacheKey(final String keyId) {
+        if (keyId.length() == 18) {
+            return Hex.parseKeyId(keyId);
+        }
+        long hash = NegativeKeyCache.mix(fingerprintSeed ^ Hex.parseLong(keyId, 2, 18));
+        hash = NegativeKeyCache.mix(hash ^ Hex.parseLong(keyId, 18, 34));
+        return NegativeKeyCache.mix(hash ^ Hex.parseLong(keyId, 34, 42));
+    }
+
+    private RestResponse record(final long cacheKey, final RestResponse response) {
+        // RestClients may return null on an I/O error.
+        if (response != null && response.getHttpCode() == 404) {
+            cache.add(cacheKey);
+        }
+        return response;
+    }
+
+    private static RestResponse notFound() {
+        return new RestResponse(NOT_FOUND, 404).withCacheOutcome(CacheOutcome.NEGATIVE_HIT);
+    }
+}
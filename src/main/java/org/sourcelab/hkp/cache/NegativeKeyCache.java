@@ -0,0 +1,336 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers key ids the key server has no key for, in a few bits each, so repeat gets for them can be answered
+ * locally instead of with another round trip ending in a 404.
+ *
+ * Key ids are recorded in a Bloom filter split into generations by time.  New key ids go into the newest generation,
+ * and once each expiry period divided by the number of generations, the oldest generation is emptied and becomes the
+ * newest.  A key id is therefore forgotten between (generations - 1) / generations of the expiry period and the whole
+ * of it after being recorded, so a key published since is found again.  Like any Bloom filter it may wrongly report
+ * a key id as recorded, at about the false positive rate it was sized for.  Should the newest generation fill with
+ * its share of the expected key ids early, it rotates early, so key ids are forgotten sooner rather than the false
+ * positive rate climbing.  {@link #getEstimatedFalsePositiveRate()} reports the rate from how full the generations
+ * actually are.
+ *
+ * Thread safe.  Recording and checking take no locks.
+ */
+public class NegativeKeyCache {
+    /**
+     * Default number of generations.
+     */
+    public static final int DEFAULT_GENERATIONS = 4;
+
+    private static final double LN2 = Math.log(2);
+
+    private final int generationCount;
+    private final long rotationNanos;
+    private final int bitsPerGeneration;
+    private final int keyIdsPerGeneration;
+    private final int hashCount;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLongArray[] generations;
+    private final AtomicInteger newestInsertionCount = new AtomicInteger();
+    private final LongAdder insertionCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+
+    // Written while synchronized on this.
+    private volatile int newest = 0;
+    private volatile long nextRotation;
+
+    /**
+     * Constructor, with the default number of generations.
+     * @param expectedKeyIds Most distinct key ids expected to be recorded within one expiry period.
+     * @param falsePositiveRate Chance of wrongly reporting a key id as recorded, between 0 and 1 exclusive.
+     * @param expiry How long a key id is remembered for, at most.
+     */
+    public NegativeKeyCache(final int expectedKeyIds, final double falsePositiveRate, final Duration expiry) {
+        this(expectedKeyIds, falsePositiveRate, expiry, DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * Constructor.
+     * @param expectedKeyIds Most distinct key ids expected to be recorded within one expiry period.
+     * @param falsePositiveRate Chance of wrongly reporting a key id as recorded, between 0 and 1 exclusive.
+     * @param expiry How long a key id is remembered for, at most.
+     * @param generations Number of generations, at least 2.  More expire key ids closer to the expiry period, at
+     *                    the cost of slightly more memory and time per check.
+     */
+    public NegativeKeyCache(final int expectedKeyIds, final double falsePositiveRate, final Duration expiry, final int generations) {
+        this(expectedKeyIds, falsePositiveRate, expiry, generations, System::nanoTime);
+    }
+
+    /**
+     * Constructor, with a clock for tests.
+     */
+    NegativeKeyCache(
+        final int expectedKeyIds,
+        final double falsePositiveRate,
+        final Duration expiry,
+        final int generations,
+        final LongSupplier nanoClock) {
+        if (expectedKeyIds < 1) {
+            throw new IllegalArgumentException("Expected key ids must be at least 1.");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1 exclusive.");
+        }
+        Objects.requireNonNull(expiry, "Expiry may not be null.");
+        if (expiry.isNegative() || expiry.isZero()) {
+            throw new IllegalArgumentException("Expiry must be positive.");
+        }
+        if (generations < 2) {
+            throw new IllegalArgumentException("Generations must be at least 2.");
+        }
+
+        // Every generation is checked, so each is sized for its share of the key ids at its share of the rate.
+        final int keyIdsPerGeneration = (expectedKeyIds + generations - 1) / generations;
+        final double ratePerGeneration = falsePositiveRate / generations;
+        final double bits = Math.ceil(-keyIdsPerGeneration * Math.log(ratePerGeneration) / (LN2 * LN2) / 64) * 64;
+        if (bits > Integer.MAX_VALUE - 63) {
+            throw new IllegalArgumentException("Too many expected key ids for the false positive rate.");
+        }
+        this.generationCount = generations;
+        this.bitsPerGeneration = (int) bits;
+        this.keyIdsPerGeneration = keyIdsPerGeneration;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitsPerGeneration / keyIdsPerGeneration * LN2));
+        this.rotationNanos = Math.max(1, expiry.toNanos() / generations);
+        this.nanoClock = Objects.requireNonNull(nanoClock, "Clock may not be null.");
+        this.generations = new AtomicLongArray[generations];
+        for (int generation = 0; generation < generations; generation++) {
+            this.generations[generation] = new AtomicLongArray(bitsPerGeneration / 64);
+        }
+        this.nextRotation = nanoClock.getAsLong() + rotationNanos;
+    }
+
+    /**
+     * Record a key id the key server has no key for.
+     * @param keyId Key id.
+     */
+    public void add(final long keyId) {
+        rotateIfDue();
+        final AtomicLongArray bits = generations[newest];
+        final long hash1 = mix(keyId);
+        final long hash2 = mix(hash1) | 1;
+        for (int hash = 0; hash < hashCount; hash++) {
+            final int bit = bitOf(hash1 + hash * hash2);
+            final long mask = 1L << bit;
+            final int word = bit >>> 6;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+        insertionCount.increment();
+        if (newestInsertionCount.incrementAndGet() > keyIdsPerGeneration) {
+            rotateFull();
+        }
+    }
+
+    /**
+     * Whether a key id was recorded within the expiry period, or is a false positive.
+     * @param keyId Key id.
+     * @return True if the key id was probably recorded, false if it certainly was not.
+     */
+    public boolean mightContain(final long keyId) {
+        rotateIfDue();
+        final long hash1 = mix(keyId);
+        final long hash2 = mix(hash1) | 1;
+        for (final AtomicLongArray bits : generations) {
+            if (contains(bits, hash1, hash2)) {
+                hitCount.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget every key id recorded.
+     */
+    public synchronized void clear() {
+        for (final AtomicLongArray bits : generations) {
+            clearBits(bits);
+        }
+        newestInsertionCount.set(0);
+    }
+
+    /**
+     * Fraction of bits set, across all generations.  Each generation is sized to be half full when it holds as many
+     * key ids as expected.
+     * @return Fill ratio between 0 and 1.
+     */
+    public double getFillRatio() {
+        long set = 0;
+        for (final AtomicLongArray bits : generations) {
+            set += bitCount(bits);
+        }
+        return (double) set / ((long) bitsPerGeneration * generationCount);
+    }
+
+    /**
+     * Chance that a key id never recorded is reported as recorded, estimated from how full each generation is.
+     * @return Estimated false positive rate between 0 and 1.
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double notFalsePositive = 1;
+        for (final AtomicLongArray bits : generations) {
+            final double fill = (double) bitCount(bits) / bitsPerGeneration;
+            notFalsePositive *= 1 - Math.pow(fill, hashCount);
+        }
+        return 1 - notFalsePositive;
+    }
+
+    /**
+     * Memory used by the filter.
+     * @return Size in bytes.
+     */
+    public long getSizeBytes() {
+        return (long) bitsPerGeneration / 8 * generationCount;
+    }
+
+    public int getGenerations() {
+        return generationCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Number of times a key id has been recorded, including key ids recorded more than once or since expired.
+     * @return Insertion count.
+     */
+    public long getInsertionCount() {
+        return insertionCount.sum();
+    }
+
+    /**
+     * Number of checks which reported a key id as recorded.
+     * @return Hit count.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "NegativeKeyCache{"
+            + "sizeBytes=" + getSizeBytes()
+            + ", generations=" + generationCount
+            + ", hashCount=" + hashCount
+            + ", fillRatio=" + getFillRatio()
+            + ", estimatedFalsePositiveRate=" + getEstimatedFalsePositiveRate()
+            + ", insertions=" + insertionCount.sum()
+            + ", hits=" + hitCount.sum()
+            + '}';
+    }
+
+    private boolean contains(final AtomicLongArray bits, final long hash1, final long hash2) {
+        for (int hash = 0; hash < hashCount; hash++) {
+            final int bit = bitOf(hash1 + hash * hash2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Empty the oldest generation and make it the newest, once for each rotation period elapsed.
+     */
+    private void rotateIfDue() {
+        if (nanoClock.getAsLong() - nextRotation < 0) {
+            return;
+        }
+        synchronized (this) {
+            final long elapsed = nanoClock.getAsLong() - nextRotation;
+            if (elapsed < 0) {
+                return;
+            }
+            final long due = elapsed / rotationNanos + 1;
+
+            // After a full cycle every generation is empty, so there is no need to go round again.
+            for (long rotation = 0; rotation < Math.min(due, generationCount); rotation++) {
+                rotate();
+            }
+            nextRotation += due * rotationNanos;
+        }
+    }
+
+    /**
+     * Rotate early once the newest generation holds its share of the expected key ids, unless another thread
+     * already has.
+     */
+    private synchronized void rotateFull() {
+        if (newestInsertionCount.get() > keyIdsPerGeneration) {
+            rotate();
+        }
+    }
+
+    /**
+     * Empty the oldest generation and make it the newest.  Callers must synchronize on this.
+     */
+    private void rotate() {
+        final int oldest = (newest + 1) % generationCount;
+        clearBits(generations[oldest]);
+        newest = oldest;
+        newestInsertionCount.set(0);
+    }
+
+    /**
+     * Kirsch and Mitzenmacher double hashing: hashes are derived as hash1 + i * hash2, mapped onto the bits by
+     * multiplying rather than a modulo.
+     */
+    private int bitOf(final long hash) {
+        return (int) (((hash >>> 32) * bitsPerGeneration) >>> 32);
+    }
+
+    /**
+     * The SplitMix64 finalizer, so key ids differing in a few bits hash far apart.
+     */
+    static long mix(final long value) {
+        long mixed = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    private static void clearBits(final AtomicLongArray bits) {
+        for (int word = 0; word < bits.length(); word++) {
+            bits.set(word, 0);
+        }
+    }
+
+    private static long bitCount(final AtomicLongArray bits) {
+        long count = 0;
+        for (int word = 0; word < bits.length(); word++) {
+            count += Long.bitCount(bits.get(word));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,691 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import org.sourcelab.hkp.index.Hex;
+import org.sourcelab.hkp.index.LongLongHashIndex;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache of armored keys by 64-bit key id, holding the key bytes outside the Java heap in direct ByteBuffer slabs, so
+ * it can grow to many gigabytes without adding to garbage collection pauses.  On the heap it keeps only primitive
+ * arrays: a {@link LongLongHashIndex} from key id to chunk, and per chunk metadata.
+ *
+ * A key may be cached by its v4 fingerprint, which is kept with it.  It is then found by its key id, its last 16 hex
+ * digits, or by that fingerprint, but never by another fingerprint sharing the key id.  A key cached by key id alone
+ * is not found by fingerprint.
+ *
+ * Memory is allocated a slab at a time, up to a maximum number of bytes.  Each slab is given to a size class and cut
+ * into equal chunks, each holding one key, with classes growing by a quarter from 512 bytes up to the slab size.
+ * Keys larger than a slab are not cached.  Once every slab is allocated, a key evicts another from its size class,
+ * chosen by the CLOCK approximation of least recently used: a sweep skips, once, keys read since it last passed.  A
+ * size class with no slab at all takes one from another class, evicting every key in it.
+ *
+ * Thread safe.  Reads share a lock, and writes, including evictions, take it exclusively.  No lock is held while
+ * writing to a channel.
+ */
+public class OffHeapKeyCache {
+    /**
+     * Default size of each slab, the largest key which can be cached.
+     */
+    public static final int DEFAULT_SLAB_BYTES = 4 * 1024 * 1024;
+
+    private static final int MIN_CHUNK_BYTES = 512;
+    private static final int CHUNK_ALIGNMENT = 64;
+    private static final long MISSING = -1;
+    private static final int FINGERPRINT_DIGITS = 40;
+
+    private final long maxBytes;
+    private final int slabBytes;
+    private final SizeClass[] sizeClasses;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    // Direct buffers keys are copied into under the read lock, to write to a channel once it is released.
+    private final ThreadLocal<ByteBuffer> transferBuffers = new ThreadLocal<>();
+
+    // Guarded by the write lock.
+    private final LongLongHashIndex index = new LongLongHashIndex(1024, MISSING);
+    private final SizeClass[] slabOwners;
+    private final int[] slabPositions;
+    private int slabCount = 0;
+    private int slabHand = 0;
+    private long usedBytes = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Constructor, with the default slab size.
+     * @param maxBytes Most bytes of memory to allocate outside the heap, at least one slab.
+     */
+    public OffHeapKeyCache(final long maxBytes) {
+        this(maxBytes, (int) Math.min(maxBytes, DEFAULT_SLAB_BYTES));
+    }
+
+    /**
+     * Constructor.
+     * @param maxBytes Most bytes of memory to allocate outside the heap, at least one slab.
+     * @param slabBytes Size of each slab, the largest key which can be cached.
+     */
+    public OffHeapKeyCache(final long maxBytes, final int slabBytes) {
+        if (slabBytes < MIN_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Slab size must be at least " + MIN_CHUNK_BYTES + " bytes.");
+        }
+        if (maxBytes < slabBytes) {
+            throw new IllegalArgumentException("Maximum size must be at least one slab.");
+        }
+        if (maxBytes / slabBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maximum size is too many slabs, use larger slabs.");
+        }
+        this.maxBytes = maxBytes;
+        this.slabBytes = slabBytes;
+        this.slabOwners = new SizeClass[(int) (maxBytes / slabBytes)];
+        this.slabPositions = new int[slabOwners.length];
+
+        final List<SizeClass> classes = new ArrayList<>();
+        int chunkBytes = MIN_CHUNK_BYTES;
+        while (chunkBytes < slabBytes) {
+            classes.add(new SizeClass(classes.size(), chunkBytes, slabBytes / chunkBytes));
+            chunkBytes = align(chunkBytes + chunkBytes / 4);
+        }
+        classes.add(new SizeClass(classes.size(), slabBytes, 1));
+        this.sizeClasses = classes.toArray(new SizeClass[0]);
+    }
+
+    /**
+     * Get a copy of a key.
+     * @param keyId Key id.
+     * @return Key bytes, or null if not cached.
+     */
+    public byte[] get(final long keyId) {
+        return copy(keyId, false, 0, 0);
+    }
+
+    /**
+     * Get a copy of a key cached by its fingerprint.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @return Key bytes, or null if no key is cached with this fingerprint.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    public byte[] get(final CharSequence fingerprint) {
+        final int start = fingerprintStart(fingerprint);
+        return copy(keyIdOf(fingerprint, start), true, highOf(fingerprint, start), middleOf(fingerprint, start));
+    }
+
+    /**
+     * Write a key to a channel without copying it onto the heap.  The key is copied, under the lock, into a direct
+     * buffer kept by the calling thread and grown as needed up to the slab size, and written once the lock is
+     * released, so a slow channel never holds up writers.
+     * @param keyId Key id.
+     * @param channel Blocking channel to write the key to.
+     * @return Number of bytes written, or -1 if not cached.
+     * @throws IOException if writing to the channel fails.
+     */
+    public int transferTo(final long keyId, final WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "Channel may not be null.");
+        return transfer(keyId, false, 0, 0, channel);
+    }
+
+    /**
+     * Write a key cached by its fingerprint to a channel, as {@link #transferTo(long, WritableByteChannel)}.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @param channel Blocking channel to write the key to.
+     * @return Number of bytes written, or -1 if no key is cached with this fingerprint.
+     * @throws IOException if writing to the channel fails.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    public int transferTo(final CharSequence fingerprint, final WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "Channel may not be null.");
+        final int start = fingerprintStart(fingerprint);
+        return transfer(
+            keyIdOf(fingerprint, start), true, highOf(fingerprint, start), middleOf(fingerprint, start), channel
+        );
+    }
+
+    /**
+     * Whether a key is cached, without counting as a read.
+     * @param keyId Key id.
+     * @return True if cached.
+     */
+    public boolean contains(final long keyId) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(keyId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cache a key, replacing any already cached under the same key id.
+     * @param keyId Key id.
+     * @param key Key bytes.
+     * @return True if cached, false if larger than a slab.
+     */
+    public boolean put(final long keyId, final byte[] key) {
+        Objects.requireNonNull(key, "Key may not be null.");
+        return put(keyId, ByteBuffer.wrap(key));
+    }
+
+    /**
+     * Cache a key, replacing any already cached under the same key id.
+     * @param keyId Key id.
+     * @param key Key bytes, from its position to its limit.  Its position is left unchanged.
+     * @return True if cached, false if larger than a slab.
+     */
+    public boolean put(final long keyId, final ByteBuffer key) {
+        Objects.requireNonNull(key, "Key may not be null.");
+        return store(keyId, false, 0, 0, key);
+    }
+
+    /**
+     * Cache a key by its fingerprint, replacing any already cached under the same key id.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @param key Key bytes.
+     * @return True if cached, false if larger than a slab.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    public boolean put(final CharSequence fingerprint, final byte[] key) {
+        Objects.requireNonNull(key, "Key may not be null.");
+        return put(fingerprint, ByteBuffer.wrap(key));
+    }
+
+    /**
+     * Cache a key by its fingerprint, replacing any already cached under the same key id.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @param key Key bytes, from its position to its limit.  Its position is left unchanged.
+     * @return True if cached, false if larger than a slab.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    public boolean put(final CharSequence fingerprint, final ByteBuffer key) {
+        Objects.requireNonNull(key, "Key may not be null.");
+        final int start = fingerprintStart(fingerprint);
+        return store(keyIdOf(fingerprint, start), true, highOf(fingerprint, start), middleOf(fingerprint, start), key);
+    }
+
+    /**
+     * Remove a key.
+     * @param keyId Key id.
+     * @return True if it was cached.
+     */
+    public boolean remove(final long keyId) {
+        lock.writeLock().lock();
+        try {
+            return removeEntry(keyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every key, keeping the slabs already allocated.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (final SizeClass sizeClass : sizeClasses) {
+                sizeClass.clear();
+            }
+            usedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of keys cached.
+     * @return Key count.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Total length of the keys cached, less than the bytes allocated as each key is rounded up to its size class.
+     * @return Bytes used.
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memory allocated outside the heap so far.
+     * @return Bytes allocated.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slabCount * slabBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getSlabBytes() {
+        return slabBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Number of keys evicted to make room for others.
+     * @return Eviction count.
+     */
+    public long getEvictionCount() {
+        lock.readLock().lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "OffHeapKeyCache{"
+                + "size=" + index.size()
+                + ", usedBytes=" + usedBytes
+                + ", allocatedBytes=" + (long) slabCount * slabBytes
+                + ", maxBytes=" + maxBytes
+                + ", hits=" + hitCount.sum()
+                + ", misses=" + missCount.sum()
+                + ", evictions=" + evictionCount
+                + '}';
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private byte[] copy(final long keyId, final boolean byFingerprint, final long high, final int middle) {
+        lock.readLock().lock();
+        try {
+            final ByteBuffer chunk = read(keyId, byFingerprint, high, middle);
+            if (chunk == null) {
+                return null;
+            }
+            final byte[] key = new byte[chunk.remaining()];
+            chunk.get(key);
+            return key;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int transfer(
+        final long keyId,
+        final boolean byFingerprint,
+        final long high,
+        final int middle,
+        final WritableByteChannel channel
+    ) throws IOException {
+        final ByteBuffer buffer;
+        lock.readLock().lock();
+        try {
+            final ByteBuffer chunk = read(keyId, byFingerprint, high, middle);
+            if (chunk == null) {
+                return -1;
+            }
+            buffer = transferBuffer(chunk.remaining());
+            buffer.put(chunk);
+        } finally {
+            lock.readLock().unlock();
+        }
+        ((Buffer) buffer).flip();
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    /**
+     * The calling thread's transfer buffer, cleared, replaced by a larger one if it can not hold a key's length.
+     */
+    private ByteBuffer transferBuffer(final int length) {
+        ByteBuffer buffer = transferBuffers.get();
+        if (buffer == null || buffer.capacity() < length) {
+            // Rounded up to a power of two, so a thread's buffer grows only a few times.
+            final long capacity = Math.max(length, Math.min(slabBytes, Long.highestOneBit(Math.max(length - 1, 1)) << 1));
+            buffer = ByteBuffer.allocateDirect((int) capacity);
+            transferBuffers.set(buffer);
+        }
+        ((Buffer) buffer).clear();
+        return buffer;
+    }
+
+    private boolean store(
+        final long keyId,
+        final boolean byFingerprint,
+        final long high,
+        final int middle,
+        final ByteBuffer key
+    ) {
+        final int length = key.remaining();
+        final SizeClass sizeClass = sizeClassFor(length);
+
+        lock.writeLock().lock();
+        try {
+            removeEntry(keyId);
+            if (sizeClass == null) {
+                return false;
+            }
+            final int chunk = allocateChunk(sizeClass);
+            sizeClass.keyIds[chunk] = keyId;
+            sizeClass.fingerprinted[chunk] = byFingerprint;
+            sizeClass.fingerprintHighs[chunk] = high;
+            sizeClass.fingerprintMiddles[chunk] = middle;
+            sizeClass.lengths[chunk] = length;
+            sizeClass.referenced[chunk] = false;
+            sizeClass.chunkBuffer(chunk).put(key.duplicate());
+            index.put(keyId, ((long) sizeClass.number << 32) | chunk);
+            usedBytes += length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A key's chunk, positioned for reading, marked as recently used.  When read by fingerprint, the key must have
+     * been cached with the same fingerprint.  Callers must hold the read lock.
+     */
+    private ByteBuffer read(final long keyId, final boolean byFingerprint, final long high, final int middle) {
+        final long handle = index.get(keyId);
+        if (handle == MISSING) {
+            missCount.increment();
+            return null;
+        }
+        final SizeClass sizeClass = sizeClasses[(int) (handle >>> 32)];
+        final int chunk = (int) handle;
+        if (byFingerprint
+            && (!sizeClass.fingerprinted[chunk]
+                || sizeClass.fingerprintHighs[chunk] != high
+                || sizeClass.fingerprintMiddles[chunk] != middle)) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+
+        // Racing readers may all set this, which is harmless.
+        sizeClass.referenced[chunk] = true;
+        return sizeClass.chunkBuffer(chunk);
+    }
+
+    private boolean removeEntry(final long keyId) {
+        final long handle = index.remove(keyId);
+        if (handle == MISSING) {
+            return false;
+        }
+        final SizeClass sizeClass = sizeClasses[(int) (handle >>> 32)];
+        final int chunk = (int) handle;
+        usedBytes -= sizeClass.lengths[chunk];
+        sizeClass.lengths[chunk] = -1;
+        sizeClass.free[sizeClass.freeCount++] = chunk;
+        return true;
+    }
+
+    /**
+     * A free chunk of a size class: one already free, else one from a new slab, else one evicted.
+     */
+    private int allocateChunk(final SizeClass sizeClass) {
+        if (sizeClass.freeCount == 0) {
+            if (slabCount < slabOwners.length) {
+                assignSlab(sizeClass, ByteBuffer.allocateDirect(slabBytes), slabCount++);
+            } else if (sizeClass.slabsInUse == 0) {
+                stealSlab(sizeClass);
+            } else {
+                return evict(sizeClass);
+            }
+        }
+        return sizeClass.free[--sizeClass.freeCount];
+    }
+
+    private void assignSlab(final SizeClass sizeClass, final ByteBuffer slab, final int slabNumber) {
+        slabOwners[slabNumber] = sizeClass;
+        slabPositions[slabNumber] = sizeClass.addSlab(slab);
+    }
+
+    /**
+     * Move the next slab in turn to a size class which has none, evicting its keys.
+     */
+    private void stealSlab(final SizeClass sizeClass) {
+        final int slabNumber = slabHand;
+        slabHand = (slabHand + 1) % slabCount;
+        final SizeClass owner = slabOwners[slabNumber];
+        final int position = slabPositions[slabNumber];
+        for (int chunk = position * owner.chunksPerSlab; chunk < (position + 1) * owner.chunksPerSlab; chunk++) {
+            if (owner.lengths[chunk] >= 0) {
+                index.remove(owner.keyIds[chunk]);
+                usedBytes -= owner.lengths[chunk];
+                evictionCount++;
+            }
+        }
+        assignSlab(sizeClass, owner.removeSlab(position), slabNumber);
+    }
+
+    /**
+     * Evict a key from a full size class, sweeping its chunks and sparing, once, those read since the last sweep.
+     */
+    private int evict(final SizeClass sizeClass) {
+        while (true) {
+            final int chunk = sizeClass.hand;
+            sizeClass.hand = (chunk + 1) % (sizeClass.slabs.length * sizeClass.chunksPerSlab);
+            if (sizeClass.slabs[chunk / sizeClass.chunksPerSlab] == null) {
+                continue;
+            }
+            if (sizeClass.referenced[chunk]) {
+                sizeClass.referenced[chunk] = false;
+                continue;
+            }
+            index.remove(sizeClass.keyIds[chunk]);
+            usedBytes -= sizeClass.lengths[chunk];
+            sizeClass.lengths[chunk] = -1;
+            evictionCount++;
+            return chunk;
+        }
+    }
+
+    private SizeClass sizeClassFor(final int length) {
+        if (length > slabBytes) {
+            return null;
+        }
+        int low = 0;
+        int high = sizeClasses.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sizeClasses[middle].chunkBytes < length) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sizeClasses[low];
+    }
+
+    /**
+     * Index of the first hex digit of a fingerprint, past any "0x" prefix.
+     */
+    private static int fingerprintStart(final CharSequence fingerprint) {
+        Objects.requireNonNull(fingerprint, "Fingerprint may not be null.");
+        final int length = fingerprint.length();
+        final int start = length > 2 && fingerprint.charAt(0) == '0'
+            && (fingerprint.charAt(1) == 'x' || fingerprint.charAt(1) == 'X') ? 2 : 0;
+        if (length - start != FINGERPRINT_DIGITS) {
+            throw new NumberFormatException("Not a valid fingerprint: \"" + fingerprint + "\"");
+        }
+        return start;
+    }
+
+    // Hex digits 0-15, 16-23 and 24-39 of a fingerprint, the last being its key id.
+    private static long highOf(final CharSequence fingerprint, final int start) {
+        return Hex.parseLong(fingerprint, start, start + 16);
+    }
+
+    private static int middleOf(final CharSequence fingerprint, final int start) {
+        return (int) Hex.parseLong(fingerprint, start + 16, start + 24);
+    }
+
+    private static long keyIdOf(final CharSequence fingerprint, final int start) {
+        return Hex.parseLong(fingerprint, start + 24, start + 40);
+    }
+
+    private static int align(final int bytes) {
+        return (bytes + CHUNK_ALIGNMENT - 1) & -CHUNK_ALIGNMENT;
+    }
+
+    /**
+     * Slabs cut into chunks of one size, and the metadata of each chunk, numbered across the class's slabs.  A slab
+     * moved to another class leaves a null position, reused by the next slab this class is given.
+     */
+    private static final class SizeClass {
+        private final int number;
+        private final int chunkBytes;
+        private final int chunksPerSlab;
+
+        private ByteBuffer[] slabs = new ByteBuffer[0];
+        private int slabsInUse = 0;
+        private long[] keyIds = new long[0];
+        private boolean[] fingerprinted = new boolean[0];
+        private long[] fingerprintHighs = new long[0];
+        private int[] fingerprintMiddles = new int[0];
+        private int[] lengths = new int[0];
+        private boolean[] referenced = new boolean[0];
+        private int[] free = new int[0];
+        private int freeCount = 0;
+        private int hand = 0;
+
+        private SizeClass(final int number, final int chunkBytes, final int chunksPerSlab) {
+            this.number = number;
+            this.chunkBytes = chunkBytes;
+            this.chunksPerSlab = chunksPerSlab;
+        }
+
+        /**
+         * Add a slab, freeing its chunks.
+         * @return Position of the slab within this class.
+         */
+        private int addSlab(final ByteBuffer slab) {
+            int position = 0;
+            while (position < slabs.length && slabs[position] != null) {
+                position++;
+            }
+            if (position == slabs.length) {
+                final int chunks = (slabs.length + 1) * chunksPerSlab;
+                slabs = Arrays.copyOf(slabs, slabs.length + 1);
+                keyIds = Arrays.copyOf(keyIds, chunks);
+                fingerprinted = Arrays.copyOf(fingerprinted, chunks);
+                fingerprintHighs = Arrays.copyOf(fingerprintHighs, chunks);
+                fingerprintMiddles = Arrays.copyOf(fingerprintMiddles, chunks);
+                lengths = Arrays.copyOf(lengths, chunks);
+                referenced = Arrays.copyOf(referenced, chunks);
+                free = Arrays.copyOf(free, chunks);
+            }
+            slabs[position] = slab;
+            slabsInUse++;
+
+            // Pushed in reverse, so chunks are handed out in order.
+            for (int chunk = (position + 1) * chunksPerSlab - 1; chunk >= position * chunksPerSlab; chunk--) {
+                lengths[chunk] = -1;
+                free[freeCount++] = chunk;
+            }
+            return position;
+        }
+
+        /**
+         * Remove a slab whose keys have been dropped from the index.
+         * @return The slab.
+         */
+        private ByteBuffer removeSlab(final int position) {
+            final int first = position * chunksPerSlab;
+            final int last = first + chunksPerSlab;
+            Arrays.fill(lengths, first, last, -1);
+            int kept = 0;
+            for (int entry = 0; entry < freeCount; entry++) {
+                if (free[entry] < first || free[entry] >= last) {
+                    free[kept++] = free[entry];
+                }
+            }
+            freeCount = kept;
+            final ByteBuffer slab = slabs[position];
+            slabs[position] = null;
+            slabsInUse--;
+            return slab;
+        }
+
+        private void clear() {
+            freeCount = 0;
+            for (int position = slabs.length - 1; position >= 0; position--) {
+                if (slabs[position] != null) {
+                    for (int chunk = (position + 1) * chunksPerSlab - 1; chunk >= position * chunksPerSlab; chunk--) {
+                        lengths[chunk] = -1;
+                        free[freeCount++] = chunk;
+                    }
+                }
+            }
+        }
+
+        /**
+         * A view of a chunk, from its start to the length of the key in it.
+         */
+        private ByteBuffer chunkBuffer(final int chunk) {
+            final ByteBuffer buffer = slabs[chunk / chunksPerSlab].duplicate();
+            final int offset = (chunk % chunksPerSlab) * chunkBytes;
+            final int length = lengths[chunk];
+
+            // Through Buffer, as ByteBuffer only overrides these from Java 9.
+            ((Buffer) buffer).limit(offset + length);
+            ((Buffer) buffer).position(offset);
+            return buffer;
+        }
+    }
+}
@@ -18,7 +18,12 @@
 package org.sourcelab.hkp.config;
 
 import org.sourcelab.hkp.ConfigurationBuilder;
+import org.sourcelab.hkp.listener.HkpClientListener;
+import org.sourcelab.hkp.rest.RestInterceptor;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -29,6 +34,27 @@ public class Configuration {
     // Proxy Configuration
     private final ProxyConfiguration proxyConfiguration;
 
+    // Connection Pool Configuration
+    private final PoolConfiguration poolConfiguration;
+
+    // Whether identical concurrent get requests share a single request to the key server.
+    private final boolean getDeduplication;
+
+    // Response Size Limit Configuration
+    private final LimitConfiguration limitConfiguration;
+
+    // Optional listener notified of each request's progress, null if none.
+    private final HkpClientListener listener;
+
+    // Optional name to register statistics under as a JMX MBean, null if not registered.
+    private final String jmxName;
+
+    // Interceptors wrapping each request to the RestClient, outermost first, empty if none.
+    private final List<RestInterceptor> interceptors;
+
+    // Whether exceptions for error responses from the key server skip capturing a stack trace.
+    private final boolean stacklessExceptions;
+
     // Defines upstream keyserver host.
     private final String keyServerHost;
 
@@ -65,11 +91,37 @@ public class Configuration {
         final ProxyConfiguration proxyConfiguration,
         final boolean ignoreInvalidSslCertificates,
         final int requestTimeoutSecs) {
+        this(keyServerHost, proxyConfiguration, ignoreInvalidSslCertificates, requestTimeoutSecs, new Options());
+    }
+
+    /**
+     * Constructor.
+     * Note: Use {@link ConfigurationBuilder} to create instances instead of calling this constructor.
+     *
+     * @param proxyConfiguration Defines Proxy Configuration.
+     * @param keyServerHost Defines KeyServer Host.
+     * @param ignoreInvalidSslCertificates Should SSL certificates be validated.
+     * @param requestTimeoutSecs Defines how long (in seconds) before a request times out.
+     * @param options Defines every other setting, copied so later changes to it have no effect.
+     */
+    public Configuration(
+        final String keyServerHost,
+        final ProxyConfiguration proxyConfiguration,
+        final boolean ignoreInvalidSslCertificates,
+        final int requestTimeoutSecs,
+        final Options options) {
 
         this.proxyConfiguration = Objects.requireNonNull(proxyConfiguration);
         this.keyServerHost = Objects.requireNonNull(keyServerHost);
         this.ignoreInvalidSslCertificates = ignoreInvalidSslCertificates;
         this.requestTimeoutSecs = requestTimeoutSecs;
+        this.poolConfiguration = options.poolConfiguration;
+        this.getDeduplication = options.getDeduplication;
+        this.limitConfiguration = options.limitConfiguration;
+        this.listener = options.listener;
+        this.jmxName = options.jmxName;
+        this.interceptors = Collections.unmodifiableList(new ArrayList<>(options.interceptors));
+        this.stacklessExceptions = options.stacklessExceptions;
     }
 
     public boolean hasProxyConfigured() {
@@ -80,6 +132,46 @@ public class Configuration {
         return proxyConfiguration;
     }
 
+    public PoolConfiguration getPoolConfiguration() {
+        return poolConfiguration;
+    }
+
+    public boolean isGetDeduplication() {
+        return getDeduplication;
+    }
+
+    public LimitConfiguration getLimitConfiguration() {
+        return limitConfiguration;
+    }
+
+    public boolean hasListener() {
+        return listener != null;
+    }
+
+    public HkpClientListener getListener() {
+        return listener;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxName != null;
+    }
+
+    public String getJmxName() {
+        return jmxName;
+    }
+
+    public boolean hasInterceptors() {
+        return !interceptors.isEmpty();
+    }
+
+    public List<RestInterceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    public boolean isStacklessExceptions() {
+        return stacklessExceptions;
+    }
+
     public boolean isIgnoreInvalidSslCertificates() {
         return ignoreInvalidSslCertificates;
     }
@@ -102,6 +194,97 @@ public class Configuration {
             + "keyServerHost='" + keyServerHost + '\''
             + ", proxyConfiguration=" + proxyConfiguration
             + ", ignoreInvalidSslCertificates=" + ignoreInvalidSslCertificates
+            + ", poolConfiguration=" + poolConfiguration
+            + ", getDeduplication=" + getDeduplication
+            + ", limitConfiguration=" + limitConfiguration
+            + ", listener=" + listener
+            + ", jmxName='" + jmxName + '\''
+            + ", interceptors=" + interceptors
+            + ", stacklessExceptions=" + stacklessExceptions
             + '}';
     }
+
+    /**
+     * Optional settings beyond the key server, proxy, certificate validation and timeout, each defaulting as an
+     * unconfigured {@link ConfigurationBuilder} would.  Filled in by {@link ConfigurationBuilder#build()}.
+     */
+    public static final class Options {
+        private PoolConfiguration poolConfiguration = new PoolConfiguration();
+        private boolean getDeduplication = false;
+        private LimitConfiguration limitConfiguration = new LimitConfiguration();
+        private HkpClientListener listener = null;
+        private String jmxName = null;
+        private List<RestInterceptor> interceptors = Collections.emptyList();
+        private boolean stacklessExceptions = false;
+
+        /**
+         * Set the Connection Pool Configuration.
+         * @param poolConfiguration Defines Connection Pool Configuration.
+         * @return Options instance.
+         */
+        public Options withPoolConfiguration(final PoolConfiguration poolConfiguration) {
+            this.poolConfiguration = Objects.requireNonNull(poolConfiguration);
+            return this;
+        }
+
+        /**
+         * Set whether identical concurrent get requests share a single request to the key server.
+         * @param getDeduplication True to share requests.
+         * @return Options instance.
+         */
+        public Options withGetDeduplication(final boolean getDeduplication) {
+            this.getDeduplication = getDeduplication;
+            return this;
+        }
+
+        /**
+         * Set the Response Size Limits.
+         * @param limitConfiguration Defines Response Size Limits.
+         * @return Options instance.
+         */
+        public Options withLimitConfiguration(final LimitConfiguration limitConfiguration) {
+            this.limitConfiguration = Objects.requireNonNull(limitConfiguration);
+            return this;
+        }
+
+        /**
+         * Set the listener notified of each request's progress.
+         * @param listener Listener, or null if none.
+         * @return Options instance.
+         */
+        public Options withListener(final HkpClientListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Set the name to register statistics under as a JMX MBean.
+         * @param jmxName Name, or null to not register.
+         * @return Options instance.
+         */
+        public Options withJmxName(final String jmxName) {
+            this.jmxName = jmxName;
+            return this;
+        }
+
+        /**
+         * Set the interceptors wrapping each request to the RestClient.
+         * @param interceptors Interceptors, outermost first.
+         * @return Options instance.
+         */
+        public Options withInterceptors(final List<RestInterceptor> interceptors) {
+            this.interceptors = Objects.requireNonNull(interceptors);
+            return this;
+        }
+
+        /**
+         * Set whether exceptions for error responses skip capturing a stack trace.
+         * @param stacklessExceptions True to skip capturing stack traces.
+         * @return Options instance.
+         */
+        public Options withStacklessExceptions(final boolean stacklessExceptions) {
+            this.stacklessExceptions = stacklessExceptions;
+            return this;
+        }
+    }
 }
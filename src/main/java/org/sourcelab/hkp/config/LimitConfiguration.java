@@ -0,0 +1,86 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.config;
+
+/**
+ * Defines limits on the responses the client will accept from the key server, so a single oversized response can
+ * not exhaust the heap.  A limit of 0 means unlimited.
+ */
+public class LimitConfiguration {
+    // Largest response body (in bytes) to read, 0 for unlimited.
+    private final long maxResponseBytes;
+
+    // Most entries to accept in a search index response, 0 for unlimited.
+    private final int maxIndexEntries;
+
+    // Largest single key (in bytes) to accept, 0 for unlimited.
+    private final int maxKeyBytes;
+
+    /**
+     * Empty constructor.
+     * Calling this will populate an instance with no limits.
+     */
+    public LimitConfiguration() {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxResponseBytes Largest response body (in bytes) to read, 0 for unlimited.
+     * @param maxIndexEntries Most entries to accept in a search index response, 0 for unlimited.
+     * @param maxKeyBytes Largest single key (in bytes) to accept, 0 for unlimited.
+     */
+    public LimitConfiguration(final long maxResponseBytes, final int maxIndexEntries, final int maxKeyBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+        this.maxIndexEntries = maxIndexEntries;
+        this.maxKeyBytes = maxKeyBytes;
+    }
+
+    public boolean hasMaxResponseBytes() {
+        return maxResponseBytes > 0;
+    }
+
+    public long getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    public boolean hasMaxIndexEntries() {
+        return maxIndexEntries > 0;
+    }
+
+    public int getMaxIndexEntries() {
+        return maxIndexEntries;
+    }
+
+    public boolean hasMaxKeyBytes() {
+        return maxKeyBytes > 0;
+    }
+
+    public int getMaxKeyBytes() {
+        return maxKeyBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "LimitConfiguration{"
+            + "maxResponseBytes=" + maxResponseBytes
+            + ", maxIndexEntries=" + maxIndexEntries
+            + ", maxKeyBytes=" + maxKeyBytes
+            + '}';
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.config;
+
+/**
+ * Defines properties for the pool of connections held to the key server.
+ */
+public class PoolConfiguration {
+    // Maximum number of pooled connections, 0 means use the underlying client's default.
+    private final int maxConnections;
+
+    // How many idle connections to open when warming up.
+    private final int warmUpConnections;
+
+    // How often (in seconds) to refresh warm connections, 0 disables.
+    private final int keepWarmIntervalSecs;
+
+    // How many requests may await a response on a single connection, for transports that pipeline.
+    private final int pipelineDepth;
+
+    /**
+     * Empty constructor.
+     * Calling this will populate an instance using the underlying client's defaults.
+     */
+    public PoolConfiguration() {
+        this(0, 1, 0, 8);
+    }
+
+    /**
+     * Constructor.
+     * @param maxConnections Maximum number of pooled connections, 0 to use the underlying client's default.
+     * @param warmUpConnections How many idle connections to open when warming up.
+     * @param keepWarmIntervalSecs How often (in seconds) to refresh warm connections, 0 to disable.
+     * @param pipelineDepth How many requests may await a response on a single connection, for transports that pipeline.
+     */
+    public PoolConfiguration(
+        final int maxConnections,
+        final int warmUpConnections,
+        final int keepWarmIntervalSecs,
+        final int pipelineDepth
+    ) {
+        this.maxConnections = maxConnections;
+        this.warmUpConnections = warmUpConnections;
+        this.keepWarmIntervalSecs = keepWarmIntervalSecs;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public boolean hasMaxConnections() {
+        return maxConnections > 0;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public boolean isKeepWarmEnabled() {
+        return keepWarmIntervalSecs > 0;
+    }
+
+    public int getKeepWarmIntervalSecs() {
+        return keepWarmIntervalSecs;
+    }
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfiguration{"
+            + "maxConnections=" + maxConnections
+            + ", warmUpConnections=" + warmUpConnections
+            + ", keepWarmIntervalSecs=" + keepWarmIntervalSecs
+            + ", pipelineDepth=" + pipelineDepth
+            + '}';
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Hash index from 160-bit v4 fingerprints to values, holding each fingerprint packed into primitives rather than as
+ * a 40 character String.
+ *
+ * Entries are placed by the fingerprint's 64-bit key id, its last 16 hex digits, so a value can be found either by
+ * its full fingerprint or by {@link #getByKeyId(long)} when only the long key id is known, as in a get by key id.
+ * Null values are not allowed.  Not thread safe.
+ *
+ * @param <V> Value type.
+ */
+public class FingerprintIndex<V> {
+    private static final int FINGERPRINT_DIGITS = 40;
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // Hex digits 0-15, 16-31 and 32-39 of each fingerprint.
+    private long[] highs;
+    private long[] middles;
+    private int[] lows;
+    private Object[] values;
+    private int shift;
+    private int size = 0;
+
+    /**
+     * Constructor.
+     */
+    public FingerprintIndex() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Constructor, sized to hold a number of entries without growing.
+     * @param expectedSize Expected number of entries.
+     */
+    public FingerprintIndex(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size may not be negative.");
+        }
+        allocate(LongHashIndex.capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value for a fingerprint.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @return Value, or null if the fingerprint is not present.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final CharSequence fingerprint) {
+        final int start = digitsStart(fingerprint);
+        final int slot = find(
+            Hex.parseLong(fingerprint, start, start + 16),
+            Hex.parseLong(fingerprint, start + 16, start + 32),
+            (int) Hex.parseLong(fingerprint, start + 32, start + 40)
+        );
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Whether a fingerprint is present.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @return True if present.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    public boolean containsKey(final CharSequence fingerprint) {
+        return get(fingerprint) != null;
+    }
+
+    /**
+     * Get the value for any fingerprint ending with a 64-bit key id.  Distinct v4 fingerprints sharing a long key
+     * id are vanishingly rare outside of deliberate collisions, in which case either value may be returned.
+     * @param keyId Key id, as from {@link Hex#parseKeyId(CharSequence)}.
+     * @return Value, or null if no fingerprint ends with the key id.
+     */
+    @SuppressWarnings("unchecked")
+    public V getByKeyId(final long keyId) {
+        final int mask = values.length - 1;
+        for (int slot = slotOf(keyId); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keyIdOf(middles[slot], lows[slot]) == keyId) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set the value for a fingerprint.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @param value Value, not null.
+     * @return The previous value, or null if the fingerprint was not present.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final CharSequence fingerprint, final V value) {
+        Objects.requireNonNull(value, "Value may not be null.");
+        final int start = digitsStart(fingerprint);
+        final long high = Hex.parseLong(fingerprint, start, start + 16);
+        final long middle = Hex.parseLong(fingerprint, start + 16, start + 32);
+        final int low = (int) Hex.parseLong(fingerprint, start + 32, start + 40);
+
+        final int mask = values.length - 1;
+        int slot = slotOf(keyIdOf(middle, low));
+        while (values[slot] != null) {
+            if (highs[slot] == high && middles[slot] == middle && lows[slot] == low) {
+                final V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        middles[slot] = middle;
+        lows[slot] = low;
+        values[slot] = value;
+        if (++size > values.length / 2) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Remove a fingerprint.
+     * @param fingerprint 40 hex digit v4 fingerprint, with an optional "0x" prefix.
+     * @return The removed value, or null if the fingerprint was not present.
+     * @throws NumberFormatException if not a v4 fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final CharSequence fingerprint) {
+        final int start = digitsStart(fingerprint);
+        final int slot = find(
+            Hex.parseLong(fingerprint, start, start + 16),
+            Hex.parseLong(fingerprint, start + 16, start + 32),
+            (int) Hex.parseLong(fingerprint, start + 32, start + 40)
+        );
+        if (slot < 0) {
+            return null;
+        }
+        final V removed = (V) values[slot];
+        values[slot] = null;
+        size--;
+
+        // Shift back later entries in the run that probed past this slot, as in LongHashIndex.
+        final int mask = values.length - 1;
+        int gap = slot;
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            final int home = slotOf(keyIdOf(middles[next], lows[next]));
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                highs[gap] = highs[next];
+                middles[gap] = middles[next];
+                lows[gap] = lows[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FingerprintIndex{"
+            + "size=" + size
+            + ", capacity=" + values.length
+            + '}';
+    }
+
+    private int find(final long high, final long middle, final int low) {
+        final int mask = values.length - 1;
+        for (int slot = slotOf(keyIdOf(middle, low)); values[slot] != null; slot = (slot + 1) & mask) {
+            if (highs[slot] == high && middles[slot] == middle && lows[slot] == low) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int slotOf(final long keyId) {
+        return (int) ((keyId * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void grow() {
+        if (values.length == MAX_CAPACITY) {
+            throw new IllegalStateException("FingerprintIndex is full.");
+        }
+        final long[] oldHighs = highs;
+        final long[] oldMiddles = middles;
+        final int[] oldLows = lows;
+        final Object[] oldValues = values;
+        allocate(values.length * 2);
+        final int mask = values.length - 1;
+        for (int index = 0; index < oldValues.length; index++) {
+            if (oldValues[index] != null) {
+                int slot = slotOf(keyIdOf(oldMiddles[index], oldLows[index]));
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                highs[slot] = oldHighs[index];
+                middles[slot] = oldMiddles[index];
+                lows[slot] = oldLows[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        highs = new long[capacity];
+        middles = new long[capacity];
+        lows = new int[capacity];
+        values = new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * The key id is the last 16 hex digits: the low half of the middle 16, then the final 8.
+     */
+    private static long keyIdOf(final long middle, final int low) {
+        return (middle << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static int digitsStart(final CharSequence fingerprint) {
+        final int start = Hex.skipPrefix(fingerprint, 0, fingerprint.length());
+        if (fingerprint.length() - start != FINGERPRINT_DIGITS) {
+            throw Hex.invalid(fingerprint, 0, fingerprint.length());
+        }
+        return start;
+    }
+}
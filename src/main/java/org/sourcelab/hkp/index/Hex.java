@@ -0,0 +1,125 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import java.util.Arrays;
+
+/**
+ * Parses key ids and fingerprints from hex to primitives, without allocating, for use as index keys.
+ */
+public final class Hex {
+    /**
+     * Digit value of each ASCII character, or -1 if it is not a hex digit.
+     */
+    private static final byte[] DIGITS = new byte[128];
+
+    private static final char[] UPPER_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int digit = 0; digit < 16; digit++) {
+            DIGITS[UPPER_DIGITS[digit]] = (byte) digit;
+            DIGITS[Character.toLowerCase(UPPER_DIGITS[digit])] = (byte) digit;
+        }
+    }
+
+    private Hex() {
+    }
+
+    /**
+     * Parse a 64-bit key id, from either a 16 digit long key id or a 40 digit v4 fingerprint, whose last 16 digits
+     * are its key id.  A "0x" prefix is optional, and either case is accepted.
+     * @param keyId Key id or fingerprint.
+     * @return Key id.
+     * @throws NumberFormatException if not a long key id or v4 fingerprint.
+     */
+    public static long parseKeyId(final CharSequence keyId) {
+        return parseKeyId(keyId, 0, keyId.length());
+    }
+
+    /**
+     * Parse a 64-bit key id from part of a string, as {@link #parseKeyId(CharSequence)}.
+     * @param value Value holding the key id or fingerprint.
+     * @param start Index of the first character.
+     * @param end Index just past the last character.
+     * @return Key id.
+     * @throws NumberFormatException if not a long key id or v4 fingerprint.
+     */
+    public static long parseKeyId(final CharSequence value, final int start, final int end) {
+        final int digitsStart = skipPrefix(value, start, end);
+        final int digits = end - digitsStart;
+        if (digits != 16 && digits != 40) {
+            throw invalid(value, start, end);
+        }
+        return parseLong(value, end - 16, end);
+    }
+
+    /**
+     * Parse up to 16 hex digits as an unsigned 64-bit value.
+     * @param value Value holding the digits.
+     * @param start Index of the first digit.
+     * @param end Index just past the last digit.
+     * @return Parsed value.
+     * @throws NumberFormatException if empty, too long or not all hex digits.
+     */
+    public static long parseLong(final CharSequence value, final int start, final int end) {
+        if (start >= end || end - start > 16) {
+            throw invalid(value, start, end);
+        }
+        // Invalid digits are collected and checked once at the end, keeping the loop free of branches.
+        long result = 0;
+        int invalid = 0;
+        for (int index = start; index < end; index++) {
+            final char character = value.charAt(index);
+            final int digit = DIGITS[character & 0x7F] | ((0x7F - character) >> 31);
+            invalid |= digit;
+            result = (result << 4) | (digit & 0xF);
+        }
+        if (invalid < 0) {
+            throw invalid(value, start, end);
+        }
+        return result;
+    }
+
+    /**
+     * Format a 64-bit key id as 16 upper case hex digits, without a prefix.
+     * @param keyId Key id.
+     * @return Hex digits.
+     */
+    public static String toKeyId(final long keyId) {
+        final char[] digits = new char[16];
+        for (int index = 0; index < digits.length; index++) {
+            digits[index] = UPPER_DIGITS[(int) (keyId >>> (60 - index * 4)) & 0xF];
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Index just past any "0x" prefix.
+     */
+    static int skipPrefix(final CharSequence value, final int start, final int end) {
+        if (end - start >= 2 && value.charAt(start) == '0' && (value.charAt(start + 1) == 'x' || value.charAt(start + 1) == 'X')) {
+            return start + 2;
+        }
+        return start;
+    }
+
+    static NumberFormatException invalid(final CharSequence value, final int start, final int end) {
+        return new NumberFormatException("Not a valid key id or fingerprint: \"" + value.subSequence(start, end) + "\"");
+    }
+}
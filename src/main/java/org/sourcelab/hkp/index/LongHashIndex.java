@@ -0,0 +1,256 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Hash index from primitive long keys, such as 64-bit key ids parsed with {@link Hex#parseKeyId(CharSequence)},
+ * to values.
+ *
+ * Keys and values are held in two parallel arrays, probed linearly from a slot picked by mixing the key's bits.
+ * Lookups neither box the key nor allocate an entry, and compare keys directly rather than hashing and comparing
+ * strings.  Null values are not allowed, as an empty slot is one with no value.  Not thread safe.
+ *
+ * @param <V> Value type.
+ */
+public class LongHashIndex<V> {
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int shift;
+    private int size = 0;
+
+    /**
+     * Constructor.
+     */
+    public LongHashIndex() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Constructor, sized to hold a number of entries without growing.
+     * @param expectedSize Expected number of entries.
+     */
+    public LongHashIndex(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size may not be negative.");
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value for a key.
+     * @param key Key.
+     * @return Value, or null if the key is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        final int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(final long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Set the value for a key.
+     * @param key Key.
+     * @param value Value, not null.
+     * @return The previous value, or null if the key was not present.
+     */
+    public V put(final long key, final V value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Set the value for a key, unless it is already present.
+     * @param key Key.
+     * @param value Value, not null.
+     * @return The existing value, or null if the key was not present and the value was added.
+     */
+    public V putIfAbsent(final long key, final V value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Remove a key.
+     * @param key Key.
+     * @return The removed value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        final int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        final V removed = (V) values[slot];
+        values[slot] = null;
+        size--;
+
+        // Shift back later entries in the run that probed past this slot, so lookups never stop short at the gap.
+        final int mask = values.length - 1;
+        int gap = slot;
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            final int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Pass every entry to a consumer, in no particular order.  The index must not be changed meanwhile.
+     * @param consumer Receives each key and value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final EntryConsumer<? super V> consumer) {
+        Objects.requireNonNull(consumer, "Consumer may not be null.");
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                consumer.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LongHashIndex{"
+            + "size=" + size
+            + ", capacity=" + values.length
+            + '}';
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(final long key, final V value, final boolean replace) {
+        Objects.requireNonNull(value, "Value may not be null.");
+        final int mask = values.length - 1;
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                final V existing = (V) values[slot];
+                if (replace) {
+                    values[slot] = value;
+                }
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > values.length / 2) {
+            grow();
+        }
+        return null;
+    }
+
+    private int find(final long key) {
+        final int mask = values.length - 1;
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Fibonacci hashing, taking the top bits of the key multiplied by 2^64 divided by the golden ratio, so keys
+     * differing only in their low bits, or only in their high bits, still spread across the table.
+     */
+    private int slotOf(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void grow() {
+        if (values.length == MAX_CAPACITY) {
+            throw new IllegalStateException("LongHashIndex is full.");
+        }
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(values.length * 2);
+        final int mask = values.length - 1;
+        for (int index = 0; index < oldValues.length; index++) {
+            if (oldValues[index] != null) {
+                int slot = slotOf(oldKeys[index]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Smallest power of two capacity holding the entries at most half full, which keeps linear probe runs short.
+     */
+    static int capacityFor(final int expectedSize) {
+        final long wanted = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (wanted >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Integer.highestOneBit((int) wanted - 1) << 1;
+    }
+
+    /**
+     * Receives an index entry.
+     * @param <V> Value type.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Accept an entry.
+         * @param key Key.
+         * @param value Value.
+         */
+        void accept(long key, V value);
+    }
+}
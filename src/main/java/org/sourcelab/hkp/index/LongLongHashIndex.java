@@ -0,0 +1,188 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from primitive long keys to primitive long values, such as handles to data held outside the heap.
+ *
+ * Laid out as {@link LongHashIndex}, but with values in a long[] so the index holds no objects at all, however many
+ * entries it has.  A value chosen on construction marks an empty slot, is returned for absent keys and may not be
+ * stored.  Not thread safe, although concurrent lookups are safe while nothing changes the index.
+ */
+public class LongLongHashIndex {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final long missingValue;
+    private long[] keys;
+    private long[] values;
+    private int shift;
+    private int size = 0;
+
+    /**
+     * Constructor.
+     * @param expectedSize Expected number of entries.
+     * @param missingValue Value returned for absent keys, which may not be stored.
+     */
+    public LongLongHashIndex(final int expectedSize, final long missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size may not be negative.");
+        }
+        this.missingValue = missingValue;
+        allocate(LongHashIndex.capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value for a key.
+     * @param key Key.
+     * @return Value, or the missing value if the key is not present.
+     */
+    public long get(final long key) {
+        final int mask = values.length - 1;
+        for (int slot = slotOf(key); values[slot] != missingValue; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(final long key) {
+        return get(key) != missingValue;
+    }
+
+    /**
+     * Set the value for a key.
+     * @param key Key.
+     * @param value Value, not the missing value.
+     * @return The previous value, or the missing value if the key was not present.
+     */
+    public long put(final long key, final long value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("Value may not be the missing value.");
+        }
+        final int mask = values.length - 1;
+        int slot = slotOf(key);
+        while (values[slot] != missingValue) {
+            if (keys[slot] == key) {
+                final long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > values.length / 2) {
+            grow();
+        }
+        return missingValue;
+    }
+
+    /**
+     * Remove a key.
+     * @param key Key.
+     * @return The removed value, or the missing value if the key was not present.
+     */
+    public long remove(final long key) {
+        final int mask = values.length - 1;
+        int slot = slotOf(key);
+        while (values[slot] != missingValue && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        final long removed = values[slot];
+        if (removed == missingValue) {
+            return missingValue;
+        }
+        values[slot] = missingValue;
+        size--;
+
+        // Shift back later entries in the run that probed past this slot, as in LongHashIndex.
+        int gap = slot;
+        for (int next = (slot + 1) & mask; values[next] != missingValue; next = (next + 1) & mask) {
+            final int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                values[next] = missingValue;
+                gap = next;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getMissingValue() {
+        return missingValue;
+    }
+
+    /**
+     * Remove all entries, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, missingValue);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongHashIndex{"
+            + "size=" + size
+            + ", capacity=" + values.length
+            + '}';
+    }
+
+    private int slotOf(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void grow() {
+        if (values.length == MAX_CAPACITY) {
+            throw new IllegalStateException("LongLongHashIndex is full.");
+        }
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        allocate(values.length * 2);
+        final int mask = values.length - 1;
+        for (int index = 0; index < oldValues.length; index++) {
+            if (oldValues[index] != missingValue) {
+                int slot = slotOf(oldKeys[index]);
+                while (values[slot] != missingValue) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, missingValue);
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+}
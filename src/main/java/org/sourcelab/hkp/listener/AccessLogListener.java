@@ -0,0 +1,197 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes one compact line per request to the {@code org.sourcelab.hkp.access} logger at INFO, for example:
+ * <pre>op=get endpoint=/pks/lookup status=200 ms=12.345 ttfbMs=11.002 sent=0 received=3921</pre>
+ *
+ * Successful requests are sampled at the configured rate.  Failed requests, and those answered with a 5xx status,
+ * are always logged.  Requests are handed to a background thread to be formatted and written, so callers never wait
+ * on log I/O.  If that thread falls behind, records are dropped rather than queued without bound, and a count of
+ * those dropped is logged once it catches up.
+ *
+ * Response bodies are never logged here, see {@code org.sourcelab.hkp.HkpClient} at TRACE for those.
+ */
+public class AccessLogListener implements HkpClientListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger("org.sourcelab.hkp.access");
+
+    /**
+     * Records queued when not otherwise specified.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+    private final double sampleRate;
+    private final BlockingQueue<Exchange> queue;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * Writes queued records, lazily started.
+     */
+    private final AtomicReference<Thread> writerThread = new AtomicReference<>();
+
+    /**
+     * Constructor, logging every request.
+     */
+    public AccessLogListener() {
+        this(1.0);
+    }
+
+    /**
+     * Constructor.
+     * @param sampleRate Fraction of successful requests to log, greater than 0 and at most 1.
+     */
+    public AccessLogListener(final double sampleRate) {
+        this(sampleRate, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * @param sampleRate Fraction of successful requests to log, greater than 0 and at most 1.
+     * @param queueCapacity Most records waiting to be written before further records are dropped.
+     */
+    public AccessLogListener(final double sampleRate, final int queueCapacity) {
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("sampleRate must be greater than 0 and at most 1.");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1.");
+        }
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void onRequestEnd(final Exchange exchange) {
+        if (isClosed.get() || !logger.isInfoEnabled()) {
+            return;
+        }
+        final boolean isFailure = exchange.hasError() || exchange.getStatusCode() >= 500;
+        if (!isFailure && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        if (!queue.offer(exchange)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (writerThread.get() == null) {
+            startWriter();
+        }
+    }
+
+    /**
+     * Stop the background thread, after writing any records still queued.
+     */
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread thread = writerThread.getAndSet(null);
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startWriter() {
+        final Thread thread = new Thread(this::writeLoop, "hkp-client-access-log");
+        thread.setDaemon(true);
+        if (!writerThread.compareAndSet(null, thread)) {
+            return;
+        }
+        thread.start();
+
+        // close() may have run since onRequestEnd() checked, either missing this thread or interrupting it before
+        // it was started.  Stop it here instead, once it has written what is queued.
+        if (isClosed.get()) {
+            thread.interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                write(queue.take());
+            }
+        } catch (final InterruptedException exception) {
+            // Closed, write out anything left below.
+        }
+
+        Exchange exchange;
+        while ((exchange = queue.poll()) != null) {
+            write(exchange);
+        }
+    }
+
+    private void write(final Exchange exchange) {
+        final long dropped = droppedCount.getAndSet(0);
+        if (dropped > 0) {
+            logger.warn("Dropped {} access log records, the log could not keep up", dropped);
+        }
+        logger.info(format(exchange));
+    }
+
+    /**
+     * Format a single record.
+     * @param exchange The completed request.
+     * @return Compact record.
+     */
+    static String format(final Exchange exchange) {
+        final StringBuilder record = new StringBuilder(160)
+            .append("op=").append(exchange.getOperation())
+            .append(" endpoint=").append(exchange.getEndpoint())
+            .append(" status=").append(exchange.getStatusCode())
+            .append(" ms=").append(toMillis(exchange.getElapsedNanos()));
+        final long timeToFirstByte = exchange.getPhaseNanos(Phase.TIME_TO_FIRST_BYTE);
+        if (timeToFirstByte >= 0) {
+            record.append(" ttfbMs=").append(toMillis(timeToFirstByte));
+        }
+        record
+            .append(" sent=").append(exchange.getBytesSent())
+            .append(" received=").append(exchange.getBytesReceived());
+        if (exchange.hasError()) {
+            record
+                .append(" error=").append(exchange.getError().getClass().getSimpleName())
+                .append(" message=\"").append(exchange.getError().getMessage()).append('"');
+        }
+        return record.toString();
+    }
+
+    private static String toMillis(final long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Notifies several listeners in turn, so that a failure in one does not prevent the others being notified.
+ * Used when more than one listener is configured.
+ */
+public final class CompositeListener implements HkpClientListener {
+    private static final Logger logger = LoggerFactory.getLogger(CompositeListener.class);
+
+    private final List<HkpClientListener> listeners;
+
+    /**
+     * Constructor.
+     * @param listeners Listeners to notify, in order.
+     */
+    public CompositeListener(final List<HkpClientListener> listeners) {
+        this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+    }
+
+    public List<HkpClientListener> getListeners() {
+        return listeners;
+    }
+
+    @Override
+    public void onRequestStart(final Exchange exchange) {
+        for (final HkpClientListener listener : listeners) {
+            try {
+                listener.onRequestStart(exchange);
+            } catch (final RuntimeException exception) {
+                logger.warn("Listener failed on request start: {}", exception.getMessage(), exception);
+            }
+        }
+    }
+
+    @Override
+    public void onPhase(final Exchange exchange, final Phase phase, final long startNanos, final long endNanos) {
+        for (final HkpClientListener listener : listeners) {
+            try {
+                listener.onPhase(exchange, phase, startNanos, endNanos);
+            } catch (final RuntimeException exception) {
+                logger.warn("Listener failed on phase {}: {}", phase, exception.getMessage(), exception);
+            }
+        }
+    }
+
+    @Override
+    public void onRequestEnd(final Exchange exchange) {
+        for (final HkpClientListener listener : listeners) {
+            try {
+                listener.onRequestEnd(exchange);
+            } catch (final RuntimeException exception) {
+                logger.warn("Listener failed on request end: {}", exception.getMessage(), exception);
+            }
+        }
+    }
+}
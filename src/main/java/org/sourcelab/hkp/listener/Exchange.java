@@ -0,0 +1,206 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A single request to the key server, as reported to a {@link HkpClientListener}.
+ *
+ * Created by {@link org.sourcelab.hkp.HkpClient} for each request, and handed to the
+ * {@link org.sourcelab.hkp.rest.RestClient} so it can record the phases it observes.
+ */
+public final class Exchange {
+    private static final Logger logger = LoggerFactory.getLogger(Exchange.class);
+    private static final Phase[] PHASES = Phase.values();
+
+    private final HkpClientListener listener;
+    private final String operation;
+    private final String endpoint;
+    private final long startNanos;
+
+    // Total nanoseconds spent in each phase, -1 if not observed.
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+
+    private volatile long endNanos = -1;
+    private volatile int statusCode = 0;
+    private volatile long bytesSent = 0;
+    private volatile long bytesReceived = 0;
+    private volatile Throwable error = null;
+    private volatile CacheOutcome cacheOutcome = CacheOutcome.NONE;
+
+    /**
+     * Constructor, marks the start of the request and notifies the listener.
+     * @param listener Listener to notify.
+     * @param operation The HKP operation, such as "get" or "index".
+     * @param endpoint Path of the endpoint the request is sent to.
+     */
+    public Exchange(final HkpClientListener listener, final String operation, final String endpoint) {
+        this.listener = Objects.requireNonNull(listener, "Listener may not be null.");
+        this.operation = Objects.requireNonNull(operation, "Operation may not be null.");
+        this.endpoint = Objects.requireNonNull(endpoint, "Endpoint may not be null.");
+        for (int index = 0; index < PHASES.length; index++) {
+            phaseNanos.set(index, -1);
+        }
+        this.startNanos = System.nanoTime();
+
+        try {
+            listener.onRequestStart(this);
+        } catch (final RuntimeException exception) {
+            logger.warn("Listener failed on request start: {}", exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Record that a phase of the request completed, and notify the listener.
+     * @param phase The phase.
+     * @param phaseStartNanos When the phase started.
+     * @param phaseEndNanos When the phase ended.
+     */
+    public void recordPhase(final Phase phase, final long phaseStartNanos, final long phaseEndNanos) {
+        final long elapsed = Math.max(0, phaseEndNanos - phaseStartNanos);
+        phaseNanos.accumulateAndGet(phase.ordinal(), elapsed, (previous, update) -> previous < 0 ? update : previous + update);
+        try {
+            listener.onPhase(this, phase, phaseStartNanos, phaseEndNanos);
+        } catch (final RuntimeException exception) {
+            logger.warn("Listener failed on phase {}: {}", phase, exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Record the response received.
+     * @param statusCode HTTP status code.
+     * @param bytesSent Size of the request body.
+     * @param bytesReceived Size of the response body.
+     */
+    public void recordResponse(final int statusCode, final long bytesSent, final long bytesReceived) {
+        this.statusCode = statusCode;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+    }
+
+    /**
+     * Record whether a cache answered the request.
+     * @param cacheOutcome Cache outcome.
+     */
+    public void recordCacheOutcome(final CacheOutcome cacheOutcome) {
+        this.cacheOutcome = cacheOutcome;
+    }
+
+    /**
+     * Record that the request failed.
+     * @param error The failure.
+     */
+    public void recordError(final Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * Mark the request as complete, and notify the listener.  Only the first call has any effect.
+     */
+    public void end() {
+        if (endNanos != -1) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        try {
+            listener.onRequestEnd(this);
+        } catch (final RuntimeException exception) {
+            logger.warn("Listener failed on request end: {}", exception.getMessage(), exception);
+        }
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * Total time taken by the request, from start until it completed.
+     * @return Elapsed nanoseconds, or -1 if not yet complete.
+     */
+    public long getElapsedNanos() {
+        final long end = endNanos;
+        return end == -1 ? -1 : end - startNanos;
+    }
+
+    /**
+     * Total time spent in the given phase, summed if the phase occurred more than once.
+     * @param phase The phase.
+     * @return Elapsed nanoseconds, or -1 if the phase was not observed.
+     */
+    public long getPhaseNanos(final Phase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /**
+     * HTTP status code of the response.
+     * @return Status code, or 0 if no response was received.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public CacheOutcome getCacheOutcome() {
+        return cacheOutcome;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "Exchange{"
+            + "operation='" + operation + '\''
+            + ", endpoint='" + endpoint + '\''
+            + ", statusCode=" + statusCode
+            + ", elapsedNanos=" + getElapsedNanos()
+            + ", bytesSent=" + bytesSent
+            + ", bytesReceived=" + bytesReceived
+            + ", cacheOutcome=" + cacheOutcome
+            + '}';
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time snapshot of a {@link LatencyHistogram}.
+ */
+public class HistogramSnapshot {
+    private final long[] bucketCounts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    /**
+     * Constructor.
+     * @param bucketCounts Count of values in each bucket.
+     * @param count Total count of values.
+     * @param sum Sum of all values.
+     * @param max Largest value.
+     */
+    HistogramSnapshot(final long[] bucketCounts, final long count, final long sum, final long max) {
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return max;
+    }
+
+    /**
+     * Mean of all recorded values.
+     * @return Mean in nanoseconds, or 0 if empty.
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * The value at the given percentile, accurate to about 6%.
+     * @param percentile Percentile between 0 and 100, such as 99.9.
+     * @return Value in nanoseconds, or 0 if empty.
+     */
+    public long getPercentileNanos(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int index = 0; index < bucketCounts.length; index++) {
+            seen += bucketCounts[index];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.bucketUpperBound(index));
+            }
+        }
+        return max;
+    }
+
+    public long getMedianNanos() {
+        return getPercentileNanos(50);
+    }
+
+    public long get99thPercentileNanos() {
+        return getPercentileNanos(99);
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{"
+            + "count=" + count
+            + ", meanMs=" + String.format("%.3f", getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1))
+            + ", p50Ms=" + toMillis(getPercentileNanos(50))
+            + ", p90Ms=" + toMillis(getPercentileNanos(90))
+            + ", p99Ms=" + toMillis(getPercentileNanos(99))
+            + ", maxMs=" + toMillis(max)
+            + '}';
+    }
+
+    private static String toMillis(final long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+/**
+ * Callbacks notified as each request to the key server progresses.
+ * Configure with {@link org.sourcelab.hkp.ConfigurationBuilder#withListener(HkpClientListener)}.
+ *
+ * Callbacks are made synchronously on whichever thread observed the event, which may be a transport's internal
+ * thread, so implementations must be thread safe and should return quickly.  Exceptions thrown by a listener
+ * are logged and otherwise ignored.  All timestamps are from {@link System#nanoTime()}.
+ */
+public interface HkpClientListener {
+    /**
+     * Called before a request is sent.
+     * @param exchange The request being sent.
+     */
+    default void onRequestStart(final Exchange exchange) {
+    }
+
+    /**
+     * Called as each phase of a request completes.  Phases the underlying RestClient can not observe are not reported,
+     * and a phase may be reported more than once if the request is retried.
+     * @param exchange The request.
+     * @param phase The phase which completed.
+     * @param startNanos When the phase started.
+     * @param endNanos When the phase ended.
+     */
+    default void onPhase(final Exchange exchange, final Phase phase, final long startNanos, final long endNanos) {
+    }
+
+    /**
+     * Called once a request has completed, successfully or otherwise.
+     * @param exchange The completed request.
+     */
+    default void onRequestEnd(final Exchange exchange) {
+    }
+}
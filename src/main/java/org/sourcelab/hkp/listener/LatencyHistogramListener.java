@@ -0,0 +1,124 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Listener which keeps {@link LatencyHistogram}s of total request time, and of each phase, per operation and endpoint.
+ *
+ * Histograms are keyed by operation and endpoint path separated by a space, for example "get /pks/lookup".
+ * Poll {@link #getLatencySnapshots()} periodically to publish percentiles to a metrics system.
+ */
+public class LatencyHistogramListener implements HkpClientListener {
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Keyed by operation, then endpoint, so that recording a request needs no key to be built.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Histograms>> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequestEnd(final Exchange exchange) {
+        final Histograms forKey = getOrCreate(exchange.getOperation(), exchange.getEndpoint());
+        forKey.total.record(exchange.getElapsedNanos());
+        for (final Phase phase : PHASES) {
+            forKey.phases.get(phase).record(exchange.getPhaseNanos(phase));
+        }
+    }
+
+    /**
+     * Snapshot the total request time of every operation and endpoint seen so far.
+     * @return Snapshots keyed by operation and endpoint, such as "get /pks/lookup", sorted by key.
+     */
+    public Map<String, HistogramSnapshot> getLatencySnapshots() {
+        final Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+        histograms.forEach((operation, forOperation) -> forOperation.forEach(
+            (endpoint, forKey) -> snapshots.put(operation + " " + endpoint, forKey.total.snapshot())
+        ));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    /**
+     * Snapshot the total request time of a single operation and endpoint.
+     * @param operation The HKP operation, such as "get".
+     * @param endpoint The endpoint path, such as "/pks/lookup".
+     * @return Snapshot, empty if no such requests have completed.
+     */
+    public HistogramSnapshot getLatencySnapshot(final String operation, final String endpoint) {
+        final Histograms forKey = get(operation, endpoint);
+        return forKey == null ? new LatencyHistogram().snapshot() : forKey.total.snapshot();
+    }
+
+    /**
+     * Snapshot the time spent in each phase of a single operation and endpoint.  Requests which did not include a
+     * phase, such as DNS on a reused connection, are not counted in that phase.
+     * @param operation The HKP operation, such as "get".
+     * @param endpoint The endpoint path, such as "/pks/lookup".
+     * @return Snapshots keyed by phase, empty if no such requests have completed.
+     */
+    public Map<Phase, HistogramSnapshot> getPhaseSnapshots(final String operation, final String endpoint) {
+        final Map<Phase, HistogramSnapshot> snapshots = new EnumMap<>(Phase.class);
+        final Histograms forKey = get(operation, endpoint);
+        if (forKey != null) {
+            forKey.phases.forEach((phase, histogram) -> snapshots.put(phase, histogram.snapshot()));
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    /**
+     * Discard everything recorded so far.
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    private Histograms get(final String operation, final String endpoint) {
+        final Map<String, Histograms> forOperation = histograms.get(operation);
+        return forOperation == null ? null : forOperation.get(endpoint);
+    }
+
+    private Histograms getOrCreate(final String operation, final String endpoint) {
+        // Every key is present after the first few requests, so look up before computeIfAbsent, which may lock.
+        ConcurrentMap<String, Histograms> forOperation = histograms.get(operation);
+        if (forOperation == null) {
+            forOperation = histograms.computeIfAbsent(operation, (key) -> new ConcurrentHashMap<>());
+        }
+        final Histograms forKey = forOperation.get(endpoint);
+        return forKey == null ? forOperation.computeIfAbsent(endpoint, (key) -> new Histograms()) : forKey;
+    }
+
+    /**
+     * Histograms for a single operation and endpoint.
+     */
+    private static class Histograms {
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+
+        Histograms() {
+            for (final Phase phase : PHASES) {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+/**
+ * The phases of a single request to the key server, in the order they occur.
+ */
+public enum Phase {
+    /**
+     * Waiting for a pooled connection, or a free slot on a pipelined connection.
+     */
+    POOL_WAIT,
+
+    /**
+     * Resolving the key server's address, only when opening a new connection.
+     */
+    DNS,
+
+    /**
+     * Establishing the TCP connection, only when opening a new connection.
+     */
+    CONNECT,
+
+    /**
+     * Performing the TLS handshake, only when opening a new connection.
+     */
+    TLS_HANDSHAKE,
+
+    /**
+     * From sending the request until the response headers are received.
+     */
+    TIME_TO_FIRST_BYTE,
+
+    /**
+     * Reading the response body.
+     */
+    BODY_DOWNLOAD,
+
+    /**
+     * Parsing the response body.
+     */
+    PARSE
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes binary OpenPGP data using ASCII Armor, as defined by RFC 4880 section 6.
+ */
+final class AsciiArmor {
+    private static final int CRC24_INIT = 0xB704CE;
+    private static final int CRC24_POLY = 0x1864CFB;
+
+    private static final Base64.Encoder ENCODER = Base64.getMimeEncoder(64, new byte[] { '\n' });
+
+    private AsciiArmor() {
+    }
+
+    /**
+     * Armor binary public key packets.
+     * @param packets Binary OpenPGP packets.
+     * @return Armored public key block.
+     */
+    static String armorPublicKey(final byte[] packets) {
+        final int crc = crc24(packets);
+        final byte[] checksum = new byte[] { (byte) (crc >> 16), (byte) (crc >> 8), (byte) crc };
+
+        return new StringBuilder(packets.length * 4 / 3 + 128)
+            .append("-----BEGIN PGP PUBLIC KEY BLOCK-----\n\n")
+            .append(new String(ENCODER.encode(packets), StandardCharsets.US_ASCII))
+            .append("\n=")
+            .append(Base64.getEncoder().encodeToString(checksum))
+            .append("\n-----END PGP PUBLIC KEY BLOCK-----\n")
+            .toString();
+    }
+
+    /**
+     * Compute the CRC-24 checksum used by ASCII Armor.
+     * @param data Data to checksum.
+     * @return 24bit checksum.
+     */
+    static int crc24(final byte[] data) {
+        int crc = CRC24_INIT;
+        for (final byte value : data) {
+            crc ^= (value & 0xFF) << 16;
+            for (int bit = 0; bit < 8; bit++) {
+                crc <<= 1;
+                if ((crc & 0x1000000) != 0) {
+                    crc ^= CRC24_POLY;
+                }
+            }
+        }
+        return crc & 0xFFFFFF;
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.sourcelab.hkp.parser;
 
+import org.sourcelab.hkp.ResponseTooLargeException;
 import org.sourcelab.hkp.response.get.PgpPublicKey;
 
 import java.io.IOException;
@@ -25,8 +26,38 @@ import java.io.IOException;
  * Parses Get Key responses.
  */
 public class GetResponseParser implements ResponseParser<PgpPublicKey> {
+    private final int maxKeyBytes;
+
+    /**
+     * Constructor, accepting keys of any size.
+     */
+    public GetResponseParser() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxKeyBytes Largest armored key to accept, 0 for unlimited.  Larger keys fail with
+     *                    {@link ResponseTooLargeException}.
+     */
+    public GetResponseParser(final int maxKeyBytes) {
+        this.maxKeyBytes = maxKeyBytes;
+    }
+
     @Override
     public PgpPublicKey parseResponse(final String responseStr) throws IOException {
-        return new PgpPublicKey(responseStr);
+        // Armored keys are ASCII, so characters and bytes are one and the same.
+        if (maxKeyBytes > 0 && responseStr != null && responseStr.length() > maxKeyBytes) {
+            throw new ResponseTooLargeException(
+                "Key of " + responseStr.length() + " bytes exceeds limit of " + maxKeyBytes + " bytes", maxKeyBytes
+            );
+        }
+        final ParseEvent parseEvent = ParseEvent.start();
+        final PgpPublicKey publicKey = new PgpPublicKey(responseStr);
+        if (parseEvent.shouldCommit()) {
+            parseEvent.setDetails("get", 1);
+            parseEvent.commit();
+        }
+        return publicKey;
     }
 }
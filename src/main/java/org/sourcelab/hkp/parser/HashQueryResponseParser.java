@@ -0,0 +1,105 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.parser;
+
+import org.sourcelab.hkp.ResponseTooLargeException;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses /pks/hashquery responses.
+ *
+ * The response is the number of keys as a 32bit big-endian integer, followed by each key as binary OpenPGP
+ * packets prefixed with their length.  RestClients buffer each response body, so the whole response is parsed
+ * at once.
+ */
+public class HashQueryResponseParser {
+    /**
+     * Guards against allocating absurd amounts of memory for a corrupt length prefix.
+     */
+    private static final int MAX_KEY_LENGTH = 16 * 1024 * 1024;
+
+    private final int maxKeyBytes;
+
+    /**
+     * Constructor, accepting keys of any valid length.
+     */
+    public HashQueryResponseParser() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxKeyBytes Largest key (in bytes of binary packets) to accept, 0 for unlimited.  Larger keys fail with
+     *                    {@link ResponseTooLargeException}.
+     */
+    public HashQueryResponseParser(final int maxKeyBytes) {
+        this.maxKeyBytes = maxKeyBytes;
+    }
+
+    /**
+     * Parse the full response.
+     * @param responseBytes The response body.
+     * @return All keys, in the order the server returned them.
+     * @throws IOException on parse errors.
+     */
+    public List<PgpPublicKey> parseResponse(final byte[] responseBytes) throws IOException {
+        // avoid NPE
+        if (responseBytes == null) {
+            throw new IOException("NULL Response from server.");
+        }
+        final ParseEvent parseEvent = ParseEvent.start();
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(responseBytes));
+        final int count;
+        try {
+            count = input.readInt();
+        } catch (final EOFException exception) {
+            throw new IOException("Empty hashquery response from server.", exception);
+        }
+        if (count < 0) {
+            throw new IOException("Invalid key count in hashquery response: " + count);
+        }
+
+        // Each key takes at least its 4 byte length prefix, so a corrupt count can not size the list absurdly.
+        final List<PgpPublicKey> keys = new ArrayList<>(Math.min(count, responseBytes.length / 4));
+        for (int index = 0; index < count; index++) {
+            final int length = input.readInt();
+            if (length < 0 || length > MAX_KEY_LENGTH) {
+                throw new IOException("Invalid key length in hashquery response: " + length);
+            }
+            if (maxKeyBytes > 0 && length > maxKeyBytes) {
+                throw new ResponseTooLargeException("Key of " + length + " bytes exceeds limit of " + maxKeyBytes + " bytes", maxKeyBytes);
+            }
+            final byte[] packets = new byte[length];
+            input.readFully(packets);
+            keys.add(new PgpPublicKey(AsciiArmor.armorPublicKey(packets)));
+        }
+
+        if (parseEvent.shouldCommit()) {
+            parseEvent.setDetails("hashquery", count);
+            parseEvent.commit();
+        }
+        return keys;
+    }
+}
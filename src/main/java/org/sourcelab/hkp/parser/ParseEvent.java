@@ -0,0 +1,48 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.parser;
+
+/**
+ * Flight Recorder event describing parsing a single response.
+ *
+ * Flight Recorder is only available on Java 11 and newer, where this no-op class is replaced by one extending
+ * {@code jdk.jfr.Event} via the Multi-Release jar.  Callers should follow the usual pattern of calling
+ * {@link #start()}, then only filling in details and committing if {@link #shouldCommit()}.
+ */
+final class ParseEvent {
+    private static final ParseEvent DISABLED = new ParseEvent();
+
+    /**
+     * Start timing a parse.  Without Flight Recorder there is nothing to record, so a shared instance is returned
+     * rather than allocating one per response.
+     * @return The started event.
+     */
+    static ParseEvent start() {
+        return DISABLED;
+    }
+
+    boolean shouldCommit() {
+        return false;
+    }
+
+    void setDetails(final String parser, final int entryCount) {
+    }
+
+    void commit() {
+    }
+}
@@ -17,46 +17,190 @@
 
 package org.sourcelab.hkp.parser;
 
+import org.sourcelab.hkp.ResponseTooLargeException;
 import org.sourcelab.hkp.response.search.Entry;
-import org.sourcelab.hkp.response.search.Pub;
+import org.sourcelab.hkp.response.search.PubLine;
 import org.sourcelab.hkp.response.search.SearchIndexResponse;
 import org.sourcelab.hkp.response.search.Uid;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * Parses SearchIndex Responses.
+ *
+ * Lines are read in place rather than split up front.  Entries can be filtered, and narrowed to the top ranked,
+ * as they are read: a rejected entry's pub line is only scanned for its fields and its uid line is skipped, so no
+ * objects are allocated for it, and only as many entries as are being kept are held at once.
  */
 public class SearchIndexResponseParser implements ResponseParser<SearchIndexResponse> {
+    /**
+     * Orders ranked entries worst first: lowest score, then among equal scores the latest read.
+     */
+    private static final Comparator<Ranked> WORST_FIRST = Comparator
+        .comparingLong((Ranked ranked) -> ranked.score)
+        .thenComparing((Ranked ranked) -> ranked.sequence, Comparator.reverseOrder());
+
+    private final int maxEntries;
+    private final Predicate<PubLine> filter;
+    private final int topK;
+    private final ToLongFunction<PubLine> ranking;
+
+    /**
+     * Constructor, accepting any number of entries.
+     */
+    public SearchIndexResponseParser() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxEntries Most entries to accept, 0 for unlimited.  Responses declaring or holding more fail with
+     *                   {@link ResponseTooLargeException}.
+     */
+    public SearchIndexResponseParser(final int maxEntries) {
+        this(maxEntries, null, 0, null);
+    }
+
+    /**
+     * Constructor.
+     * @param maxEntries Most entries to accept, 0 for unlimited.  Responses declaring or holding more fail with
+     *                   {@link ResponseTooLargeException}.
+     * @param filter Entries to keep, or null for all.
+     * @param topK How many of the highest ranked entries to keep, or 0 for all.
+     * @param ranking Ranks entries when topK is given, higher first.
+     */
+    public SearchIndexResponseParser(
+        final int maxEntries,
+        final Predicate<PubLine> filter,
+        final int topK,
+        final ToLongFunction<PubLine> ranking) {
+        if (topK < 0) {
+            throw new IllegalArgumentException("Top K may not be negative.");
+        }
+        if (topK > 0 && ranking == null) {
+            throw new IllegalArgumentException("Ranking is required with top K.");
+        }
+        this.maxEntries = maxEntries;
+        this.filter = filter;
+        this.topK = topK;
+        this.ranking = ranking;
+    }
 
     @Override
     public SearchIndexResponse parseResponse(final String responseStr) throws IOException {
+        final ParseEvent parseEvent = ParseEvent.start();
+        final SearchIndexResponse response = parse(responseStr);
+        if (parseEvent.shouldCommit()) {
+            parseEvent.setDetails("index", response.getEntries().size());
+            parseEvent.commit();
+        }
+        return response;
+    }
+
+    private SearchIndexResponse parse(final String responseStr) throws IOException {
         // avoid NPE
         if (responseStr == null) {
             throw new IOException("NULL Response from server.");
         }
 
-        final String[] lines = responseStr.split("\n");
-        if (lines.length < 1) {
-            throw new IOException("Invalid Format returned from server: " + responseStr);
-        }
-
-        // Parse header into builder
-        final SearchIndexResponse.Builder builder = parseHeader(lines[0]);
+        // Parse header into builder, checking the declared count before reading the rest of the response.
+        final List<String> header = parseHeader(responseStr);
+        final int count = Integer.parseInt(header.get(2));
+        checkEntries(count);
+        final SearchIndexResponse.Builder builder = SearchIndexResponse.newBuilder()
+            .withVersion(Integer.parseInt(header.get(1)))
+            .withCount(count);
 
-        for (int index = 1; index < lines.length; index = index + 2) {
-            if (lines[index].trim().isEmpty() || lines[index].equals("\r")) {
+        final int length = responseStr.length();
+        final PubLine pubLine = new PubLine();
+        final PriorityQueue<Ranked> top = topK > 0 ? new PriorityQueue<>(WORST_FIRST) : null;
+        int entries = 0;
+        int lineStart = lineEnd(responseStr, 0) + 1;
+        while (lineStart < length) {
+            final int pubEnd = lineEnd(responseStr, lineStart);
+            final int pubContentEnd = contentEnd(responseStr, lineStart, pubEnd);
+            if (isBlank(responseStr, lineStart, pubContentEnd)) {
                 break;
             }
-            builder.withEntry(
-                new Entry(parsePub(lines[index]), parseUid(lines[index + 1]))
-            );
+            checkEntries(++entries);
+
+            // Each pub line is followed by its uid line.
+            final int uidStart = pubEnd + 1;
+            final int uidEnd = uidStart < length ? lineEnd(responseStr, uidStart) : -1;
+            if (!pubLine.reset(responseStr, lineStart, pubContentEnd)) {
+                throw new IOException("Unable to pub line: \"" + responseStr.substring(lineStart, pubContentEnd) + "\"");
+            }
+            lineStart = uidEnd == -1 ? length : uidEnd + 1;
+
+            if (filter != null && !filter.test(pubLine)) {
+                continue;
+            }
+            if (top == null) {
+                builder.withEntry(parseEntry(pubLine, responseStr, uidStart, uidEnd));
+                continue;
+            }
+
+            // Keep a bounded heap of the best so far, skipping entries which would be evicted straight away.
+            final long score = ranking.applyAsLong(pubLine);
+            if (top.size() < topK || score > top.peek().score) {
+                if (top.size() == topK) {
+                    top.poll();
+                }
+                top.add(new Ranked(score, entries, parseEntry(pubLine, responseStr, uidStart, uidEnd)));
+            }
         }
 
+        if (top != null) {
+            final List<Ranked> ranked = new ArrayList<>(top);
+            ranked.sort(WORST_FIRST.reversed());
+            for (final Ranked entry : ranked) {
+                builder.withEntry(entry.entry);
+            }
+        }
         return builder.build();
     }
 
+    private Entry parseEntry(final PubLine pubLine, final String responseStr, final int uidStart, final int uidEnd) throws IOException {
+        final String uidLine = uidEnd == -1 ? null : responseStr.substring(uidStart, contentEnd(responseStr, uidStart, uidEnd));
+        return new Entry(pubLine.toPub(), parseUid(uidLine));
+    }
+
+    /**
+     * Index of the newline ending the line starting at the given index, or the end of the response.
+     */
+    private static int lineEnd(final String responseStr, final int start) {
+        final int end = responseStr.indexOf('\n', start);
+        return end == -1 ? responseStr.length() : end;
+    }
+
+    /**
+     * End of a line's content, excluding any carriage return.
+     */
+    private static int contentEnd(final String responseStr, final int start, final int end) {
+        return end > start && responseStr.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    private static boolean isBlank(final String responseStr, final int start, final int end) {
+        for (int index = start; index < end; index++) {
+            if (responseStr.charAt(index) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkEntries(final int entries) {
+        if (maxEntries > 0 && entries > maxEntries) {
+            throw new ResponseTooLargeException("Search of " + entries + " entries exceeds limit of " + maxEntries + " entries", maxEntries);
+        }
+    }
+
     private Uid parseUid(final String line) throws IOException {
         final List<String> fields = FieldParser.parseLine(line);
         if (fields.size() != 5) {
@@ -72,31 +216,33 @@ public class SearchIndexResponseParser implements ResponseParser<SearchIndexResp
             .build();
     }
 
-    private Pub parsePub(final String line) throws IOException {
-        final List<String> fields = FieldParser.parseLine(line);
-        if (fields.size() != 7) {
-            throw new IOException("Unable to pub line: \"" + line + "\"");
-        }
-
-        // pub:<keyid>:<algo>:<keylen>:<creationdate>:<expirationdate>:<flags>
-        return Pub.newBuilder()
-            .withKeyId(fields.get(1))
-            .withAlgo(Integer.parseInt(fields.get(2)))
-            .withKeyLen(Integer.parseInt(fields.get(3)))
-            .withCreationDate(fields.get(4))
-            .withExpirationDate(fields.get(5))
-            .withFlags(fields.get(6))
-            .build();
-    }
-
-    private SearchIndexResponse.Builder parseHeader(final String line) throws IOException {
+    /**
+     * Parse the "info:version:count" header line which starts the response.
+     * @param responseStr The response, or at least its first line.
+     * @return Header fields.
+     * @throws IOException on parse errors.
+     */
+    static List<String> parseHeader(final String responseStr) throws IOException {
+        final String line = responseStr.substring(0, contentEnd(responseStr, 0, lineEnd(responseStr, 0)));
         final List<String> fields = FieldParser.parseLine(line);
         if (fields.size() != 3) {
             throw new IOException("Unable to header line: \"" + line + "\"");
         }
+        return fields;
+    }
 
-        return SearchIndexResponse.newBuilder()
-            .withVersion(Integer.parseInt(fields.get(1)))
-            .withCount(Integer.parseInt(fields.get(2)));
+    /**
+     * An entry kept for top K selection, with its score and the order it was read in.
+     */
+    private static final class Ranked {
+        private final long score;
+        private final int sequence;
+        private final Entry entry;
+
+        private Ranked(final long score, final int sequence, final Entry entry) {
+            this.score = score;
+            this.sequence = sequence;
+            this.entry = entry;
+        }
     }
 }
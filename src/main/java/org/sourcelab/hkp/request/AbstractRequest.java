@@ -18,37 +18,93 @@
 package org.sourcelab.hkp.request;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Shared Abstract Request.
+ *
+ * Requests are immutable, and so safe to share and reuse across threads.  Methods that change a parameter return
+ * a new instance.  Parameters are held sorted by name and URL encoded once, on construction, so requests with the
+ * same parameters always produce the same query string and are equal to one another.
  */
 public abstract class AbstractRequest implements Request {
-    private final Map<String, String> params = new HashMap<>();
+    private final SortedMap<String, String> params;
+    private final String queryString;
+
+    /**
+     * Constructor.
+     * @param params Parameters of the request, in addition to the options common to every request.
+     */
+    AbstractRequest(final Map<String, String> params) {
+        final SortedMap<String, String> sorted = new TreeMap<>(params);
+        sorted.put("options", "mr");
+        this.params = Collections.unmodifiableSortedMap(sorted);
+        this.queryString = QueryStringEncoder.encode(this.params);
+    }
+
+    /**
+     * Create the parameters for a new request.
+     * @param operation The HKP operation to perform.
+     * @return Mutable map of request parameters.
+     */
+    static Map<String, String> newParameters(final String operation) {
+        final Map<String, String> params = new TreeMap<>();
+        params.put("op", operation);
+        return params;
+    }
 
     /**
-     * Add a parameter to the request.
+     * Copy this request's parameters, changing a single parameter.
      * @param name Name of the parameter.
-     * @param value value of the parameter.
+     * @param value value of the parameter, or null to remove it.
+     * @return Copy of the request parameters.
      */
-    void withParameter(final String name, final String value) {
+    Map<String, String> withParameter(final String name, final String value) {
         Objects.requireNonNull(name, "Parameter name may not be null.");
+        final Map<String, String> copy = new TreeMap<>(params);
         if (value == null) {
-            params.remove(name);
+            copy.remove(name);
         } else {
-            params.put(name, value);
+            copy.put(name, value);
         }
+        return copy;
     }
 
     /**
      * Get all request parameters associated with the request.
-     * @return Map of request parameters.
+     * @return Map of request parameters, sorted by name.
      */
     @Override
     public Map<String, String> getRequestParameters() {
-        withParameter("options", "mr");
-        return Collections.unmodifiableMap(params);
+        return params;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        return queryString.equals(((AbstractRequest) other).queryString);
+    }
+
+    @Override
+    public int hashCode() {
+        return queryString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + queryString + '}';
     }
 }
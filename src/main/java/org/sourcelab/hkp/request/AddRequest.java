@@ -0,0 +1,233 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Defines an Add Keys request, publishing ASCII armored public keys to the key server via /pks/add.
+ *
+ * Keys are uploaded in batches, each batch sent as one concatenated keyring in a single request.
+ * See {@link org.sourcelab.hkp.HkpClient#add(AddRequest)}.
+ */
+public class AddRequest implements Request {
+    private final List<String> keys;
+    private final boolean compressed;
+    private final int batchSize;
+    private final int parallelism;
+
+    /**
+     * Lazily encoded request body.
+     */
+    private volatile RequestBody requestBody;
+
+    /**
+     * Constructor.
+     * @param keys ASCII armored public keys to publish.
+     */
+    public AddRequest(final Collection<String> keys) {
+        this(Collections.emptyList(), keys, true, 100, 4);
+    }
+
+    private AddRequest(
+        final List<String> existing,
+        final Collection<String> keys,
+        final boolean compressed,
+        final int batchSize,
+        final int parallelism
+    ) {
+        Objects.requireNonNull(keys, "Keys may not be null.");
+        final List<String> combined = new ArrayList<>(existing.size() + keys.size());
+        combined.addAll(existing);
+        for (final String key : keys) {
+            Objects.requireNonNull(key, "Key may not be null.");
+            if (key.trim().isEmpty()) {
+                throw new IllegalArgumentException("Key may not be empty.");
+            }
+            combined.add(key);
+        }
+        this.keys = Collections.unmodifiableList(combined);
+        this.compressed = compressed;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Add a key to publish.
+     * @param key ASCII armored public key.
+     * @return New AddRequest instance.
+     */
+    public AddRequest withKey(final String key) {
+        return withKeys(Collections.singletonList(key));
+    }
+
+    /**
+     * Add keys to publish.
+     * @param keys ASCII armored public keys.
+     * @return New AddRequest instance.
+     */
+    public AddRequest withKeys(final Collection<String> keys) {
+        return new AddRequest(this.keys, keys, compressed, batchSize, parallelism);
+    }
+
+    /**
+     * Whether to gzip each request body.  Defaults to true, servers that reject compressed bodies
+     * with 415 Unsupported Media Type are retried uncompressed.
+     * @param compressed True to gzip request bodies.
+     * @return New AddRequest instance.
+     */
+    public AddRequest withCompression(final boolean compressed) {
+        return new AddRequest(keys, Collections.emptyList(), compressed, batchSize, parallelism);
+    }
+
+    /**
+     * How many keys to send in a single request.  Defaults to 100.
+     * @param batchSize Keys per request, must be at least 1.
+     * @return New AddRequest instance.
+     */
+    public AddRequest withBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1.");
+        }
+        return new AddRequest(keys, Collections.emptyList(), compressed, batchSize, parallelism);
+    }
+
+    /**
+     * How many requests to send concurrently.  Defaults to 4.
+     * @param parallelism Concurrent requests, must be at least 1.
+     * @return New AddRequest instance.
+     */
+    public AddRequest withParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+        return new AddRequest(keys, Collections.emptyList(), compressed, batchSize, parallelism);
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public Map<String, String> getRequestParameters() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getQueryString() {
+        return "";
+    }
+
+    @Override
+    public String getPath() {
+        return "/pks/add";
+    }
+
+    /**
+     * Body is a form with every key concatenated into the keytext field, optionally gzipped.  Encoded on first use
+     * only, as the body is read several times while it is sent.
+     * @return Request body.
+     */
+    @Override
+    public RequestBody getRequestBody() {
+        RequestBody body = requestBody;
+        if (body == null) {
+            body = encodeBody();
+            requestBody = body;
+        }
+        return body;
+    }
+
+    private RequestBody encodeBody() {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (final OutputStream output = compressed ? new GZIPOutputStream(buffer) : buffer;
+            final Writer writer = new OutputStreamWriter(output, StandardCharsets.US_ASCII)) {
+            writer.write("keytext=");
+            for (final String key : keys) {
+                writer.write(encode(key));
+                if (!key.endsWith("\n")) {
+                    writer.write("%0A");
+                }
+            }
+        } catch (final IOException exception) {
+            // Writing to memory can not fail.
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+        return new RequestBody(buffer.toByteArray(), "application/x-www-form-urlencoded", compressed ? "gzip" : null);
+    }
+
+    private static String encode(final String value) throws UnsupportedEncodingException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final AddRequest that = (AddRequest) other;
+        return compressed == that.compressed
+            && batchSize == that.batchSize
+            && parallelism == that.parallelism
+            && keys.equals(that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(keys, compressed, batchSize, parallelism);
+    }
+
+    @Override
+    public String toString() {
+        return "AddRequest{"
+            + "keys=" + keys.size()
+            + ", compressed=" + compressed
+            + ", batchSize=" + batchSize
+            + ", parallelism=" + parallelism
+            + '}';
+    }
+}
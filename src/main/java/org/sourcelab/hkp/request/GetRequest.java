@@ -18,6 +18,7 @@
 package org.sourcelab.hkp.request;
 
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Defines a Get Key request.
@@ -26,25 +27,40 @@ public class GetRequest extends AbstractRequest implements Request {
 
     /**
      * Constructor.
-     * @param keyId Id of key to retrieve.
+     * @param keyId Id or fingerprint of key to retrieve, with or without the "0x" prefix.
      */
     public GetRequest(final String keyId) {
-        withKeyId(keyId);
+        super(parameters(keyId));
+    }
+
+    private GetRequest(final Map<String, String> params) {
+        super(params);
     }
 
     /**
      * Define the keyId.
-     * @param keyId Id of key to retrieve.
-     * @return GetRequest instance.
+     * @param keyId Id or fingerprint of key to retrieve, with or without the "0x" prefix.
+     * @return New GetRequest instance.
      */
     public GetRequest withKeyId(final String keyId) {
-        withParameter("search" , keyId);
-        return this;
+        return new GetRequest(withParameter("search", normalize(keyId)));
+    }
+
+    /**
+     * The key id, normalized to "0x" followed by upper case hex digits when in a recognized key id or fingerprint form.
+     * @return Key id.
+     */
+    public String getKeyId() {
+        return getRequestParameters().get("search");
+    }
+
+    private static Map<String, String> parameters(final String keyId) {
+        final Map<String, String> params = newParameters("get");
+        params.put("search", normalize(keyId));
+        return params;
     }
 
-    @Override
-    public Map<String, String> getRequestParameters() {
-        withParameter("op", "get");
-        return super.getRequestParameters();
+    private static String normalize(final String keyId) {
+        return KeyIds.normalize(Objects.requireNonNull(keyId, "KeyId may not be null."), false);
     }
 }
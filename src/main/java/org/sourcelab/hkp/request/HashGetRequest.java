@@ -0,0 +1,59 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Defines a Get Key request by SKS key hash, rather than key id.
+ */
+public class HashGetRequest extends AbstractRequest implements Request {
+
+    /**
+     * Constructor.
+     * @param hash Hex encoded key hash of the key to retrieve.
+     */
+    public HashGetRequest(final String hash) {
+        super(parameters(hash));
+    }
+
+    private HashGetRequest(final Map<String, String> params) {
+        super(params);
+    }
+
+    /**
+     * Define the key hash.
+     * @param hash Hex encoded key hash of the key to retrieve.
+     * @return New HashGetRequest instance.
+     */
+    public HashGetRequest withHash(final String hash) {
+        return new HashGetRequest(withParameter("search", normalize(hash)));
+    }
+
+    private static Map<String, String> parameters(final String hash) {
+        final Map<String, String> params = newParameters("hget");
+        params.put("search", normalize(hash));
+        return params;
+    }
+
+    private static String normalize(final String hash) {
+        return Objects.requireNonNull(hash, "Hash may not be null.").trim().toLowerCase(Locale.ROOT);
+    }
+}
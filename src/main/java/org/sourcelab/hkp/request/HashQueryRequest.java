@@ -0,0 +1,172 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Defines a bulk Get Keys request, retrieving many keys in a single round trip by their SKS key hashes
+ * via the /pks/hashquery endpoint supported by Hockeypuck and SKS.
+ *
+ * Key hashes are the hex encoded MD5 digests key servers use to reconcile with one another.
+ */
+public class HashQueryRequest implements Request {
+    private final List<String> hashes;
+
+    /**
+     * Lazily encoded request body.
+     */
+    private volatile RequestBody requestBody;
+
+    /**
+     * Constructor.
+     * @param hashes Hex encoded key hashes of the keys to retrieve.
+     */
+    public HashQueryRequest(final Collection<String> hashes) {
+        this(Collections.emptyList(), hashes);
+    }
+
+    private HashQueryRequest(final List<String> existing, final Collection<String> hashes) {
+        Objects.requireNonNull(hashes, "Hashes may not be null.");
+        final Set<String> distinct = new LinkedHashSet<>(existing);
+        for (final String hash : hashes) {
+            distinct.add(normalize(hash));
+        }
+        this.hashes = Collections.unmodifiableList(new ArrayList<>(distinct));
+    }
+
+    /**
+     * Add a key to retrieve.
+     * @param hash Hex encoded key hash.
+     * @return New HashQueryRequest instance.
+     */
+    public HashQueryRequest withHash(final String hash) {
+        return withHashes(Collections.singletonList(hash));
+    }
+
+    /**
+     * Add keys to retrieve.
+     * @param hashes Hex encoded key hashes.
+     * @return New HashQueryRequest instance.
+     */
+    public HashQueryRequest withHashes(final Collection<String> hashes) {
+        return new HashQueryRequest(this.hashes, hashes);
+    }
+
+    /**
+     * The distinct, normalized, key hashes to retrieve, in the order they were added.
+     * @return Key hashes.
+     */
+    public List<String> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public Map<String, String> getRequestParameters() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getQueryString() {
+        return "";
+    }
+
+    @Override
+    public String getPath() {
+        return "/pks/hashquery";
+    }
+
+    /**
+     * Body is the number of hashes as a 32bit big-endian integer, followed by each binary hash prefixed with its length.
+     * @return Request body.
+     */
+    @Override
+    public RequestBody getRequestBody() {
+        RequestBody body = requestBody;
+        if (body == null) {
+            body = encodeBody();
+            requestBody = body;
+        }
+        return body;
+    }
+
+    private RequestBody encodeBody() {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4 + hashes.size() * 20);
+        try (final DataOutputStream output = new DataOutputStream(buffer)) {
+            output.writeInt(hashes.size());
+            for (final String hash : hashes) {
+                output.writeInt(hash.length() / 2);
+                for (int index = 0; index < hash.length(); index += 2) {
+                    output.writeByte((Character.digit(hash.charAt(index), 16) << 4) | Character.digit(hash.charAt(index + 1), 16));
+                }
+            }
+        } catch (final IOException exception) {
+            // Writing to memory can not fail.
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+        return new RequestBody(buffer.toByteArray(), "application/octet-stream");
+    }
+
+    private static String normalize(final String hash) {
+        Objects.requireNonNull(hash, "Hash may not be null.");
+        final String normalized = hash.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || normalized.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid key hash: " + hash);
+        }
+        for (int index = 0; index < normalized.length(); index++) {
+            if (Character.digit(normalized.charAt(index), 16) == -1) {
+                throw new IllegalArgumentException("Invalid key hash: " + hash);
+            }
+        }
+        return normalized;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        return hashes.equals(((HashQueryRequest) other).hashes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HashQueryRequest{"
+            + "hashes=" + hashes.size()
+            + '}';
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.util.Locale;
+
+/**
+ * Normalizes OpenPGP key ids so that the same key is always requested the same way.
+ */
+final class KeyIds {
+    private KeyIds() {
+    }
+
+    /**
+     * Normalize a short (8 hex digit) or long (16 hex digit) key id, or a v3 (32), v4 (40) or v5 (64)
+     * fingerprint, to "0x" followed by upper case hex digits.  Whitespace within the value, as fingerprints are often
+     * written in groups of four, is removed.  Values which are not in one of these forms are returned trimmed but
+     * otherwise unchanged.
+     *
+     * @param keyId Key id or fingerprint, with or without a "0x" prefix.
+     * @param requirePrefix Only normalize values that already have a "0x" prefix.
+     * @return Normalized key id.
+     */
+    static String normalize(final String keyId, final boolean requirePrefix) {
+        final String trimmed = keyId.trim();
+        final boolean hasPrefix = trimmed.startsWith("0x") || trimmed.startsWith("0X");
+        if (requirePrefix && !hasPrefix) {
+            return trimmed;
+        }
+
+        final StringBuilder hex = new StringBuilder(trimmed.length());
+        for (int index = hasPrefix ? 2 : 0; index < trimmed.length(); index++) {
+            final char character = trimmed.charAt(index);
+            if (Character.isWhitespace(character)) {
+                continue;
+            }
+            if (Character.digit(character, 16) == -1) {
+                return trimmed;
+            }
+            hex.append(character);
+        }
+
+        switch (hex.length()) {
+            case 8:
+            case 16:
+            case 32:
+            case 40:
+            case 64:
+                return "0x" + hex.toString().toUpperCase(Locale.ROOT);
+            default:
+                return trimmed;
+        }
+    }
+}
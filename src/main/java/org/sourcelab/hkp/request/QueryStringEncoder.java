@@ -0,0 +1,54 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Map;
+
+/**
+ * Encodes request parameters into a URL query string.
+ */
+final class QueryStringEncoder {
+    private QueryStringEncoder() {
+    }
+
+    /**
+     * Encode the given parameters as a UTF-8 URL query string, without the leading '?'.
+     * @param params Parameters to encode, in the order they should appear.
+     * @return Encoded query string.
+     */
+    static String encode(final Map<String, String> params) {
+        final StringBuilder queryString = new StringBuilder();
+        try {
+            for (final Map.Entry<String, String> entry : params.entrySet()) {
+                if (queryString.length() > 0) {
+                    queryString.append('&');
+                }
+                queryString
+                    .append(URLEncoder.encode(entry.getKey(), "UTF-8"))
+                    .append('=')
+                    .append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+            }
+        } catch (final UnsupportedEncodingException exception) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+        return queryString.toString();
+    }
+}
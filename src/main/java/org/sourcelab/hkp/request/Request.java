@@ -18,6 +18,7 @@
 package org.sourcelab.hkp.request;
 
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Interface for all Requests to implement.
@@ -29,4 +30,29 @@ public interface Request {
      * @return Request parameter key/value pairs.
      */
     Map<String, String> getRequestParameters();
+
+    /**
+     * Request parameters URL encoded as a query string, without the leading '?'.
+     * Requests with the same parameters must return the same query string.
+     * @return Encoded query string, empty if there are no parameters.
+     */
+    default String getQueryString() {
+        return QueryStringEncoder.encode(new TreeMap<>(getRequestParameters()));
+    }
+
+    /**
+     * Path of the endpoint to submit the request to, relative to the key server host.
+     * @return Path, or null to use the standard lookup endpoint.
+     */
+    default String getPath() {
+        return null;
+    }
+
+    /**
+     * Body to submit with the request.  Requests with a body are submitted as a POST, otherwise a GET.
+     * @return Request body, or null if none.
+     */
+    default RequestBody getRequestBody() {
+        return null;
+    }
 }
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import java.util.Objects;
+
+/**
+ * Body sent along with a request, causing it to be submitted as a POST.
+ */
+public class RequestBody {
+    private final byte[] content;
+    private final String contentType;
+    private final String contentEncoding;
+
+    /**
+     * Constructor.
+     * @param content The body content.
+     * @param contentType MIME type of the content.
+     */
+    public RequestBody(final byte[] content, final String contentType) {
+        this(content, contentType, null);
+    }
+
+    /**
+     * Constructor.
+     * @param content The body content.
+     * @param contentType MIME type of the content.
+     * @param contentEncoding Encoding applied to the content, such as "gzip", or null if none.
+     */
+    public RequestBody(final byte[] content, final String contentType, final String contentEncoding) {
+        this.content = Objects.requireNonNull(content, "Content may not be null.");
+        this.contentType = Objects.requireNonNull(contentType, "ContentType may not be null.");
+        this.contentEncoding = contentEncoding;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean hasContentEncoding() {
+        return contentEncoding != null;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestBody{"
+            + "contentType='" + contentType + '\''
+            + ", contentEncoding='" + contentEncoding + '\''
+            + ", length=" + content.length
+            + '}';
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import org.sourcelab.hkp.response.search.PubLine;
+
+import java.util.function.Predicate;
+
+/**
+ * Common filters for {@link SearchRequest#withFilter(Predicate)}.  Combine them with {@link Predicate#and(Predicate)}.
+ */
+public final class SearchFilters {
+    private SearchFilters() {
+    }
+
+    /**
+     * Keep keys which are not revoked, disabled or expired.
+     * @return Filter.
+     */
+    public static Predicate<PubLine> usable() {
+        return (line) -> !line.isRevoked() && !line.isDisabled() && !line.isExpired(nowSeconds());
+    }
+
+    /**
+     * Keep keys which are not revoked.
+     * @return Filter.
+     */
+    public static Predicate<PubLine> notRevoked() {
+        return (line) -> !line.isRevoked();
+    }
+
+    /**
+     * Keep keys which have not expired, by the key server's flag or their expiration time.
+     * @return Filter.
+     */
+    public static Predicate<PubLine> notExpired() {
+        return (line) -> !line.isExpired(nowSeconds());
+    }
+
+    /**
+     * Keep keys of at least the given length, whatever their algorithm.
+     * @param bits Minimum key length.
+     * @return Filter.
+     */
+    public static Predicate<PubLine> minKeyLength(final int bits) {
+        return (line) -> line.getKeyLen() >= bits;
+    }
+
+    /**
+     * Keep RSA keys of at least the given length.
+     * @param bits Minimum key length.
+     * @return Filter.
+     */
+    public static Predicate<PubLine> rsa(final int bits) {
+        return (line) -> line.isRsa() && line.getKeyLen() >= bits;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
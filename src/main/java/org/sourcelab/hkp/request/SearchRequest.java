@@ -17,12 +17,24 @@
 
 package org.sourcelab.hkp.request;
 
+import org.sourcelab.hkp.response.search.PubLine;
+
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * Defines a Search Request.
+ *
+ * Filters and top K selection are applied by the client as it parses the response, rather than sent to the key
+ * server, so they are not part of the query string, or of {@link #equals(Object)} and {@link #hashCode()}.  The
+ * response's count remains the number of matches the key server reported.
  */
 public class SearchRequest extends AbstractRequest implements Request {
+    private final Predicate<PubLine> filter;
+    private final int topK;
+    private final ToLongFunction<PubLine> ranking;
 
     /**
      * Constructor.
@@ -30,35 +42,42 @@ public class SearchRequest extends AbstractRequest implements Request {
      *               If searching by KeyId pass the keyId prefixed with "0x"
      */
     public SearchRequest(final String search) {
-        withSearch(search);
+        this(parameters(search), null, 0, null);
+    }
+
+    private SearchRequest(
+        final Map<String, String> params,
+        final Predicate<PubLine> filter,
+        final int topK,
+        final ToLongFunction<PubLine> ranking) {
+        super(params);
+        this.filter = filter;
+        this.topK = topK;
+        this.ranking = ranking;
     }
 
     /**
      * Define the search term.
      * If searching by KeyId, prefix the value with "0x"
      * @param search Defines the value to search.
-     * @return SearchRequest instance.
+     * @return New SearchRequest instance.
      */
     public SearchRequest withSearch(final String search) {
-        withParameter("search", search);
-        return this;
+        return new SearchRequest(withParameter("search", normalize(search)), filter, topK, ranking);
     }
 
     /**
      * Perform an exact match on the search.
      * @param exactMatch True for exact match, false otherwise.
-     * @return SearchRequest instance.
+     * @return New SearchRequest instance.
      */
     public SearchRequest withExactMatch(final boolean exactMatch) {
-        if (exactMatch) {
-            return withExactMatch();
-        }
-        return withOutExactMatch();
+        return new SearchRequest(withParameter("exact", exactMatch ? "on" : null), filter, topK, ranking);
     }
 
     /**
      * Enable exact matching.
-     * @return SearchRequest instance.
+     * @return New SearchRequest instance.
      */
     public SearchRequest withExactMatch() {
         return withExactMatch(true);
@@ -66,15 +85,80 @@ public class SearchRequest extends AbstractRequest implements Request {
 
     /**
      * Disable exact matching.
-     * @return SearchRequest instance.
+     * @return New SearchRequest instance.
      */
     public SearchRequest withOutExactMatch() {
         return withExactMatch(false);
     }
 
-    @Override
-    public Map<String, String> getRequestParameters() {
-        withParameter("op", "index");
-        return super.getRequestParameters();
+    /**
+     * Keep only entries matching a filter, such as those from {@link SearchFilters}.  Rejected entries are skipped
+     * as the response is parsed, without allocating them.  Filters added more than once must all match.
+     * @param filter Entries to keep.
+     * @return New SearchRequest instance.
+     */
+    public SearchRequest withFilter(final Predicate<PubLine> filter) {
+        Objects.requireNonNull(filter, "Filter may not be null.");
+        return new SearchRequest(getRequestParameters(), this.filter == null ? filter : this.filter.and(filter), topK, ranking);
+    }
+
+    /**
+     * Keep only the highest ranked entries, ordered from highest.  Entries ranked equally keep the key server's
+     * order.  Only that many entries are held while the response is parsed.
+     * @param topK How many entries to keep.
+     * @param ranking Ranks entries, higher first, for example {@link PubLine#getKeyLen()}.
+     * @return New SearchRequest instance.
+     */
+    public SearchRequest withTopK(final int topK, final ToLongFunction<PubLine> ranking) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("Top K must be at least 1.");
+        }
+        return new SearchRequest(getRequestParameters(), filter, topK, Objects.requireNonNull(ranking, "Ranking may not be null."));
+    }
+
+    /**
+     * Keep only the most recently created keys, newest first.
+     * @param count How many entries to keep.
+     * @return New SearchRequest instance.
+     */
+    public SearchRequest withNewest(final int count) {
+        return withTopK(count, PubLine::getCreationTime);
+    }
+
+    /**
+     * Filter applied to entries as they are parsed.
+     * @return Filter, or null if all entries are kept.
+     */
+    public Predicate<PubLine> getFilter() {
+        return filter;
+    }
+
+    /**
+     * How many of the highest ranked entries are kept.
+     * @return Number of entries, or 0 if all entries are kept.
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Ranks entries when {@link #getTopK()} is set.
+     * @return Ranking, or null if not set.
+     */
+    public ToLongFunction<PubLine> getRanking() {
+        return ranking;
+    }
+
+    private static Map<String, String> parameters(final String search) {
+        final Map<String, String> params = newParameters("index");
+        params.put("search", normalize(search));
+        return params;
+    }
+
+    /**
+     * Key ids are normalized, other search terms are only trimmed.
+     */
+    private static String normalize(final String search) {
+        return KeyIds.normalize(Objects.requireNonNull(search, "Search may not be null."), true);
     }
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.response.add;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Represents the outcome of publishing keys, one result per key in the order they were requested.
+ */
+public class AddResponse {
+    private final List<KeyAddResult> results;
+
+    /**
+     * Constructor.
+     * @param results One result per key, in request order.
+     */
+    public AddResponse(final List<KeyAddResult> results) {
+        Objects.requireNonNull(results, "Results parameter may not be null.");
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<KeyAddResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Whether every key was accepted.
+     * @return True if every key was accepted.
+     */
+    public boolean isSuccess() {
+        return results.stream().allMatch(KeyAddResult::isAccepted);
+    }
+
+    public long getAcceptedCount() {
+        return results.stream().filter(KeyAddResult::isAccepted).count();
+    }
+
+    /**
+     * The results of keys which were not accepted.
+     * @return Failed results, in request order.
+     */
+    public List<KeyAddResult> getFailures() {
+        return results.stream()
+            .filter((result) -> !result.isAccepted())
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "AddResponse{"
+            + "keys=" + results.size()
+            + ", accepted=" + getAcceptedCount()
+            + '}';
+    }
+}
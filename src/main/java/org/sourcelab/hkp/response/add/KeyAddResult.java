@@ -0,0 +1,68 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.response.add;
+
+/**
+ * The outcome of publishing a single key.
+ */
+public class KeyAddResult {
+    private final int index;
+    private final boolean accepted;
+    private final int code;
+    private final String message;
+
+    /**
+     * Constructor.
+     * @param index Position of the key within the AddRequest.
+     * @param accepted Whether the key server accepted the request carrying this key.
+     * @param code HTTP status code of that request, or 0 if it could not be sent.
+     * @param message Response from the key server, or the reason the request could not be sent.
+     */
+    public KeyAddResult(final int index, final boolean accepted, final int code, final String message) {
+        this.index = index;
+        this.accepted = accepted;
+        this.code = code;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyAddResult{"
+            + "index=" + index
+            + ", accepted=" + accepted
+            + ", code=" + code
+            + ", message='" + message + '\''
+            + '}';
+    }
+}
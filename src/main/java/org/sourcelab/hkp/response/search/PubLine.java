@@ -0,0 +1,225 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.response.search;
+
+import org.sourcelab.hkp.index.Hex;
+
+/**
+ * A "pub" line of a search index response, read in place for search filters, so entries they reject are skipped
+ * without allocating a {@link Pub} or any of its fields.
+ *
+ * The parser reuses one instance for every line of a response, so filters must not keep a reference to it.
+ * Numeric fields are parsed as the line is read, other fields only when asked for.
+ */
+public final class PubLine {
+    /**
+     * OpenPGP public key algorithm ids for RSA: encrypt or sign, encrypt only and sign only.
+     */
+    private static final int RSA = 1;
+    private static final int RSA_ENCRYPT_ONLY = 2;
+    private static final int RSA_SIGN_ONLY = 3;
+
+    private String line = null;
+    private final int[] fieldStarts = new int[7];
+    private int end = 0;
+    private int algo = 0;
+    private int keyLen = 0;
+    private long creationTime = -1;
+    private long expirationTime = -1;
+
+    /**
+     * Read a line in place.
+     * @param response Response holding the line.
+     * @param start Index of the line's first character.
+     * @param end Index just past the line's last character.
+     * @return True if the line has the seven fields of a pub line, otherwise false and this instance is not valid.
+     * @throws NumberFormatException if the algorithm or key length is not a number.
+     */
+    public boolean reset(final String response, final int start, final int end) {
+        int field = 0;
+        fieldStarts[field++] = start;
+        for (int index = start; index < end; index++) {
+            if (response.charAt(index) == ':') {
+                if (field == fieldStarts.length) {
+                    return false;
+                }
+                fieldStarts[field++] = index + 1;
+            }
+        }
+        if (field != fieldStarts.length) {
+            return false;
+        }
+        this.line = response;
+        this.end = end;
+        this.algo = (int) parseNumber(2);
+        this.keyLen = (int) parseNumber(3);
+        this.creationTime = parseDigits(4);
+        this.expirationTime = parseDigits(5);
+        return true;
+    }
+
+    /**
+     * The key's fingerprint or key id, as the key server sent it.
+     * @return Key id.
+     */
+    public String getKeyId() {
+        return field(1);
+    }
+
+    /**
+     * The key's 64-bit long key id, parsed in place from its fingerprint or long key id, for use with a
+     * {@link org.sourcelab.hkp.index.LongHashIndex}.
+     * @return Key id.
+     * @throws NumberFormatException if the key server sent a short key id, v3 or v5 fingerprint.
+     */
+    public long getKeyIdAsLong() {
+        return Hex.parseKeyId(line, fieldStarts[1], fieldEnd(1));
+    }
+
+    public int getAlgo() {
+        return algo;
+    }
+
+    /**
+     * Whether the key's algorithm is RSA.
+     * @return True if RSA.
+     */
+    public boolean isRsa() {
+        return algo == RSA || algo == RSA_ENCRYPT_ONLY || algo == RSA_SIGN_ONLY;
+    }
+
+    public int getKeyLen() {
+        return keyLen;
+    }
+
+    /**
+     * When the key was created.
+     * @return Seconds since the epoch, or -1 if the key server did not say.
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * When the key expires.
+     * @return Seconds since the epoch, or -1 if it does not expire or the key server did not say.
+     */
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * The key's flags, such as "r" for revoked, "d" for disabled and "e" for expired.
+     * @return Flags, empty if none.
+     */
+    public String getFlags() {
+        return field(6);
+    }
+
+    /**
+     * Whether the key server flagged the key with the given flag.
+     * @param flag Flag character.
+     * @return True if flagged.
+     */
+    public boolean hasFlag(final char flag) {
+        for (int index = fieldStarts[6]; index < end; index++) {
+            if (line.charAt(index) == flag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isRevoked() {
+        return hasFlag('r');
+    }
+
+    public boolean isDisabled() {
+        return hasFlag('d');
+    }
+
+    /**
+     * Whether the key has expired, either flagged as such by the key server, or by its expiration time.
+     * @param nowSeconds The current time, in seconds since the epoch.
+     * @return True if expired.
+     */
+    public boolean isExpired(final long nowSeconds) {
+        return hasFlag('e') || (expirationTime >= 0 && expirationTime <= nowSeconds);
+    }
+
+    /**
+     * Create a Pub from this line.
+     * @return New Pub instance.
+     */
+    public Pub toPub() {
+        final Pub.Builder builder = Pub.newBuilder()
+            .withKeyId(getKeyId())
+            .withAlgo(algo)
+            .withKeyLen(keyLen)
+            .withFlags(getFlags());
+        if (creationTime >= 0) {
+            builder.withCreationDate(creationTime);
+        }
+        if (expirationTime >= 0) {
+            builder.withExpirationDate(expirationTime);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return line == null ? "PubLine{}" : "PubLine{" + line.substring(fieldStarts[0], end) + '}';
+    }
+
+    private String field(final int field) {
+        return line.substring(fieldStarts[field], fieldEnd(field));
+    }
+
+    private int fieldEnd(final int field) {
+        return field + 1 < fieldStarts.length ? fieldStarts[field + 1] - 1 : end;
+    }
+
+    private long parseNumber(final int field) {
+        final long value = parseDigits(field);
+        if (value < 0) {
+            throw new NumberFormatException("For input string: \"" + field(field) + "\"");
+        }
+        return value;
+    }
+
+    /**
+     * Parse a field of decimal digits without allocating.
+     * @return The value, or -1 if the field is empty, not all digits, or too long.
+     */
+    private long parseDigits(final int field) {
+        final int start = fieldStarts[field];
+        final int fieldEnd = fieldEnd(field);
+        if (start == fieldEnd || fieldEnd - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int index = start; index < fieldEnd; index++) {
+            final char character = line.charAt(index);
+            if (character < '0' || character > '9') {
+                return -1;
+            }
+            value = value * 10 + (character - '0');
+        }
+        return value;
+    }
+}
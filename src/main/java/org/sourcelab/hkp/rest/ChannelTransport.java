@@ -0,0 +1,43 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Blocking byte transport over a single connection, either plain text or TLS.
+ * One thread may read while another writes.
+ */
+interface ChannelTransport extends Closeable {
+    /**
+     * Read available bytes into the destination buffer, blocking until at least one byte is available.
+     * @param destination Buffer to read into.
+     * @return Number of bytes read, or -1 if the remote end closed the connection.
+     * @throws IOException on read error.
+     */
+    int read(final ByteBuffer destination) throws IOException;
+
+    /**
+     * Write all remaining bytes of the source buffer, blocking until complete.
+     * @param source Buffer to write.
+     * @throws IOException on write error.
+     */
+    void write(final ByteBuffer source) throws IOException;
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interceptor sending identical requests made concurrently only once, every caller receiving the same response.
+ * Requests with a body, such as adding keys, are always sent.
+ *
+ * It never delays a request, so only requests which overlap in time are coalesced.  Only the first caller's exchange
+ * observes the request's phases.  {@link org.sourcelab.hkp.ConfigurationBuilder#withGetDeduplication()} installs
+ * the instance returned by {@link #forGets()} outermost, which is harmless alongside one configured for every
+ * request, as the latter then only sees each get once.
+ *
+ * Partial reads, see {@link RestInterceptor.Chain#isPartial()}, may share a complete response already in flight, but
+ * are never shared themselves, as their truncated response would look like a corrupt body to a full read.
+ */
+public class CoalescingInterceptor implements RestInterceptor {
+    private final ConcurrentMap<Request, CompletableFuture<RestResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder sharedCount = new LongAdder();
+    private final boolean getsOnly;
+
+    /**
+     * Constructor, coalescing every request without a body.
+     */
+    public CoalescingInterceptor() {
+        this(false);
+    }
+
+    private CoalescingInterceptor(final boolean getsOnly) {
+        this.getsOnly = getsOnly;
+    }
+
+    /**
+     * Create an interceptor only coalescing op=get requests to the lookup endpoint, passing everything else on.
+     * @return New CoalescingInterceptor instance.
+     */
+    public static CoalescingInterceptor forGets() {
+        return new CoalescingInterceptor(true);
+    }
+
+    @Override
+    public RestResponse intercept(final Request request, final Exchange exchange, final Chain chain) {
+        if (!isCoalesced(request)) {
+            return chain.proceed(request, exchange);
+        }
+
+        if (chain.isPartial()) {
+            final CompletableFuture<RestResponse> existing = inFlight.get(request);
+            if (existing != null) {
+                sharedCount.increment();
+                return join(existing);
+            }
+            return chain.proceed(request, exchange);
+        }
+
+        final CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        final CompletableFuture<RestResponse> existing = inFlight.putIfAbsent(request, future);
+        if (existing != null) {
+            sharedCount.increment();
+            final RestResponse response = join(existing);
+            if (response != null && response.isPartial()) {
+                // Only full reads are registered, but never hand a truncated body to a full read regardless.
+                sharedCount.decrement();
+                return chain.proceed(request, exchange);
+            }
+            return response;
+        }
+        try {
+            final RestResponse response = chain.proceed(request, exchange);
+            future.complete(response);
+            return response;
+        } catch (final RuntimeException exception) {
+            future.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlight.remove(request, future);
+        }
+    }
+
+    @Override
+    public CompletableFuture<RestResponse> interceptAsync(final Request request, final Chain chain) {
+        if (!isCoalesced(request)) {
+            return chain.proceedAsync(request);
+        }
+
+        final CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        final CompletableFuture<RestResponse> existing = inFlight.putIfAbsent(request, future);
+        if (existing != null) {
+            sharedCount.increment();
+            return existing.thenApply((response) -> response);
+        }
+        final CompletableFuture<RestResponse> sent;
+        try {
+            sent = chain.proceedAsync(request);
+        } catch (final RuntimeException exception) {
+            inFlight.remove(request, future);
+            future.completeExceptionally(exception);
+            throw exception;
+        }
+        sent.whenComplete((response, error) -> {
+            inFlight.remove(request, future);
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                future.complete(response);
+            }
+        });
+        // Callers get their own dependent future, so one cancelling does not fail the others.
+        return future.thenApply((response) -> response);
+    }
+
+    /**
+     * How many distinct requests are currently in flight.
+     * @return Requests in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * How many requests have been answered by sharing the response to an identical request in flight, rather than
+     * being sent.
+     * @return Shared request count.
+     */
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    private boolean isCoalesced(final Request request) {
+        if (request.getRequestBody() != null) {
+            return false;
+        }
+        return !getsOnly || (request.getPath() == null && "get".equals(request.getRequestParameters().get("op")));
+    }
+
+    private static RestResponse join(final CompletableFuture<RestResponse> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+/**
+ * Point in time snapshot of a {@link RestClient}'s connection pool.
+ */
+public class ConnectionPoolStats {
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long connectionsOpened;
+    private final long tlsHandshakes;
+
+    /**
+     * Constructor.
+     * @param leased Connections, or pipeline slots, currently in use by a request.
+     * @param available Idle connections, or free pipeline slots on open connections.
+     * @param pending Requests waiting for a connection to become available.
+     * @param max Most connections, or pipeline slots, that may be in use at once.
+     * @param connectionsOpened Total connections opened since the client was initialized.
+     * @param tlsHandshakes Total TLS handshakes performed since the client was initialized.
+     */
+    public ConnectionPoolStats(
+        final int leased,
+        final int available,
+        final int pending,
+        final int max,
+        final long connectionsOpened,
+        final long tlsHandshakes) {
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.connectionsOpened = connectionsOpened;
+        this.tlsHandshakes = tlsHandshakes;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{"
+            + "leased=" + leased
+            + ", available=" + available
+            + ", pending=" + pending
+            + ", max=" + max
+            + ", connectionsOpened=" + connectionsOpened
+            + ", tlsHandshakes=" + tlsHandshakes
+            + '}';
+    }
+}
@@ -18,36 +18,55 @@
 package org.sourcelab.hkp.rest;
 
 import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
 import org.apache.hc.client5.http.auth.AuthCache;
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.CredentialsStore;
 import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.auth.BasicAuthCache;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
 import org.apache.hc.client5.http.impl.auth.BasicScheme;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
-import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
 import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.client5.http.utils.URIUtils;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.http.ssl.TLS;
-import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
 import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sourcelab.hkp.ConnectionFailedException;
 import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.config.PoolConfiguration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.Phase;
 import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+import org.sourcelab.hkp.rest.handlers.PartialResponseHandler;
 import org.sourcelab.hkp.rest.handlers.RestResponseHandler;
 
 import javax.net.ssl.HostnameVerifier;
@@ -57,18 +76,32 @@ import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.net.SocketException;
+import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
+import java.net.UnknownHostException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * RestClient implementation using HTTPClient.
+ *
+ * Once initialized, a single instance (and its connection pool) may be shared across any number of threads.
  */
 public class HttpClient5RestClient implements RestClient {
     private static final Logger logger = LoggerFactory.getLogger(HttpClient5RestClient.class);
@@ -76,13 +109,51 @@ public class HttpClient5RestClient implements RestClient {
     /**
      * Save a copy of the configuration.
      */
-    private Configuration configuration;
+    private volatile Configuration configuration;
+
+    /**
+     * Pre-computed url of the standard lookup endpoint.
+     */
+    private volatile String lookupUrl;
+
+    /**
+     * Phase timer of the request currently executing on each thread, only set when the request has an exchange.
+     */
+    private final ThreadLocal<PhaseTimer> currentTimer = new ThreadLocal<>();
+
+    /**
+     * Guards against init() being called more than once, which would build and leak additional pools.
+     */
+    private final AtomicBoolean isInitialized = new AtomicBoolean(false);
 
     /**
      * Our underlying Http Client.
      */
-    private CloseableHttpClient httpClient;
-    private HttpClientContext httpClientContext;
+    private final AtomicReference<CloseableHttpClient> httpClient = new AtomicReference<>();
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * Connections opened, and TLS handshakes performed, over the lifetime of the client.
+     */
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+
+    /**
+     * The route all requests to the key server take, used when warming up connections.
+     */
+    private volatile HttpRoute route;
+
+    /**
+     * Background task refreshing warm connections, only started if configured.
+     */
+    private final AtomicReference<ScheduledExecutorService> keepWarmExecutor = new AtomicReference<>();
+
+    /**
+     * Shared across requests to allow preemptive proxy authentication.
+     * HttpClientContext itself holds per-exchange state, so a new one is created for each request.
+     */
+    private volatile CredentialsStore credentialsProvider;
+    private volatile AuthCache authCache;
 
     /**
      * Constructor.
@@ -97,8 +168,28 @@ public class HttpClient5RestClient implements RestClient {
      */
     @Override
     public void init(final Configuration configuration) {
+        // Only a single caller may ever initialize.
+        if (!isInitialized.compareAndSet(false, true)) {
+            throw new IllegalStateException("RestClient has already been initialized.");
+        }
+        try {
+            initialize(configuration);
+        } catch (final RuntimeException exception) {
+            // Release the pool if it was built, and allow init() to be retried.
+            final PoolingHttpClientConnectionManager cm = connectionManager;
+            if (cm != null) {
+                cm.close(CloseMode.IMMEDIATE);
+                connectionManager = null;
+            }
+            isInitialized.set(false);
+            throw exception;
+        }
+    }
+
+    private void initialize(final Configuration configuration) {
         // Save reference to configuration
         this.configuration = configuration;
+        this.lookupUrl = configuration.getKeyServerHost() + configuration.getBasePath();
 
         // Create default SSLContext
         final SSLContext sslcontext = SSLContexts.createDefault();
@@ -123,26 +214,66 @@ public class HttpClient5RestClient implements RestClient {
             hostnameVerifier = new DefaultHostnameVerifier();
         }
 
-        // Allow TLSv1_1 and TLSv1_2 protocols
-        final SSLConnectionSocketFactory sslsf = SSLConnectionSocketFactoryBuilder.create()
-            .setSslContext(sslcontext)
-            .setTlsVersions(TLS.V_1_1, TLS.V_1_2)
-            .setHostnameVerifier(hostnameVerifier)
-            .build();
-        final HttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
+        // Allow TLSv1_1 and TLSv1_2 protocols, counting handshakes and timing them for any listener.
+        final SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(
+            sslcontext.getSocketFactory(),
+            new String[] { TLS.V_1_1.id, TLS.V_1_2.id },
+            null,
+            hostnameVerifier
+        ) {
+            @Override
+            public Socket createLayeredSocket(final Socket socket, final String target, final int port, final HttpContext context) throws IOException {
+                final long start = System.nanoTime();
+                final Socket layered = super.createLayeredSocket(socket, target, port, context);
+                tlsHandshakes.incrementAndGet();
+                final PhaseTimer timer = currentTimer.get();
+                if (timer != null) {
+                    timer.tlsStart = start;
+                    timer.tlsEnd = System.nanoTime();
+                }
+                return layered;
+            }
+        };
+        final PoolingHttpClientConnectionManagerBuilder cmBuilder = PoolingHttpClientConnectionManagerBuilder.create()
             .setSSLSocketFactory(sslsf)
-            .build();
+            .setDnsResolver(new TimedDnsResolver())
+            .setConnectionFactory((socket) -> {
+                connectionsOpened.incrementAndGet();
+                return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+            });
+
+        // Size the pool if configured to do so.
+        final PoolConfiguration poolConfiguration = configuration.getPoolConfiguration();
+        if (poolConfiguration.hasMaxConnections()) {
+            cmBuilder
+                .setMaxConnTotal(poolConfiguration.getMaxConnections())
+                .setMaxConnPerRoute(poolConfiguration.getMaxConnections());
+        }
+        final PoolingHttpClientConnectionManager cm = cmBuilder.build();
+        connectionManager = cm;
+        route = determineRoute(configuration);
 
-        // Setup client builder
+        // Setup client builder, marking when a request starts acquiring a connection and when it has one.
         final HttpClientBuilder clientBuilder = HttpClientBuilder.create()
-            .setConnectionManager(cm);
+            .setConnectionManager(cm)
+            .addExecInterceptorBefore(ChainElement.CONNECT.name(), "hkp-timing-connect", (request, scope, chain) -> {
+                final PhaseTimer timer = currentTimer.get();
+                if (timer != null) {
+                    timer.acquireStart = System.nanoTime();
+                }
+                return chain.proceed(request, scope);
+            })
+            .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(), "hkp-timing-transport", (request, scope, chain) -> {
+                final PhaseTimer timer = currentTimer.get();
+                if (timer != null) {
+                    timer.connected();
+                }
+                return chain.proceed(request, scope);
+            });
 
         // Define our RequestConfigBuilder
         final RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
 
-        // Define our context
-        httpClientContext = HttpClientContext.create();
-
         // Define our auth cache
         final AuthCache authCache = new BasicAuthCache();
 
@@ -182,7 +313,7 @@ public class HttpClient5RestClient implements RestClient {
 
                 // Attach Credentials provider to client builder.
                 clientBuilder.setDefaultCredentialsProvider(credsProvider);
-                httpClientContext.setCredentialsProvider(credsProvider);
+                this.credentialsProvider = credsProvider;
             }
 
             // Attach Proxy to request config builder
@@ -192,14 +323,14 @@ public class HttpClient5RestClient implements RestClient {
                 .setProxy(proxyHost);
 
             // Configure context.
-            httpClientContext.setAuthCache(authCache);
+            this.authCache = authCache;
         }
 
         // Attach default request config
         clientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
 
         // build http client
-        httpClient = clientBuilder.build();
+        httpClient.set(clientBuilder.build());
     }
 
     /**
@@ -227,16 +358,153 @@ public class HttpClient5RestClient implements RestClient {
         }
     }
 
+    /**
+     * Eagerly resolve, connect and complete the TLS handshake for the configured number of warm up
+     * connections, leaving them idle in the pool for subsequent requests to use.
+     * If configured, also starts a background task that keeps that many connections warm.
+     *
+     * @return How many new connections were opened.
+     */
+    @Override
+    public int warmUp() {
+        final PoolingHttpClientConnectionManager cm = connectionManager;
+        if (cm == null || httpClient.get() == null) {
+            throw new IllegalStateException("RestClient is not initialized or has been closed.");
+        }
+
+        // Populate the JVM's DNS cache up front.
+        final HttpHost firstHop = route.getProxyHost() != null ? route.getProxyHost() : route.getTargetHost();
+        try {
+            InetAddress.getAllByName(firstHop.getHostName());
+        } catch (final IOException exception) {
+            logger.warn("Unable to resolve {} during warm up: {}", firstHop.getHostName(), exception.getMessage());
+            return 0;
+        }
+
+        // Open connections.
+        final PoolConfiguration poolConfiguration = configuration.getPoolConfiguration();
+        final int opened = openIdleConnections(cm, poolConfiguration.getWarmUpConnections());
+
+        // Optionally keep them warm.
+        if (poolConfiguration.isKeepWarmEnabled() && poolConfiguration.getWarmUpConnections() > 0) {
+            startKeepWarm(cm, poolConfiguration);
+        }
+        return opened;
+    }
+
+    /**
+     * Lease up to the requested number of connections from the pool, connect any that are not yet
+     * connected, then return them all to the pool as idle connections.
+     * @param cm Connection manager.
+     * @param count How many connections should be idle in the pool.
+     * @return How many new connections were opened.
+     */
+    private int openIdleConnections(final PoolingHttpClientConnectionManager cm, final int count) {
+        // Tunnelled routes require issuing a CONNECT request through the proxy, which only happens as part of a request.
+        if (route.isTunnelled()) {
+            logger.debug("Skipping connection warm up for tunnelled route {}", route);
+            return 0;
+        }
+
+        // Never attempt to exceed the pool's capacity.
+        final int leased = cm.getStats(route).getLeased();
+        final int toLease = Math.min(count, cm.getMaxPerRoute(route) - leased);
+        final Timeout timeout = Timeout.ofSeconds(configuration.getRequestTimeoutSecs());
+
+        // All endpoints must be held at once, otherwise the pool would hand back the same connection each time.
+        final List<ConnectionEndpoint> endpoints = new ArrayList<>();
+        int opened = 0;
+        try {
+            for (int index = 0; index < toLease; index++) {
+                final ConnectionEndpoint endpoint = cm.lease("warm-up-" + index, route, timeout, null).get(timeout);
+                endpoints.add(endpoint);
+                if (!endpoint.isConnected()) {
+                    cm.connect(endpoint, timeout, createContext());
+                    opened++;
+                }
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException | ExecutionException | TimeoutException exception) {
+            logger.warn("Failed to warm up connection to {}: {}", route.getTargetHost(), exception.getMessage());
+        } finally {
+            // Return connections to the pool, letting the server's keep-alive decide when they expire.
+            for (final ConnectionEndpoint endpoint : endpoints) {
+                cm.release(endpoint, null, TimeValue.NEG_ONE_MILLISECOND);
+            }
+        }
+        logger.debug("Opened {} new connections to {}", opened, route.getTargetHost());
+        return opened;
+    }
+
+    /**
+     * Periodically close connections that have sat idle for a full interval and replace them, so the
+     * pool always holds recently established connections the server has not yet timed out.
+     * @param cm Connection manager.
+     * @param poolConfiguration Pool configuration.
+     */
+    private void startKeepWarm(final PoolingHttpClientConnectionManager cm, final PoolConfiguration poolConfiguration) {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            final Thread thread = new Thread(runnable, "hkp-client-keep-warm");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Only ever start a single background task.
+        if (!keepWarmExecutor.compareAndSet(null, executor)) {
+            executor.shutdownNow();
+            return;
+        }
+
+        final int interval = poolConfiguration.getKeepWarmIntervalSecs();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                cm.closeIdle(TimeValue.ofSeconds(interval));
+                openIdleConnections(cm, poolConfiguration.getWarmUpConnections());
+            } catch (final RuntimeException exception) {
+                logger.warn("Failed to refresh warm connections: {}", exception.getMessage(), exception);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Snapshot of the connection pool's current usage.
+     * @return Connection pool statistics, or null if not yet initialized.
+     */
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        final PoolingHttpClientConnectionManager cm = connectionManager;
+        if (cm == null) {
+            return null;
+        }
+        final PoolStats totalStats = cm.getTotalStats();
+        return new ConnectionPoolStats(
+            totalStats.getLeased(),
+            totalStats.getAvailable(),
+            totalStats.getPending(),
+            totalStats.getMax(),
+            connectionsOpened.get(),
+            tlsHandshakes.get()
+        );
+    }
+
     @Override
     public void close() {
-        if (httpClient != null) {
+        // Stop refreshing connections.
+        final ScheduledExecutorService executor = keepWarmExecutor.getAndSet(null);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        // Only the first caller to close will see a non-null client.
+        final CloseableHttpClient client = httpClient.getAndSet(null);
+        if (client != null) {
             try {
-                httpClient.close();
+                client.close();
             } catch (final IOException exception) {
                 logger.error("Error closing: {}", exception.getMessage(), exception);
             }
         }
-        httpClient = null;
     }
 
     /**
@@ -247,10 +515,57 @@ public class HttpClient5RestClient implements RestClient {
      */
     @Override
     public RestResponse submitRequest(final Request request) throws RestException {
+        return submitRequest(request, null, newResponseHandler());
+    }
+
+    /**
+     * Make a request against the Server, recording each phase of the request against the exchange.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request.
+     * @return The response.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        return submitRequest(request, exchange, newResponseHandler());
+    }
+
+    /**
+     * Make a request against the Server, timing its phases only if there is an exchange or Flight Recorder event to
+     * record them against.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param responseHandler How to read the response.
+     * @return The response.
+     */
+    private RestResponse submitRequest(
+        final Request request,
+        final Exchange exchange,
+        final HttpClientResponseHandler<RestResponse> responseHandler) {
+        final TransportEvent event = TransportEvent.start();
+        if (exchange == null && !event.isEnabled()) {
+            return submitRequest(request, responseHandler);
+        }
+
+        // The classic client executes on the calling thread, so the timer is visible to every hook below.
+        final PhaseTimer timer = new PhaseTimer(exchange, event);
+        currentTimer.set(timer);
         try {
-            return submitRequest(request, new RestResponseHandler());
-        } catch (final IOException exception) {
-            throw new RestException(exception.getMessage(), exception);
+            return submitRequest(request, (response) -> {
+                final long headersReceived = System.nanoTime();
+                timer.recordPhase(Phase.TIME_TO_FIRST_BYTE, timer.transportStart, headersReceived);
+                final RestResponse restResponse = responseHandler.handleResponse(response);
+                timer.recordPhase(Phase.BODY_DOWNLOAD, headersReceived, System.nanoTime());
+                return restResponse;
+            });
+        } finally {
+            currentTimer.remove();
+            if (event.shouldCommit()) {
+                // Not yet initialized is reported by the request itself.
+                final Configuration current = configuration;
+                event.setKeyServer(current == null ? null : current.getKeyServerHost());
+                event.commit();
+            }
         }
     }
 
@@ -260,40 +575,32 @@ public class HttpClient5RestClient implements RestClient {
      * @param responseHandler How to parse the response.
      * @param <T> The return type.
      * @return The parsed API response.
-     */
-    private <T> T submitRequest(final Request request, final HttpClientResponseHandler<T> responseHandler) throws IOException {
-        final String url = constructApiUrl(request);
-        return submitRequest(url, request.getRequestParameters(), responseHandler);
-    }
-
-    /**
-     * Internal POST method.
-     * @param url Url to request.
-     * @param getParams GET parameters to include in the request
-     * @param responseHandler The response Handler to use to parse the response
-     * @param <T> The type that ResponseHandler returns.
-     * @return Parsed response.
      * @throws ConnectionFailedException if remote server does not accept connection.
      */
-    private <T> T submitRequest(final String url, final Map<String, String> getParams, final HttpClientResponseHandler<T> responseHandler) {
+    private <T> T submitRequest(final Request request, final HttpClientResponseHandler<T> responseHandler) {
         try {
-            // Construct URI including our request parameters.
-            final URIBuilder uriBuilder = new URIBuilder(url)
-                .setCharset(StandardCharsets.UTF_8);
-
-            // Attach submitRequest params
-            for (final Map.Entry<String, String> entry : getParams.entrySet()) {
-                uriBuilder.setParameter(entry.getKey(), entry.getValue());
+            // Requests are pre-encoded, so only the url needs to be assembled.
+            final URI uri = new URI(constructApiUrl(request));
+
+            // Build Get or Post Request
+            final ClassicHttpRequest httpRequest;
+            final RequestBody requestBody = request.getRequestBody();
+            if (requestBody == null) {
+                httpRequest = new HttpGet(uri);
+            } else {
+                httpRequest = new HttpPost(uri);
+                httpRequest.setEntity(new ByteArrayEntity(
+                    requestBody.getContent(),
+                    ContentType.parse(requestBody.getContentType()),
+                    requestBody.getContentEncoding()
+                ));
             }
 
-            // Build Get Request
-            final ClassicHttpRequest get = new HttpGet(uriBuilder.build());
-
             // Debug logging
-            logger.info("Executing request {}", get.getRequestUri());
+            logger.debug("Executing request {} {}", httpRequest.getMethod(), httpRequest.getRequestUri());
 
             // Execute and return
-            return httpClient.execute(get, httpClientContext, responseHandler);
+            return getHttpClient().execute(httpRequest, createContext(), responseHandler);
         } catch (final ClientProtocolException | SocketException | URISyntaxException | SSLHandshakeException connectionException) {
             // Signals that an error occurred while attempting to connect a
             // socket to a remote address and port.  Typically, the connection
@@ -307,12 +614,177 @@ public class HttpClient5RestClient implements RestClient {
         return null;
     }
 
+    /**
+     * Make a request against the Server, reading only the start of the response body.  A longer body is left
+     * unread and its connection discarded.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param maxBodyBytes Most bytes of the body to return.
+     * @return The response.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) throws RestException {
+        return submitRequest(request, exchange, new PartialResponseHandler(maxBodyBytes));
+    }
+
+    /**
+     * Creates a handler reading the response body, up to the configured limit.
+     * @return New handler instance.
+     */
+    private RestResponseHandler newResponseHandler() {
+        // Not yet initialized is reported once the request is attempted.
+        final Configuration current = configuration;
+        return new RestResponseHandler(current == null ? 0 : current.getLimitConfiguration().getMaxResponseBytes());
+    }
+
+    /**
+     * Returns the underlying client, failing if we have not been initialized or have already been closed.
+     * @return Underlying http client.
+     */
+    private CloseableHttpClient getHttpClient() {
+        final CloseableHttpClient client = httpClient.get();
+        if (client == null) {
+            throw new IllegalStateException("RestClient is not initialized or has been closed.");
+        }
+        return client;
+    }
+
+    /**
+     * Creates a new context for a single exchange, populated with our shared authentication state.
+     * @return New context instance.
+     */
+    private HttpClientContext createContext() {
+        final HttpClientContext context = HttpClientContext.create();
+        if (credentialsProvider != null) {
+            context.setCredentialsProvider(credentialsProvider);
+        }
+        if (authCache != null) {
+            context.setAuthCache(authCache);
+        }
+        return context;
+    }
+
+    /**
+     * Determine the route requests to the configured key server will take, mirroring how the client's
+     * default route planner resolves it, so that warmed up connections are reused by requests.
+     * @param configuration The user defined configuration.
+     * @return Route to the key server.
+     */
+    private HttpRoute determineRoute(final Configuration configuration) {
+        final HttpHost host;
+        try {
+            host = URIUtils.extractHost(new URI(configuration.getKeyServerHost()));
+        } catch (final URISyntaxException exception) {
+            throw new IllegalArgumentException("Invalid key server host: " + configuration.getKeyServerHost(), exception);
+        }
+        if (host == null) {
+            throw new IllegalArgumentException("Invalid key server host: " + configuration.getKeyServerHost());
+        }
+
+        final HttpHost target = new HttpHost(host.getSchemeName(), host.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(host));
+        final boolean secure = URIScheme.HTTPS.same(target.getSchemeName());
+        if (!configuration.hasProxyConfigured()) {
+            return new HttpRoute(target, null, secure);
+        }
+
+        final HttpHost proxyHost = new HttpHost(
+            configuration.getProxyConfiguration().getScheme(),
+            configuration.getProxyConfiguration().getHost(),
+            configuration.getProxyConfiguration().getPort()
+        );
+        return new HttpRoute(target, null, proxyHost, secure);
+    }
+
+    /**
+     * Resolves addresses via the system resolver, timing each lookup for any listener.
+     */
+    private class TimedDnsResolver implements DnsResolver {
+        @Override
+        public InetAddress[] resolve(final String host) throws UnknownHostException {
+            final long start = System.nanoTime();
+            final InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            final PhaseTimer timer = currentTimer.get();
+            if (timer != null) {
+                timer.dnsStart = start;
+                timer.dnsEnd = System.nanoTime();
+            }
+            return addresses;
+        }
+
+        @Override
+        public String resolveCanonicalHostname(final String host) throws UnknownHostException {
+            return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+        }
+    }
+
+    /**
+     * Timestamps of a single request's progress through the client.  Connection acquisition is timed by exec chain
+     * interceptors, new connections by the DNS resolver and socket factory, and the response by its handler.
+     */
+    private static class PhaseTimer {
+        private final Exchange exchange;
+        private final TransportEvent event;
+        private long acquireStart;
+        private long dnsStart;
+        private long dnsEnd;
+        private long tlsStart;
+        private long tlsEnd;
+        private long transportStart;
+
+        PhaseTimer(final Exchange exchange, final TransportEvent event) {
+            this.exchange = exchange;
+            this.event = event;
+            this.transportStart = System.nanoTime();
+        }
+
+        /**
+         * Records a phase against the exchange, if any, and the Flight Recorder event.
+         * @param phase The phase.
+         * @param startNanos When the phase started.
+         * @param endNanos When the phase ended.
+         */
+        void recordPhase(final Phase phase, final long startNanos, final long endNanos) {
+            if (exchange != null) {
+                exchange.recordPhase(phase, startNanos, endNanos);
+            }
+            event.addPhase(phase, startNanos, endNanos);
+        }
+
+        /**
+         * Called once a connection has been acquired, and opened if required, attributing the time taken to each phase.
+         */
+        void connected() {
+            final long now = System.nanoTime();
+            if (dnsEnd == 0) {
+                // Reused a pooled connection.
+                recordPhase(Phase.POOL_WAIT, acquireStart, now);
+            } else {
+                recordPhase(Phase.POOL_WAIT, acquireStart, dnsStart);
+                recordPhase(Phase.DNS, dnsStart, dnsEnd);
+                if (tlsEnd == 0) {
+                    recordPhase(Phase.CONNECT, dnsEnd, now);
+                } else {
+                    recordPhase(Phase.CONNECT, dnsEnd, tlsStart);
+                    recordPhase(Phase.TLS_HANDSHAKE, tlsStart, tlsEnd);
+                }
+            }
+            dnsStart = 0;
+            dnsEnd = 0;
+            tlsStart = 0;
+            tlsEnd = 0;
+            transportStart = now;
+        }
+    }
+
     /**
      * Internal helper method for generating URLs w/ the appropriate API host and API version.
      * @param request Request we want to execute.
      * @return Constructed URL for the end point.
      */
     private String constructApiUrl(final Request request) {
-        return configuration.getKeyServerHost() + configuration.getBasePath();
+        final String path = request.getPath() == null ? lookupUrl : configuration.getKeyServerHost() + request.getPath();
+        final String queryString = request.getQueryString();
+        return queryString.isEmpty() ? path : path + '?' + queryString;
     }
 }
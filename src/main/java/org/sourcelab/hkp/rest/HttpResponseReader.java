@@ -0,0 +1,295 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.ResponseTooLargeException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Minimal HTTP/1.1 response parser reading from a {@link ChannelTransport}.
+ *
+ * Understands Content-Length, chunked transfer encoding and close delimited bodies, which covers
+ * what HKP keyservers respond with.  A single direct buffer is reused for every response on the connection.
+ */
+class HttpResponseReader {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ChannelTransport transport;
+    private final long maxResponseBytes;
+
+    // Kept in "read mode": position..limit holds bytes not yet parsed.
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(128);
+    private byte[] chunkScratch = new byte[READ_BUFFER_SIZE];
+
+    /**
+     * Constructor.
+     * @param transport Transport to read responses from.
+     * @param maxResponseBytes Largest response body to read, 0 for unlimited.
+     */
+    HttpResponseReader(final ChannelTransport transport, final long maxResponseBytes) {
+        this.transport = transport;
+        this.maxResponseBytes = maxResponseBytes;
+        buffer.flip();
+    }
+
+    /**
+     * Read the next complete response from the connection.
+     * @return Parsed response, or null if the connection was closed cleanly before a new response started.
+     * @throws IOException on read error, or if the connection was closed part way through a response.
+     * @throws ResponseTooLargeException if the body exceeds the limit, leaving the connection unusable.
+     */
+    HttpResponse read() throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining() && fill() == -1) {
+                return null;
+            }
+
+            final String statusLine = readLine();
+            final int statusCode = parseStatusCode(statusLine);
+            boolean keepAlive = !statusLine.startsWith("HTTP/1.0");
+            long contentLength = -1;
+            boolean chunked = false;
+            String contentType = null;
+
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                final int colon = header.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                final String name = header.substring(0, colon).trim();
+                final String value = header.substring(colon + 1).trim();
+                if ("Content-Length".equalsIgnoreCase(name)) {
+                    contentLength = parseContentLength(value);
+                } else if ("Content-Type".equalsIgnoreCase(name)) {
+                    contentType = value;
+                } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if ("Connection".equalsIgnoreCase(name)) {
+                    final String connection = value.toLowerCase();
+                    if (connection.contains("close")) {
+                        keepAlive = false;
+                    } else if (connection.contains("keep-alive")) {
+                        keepAlive = true;
+                    }
+                }
+            }
+
+            // Interim responses carry no body and precede the real one.
+            if (statusCode >= 100 && statusCode < 200) {
+                continue;
+            }
+            final long headersNanos = System.nanoTime();
+
+            final byte[] body;
+            if (statusCode == 204 || statusCode == 304) {
+                body = new byte[0];
+            } else if (chunked) {
+                body = readChunkedBody();
+            } else if (contentLength >= 0) {
+                body = readBody(contentLength);
+            } else {
+                body = readUntilClose();
+                keepAlive = false;
+            }
+            return new HttpResponse(statusCode, body, contentType, keepAlive, headersNanos);
+        }
+    }
+
+    private byte[] readBody(final long contentLength) throws IOException {
+        checkLimit(contentLength);
+        if (contentLength > Integer.MAX_VALUE - 8) {
+            throw new ProtocolException("Response body too large: " + contentLength);
+        }
+        final byte[] body = new byte[(int) contentLength];
+        readFully(body, 0, body.length);
+        return body;
+    }
+
+    private byte[] readChunkedBody() throws IOException {
+        int length = 0;
+        while (true) {
+            final String sizeLine = readLine();
+            final int extension = sizeLine.indexOf(';');
+            final int chunkSize;
+            try {
+                chunkSize = Integer.parseInt((extension == -1 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+            } catch (final NumberFormatException exception) {
+                throw new ProtocolException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkSize < 0) {
+                throw new ProtocolException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkSize == 0) {
+                // Skip any trailers.
+                while (!readLine().isEmpty()) {
+                    continue;
+                }
+                return Arrays.copyOf(chunkScratch, length);
+            }
+            checkLimit((long) length + chunkSize);
+            if (length + chunkSize > chunkScratch.length) {
+                chunkScratch = Arrays.copyOf(chunkScratch, Math.max(chunkScratch.length * 2, length + chunkSize));
+            }
+            readFully(chunkScratch, length, chunkSize);
+            length += chunkSize;
+
+            if (!readLine().isEmpty()) {
+                throw new ProtocolException("Missing CRLF after chunk");
+            }
+        }
+    }
+
+    private byte[] readUntilClose() throws IOException {
+        int length = 0;
+        while (buffer.hasRemaining() || fill() != -1) {
+            final int count = buffer.remaining();
+            checkLimit((long) length + count);
+            if (length + count > chunkScratch.length) {
+                chunkScratch = Arrays.copyOf(chunkScratch, Math.max(chunkScratch.length * 2, length + count));
+            }
+            buffer.get(chunkScratch, length, count);
+            length += count;
+        }
+        return Arrays.copyOf(chunkScratch, length);
+    }
+
+    private void checkLimit(final long bodyLength) {
+        if (maxResponseBytes > 0 && bodyLength > maxResponseBytes) {
+            throw new ResponseTooLargeException(
+                "Response body of at least " + bodyLength + " bytes exceeds limit of " + maxResponseBytes + " bytes", maxResponseBytes
+            );
+        }
+    }
+
+    private void readFully(final byte[] destination, final int offset, final int length) throws IOException {
+        int position = offset;
+        final int end = offset + length;
+        while (position < end) {
+            if (!buffer.hasRemaining() && fill() == -1) {
+                throw new EOFException("Connection closed before response body was complete");
+            }
+            final int count = Math.min(buffer.remaining(), end - position);
+            buffer.get(destination, position, count);
+            position += count;
+        }
+    }
+
+    /**
+     * Read a single CRLF (or bare LF) terminated line of ISO-8859-1 text, without the terminator.
+     */
+    private String readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (!buffer.hasRemaining() && fill() == -1) {
+                throw new EOFException("Connection closed before response was complete");
+            }
+            final byte value = buffer.get();
+            if (value == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) (value & 0xFF));
+        }
+    }
+
+    private int fill() throws IOException {
+        buffer.compact();
+        try {
+            return transport.read(buffer);
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    private static int parseStatusCode(final String statusLine) throws ProtocolException {
+        // HTTP/1.1 200 OK
+        final int firstSpace = statusLine.indexOf(' ');
+        if (!statusLine.startsWith("HTTP/") || firstSpace == -1 || statusLine.length() < firstSpace + 4) {
+            throw new ProtocolException("Invalid status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(firstSpace + 1, firstSpace + 4));
+        } catch (final NumberFormatException exception) {
+            throw new ProtocolException("Invalid status line: " + statusLine);
+        }
+    }
+
+    private static long parseContentLength(final String value) throws ProtocolException {
+        try {
+            final long contentLength = Long.parseLong(value);
+            if (contentLength < 0) {
+                throw new ProtocolException("Invalid Content-Length: " + value);
+            }
+            return contentLength;
+        } catch (final NumberFormatException exception) {
+            throw new ProtocolException("Invalid Content-Length: " + value);
+        }
+    }
+
+    /**
+     * A single parsed HTTP response.
+     */
+    static final class HttpResponse {
+        private final int statusCode;
+        private final byte[] body;
+        private final String contentType;
+        private final boolean keepAlive;
+        private final long headersNanos;
+
+        HttpResponse(final int statusCode, final byte[] body, final String contentType, final boolean keepAlive, final long headersNanos) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.contentType = contentType;
+            this.keepAlive = keepAlive;
+            this.headersNanos = headersNanos;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        /**
+         * When the response headers had been read, from {@link System#nanoTime()}.
+         */
+        long getHeadersNanos() {
+            return headersNanos;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorates another RestClient, passing each request through a chain of {@link RestInterceptor}s before it.
+ *
+ * The chain is linked once on construction, so submitting a request allocates nothing beyond what the
+ * interceptors themselves do.  {@link org.sourcelab.hkp.HkpClient} only wraps its RestClient in one of these when
+ * interceptors are configured.
+ */
+public class InterceptingRestClient implements RestClient {
+    private final RestClient delegate;
+    private final Link head;
+
+    /**
+     * Constructor.
+     * @param delegate RestClient to submit requests with, once they have passed through every interceptor.
+     * @param interceptors Interceptors, outermost first.
+     */
+    public InterceptingRestClient(final RestClient delegate, final List<RestInterceptor> interceptors) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate may not be null.");
+
+        // Link from the RestClient outwards, so each link knows the one following it.
+        Link link = new Link(null, null, delegate);
+        for (int index = interceptors.size() - 1; index >= 0; index--) {
+            link = new Link(Objects.requireNonNull(interceptors.get(index), "Interceptor may not be null."), link, delegate);
+        }
+        this.head = link;
+    }
+
+    @Override
+    public void init(final Configuration configuration) {
+        delegate.init(configuration);
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request) throws RestException {
+        return head.proceed(request, null);
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        return head.proceed(request, exchange);
+    }
+
+    /**
+     * Make a request through the interceptors, reading no more than the start of the response body.  Only the
+     * RestClient at the end of the chain reads partially, its response marked {@link RestResponse#isPartial()} so
+     * interceptors do not mistake it for the complete response.  Without interceptors this allocates nothing extra.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param maxBodyBytes Most bytes of the body to return.
+     * @return The response, its body holding at most maxBodyBytes bytes.
+     * @throws RestException When something goes wrong in an underlying implementation.
+     */
+    @Override
+    public RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) throws RestException {
+        if (head.interceptor == null) {
+            return delegate.submitPartialRequest(request, exchange, maxBodyBytes);
+        }
+        final RestResponse response = new PartialLink(head, maxBodyBytes).proceed(request, exchange);
+
+        // An interceptor may have answered with a complete response.
+        return response == null ? null : response.truncate(maxBodyBytes);
+    }
+
+    @Override
+    public CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+        return head.proceedAsync(request);
+    }
+
+    @Override
+    public int warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return delegate.getConnectionPoolStats();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * Invokes one interceptor, handing it the rest of the chain, or the RestClient at the end of the chain.
+     */
+    private static final class Link implements RestInterceptor.Chain {
+        private final RestInterceptor interceptor;
+        private final Link next;
+        private final RestClient restClient;
+
+        private Link(final RestInterceptor interceptor, final Link next, final RestClient restClient) {
+            this.interceptor = interceptor;
+            this.next = next;
+            this.restClient = restClient;
+        }
+
+        @Override
+        public RestResponse proceed(final Request request, final Exchange exchange) {
+            if (interceptor != null) {
+                return interceptor.intercept(request, exchange, next);
+            }
+            return exchange == null ? restClient.submitRequest(request) : restClient.submitRequest(request, exchange);
+        }
+
+        @Override
+        public CompletableFuture<RestResponse> proceedAsync(final Request request) {
+            if (interceptor != null) {
+                return interceptor.interceptAsync(request, next);
+            }
+            return restClient.submitRequestAsync(request);
+        }
+    }
+
+    /**
+     * Invokes one interceptor as {@link Link} does, except that the RestClient at the end of the chain reads only the
+     * start of the response body.  Linked per request, as the limit varies.
+     */
+    private static final class PartialLink implements RestInterceptor.Chain {
+        private final Link link;
+        private final int maxBodyBytes;
+
+        private PartialLink(final Link link, final int maxBodyBytes) {
+            this.link = link;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        @Override
+        public RestResponse proceed(final Request request, final Exchange exchange) {
+            if (link.interceptor != null) {
+                return link.interceptor.intercept(request, exchange, new PartialLink(link.next, maxBodyBytes));
+            }
+            final RestResponse response = link.restClient.submitPartialRequest(request, exchange, maxBodyBytes);
+            return response == null ? null : response.asPartial();
+        }
+
+        @Override
+        public CompletableFuture<RestResponse> proceedAsync(final Request request) {
+            return link.proceedAsync(request);
+        }
+
+        @Override
+        public boolean isPartial() {
+            return true;
+        }
+    }
+}
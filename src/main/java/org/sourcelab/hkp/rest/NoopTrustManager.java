@@ -17,21 +17,40 @@
 
 package org.sourcelab.hkp.rest;
 
-import javax.net.ssl.X509TrustManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
 import java.security.cert.X509Certificate;
 
 /**
  * Implementation of TrustManager that blindly trusts all certificates with no validation or verification.
+ * Extends X509ExtendedTrustManager so the JDK does not layer its own hostname verification on top.
  */
-class NoopTrustManager implements X509TrustManager {
+class NoopTrustManager extends X509ExtendedTrustManager {
     @Override
     public void checkClientTrusted(final X509Certificate[] x509Certificates, final String input) {
     }
 
+    @Override
+    public void checkClientTrusted(final X509Certificate[] x509Certificates, final String input, final Socket socket) {
+    }
+
+    @Override
+    public void checkClientTrusted(final X509Certificate[] x509Certificates, final String input, final SSLEngine sslEngine) {
+    }
+
     @Override
     public void checkServerTrusted(final X509Certificate[] x509Certificates, final String input) {
     }
 
+    @Override
+    public void checkServerTrusted(final X509Certificate[] x509Certificates, final String input, final Socket socket) {
+    }
+
+    @Override
+    public void checkServerTrusted(final X509Certificate[] x509Certificates, final String input, final SSLEngine sslEngine) {
+    }
+
     @Override
     public X509Certificate[] getAcceptedIssuers() {
         return new X509Certificate[0];
@@ -0,0 +1,301 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.ResponseTooLargeException;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.Phase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single persistent connection carrying pipelined HTTP/1.1 requests.
+ *
+ * Callers write requests under a lock, registering a future in FIFO order before the bytes hit the wire.
+ * A dedicated reader thread parses responses and completes those futures in the same order.  If the
+ * connection dies, the reader thread fails every request still awaiting a response with a
+ * {@link ConnectionLostException} so that the caller can resend it on a fresh connection.
+ */
+class PipelinedConnection {
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedConnection.class);
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+
+    private final ChannelTransport transport;
+    private final HttpResponseReader responseReader;
+    private final Semaphore permits;
+    private final int pipelineDepth;
+    private final Queue<InFlightRequest> inFlight = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    // Written only by the reader thread.
+    private volatile boolean hasResponded = false;
+
+    // Guards writes to the transport, writeBuffer and the ordering of inFlight.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    /**
+     * Constructor, starts the reader thread.
+     * @param transport Connected transport.
+     * @param pipelineDepth Maximum number of requests awaiting a response at once.
+     * @param name Name for the reader thread.
+     * @param maxResponseBytes Largest response body to read, 0 for unlimited.
+     */
+    PipelinedConnection(final ChannelTransport transport, final int pipelineDepth, final String name, final long maxResponseBytes) {
+        this.transport = transport;
+        this.responseReader = new HttpResponseReader(transport, maxResponseBytes);
+        this.permits = new Semaphore(pipelineDepth);
+        this.pipelineDepth = pipelineDepth;
+
+        final Thread readerThread = new Thread(this::readLoop, name);
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Attempt to reserve a pipeline slot without waiting.
+     * @return true if a slot was reserved.
+     */
+    boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    /**
+     * Reserve a pipeline slot, waiting up to the given timeout.
+     * @param timeout How long to wait.
+     * @param unit Unit of timeout.
+     * @return true if a slot was reserved.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return permits.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * How many pipeline slots are currently reserved.
+     * @return Reserved slots.
+     */
+    int getReservedSlots() {
+        return pipelineDepth - permits.availablePermits();
+    }
+
+    /**
+     * How many callers are waiting for a pipeline slot.
+     * @return Approximate count of waiting callers.
+     */
+    int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Send a request over this connection.  The caller must already hold a slot, which is released once
+     * the returned future completes.
+     * @param request Serialized HTTP request.
+     * @param exchange Records the phases of the request, may be null.
+     * @return Future completed with the response, or failed with a {@link ConnectionLostException}.
+     */
+    CompletableFuture<RestResponse> send(final byte[] request, final Exchange exchange) {
+        final CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        future.whenComplete((response, error) -> permits.release());
+
+        writeLock.lock();
+        try {
+            if (isClosed.get()) {
+                future.completeExceptionally(new ConnectionLostException(false, false));
+                return future;
+            }
+
+            // Register before writing, so the reader can never see a response before its future.
+            inFlight.add(new InFlightRequest(future, exchange, System.nanoTime()));
+
+            final ByteBuffer source;
+            if (request.length <= writeBuffer.capacity()) {
+                writeBuffer.clear();
+                writeBuffer.put(request).flip();
+                source = writeBuffer;
+            } else {
+                source = ByteBuffer.wrap(request);
+            }
+            transport.write(source);
+        } catch (final IOException exception) {
+            logger.debug("Failed to write request: {}", exception.getMessage());
+            // The reader thread will fail our future, along with anything else in flight, as retryable.
+            close();
+        } finally {
+            writeLock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Is this connection still usable.
+     * @return true if open.
+     */
+    boolean isOpen() {
+        return !isClosed.get();
+    }
+
+    /**
+     * Close the connection.  Any requests still awaiting a response are failed by the reader thread as it exits.
+     */
+    void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+
+        // Unblocks both the reader thread, and any writer currently holding the lock.
+        try {
+            transport.close();
+        } catch (final IOException exception) {
+            logger.debug("Error closing connection: {}", exception.getMessage());
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (isOpen()) {
+                final HttpResponseReader.HttpResponse response = responseReader.read();
+                if (response == null) {
+                    // Server closed the connection.
+                    break;
+                }
+
+                final InFlightRequest request = inFlight.poll();
+                if (request == null) {
+                    logger.warn("Received unsolicited response with status {}, closing connection", response.getStatusCode());
+                    break;
+                }
+                hasResponded = true;
+                if (request.exchange != null) {
+                    // Pipelined requests wait on the responses ahead of them, which counts towards their first byte.
+                    request.exchange.recordPhase(Phase.TIME_TO_FIRST_BYTE, request.sentNanos, response.getHeadersNanos());
+                    request.exchange.recordPhase(Phase.BODY_DOWNLOAD, response.getHeadersNanos(), System.nanoTime());
+                }
+                request.future.complete(new RestResponse(
+                    response.getBody(),
+                    ContentTypes.charsetOf(response.getContentType()),
+                    response.getStatusCode()
+                ));
+
+                if (!response.isKeepAlive()) {
+                    break;
+                }
+            }
+        } catch (final ResponseTooLargeException exception) {
+            // Fail only the oversized response, the rest of its body is abandoned along with the connection.
+            final InFlightRequest request = inFlight.poll();
+            if (request != null) {
+                hasResponded = true;
+                request.future.completeExceptionally(exception);
+            }
+        } catch (final IOException exception) {
+            if (isOpen()) {
+                logger.debug("Connection failed: {}", exception.getMessage());
+            }
+        } catch (final RuntimeException exception) {
+            logger.warn("Unexpected error reading response: {}", exception.getMessage(), exception);
+        } finally {
+            close();
+            failInFlight();
+        }
+    }
+
+    /**
+     * Fail every request still awaiting a response.  Only ever called by the reader thread, which is the sole consumer
+     * of inFlight, so a response can never be handed to the wrong request.
+     */
+    private void failInFlight() {
+        // Writers check isClosed while holding the lock, so nothing can be added once we hold it.
+        writeLock.lock();
+        try {
+            // A connection which answered some requests before closing is most likely enforcing a keep-alive limit.
+            // Otherwise the oldest outstanding request may be what the server objected to.
+            boolean isPossibleCause = !hasResponded;
+            InFlightRequest request;
+            while ((request = inFlight.poll()) != null) {
+                request.future.completeExceptionally(new ConnectionLostException(isPossibleCause, true));
+                isPossibleCause = false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * A request which has been written, awaiting its response.
+     */
+    private static final class InFlightRequest {
+        private final CompletableFuture<RestResponse> future;
+        private final Exchange exchange;
+        private final long sentNanos;
+
+        InFlightRequest(final CompletableFuture<RestResponse> future, final Exchange exchange, final long sentNanos) {
+            this.future = future;
+            this.exchange = exchange;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    /**
+     * Signals that the connection was lost before a response to the request was received.  Requests which were
+     * never written, or which are safe to repeat, may be resent on a new connection.
+     */
+    static final class ConnectionLostException extends IOException {
+        private final boolean isPossibleCause;
+        private final boolean wasWritten;
+
+        ConnectionLostException(final boolean isPossibleCause, final boolean wasWritten) {
+            super("Connection lost before response was received");
+            this.isPossibleCause = isPossibleCause;
+            this.wasWritten = wasWritten;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // Used purely for control flow, the stack trace carries no information.
+            return this;
+        }
+
+        /**
+         * Could this request have caused the connection to fail.  Only the oldest request awaiting a response on a
+         * connection that never answered anything is suspect, the ones behind it were simply caught up in it.
+         * @return true if this request may have caused the failure.
+         */
+        boolean isPossibleCause() {
+            return isPossibleCause;
+        }
+
+        /**
+         * Was the request, or any part of it, written to the connection, so the server may have acted on it.
+         * @return true if the request may have reached the server.
+         */
+        boolean wasWritten() {
+            return wasWritten;
+        }
+    }
+}
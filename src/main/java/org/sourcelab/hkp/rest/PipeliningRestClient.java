@@ -0,0 +1,485 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.ConnectionFailedException;
+import org.sourcelab.hkp.ResponseTooLargeException;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.config.PoolConfiguration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.Phase;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * RestClient implementation which pipelines HTTP/1.1 requests over a small number of persistent connections.
+ *
+ * Intended for bulk fetches against a single key server, where writing the next request before the previous
+ * response has arrived hides most of the round trip latency.  Supports plain HTTP and TLS.  Requests are
+ * spread across the configured number of connections ({@link PoolConfiguration#getMaxConnections()}, 2 if unset),
+ * each carrying up to {@link PoolConfiguration#getPipelineDepth()} requests awaiting a response.
+ *
+ * If the server closes a connection with requests still awaiting responses, as servers enforcing a keep-alive
+ * request limit do, those requests are transparently resent on a new connection.  Requests with a body, such as
+ * key uploads, may already have been acted on, so fail with a {@link RestException} instead unless never written.
+ *
+ * Proxies are not supported.  Once initialized, a single instance may be shared across any number of threads.
+ */
+public class PipeliningRestClient implements RestClient {
+    private static final Logger logger = LoggerFactory.getLogger(PipeliningRestClient.class);
+
+    /**
+     * Connections used when the configuration does not specify a maximum.
+     */
+    private static final int DEFAULT_CONNECTIONS = 2;
+
+    /**
+     * How many times a single request may be the cause of a lost connection before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Save a copy of the configuration.
+     */
+    private volatile Configuration configuration;
+
+    /**
+     * Guards against init() being called more than once.
+     */
+    private final AtomicBoolean isInitialized = new AtomicBoolean(false);
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * Pre-computed connection and request settings.
+     */
+    private volatile InetSocketAddress address;
+    private volatile SSLContext sslContext;
+    private volatile String pathPrefix;
+    private volatile String lookupPath;
+    private volatile String commonHeaders;
+
+    /**
+     * Connection slots, each lazily (re)opened as required.
+     */
+    private volatile AtomicReferenceArray<PipelinedConnection> connections;
+    private volatile Object[] slotLocks;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicInteger connectionCounter = new AtomicInteger();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+
+    /**
+     * Constructor.
+     */
+    public PipeliningRestClient() {
+    }
+
+    /**
+     * Initialization method.  This takes in the configuration and prepares the client, connections are only
+     * opened once required, or when {@link #warmUp()} is called.
+     * @param configuration The user defined configuration.
+     */
+    @Override
+    public void init(final Configuration configuration) {
+        // Only a single caller may ever initialize.
+        if (!isInitialized.compareAndSet(false, true)) {
+            throw new IllegalStateException("RestClient has already been initialized.");
+        }
+        try {
+            initialize(configuration);
+        } catch (final RuntimeException exception) {
+            // Nothing is opened until first use, so init() may simply be retried.
+            isInitialized.set(false);
+            throw exception;
+        }
+    }
+
+    private void initialize(final Configuration configuration) {
+        if (configuration.hasProxyConfigured()) {
+            throw new IllegalArgumentException("PipeliningRestClient does not support proxies.");
+        }
+
+        // Save reference to configuration
+        this.configuration = configuration;
+
+        final URI uri;
+        try {
+            uri = new URI(configuration.getKeyServerHost());
+        } catch (final URISyntaxException exception) {
+            throw new IllegalArgumentException("Invalid key server host: " + configuration.getKeyServerHost(), exception);
+        }
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid key server host: " + configuration.getKeyServerHost());
+        }
+
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        final int defaultPort = secure ? 443 : 80;
+        final int port = uri.getPort() == -1 ? defaultPort : uri.getPort();
+        this.address = InetSocketAddress.createUnresolved(uri.getHost(), port);
+
+        if (secure) {
+            // Emit an warning letting everyone know we're using an insecure configuration.
+            if (configuration.isIgnoreInvalidSslCertificates()) {
+                logger.warn("Using insecure configuration, skipping server-side certificate validation checks.");
+            }
+            this.sslContext = createSslContext(configuration.isIgnoreInvalidSslCertificates());
+        }
+
+        // Headers common to every request.
+        final String hostHeader = port == defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+        this.pathPrefix = uri.getRawPath() == null ? "" : uri.getRawPath();
+        this.lookupPath = pathPrefix + configuration.getBasePath();
+        this.commonHeaders = "Host: " + hostHeader + "\r\n"
+            + "Accept: */*\r\n"
+            + "User-Agent: java-hkp-client\r\n";
+
+        final PoolConfiguration poolConfiguration = configuration.getPoolConfiguration();
+        final int connectionCount = poolConfiguration.hasMaxConnections() ? poolConfiguration.getMaxConnections() : DEFAULT_CONNECTIONS;
+        final Object[] locks = new Object[connectionCount];
+        for (int index = 0; index < connectionCount; index++) {
+            locks[index] = new Object();
+        }
+        this.slotLocks = locks;
+        this.connections = new AtomicReferenceArray<>(connectionCount);
+    }
+
+    /**
+     * Make a request against the Server.
+     * @param request The request to submit.
+     * @return The response, in UTF-8 String format.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitRequest(final Request request) throws RestException {
+        return submitRequest(request, null);
+    }
+
+    /**
+     * Make a request against the Server, recording the time spent waiting for a pipeline slot, opening a new
+     * connection if one was required, and awaiting and reading the response.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @return The response.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        final byte[] encoded = encode(request);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(configuration.getRequestTimeoutSecs());
+
+        int attempts = 0;
+        while (true) {
+            final PipelinedConnection connection = acquireConnection(deadline, exchange);
+            final CompletableFuture<RestResponse> future = connection.send(encoded, exchange);
+            try {
+                return future.get(remaining(deadline), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RestException("Interrupted while waiting for response", exception);
+            } catch (final TimeoutException exception) {
+                // The connection is stuck behind this request, abandon it so queued requests move elsewhere.
+                connection.close();
+                throw new RestException("Timed out waiting for response", exception);
+            } catch (final ExecutionException exception) {
+                if (exception.getCause() instanceof ResponseTooLargeException) {
+                    throw (ResponseTooLargeException) exception.getCause();
+                }
+                if (!(exception.getCause() instanceof PipelinedConnection.ConnectionLostException)) {
+                    throw new RestException(exception.getCause().getMessage(), exception.getCause());
+                }
+                // Requests with a body, such as uploads, may have been acted on, so are only resent if never written.
+                final PipelinedConnection.ConnectionLostException lostException = (PipelinedConnection.ConnectionLostException) exception.getCause();
+                if (lostException.wasWritten() && request.getRequestBody() != null) {
+                    throw new RestException("Connection closed by server before response was received", lostException);
+                }
+
+                // Only count attempts where this request may have been the cause.
+                if (lostException.isPossibleCause() && ++attempts >= MAX_ATTEMPTS) {
+                    throw new RestException("Connection closed by server before response was received", lostException);
+                }
+                logger.debug("Connection lost, resending request");
+            }
+        }
+    }
+
+    /**
+     * Open all configured connections ahead of the first request, including the TLS handshake.
+     *
+     * @return How many connections were opened.
+     */
+    @Override
+    public int warmUp() {
+        int opened = 0;
+        for (int slot = 0; slot < slotLocks.length; slot++) {
+            final PipelinedConnection existing = connections.get(slot);
+            if (existing != null && existing.isOpen()) {
+                continue;
+            }
+            try {
+                getConnection(slot, null);
+                opened++;
+            } catch (final ConnectionFailedException exception) {
+                logger.warn("Failed to warm up connection to {}: {}", address, exception.getMessage());
+                break;
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Snapshot of pipeline slot usage across all connections.  Each connection offers as many slots as the
+     * configured pipeline depth.
+     * @return Connection pool statistics, or null if not yet initialized.
+     */
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        final AtomicReferenceArray<PipelinedConnection> current = connections;
+        if (current == null) {
+            return null;
+        }
+        final int pipelineDepth = configuration.getPoolConfiguration().getPipelineDepth();
+        int reserved = 0;
+        int available = 0;
+        int waiting = 0;
+        for (int slot = 0; slot < current.length(); slot++) {
+            final PipelinedConnection connection = current.get(slot);
+            if (connection != null && connection.isOpen()) {
+                final int connectionReserved = connection.getReservedSlots();
+                reserved += connectionReserved;
+                available += Math.max(0, pipelineDepth - connectionReserved);
+                waiting += connection.getWaitingCount();
+            }
+        }
+        return new ConnectionPoolStats(reserved, available, waiting, current.length() * pipelineDepth, connectionCounter.get(), tlsHandshakes.get());
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true) || connections == null) {
+            return;
+        }
+        for (int slot = 0; slot < slotLocks.length; slot++) {
+            synchronized (slotLocks[slot]) {
+                final PipelinedConnection connection = connections.getAndSet(slot, null);
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a connection with a free pipeline slot, preferring not to wait.
+     */
+    private PipelinedConnection acquireConnection(final long deadline, final Exchange exchange) {
+        final int slotCount = slotLocks.length;
+        final int start = Math.floorMod(nextSlot.getAndIncrement(), slotCount);
+        for (int offset = 0; offset < slotCount; offset++) {
+            final PipelinedConnection connection = getConnection((start + offset) % slotCount, exchange);
+            if (connection.tryAcquire()) {
+                return connection;
+            }
+        }
+
+        // Every connection is at full depth, wait on one.
+        final PipelinedConnection connection = getConnection(start, exchange);
+        final long waitStart = System.nanoTime();
+        try {
+            final boolean isAcquired = connection.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS);
+            if (exchange != null) {
+                exchange.recordPhase(Phase.POOL_WAIT, waitStart, System.nanoTime());
+            }
+            if (isAcquired) {
+                return connection;
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RestException("Interrupted while waiting for a connection", exception);
+        }
+        throw new RestException("Timed out waiting for a connection");
+    }
+
+    /**
+     * Return the open connection for the given slot, opening a new one if required.
+     */
+    private PipelinedConnection getConnection(final int slot, final Exchange exchange) {
+        if (!isInitialized.get() || isClosed.get()) {
+            throw new IllegalStateException("RestClient is not initialized or has been closed.");
+        }
+
+        final PipelinedConnection connection = connections.get(slot);
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+        synchronized (slotLocks[slot]) {
+            if (isClosed.get()) {
+                throw new IllegalStateException("RestClient is not initialized or has been closed.");
+            }
+            PipelinedConnection current = connections.get(slot);
+            if (current == null || !current.isOpen()) {
+                current = openConnection(exchange);
+                connections.set(slot, current);
+            }
+            return current;
+        }
+    }
+
+    private PipelinedConnection openConnection(final Exchange exchange) {
+        final long dnsStart = System.nanoTime();
+        final InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+        final long dnsEnd = System.nanoTime();
+        if (exchange != null) {
+            exchange.recordPhase(Phase.DNS, dnsStart, dnsEnd);
+        }
+        if (resolved.isUnresolved()) {
+            throw new ConnectionFailedException("Unable to resolve " + address.getHostString(), null);
+        }
+
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            channel.socket().connect(resolved, (int) TimeUnit.SECONDS.toMillis(configuration.getRequestTimeoutSecs()));
+            final long connectEnd = System.nanoTime();
+            if (exchange != null) {
+                exchange.recordPhase(Phase.CONNECT, dnsEnd, connectEnd);
+            }
+
+            final ChannelTransport transport;
+            if (sslContext == null) {
+                transport = new PlainChannelTransport(channel);
+            } else {
+                transport = new TlsChannelTransport(channel, createEngine());
+                tlsHandshakes.incrementAndGet();
+                if (exchange != null) {
+                    exchange.recordPhase(Phase.TLS_HANDSHAKE, connectEnd, System.nanoTime());
+                }
+            }
+
+            final String name = "hkp-client-pipeline-" + connectionCounter.incrementAndGet();
+            logger.debug("Opened connection {} to {}", name, address);
+            return new PipelinedConnection(
+                transport,
+                configuration.getPoolConfiguration().getPipelineDepth(),
+                name,
+                configuration.getLimitConfiguration().getMaxResponseBytes()
+            );
+        } catch (final IOException exception) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException closeException) {
+                    logger.debug("Error closing channel: {}", closeException.getMessage());
+                }
+            }
+            // Signals that an error occurred while attempting to connect to the remote server.
+            throw new ConnectionFailedException(exception.getMessage(), exception);
+        }
+    }
+
+    private SSLEngine createEngine() {
+        // Passing the peer host enables SNI.
+        final SSLEngine engine = sslContext.createSSLEngine(address.getHostString(), address.getPort());
+        engine.setUseClientMode(true);
+        if (!configuration.isIgnoreInvalidSslCertificates()) {
+            final SSLParameters parameters = engine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            engine.setSSLParameters(parameters);
+        }
+        return engine;
+    }
+
+    private byte[] encode(final Request request) {
+        final RequestBody requestBody = request.getRequestBody();
+        final String queryString = request.getQueryString();
+
+        // The path and query string are already URL encoded, so the head is plain ASCII.
+        final StringBuilder head = new StringBuilder(256)
+            .append(requestBody == null ? "GET " : "POST ")
+            .append(request.getPath() == null ? lookupPath : pathPrefix + request.getPath());
+        if (!queryString.isEmpty()) {
+            head.append('?').append(queryString);
+        }
+        logger.debug("Executing request {}", head);
+
+        head.append(" HTTP/1.1\r\n").append(commonHeaders);
+        if (requestBody != null) {
+            head.append("Content-Type: ").append(requestBody.getContentType()).append("\r\n");
+            if (requestBody.hasContentEncoding()) {
+                head.append("Content-Encoding: ").append(requestBody.getContentEncoding()).append("\r\n");
+            }
+            head.append("Content-Length: ").append(requestBody.getContent().length).append("\r\n");
+        }
+        head.append("\r\n");
+
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        if (requestBody == null) {
+            return headBytes;
+        }
+        final byte[] encoded = Arrays.copyOf(headBytes, headBytes.length + requestBody.getContent().length);
+        System.arraycopy(requestBody.getContent(), 0, encoded, headBytes.length, requestBody.getContent().length);
+        return encoded;
+    }
+
+    private static long remaining(final long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * Create an SSLContext, optionally with a TrustManager instance that just accepts everything blindly.
+     * @param insecure Skip certificate validation. HIGHLY INSECURE / NOT RECOMMENDED!
+     * @return SSLContext instance.
+     */
+    private static SSLContext createSslContext(final boolean insecure) {
+        try {
+            if (!insecure) {
+                return SSLContext.getDefault();
+            }
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{ new NoopTrustManager() }, new SecureRandom());
+            return sslContext;
+        } catch (final NoSuchAlgorithmException | KeyManagementException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single request and its outcome, as captured by {@link RecordingRestClient} and served by
+ * {@link ReplayingRestClient}.
+ *
+ * Recording files start with a short magic header, followed by records one after another, so may be appended to.
+ */
+public final class Recording {
+    /**
+     * Identifies a recording file, and the version of its format.
+     */
+    static final byte[] MAGIC = "HKPREC1\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final long timestampMillis;
+    private final long latencyNanos;
+    private final String path;
+    private final String queryString;
+    private final String requestContentType;
+    private final byte[] requestBody;
+    private final int httpCode;
+    private final byte[] responseBody;
+    private final String errorType;
+    private final String errorMessage;
+
+    /**
+     * Constructor.
+     * @param timestampMillis When the request was sent, in milliseconds since the epoch.
+     * @param latencyNanos How long the request took.
+     * @param path Path of the endpoint, or null for the standard lookup endpoint.
+     * @param queryString Encoded query string.
+     * @param requestContentType MIME type of the request body, or null if none.
+     * @param requestBody Request body, or null if none.
+     * @param httpCode HTTP status code, or 0 if the request failed.
+     * @param responseBody Response body, or null if none.
+     * @param errorType Simple class name of the exception the request failed with, or null if it did not.
+     * @param errorMessage Message of the exception the request failed with, or null if it did not.
+     */
+    public Recording(
+        final long timestampMillis,
+        final long latencyNanos,
+        final String path,
+        final String queryString,
+        final String requestContentType,
+        final byte[] requestBody,
+        final int httpCode,
+        final byte[] responseBody,
+        final String errorType,
+        final String errorMessage) {
+        this.timestampMillis = timestampMillis;
+        this.latencyNanos = latencyNanos;
+        this.path = path;
+        this.queryString = queryString == null ? "" : queryString;
+        this.requestContentType = requestContentType;
+        this.requestBody = requestBody;
+        this.httpCode = httpCode;
+        this.responseBody = responseBody;
+        this.errorType = errorType;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Read every recording in a file.
+     * @param file Recording file.
+     * @return Recordings in the order they were written.
+     * @throws IOException if the file can not be read, or is not a recording file.
+     */
+    public static List<Recording> readAll(final Path file) throws IOException {
+        final List<Recording> recordings = new ArrayList<>();
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("Not a recording file: " + file);
+            }
+            while (true) {
+                final Recording recording = read(input);
+                if (recording == null) {
+                    break;
+                }
+                recordings.add(recording);
+            }
+        }
+        return recordings;
+    }
+
+    /**
+     * Read the next recording.
+     * @return Recording, or null at the end of the stream.  A record truncated by a crash while writing is also
+     *         treated as the end of the stream.
+     */
+    private static Recording read(final DataInputStream input) throws IOException {
+        final long timestampMillis;
+        try {
+            timestampMillis = input.readLong();
+        } catch (final EOFException exception) {
+            return null;
+        }
+        try {
+            return new Recording(
+                timestampMillis,
+                input.readLong(),
+                readString(input),
+                readString(input),
+                readString(input),
+                readBytes(input),
+                input.readInt(),
+                readBytes(input),
+                readString(input),
+                readString(input)
+            );
+        } catch (final EOFException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Append this recording to a stream.
+     * @param output Stream to write to.
+     * @throws IOException if unable to write.
+     */
+    void write(final DataOutputStream output) throws IOException {
+        output.writeLong(timestampMillis);
+        output.writeLong(latencyNanos);
+        writeString(output, path);
+        writeString(output, queryString);
+        writeString(output, requestContentType);
+        writeBytes(output, requestBody);
+        output.writeInt(httpCode);
+        writeBytes(output, responseBody);
+        writeString(output, errorType);
+        writeString(output, errorMessage);
+    }
+
+    /**
+     * Whether this recording is of the same request, by endpoint, parameters and body.
+     * @param otherPath Path of the endpoint, or null for the standard lookup endpoint.
+     * @param otherQueryString Encoded query string.
+     * @param otherRequestBody Request body, or null if none.
+     * @return True if the same request.
+     */
+    public boolean matches(final String otherPath, final String otherQueryString, final byte[] otherRequestBody) {
+        return queryString.equals(otherQueryString == null ? "" : otherQueryString)
+            && (path == null ? otherPath == null : path.equals(otherPath))
+            && Arrays.equals(requestBody, otherRequestBody);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    public String getRequestContentType() {
+        return requestContentType;
+    }
+
+    public byte[] getRequestBody() {
+        return requestBody;
+    }
+
+    public int getHttpCode() {
+        return httpCode;
+    }
+
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+
+    public boolean isError() {
+        return errorType != null;
+    }
+
+    public String getErrorType() {
+        return errorType;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "Recording{"
+            + "timestampMillis=" + timestampMillis
+            + ", latencyNanos=" + latencyNanos
+            + ", path='" + path + '\''
+            + ", queryString='" + queryString + '\''
+            + ", httpCode=" + httpCode
+            + ", responseLength=" + (responseBody == null ? 0 : responseBody.length)
+            + ", errorType='" + errorType + '\''
+            + '}';
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        writeBytes(output, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = readBytes(input);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(final DataOutputStream output, final byte[] value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    private static byte[] readBytes(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
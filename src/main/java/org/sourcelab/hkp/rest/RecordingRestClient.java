@@ -0,0 +1,183 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Decorates another RestClient, appending every request it submits, along with the response status, body and
+ * latency, to a recording file which {@link ReplayingRestClient} can later serve offline.
+ *
+ * Each record is flushed as it is written, so a crash loses at most the request in progress.  Response headers are
+ * not recorded, as RestClient implementations do not expose them.  Recordings hold response bodies in full, so
+ * capture only for as long as needed.
+ */
+public class RecordingRestClient implements RestClient {
+    private static final Logger logger = LoggerFactory.getLogger(RecordingRestClient.class);
+
+    private final RestClient delegate;
+    private final Path file;
+
+    // Guarded by synchronizing on this.
+    private DataOutputStream output = null;
+
+    /**
+     * Constructor.
+     * @param delegate RestClient to submit requests with.
+     * @param file File to append recordings to, created if it does not exist.
+     */
+    public RecordingRestClient(final RestClient delegate, final Path file) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate may not be null.");
+        this.file = Objects.requireNonNull(file, "File may not be null.");
+    }
+
+    @Override
+    public void init(final Configuration configuration) {
+        try {
+            final boolean isNewFile = !Files.exists(file) || Files.size(file) == 0;
+            final DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+            ));
+            if (isNewFile) {
+                stream.write(Recording.MAGIC);
+                stream.flush();
+            }
+            synchronized (this) {
+                output = stream;
+            }
+        } catch (final IOException exception) {
+            throw new RestException("Unable to open recording file " + file + ": " + exception.getMessage(), exception);
+        }
+        delegate.init(configuration);
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request) throws RestException {
+        return record(request, () -> delegate.submitRequest(request));
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        return record(request, () -> delegate.submitRequest(request, exchange));
+    }
+
+    @Override
+    public CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+        final long timestampMillis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<RestResponse> future = delegate.submitRequestAsync(request);
+        future.whenComplete((response, error) -> write(request, timestampMillis, System.nanoTime() - startNanos, response,
+            error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+        return future;
+    }
+
+    @Override
+    public int warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return delegate.getConnectionPoolStats();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        synchronized (this) {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (final IOException exception) {
+                    logger.warn("Failed to close recording file {}: {}", file, exception.getMessage());
+                }
+                output = null;
+            }
+        }
+    }
+
+    private RestResponse record(final Request request, final Supplier<RestResponse> submit) {
+        final long timestampMillis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        final RestResponse response;
+        try {
+            response = submit.get();
+        } catch (final RuntimeException exception) {
+            write(request, timestampMillis, System.nanoTime() - startNanos, null, exception);
+            throw exception;
+        }
+        write(request, timestampMillis, System.nanoTime() - startNanos, response, null);
+        return response;
+    }
+
+    private void write(
+        final Request request,
+        final long timestampMillis,
+        final long latencyNanos,
+        final RestResponse response,
+        final Throwable error) {
+        final RequestBody body = request.getRequestBody();
+        final Recording recording = new Recording(
+            timestampMillis,
+            latencyNanos,
+            request.getPath(),
+            request.getQueryString(),
+            body == null ? null : body.getContentType(),
+            body == null ? null : body.getContent(),
+            response == null ? 0 : response.getHttpCode(),
+            response == null ? null : response.getResponseBytes(),
+            error == null ? null : error.getClass().getSimpleName(),
+            error == null ? null : error.getMessage()
+        );
+
+        synchronized (this) {
+            if (output == null) {
+                return;
+            }
+            try {
+                recording.write(output);
+                output.flush();
+            } catch (final IOException exception) {
+                // Stop recording rather than fail, or log on, every request.
+                logger.warn("Failed to write recording file {}, recording stopped: {}", file, exception.getMessage());
+                try {
+                    output.close();
+                } catch (final IOException closeException) {
+                    // Ignored, already failed.
+                }
+                output = null;
+            }
+        }
+    }
+}
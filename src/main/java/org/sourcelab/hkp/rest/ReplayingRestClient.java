@@ -0,0 +1,149 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.ConnectionFailedException;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves responses captured by {@link RecordingRestClient}, without any network access, so parsing, caching and
+ * concurrency can be measured offline against realistic key server payloads.
+ *
+ * Each request is answered with a recording of the same request, after the recorded latency multiplied by a time
+ * scale.  When the same request was recorded more than once, its recordings are served in turn.  Requests which were
+ * not recorded fail with a {@link RestException}.
+ */
+public class ReplayingRestClient implements RestClient {
+    private final List<Recording> recordings;
+    private final Map<String, List<Recording>> recordingsByRequest = new HashMap<>();
+    private final Map<String, AtomicInteger> nextIndexByRequest = new HashMap<>();
+    private final double timeScale;
+
+    /**
+     * Constructor, replaying at the recorded latency.
+     * @param file Recording file.
+     * @throws IOException if the file can not be read.
+     */
+    public ReplayingRestClient(final Path file) throws IOException {
+        this(Recording.readAll(file), 1.0);
+    }
+
+    /**
+     * Constructor.
+     * @param file Recording file.
+     * @param timeScale Multiplier applied to recorded latency, 0 to respond immediately.
+     * @throws IOException if the file can not be read.
+     */
+    public ReplayingRestClient(final Path file, final double timeScale) throws IOException {
+        this(Recording.readAll(file), timeScale);
+    }
+
+    /**
+     * Constructor.
+     * @param recordings Recordings to serve.
+     * @param timeScale Multiplier applied to recorded latency, 0 to respond immediately.
+     */
+    public ReplayingRestClient(final List<Recording> recordings, final double timeScale) {
+        if (!(timeScale >= 0)) {
+            throw new IllegalArgumentException("Time scale may not be negative.");
+        }
+        this.recordings = Collections.unmodifiableList(new ArrayList<>(recordings));
+        this.timeScale = timeScale;
+        for (final Recording recording : this.recordings) {
+            final String key = key(recording.getPath(), recording.getQueryString());
+            recordingsByRequest.computeIfAbsent(key, (ignored) -> new ArrayList<>()).add(recording);
+            nextIndexByRequest.putIfAbsent(key, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Recordings being served, in the order they were recorded, so they can be resent at their original timing.
+     * @return Recordings.
+     */
+    public List<Recording> getRecordings() {
+        return recordings;
+    }
+
+    @Override
+    public void init(final Configuration configuration) {
+        // Nothing to set up.
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request) throws RestException {
+        final Recording recording = find(request);
+        final long delayNanos = (long) (recording.getLatencyNanos() * timeScale);
+        if (delayNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RestException("Interrupted while replaying request.", exception);
+            }
+        }
+
+        if (recording.isError()) {
+            if (ConnectionFailedException.class.getSimpleName().equals(recording.getErrorType())) {
+                throw new ConnectionFailedException(recording.getErrorMessage(), null);
+            }
+            throw new RestException(recording.getErrorMessage());
+        }
+        return new RestResponse(recording.getResponseBody(), StandardCharsets.UTF_8, recording.getHttpCode());
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+
+    private Recording find(final Request request) {
+        final String key = key(request.getPath(), request.getQueryString());
+        final List<Recording> candidates = recordingsByRequest.get(key);
+        if (candidates != null) {
+            final RequestBody body = request.getRequestBody();
+            final byte[] content = body == null ? null : body.getContent();
+
+            // Start from where the last request left off, so repeated requests cycle through their recordings.
+            final int start = nextIndexByRequest.get(key).getAndIncrement();
+            for (int offset = 0; offset < candidates.size(); offset++) {
+                final Recording candidate = candidates.get(Math.floorMod(start + offset, candidates.size()));
+                if (candidate.matches(request.getPath(), request.getQueryString(), content)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new RestException("No recording of request: " + key);
+    }
+
+    private static String key(final String path, final String queryString) {
+        return (path == null ? "" : path) + "?" + (queryString == null ? "" : queryString);
+    }
+}
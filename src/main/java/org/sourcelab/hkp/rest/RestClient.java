@@ -18,8 +18,11 @@
 package org.sourcelab.hkp.rest;
 
 import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
 import org.sourcelab.hkp.request.Request;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for making HTTP calls.
  */
@@ -39,6 +42,72 @@ public interface RestClient {
      */
     RestResponse submitRequest(final Request request) throws RestException;
 
+    /**
+     * Make a request against the server, recording the phases of the request the implementation is able to observe
+     * against the given exchange.  The default implementation records nothing.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request.
+     * @return The response.
+     * @throws RestException When something goes wrong in an underlying implementation.
+     */
+    default RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        return submitRequest(request);
+    }
+
+    /**
+     * Make a request against the server, reading no more than the start of the response body, for callers which
+     * only need the status or the first line.  Implementations able to should abandon the rest of a longer body
+     * unread, even though the connection then can not be reused.  The default implementation reads the full
+     * response and truncates its body.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param maxBodyBytes Most bytes of the body to return.
+     * @return The response, its body holding at most maxBodyBytes bytes.
+     * @throws RestException When something goes wrong in an underlying implementation.
+     */
+    default RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) throws RestException {
+        final RestResponse response = exchange == null ? submitRequest(request) : submitRequest(request, exchange);
+        return response == null ? null : response.truncate(maxBodyBytes);
+    }
+
+    /**
+     * Make a request against the server without blocking the caller, for implementations that support it.
+     * The default implementation executes the request synchronously on the calling thread.
+     *
+     * @param request The request to submit.
+     * @return Future completed with the response, or exceptionally if something goes wrong.
+     */
+    default CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+        final CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(submitRequest(request));
+        } catch (final RuntimeException exception) {
+            future.completeExceptionally(exception);
+        }
+        return future;
+    }
+
+    /**
+     * Eagerly establish connections to the server ahead of the first request, so that the cost of
+     * DNS resolution, connecting and TLS handshaking is not paid by the first caller.
+     * Implementations that do not pool connections may leave this as a no-op.
+     *
+     * @return How many connections were opened.
+     */
+    default int warmUp() {
+        return 0;
+    }
+
+    /**
+     * Snapshot of the connection pool's current usage.  Implementations that do not expose their connections
+     * may leave this returning null.
+     *
+     * @return Connection pool statistics, or null if not available.
+     */
+    default ConnectionPoolStats getConnectionPoolStats() {
+        return null;
+    }
+
     /**
      * Called to release any internally held resources.
      */
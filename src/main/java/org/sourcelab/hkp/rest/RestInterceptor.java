@@ -0,0 +1,94 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.Request;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps each request submitted to the RestClient, to add behavior such as caching, retries, rate limiting or
+ * coalescing without changing the RestClient itself.
+ * Configure with {@link org.sourcelab.hkp.ConfigurationBuilder#withInterceptor(RestInterceptor)}.
+ *
+ * Interceptors run in the order registered, the first outermost.  Each passes the request on by calling
+ * {@link Chain#proceed(Request, Exchange)}, and may instead return a response of its own without proceeding, or
+ * proceed more than once.  Interceptors are shared by every thread using the client, so must be thread safe.
+ */
+public interface RestInterceptor {
+    /**
+     * Intercept a request.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, or null if no listener is configured.
+     * @param chain The remaining interceptors, ending with the RestClient.
+     * @return The response.
+     * @throws RestException When something goes wrong.
+     */
+    RestResponse intercept(final Request request, final Exchange exchange, final Chain chain) throws RestException;
+
+    /**
+     * Intercept a request submitted without blocking the caller.  The default implementation runs
+     * {@link #intercept(Request, Exchange, Chain)} on the calling thread, as {@link RestClient#submitRequestAsync(Request)}
+     * does by default, so interceptors able to work asynchronously should override it.
+     *
+     * @param request The request to submit.
+     * @param chain The remaining interceptors, ending with the RestClient.
+     * @return Future completed with the response, or exceptionally if something goes wrong.
+     */
+    default CompletableFuture<RestResponse> interceptAsync(final Request request, final Chain chain) {
+        final CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(intercept(request, null, chain));
+        } catch (final RuntimeException exception) {
+            future.completeExceptionally(exception);
+        }
+        return future;
+    }
+
+    /**
+     * The interceptors following the current one, ending with the RestClient.
+     */
+    interface Chain {
+        /**
+         * Pass the request on to the next interceptor, or the RestClient if there are no more.
+         * @param request The request to submit.
+         * @param exchange Records the phases of the request, or null if none.
+         * @return The response.
+         * @throws RestException When something goes wrong.
+         */
+        RestResponse proceed(final Request request, final Exchange exchange) throws RestException;
+
+        /**
+         * Pass the request on to the next interceptor, or the RestClient if there are no more, without blocking.
+         * @param request The request to submit.
+         * @return Future completed with the response, or exceptionally if something goes wrong.
+         */
+        CompletableFuture<RestResponse> proceedAsync(final Request request);
+
+        /**
+         * Whether the RestClient at the end of this chain reads only the start of the response body, as for
+         * {@link RestClient#submitPartialRequest(Request, Exchange, int)}.  Responses it returns are then marked
+         * {@link RestResponse#isPartial()}, and must not be handed to callers expecting the complete body.
+         * @return True if the request is a partial read.
+         */
+        default boolean isPartial() {
+            return false;
+        }
+    }
+}
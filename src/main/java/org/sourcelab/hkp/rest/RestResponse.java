@@ -17,12 +17,30 @@
 
 package org.sourcelab.hkp.rest;
 
+import org.sourcelab.hkp.listener.CacheOutcome;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * Represents the response from the API.
+ *
+ * The body may be supplied either as text or as raw bytes, whichever the RestClient has on hand, and is
+ * converted to the other form only if asked for.
  */
 public class RestResponse {
-    private final String responseStr;
+    /**
+     * Most characters of the body included in {@link #toString()}.
+     */
+    private static final int MAX_TO_STRING_CHARS = 256;
+
+    private volatile String responseStr;
+    private volatile byte[] responseBytes;
+    private final Charset charset;
     private final int httpCode;
+    private final CacheOutcome cacheOutcome;
+    private final boolean isPartial;
 
     /**
      * Constructor.
@@ -31,22 +49,140 @@ public class RestResponse {
      */
     public RestResponse(final String responseStr, final int httpCode) {
         this.responseStr = responseStr;
+        this.responseBytes = null;
+        this.charset = StandardCharsets.UTF_8;
         this.httpCode = httpCode;
+        this.cacheOutcome = CacheOutcome.NONE;
+        this.isPartial = false;
+    }
+
+    /**
+     * Constructor.
+     * @param responseBytes The raw http response body.
+     * @param charset The charset to decode the body with, if requested as a string.
+     * @param httpCode The http status code from the response.
+     */
+    public RestResponse(final byte[] responseBytes, final Charset charset, final int httpCode) {
+        this(null, responseBytes, charset, httpCode, CacheOutcome.NONE, false);
     }
 
+    private RestResponse(
+        final String responseStr,
+        final byte[] responseBytes,
+        final Charset charset,
+        final int httpCode,
+        final CacheOutcome cacheOutcome,
+        final boolean isPartial) {
+        this.responseStr = responseStr;
+        this.responseBytes = responseBytes;
+        this.charset = charset == null ? StandardCharsets.UTF_8 : charset;
+        this.httpCode = httpCode;
+        this.cacheOutcome = cacheOutcome;
+        this.isPartial = isPartial;
+    }
+
+    /**
+     * The response body as a string.
+     * @return Response body, or null if the response had no body.
+     */
     public String getResponseStr() {
-        return responseStr;
+        String str = responseStr;
+        if (str == null && responseBytes != null) {
+            str = new String(responseBytes, charset);
+            responseStr = str;
+        }
+        return str;
+    }
+
+    /**
+     * The raw response body.  Callers must not modify the returned array.
+     * @return Response body, or null if the response had no body.
+     */
+    public byte[] getResponseBytes() {
+        byte[] bytes = responseBytes;
+        if (bytes == null && responseStr != null) {
+            bytes = responseStr.getBytes(charset);
+            responseBytes = bytes;
+        }
+        return bytes;
     }
 
     public int getHttpCode() {
         return httpCode;
     }
 
+    public CacheOutcome getCacheOutcome() {
+        return cacheOutcome;
+    }
+
+    /**
+     * This response, marked with whether a cache answered it.
+     * @param cacheOutcome Cache outcome.
+     * @return A response sharing this one's body, with the given cache outcome.
+     */
+    public RestResponse withCacheOutcome(final CacheOutcome cacheOutcome) {
+        if (cacheOutcome == this.cacheOutcome) {
+            return this;
+        }
+        return new RestResponse(responseStr, responseBytes, charset, httpCode, cacheOutcome, isPartial);
+    }
+
+    /**
+     * Whether the body may have been cut short, as read by {@link RestClient#submitPartialRequest}, so must not be
+     * treated as the complete response, such as by a cache.
+     * @return True if the body may be incomplete.
+     */
+    public boolean isPartial() {
+        return isPartial;
+    }
+
+    /**
+     * This response, marked as possibly cut short.
+     * @return A response sharing this one's body, marked as partial.
+     */
+    public RestResponse asPartial() {
+        if (isPartial) {
+            return this;
+        }
+        return new RestResponse(responseStr, responseBytes, charset, httpCode, cacheOutcome, true);
+    }
+
+    /**
+     * Length of the raw response body.
+     * @return Body length in bytes, or 0 if the response had no body.
+     */
+    public int getResponseLength() {
+        final byte[] bytes = getResponseBytes();
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * This response with its body cut short, such as for a caller which only needs the start of it.
+     * @param maxBodyBytes Most bytes of the body to keep.
+     * @return This response if its body is no longer, otherwise a new response with the truncated body.
+     */
+    public RestResponse truncate(final int maxBodyBytes) {
+        final byte[] bytes = getResponseBytes();
+        if (bytes == null || bytes.length <= maxBodyBytes) {
+            return this;
+        }
+        return new RestResponse(null, Arrays.copyOf(bytes, maxBodyBytes), charset, httpCode, cacheOutcome, true);
+    }
+
+    /**
+     * Describes the response, truncating long bodies such as armored keys.
+     * @return Description.
+     */
     @Override
     public String toString() {
+        String body = getResponseStr();
+        if (body != null && body.length() > MAX_TO_STRING_CHARS) {
+            body = body.substring(0, MAX_TO_STRING_CHARS) + "... (" + (body.length() - MAX_TO_STRING_CHARS) + " more characters)";
+        }
         return "RestResponse{"
-            + "responseStr='" + responseStr + '\''
+            + "responseStr='" + body + '\''
             + ", httpCode=" + httpCode
+            + ", cacheOutcome=" + cacheOutcome
             + '}';
     }
 }
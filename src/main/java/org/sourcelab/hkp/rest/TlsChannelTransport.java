@@ -0,0 +1,233 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * TLS transport over a blocking SocketChannel, using an {@link SSLEngine}.
+ *
+ * SSLEngine allows wrap() and unwrap() to run concurrently, so a reader and a writer thread may use this
+ * transport at the same time.  Each direction owns its own direct network buffer.
+ */
+class TlsChannelTransport implements ChannelTransport {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+
+    // Inbound: encrypted bytes from the network, and decrypted bytes not yet handed to the reader.
+    private ByteBuffer netIn;
+    private ByteBuffer appIn;
+
+    // Outbound: encrypted bytes headed to the network.  Guarded by writeLock.
+    private ByteBuffer netOut;
+    private final Object writeLock = new Object();
+
+    /**
+     * Constructor, performs the TLS handshake before returning.
+     * @param channel Connected, blocking, channel.
+     * @param engine Client mode engine for the remote host.
+     * @throws IOException on handshake failure.
+     */
+    TlsChannelTransport(final SocketChannel channel, final SSLEngine engine) throws IOException {
+        this.channel = channel;
+        this.engine = engine;
+
+        final int packetSize = engine.getSession().getPacketBufferSize();
+        this.netIn = ByteBuffer.allocateDirect(packetSize);
+        this.netOut = ByteBuffer.allocateDirect(packetSize);
+        this.appIn = ByteBuffer.allocateDirect(engine.getSession().getApplicationBufferSize());
+
+        // Buffers are kept in "read mode", with nothing yet available.
+        netIn.flip();
+        appIn.flip();
+
+        handshake();
+    }
+
+    private void handshake() throws IOException {
+        engine.beginHandshake();
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case NEED_UNWRAP:
+                    if (unwrap() == -1) {
+                        throw new EOFException("Connection closed during TLS handshake");
+                    }
+                    break;
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer destination) throws IOException {
+        while (!appIn.hasRemaining()) {
+            if (unwrap() == -1) {
+                return -1;
+            }
+        }
+
+        // Hand over as much decrypted data as fits.
+        final int count = Math.min(appIn.remaining(), destination.remaining());
+        final ByteBuffer slice = appIn.duplicate();
+        slice.limit(slice.position() + count);
+        destination.put(slice);
+        appIn.position(appIn.position() + count);
+        return count;
+    }
+
+    @Override
+    public void write(final ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            wrap(source);
+        }
+    }
+
+    /**
+     * Decrypt a single TLS record into appIn, reading from the network as required.
+     * @return Number of application bytes produced, possibly 0, or -1 on end of stream.
+     */
+    private int unwrap() throws IOException {
+        while (true) {
+            appIn.compact();
+            final SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                appIn.flip();
+            }
+
+            switch (result.getStatus()) {
+                case OK:
+                    // May have consumed a non application record, such as a TLS 1.3 session ticket, producing nothing.
+                    handlePostHandshake(result);
+                    return result.bytesProduced();
+                case BUFFER_UNDERFLOW:
+                    if (netIn.limit() == netIn.capacity() && netIn.position() == 0) {
+                        netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                    }
+                    if (fillNetIn() == -1) {
+                        return -1;
+                    }
+                    break;
+                case BUFFER_OVERFLOW:
+                    // Only possible if the reader has not drained appIn, or the session grew its record size.
+                    if (appIn.hasRemaining()) {
+                        return 0;
+                    }
+                    appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+                    break;
+                case CLOSED:
+                default:
+                    return -1;
+            }
+        }
+    }
+
+    /**
+     * Encrypt from the source buffer and write the resulting record(s) to the network.
+     */
+    private void wrap(final ByteBuffer source) throws IOException {
+        synchronized (writeLock) {
+            while (true) {
+                netOut.clear();
+                final SSLEngineResult result = engine.wrap(source, netOut);
+                netOut.flip();
+                while (netOut.hasRemaining()) {
+                    channel.write(netOut);
+                }
+
+                switch (result.getStatus()) {
+                    case OK:
+                        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                            runDelegatedTasks();
+                        }
+                        return;
+                    case BUFFER_OVERFLOW:
+                        netOut = ByteBuffer.allocateDirect(Math.max(netOut.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                        break;
+                    case CLOSED:
+                        throw new SSLException("TLS session closed");
+                    default:
+                        throw new SSLException("Unexpected wrap result: " + result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Post handshake messages (e.g. TLS 1.3 key updates) may require us to respond from the read side.
+     */
+    private void handlePostHandshake(final SSLEngineResult result) throws IOException {
+        SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+        while (status == SSLEngineResult.HandshakeStatus.NEED_TASK || status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+            if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                runDelegatedTasks();
+            } else {
+                wrap(EMPTY);
+            }
+            status = engine.getHandshakeStatus();
+        }
+    }
+
+    private int fillNetIn() throws IOException {
+        netIn.compact();
+        try {
+            return channel.read(netIn);
+        } finally {
+            netIn.flip();
+        }
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private static ByteBuffer enlarge(final ByteBuffer buffer, final int minimumCapacity) {
+        final ByteBuffer enlarged = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, minimumCapacity));
+        enlarged.put(buffer);
+        enlarged.flip();
+        return enlarged;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            engine.closeOutbound();
+        } finally {
+            channel.close();
+        }
+    }
+}
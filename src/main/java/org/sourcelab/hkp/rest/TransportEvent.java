@@ -0,0 +1,59 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.sourcelab.hkp.listener.Phase;
+
+/**
+ * Flight Recorder event describing the transport phases of a single request: connection setup, the time to the
+ * first byte and reading the body.
+ *
+ * Flight Recorder is only available on Java 11 and newer, where this no-op class is replaced by one extending
+ * {@code jdk.jfr.Event} via the Multi-Release jar.  Callers should follow the usual pattern of calling
+ * {@link #start()}, only timing phases if {@link #isEnabled()}, then only filling in details and committing if
+ * {@link #shouldCommit()}.
+ */
+final class TransportEvent {
+    private static final TransportEvent DISABLED = new TransportEvent();
+
+    /**
+     * Start timing a request.  Without Flight Recorder there is nothing to record, so a shared instance is returned
+     * rather than allocating one per request.
+     * @return The started event.
+     */
+    static TransportEvent start() {
+        return DISABLED;
+    }
+
+    boolean isEnabled() {
+        return false;
+    }
+
+    boolean shouldCommit() {
+        return false;
+    }
+
+    void addPhase(final Phase phase, final long startNanos, final long endNanos) {
+    }
+
+    void setKeyServer(final String keyServer) {
+    }
+
+    void commit() {
+    }
+}
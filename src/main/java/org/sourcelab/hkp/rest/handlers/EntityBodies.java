@@ -0,0 +1,190 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest.handlers;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.ResponseTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+
+/**
+ * Reads response bodies with as little garbage as possible, in place of {@code EntityUtils}.
+ *
+ * A body with a known Content-Length is read straight into an array of exactly that size.  Otherwise, such as for
+ * chunked or compressed responses, it is read into a scratch buffer kept per thread and copied out once, rather than
+ * into a buffer grown a copy at a time.  Bodies over a limit, or beyond the prefix asked for, are abandoned unread.
+ */
+final class EntityBodies {
+    private static final Logger logger = LoggerFactory.getLogger(EntityBodies.class);
+
+    /**
+     * Initial size of each thread's scratch buffer.
+     */
+    private static final int INITIAL_SCRATCH_SIZE = 8192;
+
+    /**
+     * Largest scratch buffer kept for reuse, so one huge response does not pin its size in memory for good.
+     */
+    private static final int MAX_RETAINED_SCRATCH_SIZE = 256 * 1024;
+
+    /**
+     * Largest body that can be held in an array.
+     */
+    private static final int MAX_BODY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[INITIAL_SCRATCH_SIZE]);
+
+    private EntityBodies() {
+    }
+
+    /**
+     * Read the entity's body in full.
+     * @param entity Entity to read, may be null.
+     * @return The body, or null if there is no entity.
+     * @throws IOException if the body can not be read.
+     */
+    static byte[] toByteArray(final HttpEntity entity) throws IOException {
+        return toByteArray(entity, 0);
+    }
+
+    /**
+     * Read the entity's body in full, unless it exceeds a limit.  Once the limit is crossed nothing more is read,
+     * and the stream is left open, so the caller can discard the connection rather than read the rest of the body
+     * to reuse it.
+     * @param entity Entity to read, may be null.
+     * @param maxBytes Largest body to read, 0 for unlimited.
+     * @return The body, or null if there is no entity.
+     * @throws IOException if the body can not be read.
+     * @throws ResponseTooLargeException if the body exceeds the limit.
+     */
+    static byte[] toByteArray(final HttpEntity entity, final long maxBytes) throws IOException {
+        if (entity == null) {
+            return null;
+        }
+        final long limit = maxBytes > 0 ? Math.min(maxBytes, MAX_BODY_SIZE) : MAX_BODY_SIZE;
+        final long contentLength = entity.getContentLength();
+        if (contentLength > limit) {
+            throw tooLarge(contentLength + " bytes", maxBytes);
+        }
+        final InputStream inputStream = entity.getContent();
+        if (inputStream == null) {
+            return null;
+        }
+        final byte[] body = contentLength >= 0 ? readExactly(inputStream, (int) contentLength) : readUntilEnd(inputStream, (int) limit, maxBytes);
+        inputStream.close();
+        return body;
+    }
+
+    /**
+     * Read the start of the entity's body.  A body of at most maxBytes is read to its end and its stream closed,
+     * so the connection can be reused.  Otherwise maxBytes + 1 bytes are returned, telling the caller the body
+     * was longer, and the stream is left open so the caller can discard the connection rather than read the rest.
+     * @param entity Entity to read, may be null.
+     * @param maxBytes Most bytes of the body wanted.
+     * @return The body, or its first maxBytes + 1 bytes, or null if there is no entity.
+     * @throws IOException if the body can not be read.
+     */
+    static byte[] toPrefix(final HttpEntity entity, final int maxBytes) throws IOException {
+        if (entity == null) {
+            return null;
+        }
+        final InputStream inputStream = entity.getContent();
+        if (inputStream == null) {
+            return null;
+        }
+        final byte[] prefix = new byte[maxBytes + 1];
+        int length = 0;
+        int read;
+        while (length < prefix.length && (read = inputStream.read(prefix, length, prefix.length - length)) != -1) {
+            length += read;
+        }
+        if (length == prefix.length) {
+            return prefix;
+        }
+        inputStream.close();
+        return Arrays.copyOf(prefix, length);
+    }
+
+    /**
+     * Determine the charset the server declared for the body, defaulting to UTF-8.
+     * @param entity Entity, may be null.
+     * @return Charset to decode the body with.
+     */
+    static Charset getCharset(final HttpEntity entity) {
+        if (entity == null || entity.getContentType() == null) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            final ContentType contentType = ContentType.parseLenient(entity.getContentType());
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset();
+            }
+        } catch (final UnsupportedCharsetException exception) {
+            logger.debug("Unsupported charset in {}, falling back to UTF-8", entity.getContentType());
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static byte[] readExactly(final InputStream inputStream, final int contentLength) throws IOException {
+        final byte[] body = new byte[contentLength];
+        int offset = 0;
+        while (offset < contentLength) {
+            final int read = inputStream.read(body, offset, contentLength - offset);
+            if (read == -1) {
+                throw new IOException("Response body ended after " + offset + " of " + contentLength + " bytes");
+            }
+            offset += read;
+        }
+        return body;
+    }
+
+    private static byte[] readUntilEnd(final InputStream inputStream, final int limit, final long maxBytes) throws IOException {
+        byte[] scratch = SCRATCH.get();
+        int length = 0;
+        int read;
+        while ((read = inputStream.read(scratch, length, scratch.length - length)) != -1) {
+            length += read;
+            if (length > limit) {
+                throw tooLarge("over " + limit + " bytes", maxBytes);
+            }
+            if (length == scratch.length) {
+                // Read one byte past the limit, to tell a body of exactly the limit from a larger one.
+                scratch = Arrays.copyOf(scratch, (int) Math.min((long) length * 2, (long) limit + 1));
+            }
+        }
+        if (scratch.length <= MAX_RETAINED_SCRATCH_SIZE) {
+            SCRATCH.set(scratch);
+        }
+        return Arrays.copyOf(scratch, length);
+    }
+
+    private static ResponseTooLargeException tooLarge(final String size, final long maxBytes) {
+        if (maxBytes <= 0) {
+            return new ResponseTooLargeException("Response body too large to hold in memory: " + size, MAX_BODY_SIZE);
+        }
+        return new ResponseTooLargeException("Response body of " + size + " exceeds limit of " + maxBytes + " bytes", maxBytes);
+    }
+}
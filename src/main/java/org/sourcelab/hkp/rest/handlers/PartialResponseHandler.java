@@ -0,0 +1,71 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest.handlers;
+
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Handles a response by reading only the start of its body, for callers which need just the status or first line.
+ *
+ * A body which fits is read to its end, so the connection is returned to the pool.  A longer one is abandoned unread
+ * past the prefix and its connection discarded, which for large responses is cheaper than reading the rest.
+ */
+public class PartialResponseHandler implements HttpClientResponseHandler<RestResponse> {
+    private static final Logger logger = LoggerFactory.getLogger(PartialResponseHandler.class);
+
+    private final int maxBodyBytes;
+
+    /**
+     * Constructor.
+     * @param maxBodyBytes Most bytes of the body to read.
+     */
+    public PartialResponseHandler(final int maxBodyBytes) {
+        if (maxBodyBytes < 0) {
+            throw new IllegalArgumentException("Max body bytes may not be negative.");
+        }
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public RestResponse handleResponse(final ClassicHttpResponse response) {
+        final int statusCode = response.getCode();
+
+        try {
+            final HttpEntity entity = response.getEntity();
+            byte[] responseBytes = EntityBodies.toPrefix(entity, maxBodyBytes);
+            if (responseBytes != null && responseBytes.length > maxBodyBytes) {
+                // Drop the entity, so the response is closed without reading the rest of the body,
+                // which discards the connection rather than returning it to the pool.
+                response.setEntity(null);
+                responseBytes = Arrays.copyOf(responseBytes, maxBodyBytes);
+            }
+            return new RestResponse(responseBytes, EntityBodies.getCharset(entity), statusCode);
+        } catch (final IOException exception) {
+            logger.error("Failed to read entity: {}", exception.getMessage(), exception);
+            throw new RuntimeException("Failed to read entity", exception);
+        }
+    }
+}
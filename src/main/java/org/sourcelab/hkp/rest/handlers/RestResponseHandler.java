@@ -19,35 +19,64 @@ package org.sourcelab.hkp.rest.handlers;
 
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.ResponseTooLargeException;
 import org.sourcelab.hkp.rest.RestResponse;
 
 import java.io.IOException;
 
 /**
  * Handles parsing a response to RestResponse object.
+ *
+ * The body is read into an array sized from Content-Length where the server sent one, and kept as raw bytes, so
+ * callers only pay to decode it if they ask for it as a string.
  */
 public class RestResponseHandler implements HttpClientResponseHandler<RestResponse> {
     private static final Logger logger = LoggerFactory.getLogger(RestResponseHandler.class);
 
+    private final long maxResponseBytes;
+
+    /**
+     * Constructor, reading bodies of any size.
+     */
+    public RestResponseHandler() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxResponseBytes Largest body to read, 0 for unlimited.  Larger responses fail with
+     *                         {@link ResponseTooLargeException}.
+     */
+    public RestResponseHandler(final long maxResponseBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
     @Override
     public RestResponse handleResponse(final ClassicHttpResponse response) {
         final int statusCode = response.getCode();
 
         try {
             final HttpEntity entity = response.getEntity();
-            final String responseStr = entity != null ? EntityUtils.toString(entity) : null;
+            final byte[] responseBytes;
+            try {
+                responseBytes = EntityBodies.toByteArray(entity, maxResponseBytes);
+            } catch (final ResponseTooLargeException exception) {
+                // Drop the entity, so the response is closed without reading the rest of the body,
+                // which discards the connection rather than returning it to the pool.
+                response.setEntity(null);
+                throw exception;
+            }
 
             // Fully consume entity.
             EntityUtils.consume(entity);
 
-            // Construct return object
-            return new RestResponse(responseStr, statusCode);
-        } catch (final IOException | ParseException exception) {
+            // Construct return object, decoding the body only if a caller asks for it as a string.
+            return new RestResponse(responseBytes, EntityBodies.getCharset(entity), statusCode);
+        } catch (final IOException exception) {
             logger.error("Failed to read entity: {}", exception.getMessage(), exception);
             throw new RuntimeException("Failed to read entity", exception);
         }
@@ -19,35 +19,26 @@ package org.sourcelab.hkp.rest.handlers;
 
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 
 /**
  * Returns response as a string.
+ *
+ * The body is read as bytes and decoded in one pass with the declared charset, defaulting to UTF-8, which the JDK
+ * decodes fastest for all ASCII bodies such as armored keys and index listings.
  */
 public class StringResponseHandler implements HttpClientResponseHandler<String> {
-    private static final Logger logger = LoggerFactory.getLogger(StringResponseHandler.class);
-
     @Override
     public String handleResponse(final ClassicHttpResponse response) throws IOException {
-        try {
-            final HttpEntity entity = response.getEntity();
-            final String responseStr;
-            responseStr = entity != null ? EntityUtils.toString(entity) : null;
+        final HttpEntity entity = response.getEntity();
+        final byte[] responseBytes = EntityBodies.toByteArray(entity);
 
-            // Fully consume entity.
-            EntityUtils.consume(entity);
+        // Fully consume entity.
+        EntityUtils.consume(entity);
 
-            // Construct return object
-            return responseStr;
-        } catch (final ParseException exception) {
-            logger.error("Failed to read entity: {}", exception.getMessage(), exception);
-            throw new RuntimeException("Failed to read entity", exception);
-        }
+        return responseBytes == null ? null : new String(responseBytes, EntityBodies.getCharset(entity));
     }
 }
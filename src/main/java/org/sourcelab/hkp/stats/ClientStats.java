@@ -0,0 +1,121 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.stats;
+
+import org.sourcelab.hkp.rest.ConnectionPoolStats;
+
+/**
+ * Point in time snapshot of a {@link org.sourcelab.hkp.HkpClient}'s request outcomes and connection pool usage.
+ *
+ * Requests are counted once per request sent to the key server, so a bulk operation is counted once for each request
+ * it makes.  Not found responses are counted separately from other client errors, as they are the usual answer to
+ * looking up an unknown key.
+ */
+public class ClientStats {
+    private final long requestsSucceeded;
+    private final long requestsNotFound;
+    private final long requestsClientError;
+    private final long requestsServerError;
+    private final long requestsFailed;
+    private final long requestsInFlight;
+    private final ConnectionPoolStats connectionPoolStats;
+
+    /**
+     * Constructor.
+     * @param requestsSucceeded Requests answered with a 2xx response.
+     * @param requestsNotFound Requests answered with a 404 response.
+     * @param requestsClientError Requests answered with any other response below 500.
+     * @param requestsServerError Requests answered with a 5xx response.
+     * @param requestsFailed Requests which failed without a response, such as on a connection error or timeout.
+     * @param requestsInFlight Requests currently awaiting a response.
+     * @param connectionPoolStats Connection pool statistics, or null if not available.
+     */
+    public ClientStats(
+        final long requestsSucceeded,
+        final long requestsNotFound,
+        final long requestsClientError,
+        final long requestsServerError,
+        final long requestsFailed,
+        final long requestsInFlight,
+        final ConnectionPoolStats connectionPoolStats) {
+        this.requestsSucceeded = requestsSucceeded;
+        this.requestsNotFound = requestsNotFound;
+        this.requestsClientError = requestsClientError;
+        this.requestsServerError = requestsServerError;
+        this.requestsFailed = requestsFailed;
+        this.requestsInFlight = requestsInFlight;
+        this.connectionPoolStats = connectionPoolStats;
+    }
+
+    public long getRequestsSucceeded() {
+        return requestsSucceeded;
+    }
+
+    public long getRequestsNotFound() {
+        return requestsNotFound;
+    }
+
+    public long getRequestsClientError() {
+        return requestsClientError;
+    }
+
+    public long getRequestsServerError() {
+        return requestsServerError;
+    }
+
+    public long getRequestsFailed() {
+        return requestsFailed;
+    }
+
+    public long getRequestsInFlight() {
+        return requestsInFlight;
+    }
+
+    /**
+     * Total requests completed, regardless of outcome.
+     * @return Completed request count.
+     */
+    public long getRequestsCompleted() {
+        return requestsSucceeded + requestsNotFound + requestsClientError + requestsServerError + requestsFailed;
+    }
+
+    /**
+     * Whether the RestClient in use exposes its connection pool.
+     * @return true if connection pool statistics are available.
+     */
+    public boolean hasConnectionPoolStats() {
+        return connectionPoolStats != null;
+    }
+
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return connectionPoolStats;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientStats{"
+            + "requestsSucceeded=" + requestsSucceeded
+            + ", requestsNotFound=" + requestsNotFound
+            + ", requestsClientError=" + requestsClientError
+            + ", requestsServerError=" + requestsServerError
+            + ", requestsFailed=" + requestsFailed
+            + ", requestsInFlight=" + requestsInFlight
+            + ", connectionPoolStats=" + connectionPoolStats
+            + '}';
+    }
+}
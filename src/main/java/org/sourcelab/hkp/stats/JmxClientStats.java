@@ -0,0 +1,135 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.stats;
+
+import org.sourcelab.hkp.rest.ConnectionPoolStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Registers a client's statistics with the platform MBean server.  Each attribute read takes a fresh snapshot.
+ */
+public final class JmxClientStats implements ClientStatsMxBean {
+    private final Supplier<ClientStats> statsSupplier;
+    private final ObjectName objectName;
+
+    private JmxClientStats(final Supplier<ClientStats> statsSupplier, final ObjectName objectName) {
+        this.statsSupplier = statsSupplier;
+        this.objectName = objectName;
+    }
+
+    /**
+     * Register statistics with the platform MBean server as {@code org.sourcelab.hkp:type=HkpClient,name=<name>}.
+     * @param name Name distinguishing the client from any others in the same JVM.
+     * @param statsSupplier Supplies a current snapshot of the client's statistics.
+     * @return Registration, to be unregistered once the client is closed.
+     * @throws JMException if the MBean could not be registered, such as if the name is already in use.
+     */
+    public static JmxClientStats register(final String name, final Supplier<ClientStats> statsSupplier) throws JMException {
+        final ObjectName objectName = new ObjectName("org.sourcelab.hkp:type=HkpClient,name=" + ObjectName.quote(name));
+        final JmxClientStats jmxClientStats = new JmxClientStats(Objects.requireNonNull(statsSupplier), objectName);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(jmxClientStats, objectName);
+        return jmxClientStats;
+    }
+
+    /**
+     * Remove the MBean from the platform MBean server, if it is still registered.
+     * @throws JMException if the MBean could not be unregistered.
+     */
+    public void unregister() throws JMException {
+        final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        if (mbeanServer.isRegistered(objectName)) {
+            mbeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public long getRequestsSucceeded() {
+        return statsSupplier.get().getRequestsSucceeded();
+    }
+
+    @Override
+    public long getRequestsNotFound() {
+        return statsSupplier.get().getRequestsNotFound();
+    }
+
+    @Override
+    public long getRequestsClientError() {
+        return statsSupplier.get().getRequestsClientError();
+    }
+
+    @Override
+    public long getRequestsServerError() {
+        return statsSupplier.get().getRequestsServerError();
+    }
+
+    @Override
+    public long getRequestsFailed() {
+        return statsSupplier.get().getRequestsFailed();
+    }
+
+    @Override
+    public long getRequestsInFlight() {
+        return statsSupplier.get().getRequestsInFlight();
+    }
+
+    @Override
+    public int getPoolLeased() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getLeased();
+    }
+
+    @Override
+    public int getPoolAvailable() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getAvailable();
+    }
+
+    @Override
+    public int getPoolPending() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getPending();
+    }
+
+    @Override
+    public int getPoolMax() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getMax();
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getConnectionsOpened();
+    }
+
+    @Override
+    public long getTlsHandshakes() {
+        final ConnectionPoolStats poolStats = statsSupplier.get().getConnectionPoolStats();
+        return poolStats == null ? -1 : poolStats.getTlsHandshakes();
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event describing a single request to the key server, from submitting it through to handling
+ * its response.  Costs little more than a branch while the event is disabled.
+ */
+@Name("org.sourcelab.hkp.Lookup")
+@Label("HKP Lookup")
+@Category({"Java Application", "HKP Client"})
+@Description("A request to an HKP key server, including handling its response")
+final class LookupEvent extends Event {
+    @Label("Operation")
+    private String operation;
+
+    @Label("Endpoint")
+    private String endpoint;
+
+    @Label("Search Term Hash")
+    @Description("Hash of the key id or search term, 0 if none")
+    private int searchHash;
+
+    @Label("Status Code")
+    @Description("HTTP status code, 0 if no response was received")
+    private int statusCode;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    private long bytesSent;
+
+    @Label("Bytes Received")
+    @DataAmount
+    private long bytesReceived;
+
+    @Label("Cache Outcome")
+    @Description("Whether a cache answered the request: NONE, HIT, MISS or NEGATIVE_HIT")
+    private String cacheOutcome;
+
+    /**
+     * Start timing a lookup.
+     * @return The started event.
+     */
+    static LookupEvent start() {
+        final LookupEvent event = new LookupEvent();
+        event.begin();
+        return event;
+    }
+
+    void setDetails(
+        final String operation,
+        final String endpoint,
+        final int searchHash,
+        final int statusCode,
+        final long bytesSent,
+        final long bytesReceived,
+        final String cacheOutcome) {
+        this.operation = operation;
+        this.endpoint = endpoint;
+        this.searchHash = searchHash;
+        this.statusCode = statusCode;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.cacheOutcome = cacheOutcome;
+    }
+}
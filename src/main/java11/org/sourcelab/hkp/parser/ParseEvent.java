@@ -0,0 +1,58 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event describing parsing a single response.  Costs little more than a branch while the event
+ * is disabled.  Parsing always happens within a lookup, whose event carries the stack trace.
+ */
+@Name("org.sourcelab.hkp.Parse")
+@Label("HKP Response Parse")
+@Category({"Java Application", "HKP Client"})
+@Description("Parsing a response from an HKP key server")
+@StackTrace(false)
+final class ParseEvent extends Event {
+    @Label("Parser")
+    private String parser;
+
+    @Label("Entry Count")
+    @Description("Keys or search results parsed")
+    private int entryCount;
+
+    /**
+     * Start timing a parse.
+     * @return The started event.
+     */
+    static ParseEvent start() {
+        final ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    void setDetails(final String parser, final int entryCount) {
+        this.parser = parser;
+        this.entryCount = entryCount;
+    }
+}
@@ -0,0 +1,505 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcelab.hkp.ConnectionFailedException;
+import org.sourcelab.hkp.ResponseTooLargeException;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.Phase;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RestClient implementation using the JDK's built in {@link HttpClient}, available on Java 11 and newer.
+ *
+ * Avoids loading the HttpComponents client entirely, which makes for faster startup in short lived processes.
+ * Negotiates HTTP/2 with servers that support it over TLS, multiplexing concurrent requests over a single
+ * connection, and supports non-blocking requests via {@link #submitRequestAsync(Request)}.
+ *
+ * Configuration is honored as by {@link HttpClient5RestClient}, with one exception: the JDK client can only reach a
+ * proxy over plain HTTP, so a proxy configured with the HTTPS scheme is rejected by {@link #init(Configuration)}.
+ * Tunnelling HTTPS requests through an HTTP proxy is supported.
+ *
+ * Once initialized, a single instance may be shared across any number of threads.
+ */
+public class JdkHttpRestClient implements RestClient {
+    private static final Logger logger = LoggerFactory.getLogger(JdkHttpRestClient.class);
+
+    /**
+     * Save a copy of the configuration.
+     */
+    private volatile Configuration configuration;
+
+    /**
+     * Guards against init() being called more than once.
+     */
+    private final AtomicBoolean isInitialized = new AtomicBoolean(false);
+
+    /**
+     * Our underlying Http Client.
+     */
+    private final AtomicReference<HttpClient> httpClient = new AtomicReference<>();
+
+    /**
+     * Pre-computed request settings.
+     */
+    private volatile String keyServerHost;
+    private volatile String baseUrl;
+    private volatile HttpClient.Version requestVersion;
+    private volatile Duration requestTimeout;
+    private volatile long maxResponseBytes;
+
+    /**
+     * Constructor.
+     */
+    public JdkHttpRestClient() {
+    }
+
+    /**
+     * Initialization method.  This takes in the configuration and sets up the underlying
+     * http client appropriately.
+     * @param configuration The user defined configuration.
+     * @throws IllegalArgumentException if a proxy is configured with a scheme other than HTTP.
+     */
+    @Override
+    public void init(final Configuration configuration) {
+        // Only a single caller may ever initialize.
+        if (!isInitialized.compareAndSet(false, true)) {
+            throw new IllegalStateException("RestClient has already been initialized.");
+        }
+        try {
+            initialize(configuration);
+        } catch (final RuntimeException exception) {
+            // The client is only built as the last step, so init() may simply be retried.
+            isInitialized.set(false);
+            throw exception;
+        }
+    }
+
+    private void initialize(final Configuration configuration) {
+        // Save reference to configuration
+        this.configuration = configuration;
+        this.keyServerHost = configuration.getKeyServerHost();
+        this.baseUrl = keyServerHost + configuration.getBasePath();
+        this.requestTimeout = Duration.ofSeconds(configuration.getRequestTimeoutSecs());
+        this.maxResponseBytes = configuration.getLimitConfiguration().getMaxResponseBytes();
+
+        // Only negotiate HTTP/2 over TLS, avoiding h2c upgrade requests against plain text servers.
+        this.requestVersion = baseUrl.regionMatches(true, 0, "https:", 0, 6)
+            ? HttpClient.Version.HTTP_2
+            : HttpClient.Version.HTTP_1_1;
+
+        final HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(requestTimeout);
+
+        // Emit an warning letting everyone know we're using an insecure configuration.
+        if (configuration.isIgnoreInvalidSslCertificates()) {
+            logger.warn("Using insecure configuration, skipping server-side certificate validation checks.");
+            // NoopTrustManager is an X509ExtendedTrustManager, which JSSE leaves the hostname check to, so this also
+            // skips hostname verification as HttpClient5RestClient's NoopHostnameVerifier does.
+            clientBuilder.sslContext(createInsecureSslContext());
+        }
+
+        // If we have a configured proxy host
+        if (configuration.hasProxyConfigured()) {
+            final String proxyScheme = configuration.getProxyConfiguration().getScheme();
+            if (!"HTTP".equalsIgnoreCase(proxyScheme)) {
+                throw new IllegalArgumentException("JdkHttpRestClient only supports HTTP proxies, not " + proxyScheme + ".");
+            }
+
+            clientBuilder.proxy(ProxySelector.of(new InetSocketAddress(
+                configuration.getProxyConfiguration().getHost(),
+                configuration.getProxyConfiguration().getPort()
+            )));
+
+            // If we have proxy auth enabled
+            if (configuration.getProxyConfiguration().isAuthenticationRequired()) {
+                final String username = configuration.getProxyConfiguration().getUsername();
+                final char[] password = configuration.getProxyConfiguration().getPassword().toCharArray();
+                clientBuilder.authenticator(new Authenticator() {
+                    @Override
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        if (getRequestorType() == RequestorType.PROXY) {
+                            return new PasswordAuthentication(username, password);
+                        }
+                        return null;
+                    }
+                });
+            }
+        }
+
+        // build http client
+        httpClient.set(clientBuilder.build());
+    }
+
+    /**
+     * Make a request against the Server.
+     * @param request The request to submit.
+     * @return The response, in UTF-8 String format.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitRequest(final Request request) throws RestException {
+        return send(request, null, -1);
+    }
+
+    /**
+     * Make a request against the Server, recording the time to the first byte and the time spent reading the body.
+     * The JDK client does not expose connection setup, so any DNS lookup, connect or TLS handshake is included in
+     * the time to the first byte.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request.
+     * @return The response.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitRequest(final Request request, final Exchange exchange) throws RestException {
+        return send(request, exchange, -1);
+    }
+
+    /**
+     * Make a request against the Server, reading only the start of the response body.  Closing the body early
+     * cancels the rest of it, resetting the stream over HTTP/2, or closing the connection over HTTP/1.1.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param maxBodyBytes Most bytes of the body to return.
+     * @return The response.
+     * @throws RestException if something goes wrong.
+     */
+    @Override
+    public RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) throws RestException {
+        if (maxBodyBytes < 0) {
+            throw new IllegalArgumentException("Max body bytes may not be negative.");
+        }
+        return send(request, exchange, maxBodyBytes);
+    }
+
+    /**
+     * Send a request and read its response.
+     * @param request The request to submit.
+     * @param exchange Records the phases of the request, may be null.
+     * @param maxBodyBytes Most bytes of the body to read, or -1 for all of it.
+     * @return The response.
+     */
+    private RestResponse send(final Request request, final Exchange exchange, final int maxBodyBytes) {
+        final HttpRequest httpRequest = buildRequest(request);
+        final TransportEvent event = TransportEvent.start();
+        final AtomicLong headersNanos = new AtomicLong();
+        final HttpResponse.BodyHandler<InputStream> bodyHandler = exchange == null && !event.isEnabled()
+            ? HttpResponse.BodyHandlers.ofInputStream()
+            : responseInfo -> {
+                headersNanos.set(System.nanoTime());
+                return HttpResponse.BodyHandlers.ofInputStream().apply(responseInfo);
+            };
+        try {
+            final long sendStart = System.nanoTime();
+            final HttpResponse<InputStream> response = getHttpClient().send(httpRequest, bodyHandler);
+            if (exchange != null) {
+                exchange.recordPhase(Phase.TIME_TO_FIRST_BYTE, sendStart, headersNanos.get());
+            }
+            event.addPhase(Phase.TIME_TO_FIRST_BYTE, sendStart, headersNanos.get());
+            final RestResponse restResponse;
+            try (InputStream inputStream = response.body()) {
+                final byte[] responseBytes = maxBodyBytes < 0 ? readBody(response, inputStream) : inputStream.readNBytes(maxBodyBytes);
+                restResponse = new RestResponse(responseBytes, getCharset(response), response.statusCode());
+            }
+            final long bodyRead = System.nanoTime();
+            if (exchange != null) {
+                exchange.recordPhase(Phase.BODY_DOWNLOAD, headersNanos.get(), bodyRead);
+            }
+            event.addPhase(Phase.BODY_DOWNLOAD, headersNanos.get(), bodyRead);
+            return restResponse;
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RestException("Interrupted while waiting for response", exception);
+        } catch (final IOException exception) {
+            throw translateException(exception);
+        } finally {
+            if (event.shouldCommit()) {
+                event.setKeyServer(keyServerHost);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Make a request against the Server without blocking the caller.
+     * @param request The request to submit.
+     * @return Future completed with the response.
+     */
+    @Override
+    public CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+        final HttpRequest httpRequest = buildRequest(request);
+        final long limit = maxResponseBytes;
+        final HttpResponse.BodyHandler<byte[]> bodyHandler = limit > 0
+            ? responseInfo -> new LimitedBodySubscriber(limit, responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1))
+            : HttpResponse.BodyHandlers.ofByteArray();
+        return getHttpClient()
+            .sendAsync(httpRequest, bodyHandler)
+            .handle((response, throwable) -> {
+                if (throwable != null) {
+                    final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause instanceof ResponseTooLargeException) {
+                        throw (ResponseTooLargeException) cause;
+                    }
+                    if (cause instanceof IOException) {
+                        throw translateException((IOException) cause);
+                    }
+                    throw new RestException(cause.getMessage(), cause);
+                }
+                return new RestResponse(response.body(), getCharset(response), response.statusCode());
+            });
+    }
+
+    /**
+     * Establish a connection to the server by issuing a single HEAD request.  Over HTTP/2 all requests
+     * share this one connection, so there is nothing further to warm.
+     *
+     * @return How many connections were opened.
+     */
+    @Override
+    public int warmUp() {
+        final HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .version(requestVersion)
+            .timeout(requestTimeout)
+            .build();
+        try {
+            getHttpClient().send(httpRequest, HttpResponse.BodyHandlers.discarding());
+            return 1;
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException exception) {
+            logger.warn("Failed to warm up connection to {}: {}", baseUrl, exception.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * The JDK client has no explicit close prior to Java 21, idle connections are released once the
+     * client is no longer referenced.
+     */
+    @Override
+    public void close() {
+        httpClient.set(null);
+    }
+
+    private HttpRequest buildRequest(final Request request) {
+        final String path = request.getPath() == null ? baseUrl : keyServerHost + request.getPath();
+        final String queryString = request.getQueryString();
+        final String url = queryString.isEmpty() ? path : path + "?" + queryString;
+
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+            .version(requestVersion)
+            .timeout(requestTimeout);
+
+        final RequestBody requestBody = request.getRequestBody();
+        if (requestBody == null) {
+            builder.GET();
+        } else {
+            builder
+                .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody.getContent()))
+                .header("Content-Type", requestBody.getContentType());
+            if (requestBody.hasContentEncoding()) {
+                builder.header("Content-Encoding", requestBody.getContentEncoding());
+            }
+        }
+
+        logger.debug("Executing request {} {}", requestBody == null ? "GET" : "POST", url);
+        return builder.build();
+    }
+
+    /**
+     * Read the body straight into an array sized from Content-Length when the server sent one, rather than
+     * into buffers grown and copied as it arrives.  Bodies over the configured limit are abandoned as soon as
+     * they are known to exceed it, closing the stream early so the connection is not reused.
+     */
+    private byte[] readBody(final HttpResponse<?> response, final InputStream inputStream) throws IOException {
+        final long limit = maxResponseBytes;
+        final long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (limit > 0 && contentLength > limit) {
+            throw tooLarge(contentLength, limit);
+        }
+        if (contentLength < 0 || contentLength > Integer.MAX_VALUE - 8) {
+            if (limit <= 0) {
+                return inputStream.readAllBytes();
+            }
+            // Read one byte past the limit, to tell a body of exactly the limit from a larger one.
+            final byte[] responseBytes = inputStream.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+            if (responseBytes.length > limit) {
+                throw tooLarge(responseBytes.length, limit);
+            }
+            return responseBytes;
+        }
+        final byte[] responseBytes = new byte[(int) contentLength];
+        final int read = inputStream.readNBytes(responseBytes, 0, responseBytes.length);
+        if (read < responseBytes.length) {
+            throw new IOException("Response body ended after " + read + " of " + contentLength + " bytes");
+        }
+        return responseBytes;
+    }
+
+    private static ResponseTooLargeException tooLarge(final long bodyLength, final long limit) {
+        return new ResponseTooLargeException("Response body of at least " + bodyLength + " bytes exceeds limit of " + limit + " bytes", limit);
+    }
+
+    private Charset getCharset(final HttpResponse<?> response) {
+        return ContentTypes.charsetOf(response.headers().firstValue("Content-Type").orElse(null));
+    }
+
+    private RuntimeException translateException(final IOException exception) {
+        // Signals that an error occurred while attempting to connect to the remote server.
+        if (exception instanceof ConnectException
+            || exception instanceof HttpConnectTimeoutException
+            || exception instanceof SSLHandshakeException) {
+            return new ConnectionFailedException(exception.getMessage(), exception);
+        }
+        return new RestException(exception.getMessage(), exception);
+    }
+
+    /**
+     * Returns the underlying client, failing if we have not been initialized or have already been closed.
+     * @return Underlying http client.
+     */
+    private HttpClient getHttpClient() {
+        final HttpClient client = httpClient.get();
+        if (client == null) {
+            throw new IllegalStateException("RestClient is not initialized or has been closed.");
+        }
+        return client;
+    }
+
+    /**
+     * Initialize an SSLContext with a TrustManager instance that just accepts everything blindly.
+     * HIGHLY INSECURE / NOT RECOMMENDED!
+     * @return SSLContext instance.
+     */
+    private SSLContext createInsecureSslContext() {
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{ new NoopTrustManager() }, new SecureRandom());
+            return sslContext;
+        } catch (final NoSuchAlgorithmException | KeyManagementException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Collects the body as bytes, cancelling the response as soon as it exceeds the limit.
+     */
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final HttpResponse.BodySubscriber<byte[]> delegate = HttpResponse.BodySubscribers.ofByteArray();
+        private final long limit;
+        private final long contentLength;
+
+        // Reactive streams signals are serialized, so need no further synchronization.
+        private Flow.Subscription subscription;
+        private long received = 0;
+        private boolean isExceeded = false;
+
+        private LimitedBodySubscriber(final long limit, final long contentLength) {
+            this.limit = limit;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (contentLength > limit) {
+                exceeded(contentLength);
+                return;
+            }
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(final List<ByteBuffer> items) {
+            if (isExceeded) {
+                return;
+            }
+            for (final ByteBuffer item : items) {
+                received += item.remaining();
+            }
+            if (received > limit) {
+                exceeded(received);
+                return;
+            }
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            if (!isExceeded) {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!isExceeded) {
+                delegate.onComplete();
+            }
+        }
+
+        private void exceeded(final long bodyLength) {
+            isExceeded = true;
+            subscription.cancel();
+            delegate.onError(tooLarge(bodyLength, limit));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.sourcelab.hkp.listener.Phase;
+
+/**
+ * Flight Recorder event describing the transport phases of a single request.  Phases repeated by a retry are
+ * summed.  Costs little more than a branch while the event is disabled.  Requests always happen within a lookup,
+ * whose event carries the stack trace.
+ */
+@Name("org.sourcelab.hkp.Transport")
+@Label("HKP Transport")
+@Category({"Java Application", "HKP Client"})
+@Description("Connection setup and response transfer for a request to an HKP key server")
+@StackTrace(false)
+final class TransportEvent extends Event {
+    @Label("Key Server")
+    private String keyServer;
+
+    @Label("Pool Wait")
+    @Description("Waiting for a pooled connection")
+    @Timespan(Timespan.NANOSECONDS)
+    private long poolWait;
+
+    @Label("DNS")
+    @Description("Resolving the key server's address, only when opening a new connection")
+    @Timespan(Timespan.NANOSECONDS)
+    private long dns;
+
+    @Label("Connect")
+    @Description("Establishing the TCP connection, only when opening a new connection")
+    @Timespan(Timespan.NANOSECONDS)
+    private long connect;
+
+    @Label("TLS Handshake")
+    @Description("Performing the TLS handshake, only when opening a new connection")
+    @Timespan(Timespan.NANOSECONDS)
+    private long tlsHandshake;
+
+    @Label("Time To First Byte")
+    @Description("From sending the request until the response headers are received")
+    @Timespan(Timespan.NANOSECONDS)
+    private long timeToFirstByte;
+
+    @Label("Body Download")
+    @Description("Reading the response body")
+    @Timespan(Timespan.NANOSECONDS)
+    private long bodyDownload;
+
+    /**
+     * Start timing a request.
+     * @return The started event.
+     */
+    static TransportEvent start() {
+        final TransportEvent event = new TransportEvent();
+        event.begin();
+        return event;
+    }
+
+    void addPhase(final Phase phase, final long startNanos, final long endNanos) {
+        final long duration = endNanos - startNanos;
+        switch (phase) {
+            case POOL_WAIT:
+                poolWait += duration;
+                break;
+            case DNS:
+                dns += duration;
+                break;
+            case CONNECT:
+                connect += duration;
+                break;
+            case TLS_HANDSHAKE:
+                tlsHandshake += duration;
+                break;
+            case TIME_TO_FIRST_BYTE:
+                timeToFirstByte += duration;
+                break;
+            case BODY_DOWNLOAD:
+                bodyDownload += duration;
+                break;
+            default:
+                // Phases outside the transport, such as parsing, are covered by their own events.
+                break;
+        }
+    }
+
+    void setKeyServer(final String keyServer) {
+        this.keyServer = keyServer;
+    }
+}
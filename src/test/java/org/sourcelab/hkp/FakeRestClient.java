@@ -0,0 +1,75 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * In-memory RestClient for HkpClient tests, answering each request from a handler and counting lifecycle calls.
+ * Tests needing real HTTP should use {@link org.sourcelab.hkp.server.StubKeyServer} instead.
+ */
+class FakeRestClient implements RestClient {
+    private final Function<Request, RestResponse> handler;
+    private final AtomicInteger initCount = new AtomicInteger();
+    private final AtomicInteger closeCount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * @param handler Answers each request, called concurrently if requests are.
+     */
+    FakeRestClient(final Function<Request, RestResponse> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Create an HkpClient using this RestClient.
+     * @return New HkpClient, not yet initialized.
+     */
+    HkpClient newHkpClient() {
+        return new HkpClient(Configuration.newBuilder().withKeyServerHost("http://localhost"), this);
+    }
+
+    @Override
+    public void init(final Configuration configuration) {
+        initCount.incrementAndGet();
+    }
+
+    @Override
+    public RestResponse submitRequest(final Request request) {
+        return handler.apply(request);
+    }
+
+    @Override
+    public void close() {
+        closeCount.incrementAndGet();
+    }
+
+    int getInitCount() {
+        return initCount.get();
+    }
+
+    int getCloseCount() {
+        return closeCount.get();
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.request.AddRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.RequestBody;
+import org.sourcelab.hkp.response.add.AddResponse;
+import org.sourcelab.hkp.response.add.KeyAddResult;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies publishing keys via /pks/add.
+ */
+class HkpClientAddTest {
+
+    /**
+     * Keys should be sent as gzipped, concatenated keyrings, one per batch.
+     */
+    @Test
+    void add_sendsCompressedBatches() {
+        final AddHandler handler = new AddHandler(true);
+        try (final HkpClient hkpClient = new FakeRestClient(handler).newHkpClient()) {
+            final AddResponse response = hkpClient.add(new AddRequest(keys(250)).withBatchSize(100).withParallelism(3));
+
+            assertTrue(response.isSuccess());
+            assertEquals(250, response.getResults().size());
+            assertEquals(3, handler.bodies.size(), "250 keys should take 3 requests");
+            for (final RequestBody body : handler.bodies) {
+                assertEquals("gzip", body.getContentEncoding());
+                assertEquals("application/x-www-form-urlencoded", body.getContentType());
+            }
+
+            // Every key should have been sent exactly once.
+            final String sent = String.join("", handler.keytexts);
+            for (final String key : keys(250)) {
+                assertEquals(sent.indexOf(key), sent.lastIndexOf(key));
+                assertTrue(sent.contains(key));
+            }
+        }
+    }
+
+    /**
+     * Servers that do not accept compressed bodies should be retried, and remembered as, uncompressed.
+     */
+    @Test
+    void add_compressionUnsupported_retriesUncompressed() {
+        final AddHandler handler = new AddHandler(false);
+        try (final HkpClient hkpClient = new FakeRestClient(handler).newHkpClient()) {
+            final AddResponse response = hkpClient.add(new AddRequest(keys(30)).withBatchSize(10).withParallelism(1));
+
+            assertTrue(response.isSuccess());
+            assertEquals(4, handler.bodies.size(), "Only the first batch should be retried");
+            assertEquals(1, handler.bodies.stream().filter(RequestBody::hasContentEncoding).count());
+        }
+    }
+
+    /**
+     * A rejected batch should only fail its own keys.
+     */
+    @Test
+    void add_rejectedBatch_reportedPerKey() {
+        final AddHandler handler = new AddHandler(true);
+        try (final HkpClient hkpClient = new FakeRestClient(handler).newHkpClient()) {
+            final List<String> keys = keys(25);
+            keys.set(12, "invalid");
+
+            final AddResponse response = hkpClient.add(new AddRequest(keys).withBatchSize(10));
+            assertFalse(response.isSuccess());
+            assertEquals(15, response.getAcceptedCount());
+
+            final List<KeyAddResult> failures = response.getFailures();
+            assertEquals(10, failures.size());
+            assertEquals(10, failures.get(0).getIndex());
+            assertEquals(19, failures.get(9).getIndex());
+            assertEquals(400, failures.get(0).getCode());
+            assertEquals("Invalid key", failures.get(0).getMessage());
+        }
+    }
+
+    /**
+     * Uncompressed bodies should be plain form encoded keyrings.
+     */
+    @Test
+    void getRequestBody_uncompressed() throws IOException {
+        final AddRequest request = new AddRequest(keys(2)).withCompression(false);
+        final RequestBody body = request.getRequestBody();
+        assertSame(body, request.getRequestBody());
+        assertNull(body.getContentEncoding());
+        assertEquals(
+            "keytext=" + String.join("", keys(2)),
+            URLDecoder.decode(new String(body.getContent(), StandardCharsets.US_ASCII), "UTF-8")
+        );
+    }
+
+    private static List<String> keys(final int count) {
+        final List<String> keys = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            keys.add("-----BEGIN PGP PUBLIC KEY BLOCK-----\nkey+" + index + "=\n-----END PGP PUBLIC KEY BLOCK-----\n");
+        }
+        return keys;
+    }
+
+    /**
+     * Accepts /pks/add requests, recording each body, rejecting batches containing an invalid key.
+     */
+    private static class AddHandler implements Function<Request, RestResponse> {
+        private final boolean isCompressionSupported;
+        private final Queue<RequestBody> bodies = new ConcurrentLinkedQueue<>();
+        private final Queue<String> keytexts = new ConcurrentLinkedQueue<>();
+
+        AddHandler(final boolean isCompressionSupported) {
+            this.isCompressionSupported = isCompressionSupported;
+        }
+
+        @Override
+        public RestResponse apply(final Request request) {
+            assertEquals("/pks/add", request.getPath());
+            final RequestBody body = request.getRequestBody();
+            bodies.add(body);
+            if (body.hasContentEncoding() && !isCompressionSupported) {
+                return new RestResponse("Unsupported Media Type", 415);
+            }
+
+            final String form = new String(body.hasContentEncoding() ? gunzip(body.getContent()) : body.getContent(), StandardCharsets.US_ASCII);
+            try {
+                final String keytext = URLDecoder.decode(form.substring("keytext=".length()), "UTF-8");
+                if (keytext.contains("invalid")) {
+                    return new RestResponse("Invalid key", 400);
+                }
+                keytexts.add(keytext);
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return new RestResponse("OK", 200);
+        }
+
+        private static byte[] gunzip(final byte[] content) {
+            try (final InputStream input = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+                return output.toByteArray();
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.request.HashQueryRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies bulk key retrieval via /pks/hashquery, and the fallback to op=hget.
+ */
+class HkpClientBulkTest {
+
+    /**
+     * Hashes should be requested in batches, with each batch's keys split out of the binary response.
+     */
+    @Test
+    void getAll_hashQuerySupported_requestsInBatches() {
+        final BulkHandler handler = new BulkHandler(true);
+        try (final HkpClient hkpClient = new FakeRestClient(handler).newHkpClient()) {
+            final List<PgpPublicKey> keys = hkpClient.getAll(new HashQueryRequest(hashes(600)));
+
+            assertEquals(600, keys.size());
+            assertEquals(3, handler.hashQueryCount.get(), "600 hashes should take 3 round trips");
+            assertEquals(0, handler.hashGetCount.get());
+        }
+    }
+
+    /**
+     * Servers without /pks/hashquery should be queried one key at a time, skipping keys that are not found.
+     */
+    @Test
+    void getAll_hashQueryUnsupported_fallsBackToHashGet() {
+        final BulkHandler handler = new BulkHandler(false);
+        try (final HkpClient hkpClient = new FakeRestClient(handler).newHkpClient()) {
+            final List<String> hashes = hashes(20);
+            hashes.add("ffffffffffffffffffffffffffffffff");
+
+            final List<PgpPublicKey> keys = hkpClient.getAll(new HashQueryRequest(hashes));
+            assertEquals(20, keys.size());
+            assertTrue(keys.get(0).getPublicKey().contains(hashes.get(0)), "Keys should be returned in request order");
+
+            // Should remember the endpoint is unsupported.
+            hkpClient.getAll(new HashQueryRequest(hashes(5)));
+            assertEquals(1, handler.hashQueryCount.get());
+            assertEquals(26, handler.hashGetCount.get());
+        }
+    }
+
+    private static List<String> hashes(final int count) {
+        final List<String> hashes = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            hashes.add(String.format(Locale.ROOT, "%032x", index));
+        }
+        return hashes;
+    }
+
+    /**
+     * Answers /pks/hashquery with one tiny key per requested hash, or op=hget with an armored key naming the hash.
+     */
+    private static class BulkHandler implements Function<Request, RestResponse> {
+        private final boolean isHashQuerySupported;
+        private final AtomicInteger hashQueryCount = new AtomicInteger();
+        private final AtomicInteger hashGetCount = new AtomicInteger();
+
+        BulkHandler(final boolean isHashQuerySupported) {
+            this.isHashQuerySupported = isHashQuerySupported;
+        }
+
+        @Override
+        public RestResponse apply(final Request request) {
+            if ("/pks/hashquery".equals(request.getPath())) {
+                hashQueryCount.incrementAndGet();
+                if (!isHashQuerySupported) {
+                    return new RestResponse("Not Found", 404);
+                }
+                final int count = ByteBuffer.wrap(request.getRequestBody().getContent()).getInt();
+                return new RestResponse(hashQueryResponse(count), StandardCharsets.UTF_8, 200);
+            }
+
+            hashGetCount.incrementAndGet();
+            final String hash = request.getRequestParameters().get("search");
+            if (hash.startsWith("ffff")) {
+                return new RestResponse("Not Found", 404);
+            }
+            return new RestResponse("-----BEGIN PGP PUBLIC KEY BLOCK-----\n" + hash + "\n-----END PGP PUBLIC KEY BLOCK-----\n", 200);
+        }
+
+        private static byte[] hashQueryResponse(final int count) {
+            try {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                final DataOutputStream output = new DataOutputStream(buffer);
+                output.writeInt(count);
+                for (int index = 0; index < count; index++) {
+                    output.writeInt(2);
+                    output.write(new byte[] { (byte) 0x99, (byte) index });
+                }
+                return buffer.toByteArray();
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests verifying HkpClient initializes and closes its RestClient exactly once under contention.
+ */
+class HkpClientConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 50;
+
+    /**
+     * Many threads racing on first use should only ever build a single underlying client.
+     */
+    @Test
+    void getRestClient_concurrentFirstUse_initializesOnce() throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final CountingRestClient restClient = new CountingRestClient(5);
+            final HkpClient hkpClient = restClient.newHkpClient();
+
+            final List<RestClient> results = runConcurrently(hkpClient::getRestClient);
+
+            assertEquals(1, restClient.getInitCount(), "init() should only be called once");
+            for (final RestClient result : results) {
+                assertSame(restClient, result);
+            }
+
+            hkpClient.close();
+            assertEquals(1, restClient.getCloseCount());
+        }
+    }
+
+    /**
+     * Many threads racing to close should only close the underlying client once.
+     */
+    @Test
+    void close_concurrent_closesOnce() throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final CountingRestClient restClient = new CountingRestClient(0);
+            final HkpClient hkpClient = restClient.newHkpClient();
+            hkpClient.getRestClient();
+
+            runConcurrently(() -> {
+                hkpClient.close();
+                return null;
+            });
+
+            assertEquals(1, restClient.getInitCount());
+            assertEquals(1, restClient.getCloseCount(), "close() should only be called once");
+        }
+    }
+
+    /**
+     * Racing first use against close must never leak an initialized client.
+     */
+    @Test
+    void close_racingWithFirstUse_neverLeaks() throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final CountingRestClient restClient = new CountingRestClient(1);
+            final HkpClient hkpClient = restClient.newHkpClient();
+            final AtomicInteger counter = new AtomicInteger();
+
+            runConcurrently(() -> {
+                try {
+                    if (counter.incrementAndGet() % 2 == 0) {
+                        hkpClient.close();
+                    } else {
+                        hkpClient.getRestClient();
+                    }
+                } catch (final IllegalStateException exception) {
+                    // Expected for callers arriving after close.
+                }
+                return null;
+            });
+
+            assertTrue(restClient.getInitCount() <= 1, "init() called more than once");
+            assertEquals(restClient.getInitCount(), restClient.getCloseCount(), "Initialized client was not closed");
+        }
+    }
+
+    /**
+     * A failed initialization should not poison the client, the next caller retries.
+     */
+    @Test
+    void getRestClient_initFails_retriesOnNextCall() {
+        final CountingRestClient restClient = new CountingRestClient(0);
+        restClient.failuresRemaining.set(1);
+        final HkpClient hkpClient = restClient.newHkpClient();
+
+        assertThrows(RestException.class, hkpClient::getRestClient);
+        assertSame(restClient, hkpClient.getRestClient());
+        assertEquals(2, restClient.getInitCount());
+
+        hkpClient.close();
+        assertEquals(1, restClient.getCloseCount());
+    }
+
+    /**
+     * Closing a client that was never used should not initialize it, and it may not be used afterwards.
+     */
+    @Test
+    void close_neverUsed_doesNotInitialize() {
+        final CountingRestClient restClient = new CountingRestClient(0);
+        final HkpClient hkpClient = restClient.newHkpClient();
+
+        hkpClient.close();
+        assertEquals(0, restClient.getInitCount());
+        assertEquals(0, restClient.getCloseCount());
+        assertThrows(IllegalStateException.class, hkpClient::getRestClient);
+    }
+
+    /**
+     * Run the task from many threads, all released at the same instant.
+     */
+    private <T> List<T> runConcurrently(final Callable<T> task) throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch ready = new CountDownLatch(THREADS);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<T>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return task.call();
+                }));
+            }
+            ready.await();
+            start.countDown();
+
+            final List<T> results = new ArrayList<>();
+            for (final Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * FakeRestClient with a slow, optionally failing, init to widen the race window.
+     */
+    private static class CountingRestClient extends FakeRestClient {
+        private final long initDelayMs;
+        private final AtomicInteger failuresRemaining = new AtomicInteger();
+
+        CountingRestClient(final long initDelayMs) {
+            super(request -> new RestResponse("", 200));
+            this.initDelayMs = initDelayMs;
+        }
+
+        @Override
+        public void init(final Configuration configuration) {
+            super.init(configuration);
+            if (failuresRemaining.getAndDecrement() > 0) {
+                throw new RestException("Simulated init failure");
+            }
+            try {
+                Thread.sleep(initDelayMs);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.rest.HttpClient5RestClient;
+import org.sourcelab.hkp.rest.PipeliningRestClient;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies count() and exists() answer from the start of the response.
+ */
+class HkpClientCountTest {
+
+    /**
+     * Counts and existence checks should match full searches and gets, whichever RestClient is used.
+     */
+    @Test
+    void countAndExists_matchSearchAndGet() throws IOException {
+        for (final RestClient restClient : new RestClient[] { new HttpClient5RestClient(), new PipeliningRestClient() }) {
+            try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(200).build();
+                 final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()), restClient)) {
+                assertEquals(200, hkpClient.count(new SearchRequest("example.com")));
+                assertEquals(1, hkpClient.count(new SearchRequest("user7@example.com").withExactMatch(true)));
+                assertEquals(0, hkpClient.count(new SearchRequest("nobody@example.com").withExactMatch(true)));
+
+                assertTrue(hkpClient.exists(new GetRequest("0x" + server.getKeys().get(7).getKeyId())));
+                assertFalse(hkpClient.exists(new GetRequest("0x0123456789ABCDEF")));
+
+                // Full requests on the same client are unaffected.
+                assertEquals(200, hkpClient.search(new SearchRequest("example.com")).getEntries().size());
+            }
+        }
+    }
+
+    /**
+     * Only the start of a large response should be read, the rest abandoned rather than waited for.
+     */
+    @Test
+    void count_largeSlowResponse_stopsReadingEarly() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder()
+                .withSyntheticKeys(1000)
+                .withSlowDrip(1.0, 1024, Duration.ofMillis(50))
+                .build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()))) {
+            assertEquals(1000, hkpClient.count(new SearchRequest("example.com")));
+            assertEquals(1, server.getConnectionCount());
+
+            // The abandoned connection is discarded, not reused mid-response, so a second request needs a new one.
+            assertEquals(1, hkpClient.count(new SearchRequest("user7@example.com").withExactMatch(true)));
+            assertEquals(2, server.getConnectionCount());
+        }
+    }
+
+    /**
+     * Other error responses should be thrown.
+     */
+    @Test
+    void countAndExists_serverError_throws() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).withErrorRate(1.0).build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()))) {
+            assertEquals(503, assertThrows(InvalidRequestException.class, () -> hkpClient.count(new SearchRequest("example.com"))).getErrorCode());
+            assertThrows(InvalidRequestException.class, () -> hkpClient.exists(new GetRequest("0x0123456789ABCDEF")));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.rest.HttpClient5RestClient;
+import org.sourcelab.hkp.rest.PipeliningRestClient;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies response size, index entry and key size limits are enforced.
+ */
+class HkpClientLimitsTest {
+
+    /**
+     * A response over the size limit should fail, and the connection it was read from should not be reused.
+     */
+    @Test
+    void search_overMaxResponseBytes_failsAndRecovers() throws IOException {
+        for (final RestClient restClient : new RestClient[] { new HttpClient5RestClient(), new PipeliningRestClient() }) {
+            try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(200).build();
+                 final HkpClient hkpClient = new HkpClient(
+                     Configuration.newBuilder().withKeyServerHost(server.getHost()).withMaxResponseBytes(4096), restClient)) {
+                final ResponseTooLargeException exception = assertThrows(
+                    ResponseTooLargeException.class, () -> hkpClient.search(new SearchRequest("example.com")));
+                assertEquals(4096, exception.getLimit());
+
+                // Smaller responses on the same client are unaffected.
+                final StubKey key = server.getKeys().get(7);
+                assertTrue(hkpClient.get(new GetRequest("0x" + key.getKeyId())).isPresent());
+                assertEquals(1, hkpClient.search(new SearchRequest("user7@example.com").withExactMatch(true)).getCount());
+            }
+        }
+    }
+
+    /**
+     * An index listing more entries than allowed should fail, while smaller ones parse.
+     */
+    @Test
+    void search_overMaxIndexEntries_fails() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(20).build();
+             final HkpClient hkpClient = new HkpClient(
+                 Configuration.newBuilder().withKeyServerHost(server.getHost()).withMaxIndexEntries(10))) {
+            final ResponseTooLargeException exception = assertThrows(
+                ResponseTooLargeException.class, () -> hkpClient.search(new SearchRequest("example.com")));
+            assertEquals(10, exception.getLimit());
+            // Limits are enforced by the client, so are not key server errors trySearch() would return.
+            assertThrows(ResponseTooLargeException.class, () -> hkpClient.trySearch(new SearchRequest("example.com")));
+
+            assertEquals(1, hkpClient.search(new SearchRequest("user3@example.com").withExactMatch(true)).getCount());
+        }
+    }
+
+    /**
+     * A key larger than allowed should fail.
+     */
+    @Test
+    void get_overMaxKeyBytes_fails() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).build();
+             final HkpClient hkpClient = new HkpClient(
+                 Configuration.newBuilder().withKeyServerHost(server.getHost()).withMaxKeyBytes(16))) {
+            assertThrows(ResponseTooLargeException.class, () -> hkpClient.get(new GetRequest("0x" + server.getKeys().get(0).getKeyId())));
+        }
+    }
+
+    /**
+     * Limits must be positive.
+     */
+    @Test
+    void builder_rejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withMaxResponseBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withMaxIndexEntries(0));
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withMaxKeyBytes(-1));
+    }
+}
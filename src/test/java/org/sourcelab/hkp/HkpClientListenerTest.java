@@ -0,0 +1,196 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.HkpClientListener;
+import org.sourcelab.hkp.listener.HistogramSnapshot;
+import org.sourcelab.hkp.listener.LatencyHistogramListener;
+import org.sourcelab.hkp.listener.Phase;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies requests are reported to a configured listener.
+ */
+class HkpClientListenerTest {
+
+    /**
+     * A successful request should be reported from start to end, with the phases recorded by the RestClient and
+     * the parse phase recorded by the HkpClient.
+     */
+    @Test
+    void get_withListener_reportsExchange() {
+        final RecordingListener listener = new RecordingListener();
+        try (final HkpClient hkpClient = newClient(listener, new TimingRestClient(false))) {
+            assertTrue(hkpClient.get(new GetRequest("0x1234")).isPresent());
+        }
+
+        assertEquals(1, listener.started.size());
+        assertEquals(1, listener.ended.size());
+        final Exchange exchange = listener.ended.get(0);
+        assertSame(listener.started.get(0), exchange);
+        assertEquals("get", exchange.getOperation());
+        assertEquals("/pks/lookup", exchange.getEndpoint());
+        assertEquals(200, exchange.getStatusCode());
+        assertTrue(exchange.getBytesReceived() > 0);
+        assertEquals(0, exchange.getBytesSent());
+        assertEquals(1000, exchange.getPhaseNanos(Phase.TIME_TO_FIRST_BYTE));
+        assertTrue(exchange.getPhaseNanos(Phase.PARSE) >= 0);
+        assertEquals(-1, exchange.getPhaseNanos(Phase.DNS), "Unobserved phases should not be reported");
+        assertTrue(listener.phases.contains(Phase.TIME_TO_FIRST_BYTE));
+        assertTrue(listener.phases.contains(Phase.PARSE));
+        assertTrue(exchange.getElapsedNanos() >= 0);
+    }
+
+    /**
+     * A failed request should still be reported as ended, along with its error.
+     */
+    @Test
+    void get_requestFails_reportsError() {
+        final RecordingListener listener = new RecordingListener();
+        try (final HkpClient hkpClient = newClient(listener, new TimingRestClient(true))) {
+            assertThrows(RestException.class, () -> hkpClient.get(new GetRequest("0x1234")));
+        }
+
+        assertEquals(1, listener.ended.size());
+        assertTrue(listener.ended.get(0).hasError());
+        assertTrue(listener.ended.get(0).getError() instanceof RestException);
+    }
+
+    /**
+     * The histogram listener should aggregate latencies per operation and endpoint.
+     */
+    @Test
+    void get_withHistogramListener_aggregatesLatencies() {
+        final LatencyHistogramListener listener = new LatencyHistogramListener();
+        try (final HkpClient hkpClient = newClient(listener, new TimingRestClient(false))) {
+            for (int index = 0; index < 10; index++) {
+                hkpClient.get(new GetRequest("0x" + index));
+            }
+        }
+
+        final HistogramSnapshot snapshot = listener.getLatencySnapshot("get", "/pks/lookup");
+        assertNotNull(snapshot);
+        assertEquals(10, snapshot.getCount());
+
+        final Map<Phase, HistogramSnapshot> phases = listener.getPhaseSnapshots("get", "/pks/lookup");
+        assertEquals(10, phases.get(Phase.TIME_TO_FIRST_BYTE).getCount());
+        assertEquals(10, phases.get(Phase.PARSE).getCount());
+
+        listener.reset();
+        assertTrue(listener.getLatencySnapshots().isEmpty());
+    }
+
+    /**
+     * Every registered listener should be notified, in the order registered.
+     */
+    @Test
+    void get_withSeveralListeners_notifiesEach() {
+        final RecordingListener first = new RecordingListener();
+        final RecordingListener second = new RecordingListener();
+        try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+            .withKeyServerHost("http://localhost")
+            .withListener(first)
+            .withListener(second), new TimingRestClient(false))) {
+            hkpClient.get(new GetRequest("0x1234"));
+        }
+
+        assertEquals(1, first.ended.size());
+        assertEquals(1, second.ended.size());
+        assertSame(first.ended.get(0), second.ended.get(0));
+    }
+
+    private HkpClient newClient(final HkpClientListener listener, final RestClient restClient) {
+        return new HkpClient(Configuration.newBuilder()
+            .withKeyServerHost("http://localhost")
+            .withListener(listener), restClient);
+    }
+
+    /**
+     * Records every callback.
+     */
+    private static class RecordingListener implements HkpClientListener {
+        private final List<Exchange> started = new ArrayList<>();
+        private final List<Phase> phases = new ArrayList<>();
+        private final List<Exchange> ended = new ArrayList<>();
+
+        @Override
+        public void onRequestStart(final Exchange exchange) {
+            started.add(exchange);
+        }
+
+        @Override
+        public void onPhase(final Exchange exchange, final Phase phase, final long startNanos, final long endNanos) {
+            phases.add(phase);
+        }
+
+        @Override
+        public void onRequestEnd(final Exchange exchange) {
+            ended.add(exchange);
+        }
+    }
+
+    /**
+     * Answers with an armored key after recording a fixed time to first byte, or fails.
+     */
+    private static class TimingRestClient implements RestClient {
+        private final boolean isFailing;
+
+        TimingRestClient(final boolean isFailing) {
+            this.isFailing = isFailing;
+        }
+
+        @Override
+        public void init(final Configuration configuration) {
+        }
+
+        @Override
+        public RestResponse submitRequest(final Request request) {
+            if (isFailing) {
+                throw new RestException("Connection reset");
+            }
+            return new RestResponse("-----BEGIN PGP PUBLIC KEY BLOCK-----\nkey\n-----END PGP PUBLIC KEY BLOCK-----\n", 200);
+        }
+
+        @Override
+        public RestResponse submitRequest(final Request request, final Exchange exchange) {
+            exchange.recordPhase(Phase.TIME_TO_FIRST_BYTE, 0, 1000);
+            return submitRequest(request);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
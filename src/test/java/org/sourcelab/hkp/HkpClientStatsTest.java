@@ -0,0 +1,118 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.ConnectionPoolStats;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestException;
+import org.sourcelab.hkp.rest.RestResponse;
+import org.sourcelab.hkp.stats.ClientStats;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies request outcomes are counted, and published over JMX when enabled.
+ */
+class HkpClientStatsTest {
+
+    /**
+     * Each request should be counted under its outcome, along with the RestClient's pool statistics.
+     */
+    @Test
+    void getStats_countsRequestsByOutcome() {
+        try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost("http://localhost"), new StatusRestClient())) {
+            hkpClient.get(new GetRequest("0x200"));
+            hkpClient.get(new GetRequest("0x200"));
+            hkpClient.get(new GetRequest("0x404"));
+            assertThrows(InvalidRequestException.class, () -> hkpClient.get(new GetRequest("0x400")));
+            assertThrows(InvalidRequestException.class, () -> hkpClient.get(new GetRequest("0x503")));
+            assertThrows(RestException.class, () -> hkpClient.get(new GetRequest("0x0")));
+
+            final ClientStats stats = hkpClient.getStats();
+            assertEquals(2, stats.getRequestsSucceeded());
+            assertEquals(1, stats.getRequestsNotFound());
+            assertEquals(1, stats.getRequestsClientError());
+            assertEquals(1, stats.getRequestsServerError());
+            assertEquals(1, stats.getRequestsFailed());
+            assertEquals(6, stats.getRequestsCompleted());
+            assertEquals(0, stats.getRequestsInFlight());
+            assertTrue(stats.hasConnectionPoolStats());
+            assertEquals(7, stats.getConnectionPoolStats().getMax());
+        }
+    }
+
+    /**
+     * Statistics should be registered as an MBean when enabled, and unregistered on close.
+     */
+    @Test
+    void withJmx_registersUntilClosed() throws Exception {
+        final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName("org.sourcelab.hkp:type=HkpClient,name=\"stats-test\"");
+
+        final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+            .withKeyServerHost("http://localhost")
+            .withJmx("stats-test"), new StatusRestClient());
+        try {
+            hkpClient.get(new GetRequest("0x200"));
+            assertTrue(mbeanServer.isRegistered(objectName));
+            assertEquals(1L, mbeanServer.getAttribute(objectName, "RequestsSucceeded"));
+            assertEquals(7, mbeanServer.getAttribute(objectName, "PoolMax"));
+        } finally {
+            hkpClient.close();
+        }
+        assertFalse(mbeanServer.isRegistered(objectName));
+    }
+
+    /**
+     * Responds with the status code named by the requested key id, or fails for a key id of 0.
+     */
+    private static class StatusRestClient implements RestClient {
+        @Override
+        public void init(final Configuration configuration) {
+        }
+
+        @Override
+        public RestResponse submitRequest(final Request request) {
+            final int statusCode = Integer.parseInt(request.getRequestParameters().get("search").substring(2));
+            if (statusCode == 0) {
+                throw new RestException("Connection reset");
+            }
+            return new RestResponse("-----BEGIN PGP PUBLIC KEY BLOCK-----\nkey\n-----END PGP PUBLIC KEY BLOCK-----\n", statusCode);
+        }
+
+        @Override
+        public ConnectionPoolStats getConnectionPoolStats() {
+            return new ConnectionPoolStats(0, 7, 0, 7, 7, 0);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.response.Result;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+import org.sourcelab.hkp.response.search.SearchIndexResponse;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies tryGet() and trySearch() report key server errors as results, and that exceptions may be stackless.
+ */
+class HkpClientTryTest {
+
+    /**
+     * Not found should be an empty success, for both gets and searches.
+     */
+    @Test
+    void tryGetAndSearch_notFound_emptySuccess() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(5).build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()))) {
+            final StubKey key = server.getKeys().get(2);
+
+            final Result<Optional<PgpPublicKey>> found = hkpClient.tryGet(new GetRequest("0x" + key.getKeyId()));
+            assertTrue(found.isSuccess());
+            assertTrue(found.get().isPresent());
+
+            final Result<Optional<PgpPublicKey>> missing = hkpClient.tryGet(new GetRequest("0x0123456789ABCDEF"));
+            assertTrue(missing.isSuccess());
+            assertFalse(missing.get().isPresent());
+
+            final Result<SearchIndexResponse> matched = hkpClient.trySearch(new SearchRequest("user2@example.com").withExactMatch(true));
+            assertTrue(matched.isSuccess());
+            assertEquals(1, matched.get().getCount());
+
+            final Result<SearchIndexResponse> unmatched = hkpClient.trySearch(new SearchRequest("nobody@example.com").withExactMatch(true));
+            assertTrue(unmatched.isSuccess());
+            assertEquals(0, unmatched.get().getCount());
+            assertTrue(unmatched.get().getEntries().isEmpty());
+        }
+    }
+
+    /**
+     * Other error responses should be returned as errors, whether or not gets are deduplicated.
+     */
+    @Test
+    void tryGet_serverError_errorResult() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).withErrorRate(1.0).build()) {
+            for (final ConfigurationBuilder builder : new ConfigurationBuilder[] {
+                Configuration.newBuilder().withKeyServerHost(server.getHost()),
+                Configuration.newBuilder().withKeyServerHost(server.getHost()).withGetDeduplication()
+            }) {
+                try (final HkpClient hkpClient = new HkpClient(builder)) {
+                    final Result<Optional<PgpPublicKey>> result = hkpClient.tryGet(new GetRequest("0x0123456789ABCDEF"));
+                    assertTrue(result.isError());
+                    assertEquals(503, result.getError().getCode());
+                    assertEquals(503, hkpClient.trySearch(new SearchRequest("user0@example.com")).getError().getCode());
+                }
+            }
+        }
+    }
+
+    /**
+     * Exceptions for error responses should only capture a stack trace unless configured not to.
+     */
+    @Test
+    void withStacklessExceptions_skipsStackTrace() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).build()) {
+            final SearchRequest request = new SearchRequest("nobody@example.com").withExactMatch(true);
+            try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()))) {
+                final InvalidRequestException exception = assertThrows(InvalidRequestException.class, () -> hkpClient.search(request));
+                assertTrue(exception.getStackTrace().length > 0);
+            }
+            try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+                    .withKeyServerHost(server.getHost())
+                    .withStacklessExceptions(true))) {
+                final InvalidRequestException exception = assertThrows(InvalidRequestException.class, () -> hkpClient.search(request));
+                assertEquals(404, exception.getErrorCode());
+                assertEquals(0, exception.getStackTrace().length);
+            }
+        }
+    }
+}
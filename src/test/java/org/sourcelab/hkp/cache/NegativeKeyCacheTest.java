@@ -0,0 +1,179 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.rest.InterceptingRestClient;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestResponse;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeKeyCacheTest {
+
+    /**
+     * Recorded key ids should always be found, and others wrongly found at about the configured rate.
+     */
+    @Test
+    void falsePositiveRate() {
+        final AtomicLong clock = new AtomicLong();
+        final NegativeKeyCache cache = new NegativeKeyCache(100_000, 0.01, Duration.ofMinutes(40), 4, clock::get);
+        final Random random = new Random(0);
+        final long[] keyIds = new long[100_000];
+        for (int index = 0; index < keyIds.length; index++) {
+            // Spread over the generations, as key ids arrive over the expiry period.
+            clock.set(Duration.ofMinutes(index * 40L / keyIds.length).toNanos());
+            keyIds[index] = random.nextLong();
+            cache.add(keyIds[index]);
+        }
+        for (final long keyId : keyIds) {
+            assertTrue(cache.mightContain(keyId));
+        }
+
+        int falsePositives = 0;
+        for (int index = 0; index < 100_000; index++) {
+            if (cache.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives > 500 && falsePositives < 1_500, "False positives: " + falsePositives);
+        assertEquals(0.01, cache.getEstimatedFalsePositiveRate(), 0.005);
+        assertEquals(0.5, cache.getFillRatio(), 0.05);
+        assertEquals(100_000, cache.getInsertionCount());
+
+        cache.clear();
+        assertFalse(cache.mightContain(keyIds[0]));
+        assertEquals(0.0, cache.getFillRatio());
+
+        assertThrows(IllegalArgumentException.class, () -> new NegativeKeyCache(100, 1.0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new NegativeKeyCache(100, 0.01, Duration.ZERO));
+    }
+
+    /**
+     * A key id should be remembered for between three and four quarters of the expiry period with four generations.
+     */
+    @Test
+    void expiresByGeneration() {
+        final AtomicLong clock = new AtomicLong();
+        final NegativeKeyCache cache = new NegativeKeyCache(1_000, 0.01, Duration.ofMinutes(4), 4, clock::get);
+        cache.add(1L);
+        clock.set(Duration.ofSeconds(30).toNanos());
+        cache.add(2L);
+
+        clock.set(Duration.ofSeconds(3 * 60 + 59).toNanos());
+        assertTrue(cache.mightContain(1L));
+        assertTrue(cache.mightContain(2L));
+
+        clock.set(Duration.ofMinutes(4).toNanos());
+        assertFalse(cache.mightContain(1L));
+        assertFalse(cache.mightContain(2L));
+
+        // Long idle periods clear everything at once.
+        cache.add(3L);
+        clock.set(Duration.ofDays(365).toNanos());
+        assertFalse(cache.mightContain(3L));
+        cache.add(4L);
+        assertTrue(cache.mightContain(4L));
+    }
+
+    /**
+     * A burst of more key ids than expected should rotate generations early rather than overfill one.
+     */
+    @Test
+    void rotatesEarlyWhenFull() {
+        final NegativeKeyCache cache = new NegativeKeyCache(40_000, 0.01, Duration.ofHours(1), 4, () -> 0L);
+        final Random random = new Random(0);
+        for (int index = 0; index < 200_000; index++) {
+            cache.add(random.nextLong());
+        }
+        assertTrue(cache.getEstimatedFalsePositiveRate() < 0.02, cache.toString());
+    }
+
+    /**
+     * Repeat gets for a missing key should be answered locally, and keys the server has always sent.
+     */
+    @Test
+    void interceptor_answersRepeatMisses() throws IOException {
+        final NegativeKeyCache cache = new NegativeKeyCache(1_000, 0.001, Duration.ofMinutes(10));
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+                 .withKeyServerHost(server.getHost())
+                 .withInterceptor(new NegativeCacheInterceptor(cache)))) {
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+            assertFalse(hkpClient.get(new GetRequest("0123456789abcdef")).isPresent());
+            assertFalse(hkpClient.exists(new GetRequest("0x0123456789ABCDEF")));
+            assertEquals(1, server.getRequestCount());
+            assertEquals(2, cache.getHitCount());
+
+            final String keyId = "0x" + server.getKeys().get(0).getKeyId();
+            assertTrue(hkpClient.get(new GetRequest(keyId)).isPresent());
+            assertTrue(hkpClient.get(new GetRequest(keyId)).isPresent());
+            assertEquals(3, server.getRequestCount());
+
+            // A missing fingerprint sharing a key's key id should not make the key appear missing.
+            final String fingerprint = server.getKeys().get(0).getFingerprint();
+            final String collision = (fingerprint.charAt(0) == 'F' ? "E" : "F") + fingerprint.substring(1);
+            assertFalse(hkpClient.get(new GetRequest(collision)).isPresent());
+            assertFalse(hkpClient.get(new GetRequest(collision)).isPresent());
+            assertEquals(4, server.getRequestCount());
+            assertTrue(hkpClient.get(new GetRequest(fingerprint)).isPresent());
+            assertEquals(5, server.getRequestCount());
+        }
+    }
+
+    /**
+     * A RestClient returning null, as HttpClient5RestClient does on an I/O error, should pass through without being recorded as missing.
+     */
+    @Test
+    void interceptor_nullResponse_passedThrough() {
+        final NegativeKeyCache cache = new NegativeKeyCache(1_000, 0.001, Duration.ofMinutes(10));
+        final InterceptingRestClient client = new InterceptingRestClient(new RestClient() {
+            @Override
+            public void init(final Configuration configuration) {
+            }
+
+            @Override
+            public RestResponse submitRequest(final Request request) {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, Collections.singletonList(new NegativeCacheInterceptor(cache)));
+
+        assertNull(client.submitRequest(new GetRequest("0x0123456789ABCDEF")));
+        assertNull(client.submitRequestAsync(new GetRequest("0x0123456789ABCDEF")).join());
+        assertFalse(cache.mightContain(0x0123456789ABCDEFL));
+    }
+}
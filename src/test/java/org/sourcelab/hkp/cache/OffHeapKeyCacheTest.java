@@ -0,0 +1,326 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.index.Hex;
+import org.sourcelab.hkp.listener.CacheOutcome;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.listener.HkpClientListener;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+import org.sourcelab.hkp.rest.InterceptingRestClient;
+import org.sourcelab.hkp.rest.RestClient;
+import org.sourcelab.hkp.rest.RestResponse;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapKeyCacheTest {
+    private static final int SLAB_BYTES = 64 * 1024;
+
+    /**
+     * Keys should read back as written, by copy or straight into a channel, and be replaced and removed.
+     */
+    @Test
+    void putGetTransferRemove() throws IOException {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(4 * SLAB_BYTES, SLAB_BYTES);
+        final byte[] key = key(1, 3000);
+        assertTrue(cache.put(1L, key));
+        assertTrue(cache.put(2L, key(2, 10)));
+        assertArrayEquals(key, cache.get(1L));
+        assertNull(cache.get(3L));
+        assertEquals(2, cache.size());
+        assertEquals(3010, cache.getUsedBytes());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(3000, cache.transferTo(1L, Channels.newChannel(output)));
+        assertArrayEquals(key, output.toByteArray());
+        assertEquals(-1, cache.transferTo(3L, Channels.newChannel(output)));
+
+        // Replaced with a key of another size class.
+        assertTrue(cache.put(1L, key(3, 100)));
+        assertArrayEquals(key(3, 100), cache.get(1L));
+        assertEquals(110, cache.getUsedBytes());
+
+        assertTrue(cache.remove(2L));
+        assertFalse(cache.remove(2L));
+        assertFalse(cache.contains(2L));
+
+        // Larger than a slab.
+        assertFalse(cache.put(4L, new byte[SLAB_BYTES + 1]));
+        assertFalse(cache.contains(4L));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1L));
+        assertEquals(SLAB_BYTES * 2, cache.getAllocatedBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapKeyCache(SLAB_BYTES - 1, SLAB_BYTES));
+    }
+
+    /**
+     * Once memory runs out, keys read since the last sweep should survive eviction, and never exceed the budget.
+     */
+    @Test
+    void evictsUnreadKeysFirst() {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(SLAB_BYTES, SLAB_BYTES);
+        // 500 byte keys round up to the smallest, 512 byte, chunks, 128 to a slab.
+        for (long keyId = 0; keyId < 128; keyId++) {
+            assertTrue(cache.put(keyId, key((int) keyId, 500)));
+        }
+        assertEquals(128, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+
+        for (long keyId = 0; keyId < 128; keyId += 2) {
+            assertTrue(cache.get(keyId) != null);
+        }
+        for (long keyId = 128; keyId < 192; keyId++) {
+            assertTrue(cache.put(keyId, key((int) keyId, 500)));
+        }
+        assertEquals(128, cache.size());
+        assertEquals(64, cache.getEvictionCount());
+        assertEquals(SLAB_BYTES, cache.getAllocatedBytes());
+        for (long keyId = 0; keyId < 128; keyId++) {
+            assertEquals(keyId % 2 == 0, cache.contains(keyId));
+        }
+        for (long keyId = 128; keyId < 192; keyId++) {
+            assertArrayEquals(key((int) keyId, 500), cache.get(keyId));
+        }
+    }
+
+    /**
+     * A key of a size with no slab, once memory runs out, should take a slab from another size.
+     */
+    @Test
+    void movesSlabBetweenSizes() {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(SLAB_BYTES, SLAB_BYTES);
+        for (long keyId = 0; keyId < 10; keyId++) {
+            assertTrue(cache.put(keyId, key((int) keyId, 500)));
+        }
+        assertTrue(cache.put(100L, key(100, 20_000)));
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.getEvictionCount());
+        assertArrayEquals(key(100, 20_000), cache.get(100L));
+
+        assertTrue(cache.put(1L, key(1, 500)));
+        assertFalse(cache.contains(100L));
+        assertArrayEquals(key(1, 500), cache.get(1L));
+    }
+
+    /**
+     * A key cached by fingerprint should be found by that fingerprint or its key id, but never by another fingerprint
+     * with the same key id, nor should a key cached by key id alone be found by fingerprint.
+     */
+    @Test
+    void fingerprintMustMatch() throws IOException {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(4 * SLAB_BYTES, SLAB_BYTES);
+        final String fingerprint = "0123456789ABCDEF01234567" + "89ABCDEF00112233";
+        final String collision = "FFFFFFFFFFFFFFFF01234567" + "89ABCDEF00112233";
+        final long keyId = Hex.parseKeyId(fingerprint);
+        final byte[] key = key(1, 3000);
+
+        assertTrue(cache.put(keyId, key));
+        assertNull(cache.get(fingerprint));
+
+        assertTrue(cache.put("0x" + fingerprint, key));
+        assertArrayEquals(key, cache.get(fingerprint));
+        assertArrayEquals(key, cache.get(fingerprint.toLowerCase()));
+        assertArrayEquals(key, cache.get(keyId));
+        assertNull(cache.get(collision));
+        assertNull(cache.get("0123456789ABCDEF01234566" + "89ABCDEF00112233"));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(3000, cache.transferTo(fingerprint, Channels.newChannel(output)));
+        assertArrayEquals(key, output.toByteArray());
+        assertEquals(-1, cache.transferTo(collision, Channels.newChannel(output)));
+
+        // Replaced by the colliding fingerprint, which alone now matches.
+        assertTrue(cache.put(collision, key(2, 100)));
+        assertEquals(1, cache.size());
+        assertNull(cache.get(fingerprint));
+        assertArrayEquals(key(2, 100), cache.get(collision));
+
+        assertThrows(NumberFormatException.class, () -> cache.get("0x89ABCDEF00112233"));
+        assertThrows(NumberFormatException.class, () -> cache.get("0123456789ABCDEF01234567" + "89ABCDEF0011223G"));
+    }
+
+    /**
+     * Writing to a channel should not hold the lock, so a blocked channel does not hold up writers.
+     */
+    @Test
+    void transferTo_doesNotBlockWriters() throws Exception {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(4 * SLAB_BYTES, SLAB_BYTES);
+        assertTrue(cache.put(1L, key(1, 3000)));
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final WritableByteChannel blockingChannel = new WritableByteChannel() {
+            @Override
+            public int write(final ByteBuffer source) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException exception) {
+                    throw new IOException(exception);
+                }
+                final int length = source.remaining();
+                final byte[] bytes = new byte[length];
+                source.get(bytes);
+                output.write(bytes);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> transfer = executor.submit(() -> cache.transferTo(1L, blockingChannel));
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+            // Evicts and overwrites the chunk being written, which must not change what is written.
+            assertTrue(cache.put(1L, key(2, 3000)));
+            assertTrue(cache.remove(1L));
+            release.countDown();
+            assertEquals(Integer.valueOf(3000), transfer.get(10, TimeUnit.SECONDS));
+            assertArrayEquals(key(1, 3000), output.toByteArray());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets by key id or fingerprint should be answered from the cache once fetched, other requests always sent, and
+     * the outcome recorded on the exchange.
+     */
+    @Test
+    void interceptor_answersRepeatGets() throws IOException {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(1024 * 1024);
+        final List<CacheOutcome> outcomes = new CopyOnWriteArrayList<>();
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(3).build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+                 .withKeyServerHost(server.getHost())
+                 .withListener(new HkpClientListener() {
+                     @Override
+                     public void onRequestEnd(final Exchange exchange) {
+                         outcomes.add(exchange.getCacheOutcome());
+                     }
+                 })
+                 .withInterceptor(new KeyCacheInterceptor(cache)))) {
+            final StubKey key = server.getKeys().get(1);
+            final Optional<PgpPublicKey> fetched = hkpClient.get(new GetRequest("0x" + key.getKeyId()));
+            assertTrue(fetched.isPresent());
+            assertEquals(1, server.getRequestCount());
+            assertTrue(cache.contains(Hex.parseKeyId(key.getKeyId())));
+            assertEquals(fetched.get().getPublicKey(), hkpClient.get(new GetRequest(key.getKeyId().toLowerCase())).get().getPublicKey());
+            assertEquals(1, server.getRequestCount());
+
+            // Cached by key id alone, so fetched again by fingerprint, then answered by it.
+            assertEquals(fetched.get().getPublicKey(), hkpClient.get(new GetRequest(key.getFingerprint())).get().getPublicKey());
+            assertEquals(2, server.getRequestCount());
+            assertEquals(fetched.get().getPublicKey(), hkpClient.get(new GetRequest(key.getFingerprint())).get().getPublicKey());
+            assertEquals(2, server.getRequestCount());
+
+            // Another fingerprint sharing the key id is never answered from the cache.
+            final String collision = (key.getFingerprint().charAt(0) == 'F' ? "E" : "F") + key.getFingerprint().substring(1);
+            hkpClient.get(new GetRequest(collision));
+            assertEquals(3, server.getRequestCount());
+
+            // Not found, and short key ids, are not cached.
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+            assertEquals(5, server.getRequestCount());
+            assertEquals(1, cache.size());
+
+            assertEquals(Arrays.asList(
+                CacheOutcome.MISS, CacheOutcome.HIT, CacheOutcome.MISS, CacheOutcome.HIT,
+                CacheOutcome.MISS, CacheOutcome.MISS, CacheOutcome.MISS
+            ), outcomes);
+        }
+    }
+
+    /**
+     * A RestClient returning null, as HttpClient5RestClient does on an I/O error, should pass through without being cached.
+     */
+    @Test
+    void interceptor_nullResponse_passedThrough() {
+        final OffHeapKeyCache cache = new OffHeapKeyCache(1024 * 1024);
+        final InterceptingRestClient client = new InterceptingRestClient(new RestClient() {
+            @Override
+            public void init(final Configuration configuration) {
+            }
+
+            @Override
+            public RestResponse submitRequest(final Request request) {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, Collections.singletonList(new KeyCacheInterceptor(cache)));
+
+        assertNull(client.submitRequest(new GetRequest("0x0123456789ABCDEF")));
+        assertNull(client.submitRequestAsync(new GetRequest("0x0123456789ABCDEF0123456789ABCDEF01234567")).join());
+        assertEquals(0, cache.size());
+    }
+
+    private static byte[] key(final int seed, final int length) {
+        final byte[] key = new byte[length];
+        Arrays.fill(key, (byte) seed);
+        key[0] = (byte) (seed >> 8);
+        return key;
+    }
+}
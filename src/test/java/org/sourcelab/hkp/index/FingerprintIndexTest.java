@@ -0,0 +1,111 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.response.search.PubLine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintIndexTest {
+    private static final String FINGERPRINT = "C1F9A3E8B4D2706F5A9E1C3B7D8F0A2E4B6C8D0F";
+    private static final String OTHER = "0123456789ABCDEF0123456789ABCDEF01234567";
+
+    /**
+     * Key ids should parse from long key ids and v4 fingerprints, in either case, with or without a prefix.
+     */
+    @Test
+    void hex_parseKeyId() {
+        assertEquals(0x7D8F0A2E4B6C8D0FL, Hex.parseKeyId(FINGERPRINT));
+        assertEquals(0x7D8F0A2E4B6C8D0FL, Hex.parseKeyId("0x" + FINGERPRINT.toLowerCase()));
+        assertEquals(0x7D8F0A2E4B6C8D0FL, Hex.parseKeyId("0X7D8F0A2E4B6C8D0F"));
+        assertEquals(-1L, Hex.parseKeyId("FFFFFFFFFFFFFFFF"));
+        assertEquals("7D8F0A2E4B6C8D0F", Hex.toKeyId(0x7D8F0A2E4B6C8D0FL));
+        assertEquals("0000000000000001", Hex.toKeyId(1L));
+
+        assertThrows(NumberFormatException.class, () -> Hex.parseKeyId("4B6C8D0F"));
+        assertThrows(NumberFormatException.class, () -> Hex.parseKeyId("7D8F0A2E4B6C8D0G"));
+        assertThrows(NumberFormatException.class, () -> Hex.parseKeyId("0x"));
+        assertThrows(NumberFormatException.class, () -> Hex.parseLong("12345678901234567", 0, 17));
+    }
+
+    /**
+     * Fingerprints should be found however they are written, and by their key id alone.
+     */
+    @Test
+    void putGetRemove() {
+        final FingerprintIndex<String> index = new FingerprintIndex<>();
+        assertNull(index.put(FINGERPRINT, "first"));
+        assertNull(index.put(OTHER, "other"));
+        assertEquals("first", index.put("0x" + FINGERPRINT.toLowerCase(), "FIRST"));
+        assertEquals(2, index.size());
+
+        assertEquals("FIRST", index.get(FINGERPRINT));
+        assertEquals("other", index.get("0x" + OTHER));
+        assertEquals("FIRST", index.getByKeyId(Hex.parseKeyId(FINGERPRINT)));
+        assertEquals("other", index.getByKeyId(0x89ABCDEF01234567L));
+        assertNull(index.getByKeyId(0x0123456789ABCDEFL));
+
+        // Same key id, different fingerprint.
+        assertFalse(index.containsKey("0000000000000000" + FINGERPRINT.substring(16)));
+
+        assertEquals("other", index.remove(OTHER));
+        assertNull(index.remove(OTHER));
+        assertNull(index.getByKeyId(0x89ABCDEF01234567L));
+        assertEquals(1, index.size());
+
+        assertThrows(NumberFormatException.class, () -> index.get("7D8F0A2E4B6C8D0F"));
+    }
+
+    /**
+     * Many fingerprints should all remain findable as the index grows and entries are removed.
+     */
+    @Test
+    void growAndRemove() {
+        final FingerprintIndex<Integer> index = new FingerprintIndex<>();
+        for (int value = 0; value < 10_000; value++) {
+            index.put(fingerprint(value), value);
+        }
+        for (int value = 0; value < 10_000; value += 2) {
+            assertEquals(Integer.valueOf(value), index.remove(fingerprint(value)));
+        }
+        assertEquals(5_000, index.size());
+        for (int value = 0; value < 10_000; value++) {
+            assertEquals(value % 2 == 0 ? null : Integer.valueOf(value), index.get(fingerprint(value)));
+        }
+    }
+
+    /**
+     * A search index line's key id should parse in place.
+     */
+    @Test
+    void pubLine_getKeyIdAsLong() {
+        final String line = "pub:" + FINGERPRINT + ":1:4096:1515212983::";
+        final PubLine pubLine = new PubLine();
+        assertTrue(pubLine.reset(line, 0, line.length()));
+        assertEquals(Hex.parseKeyId(FINGERPRINT), pubLine.getKeyIdAsLong());
+    }
+
+    private static String fingerprint(final int value) {
+        return String.format("%08X%016X%016X", value, (long) value * 31, (long) value * 0x9E3779B97F4A7C15L);
+    }
+}
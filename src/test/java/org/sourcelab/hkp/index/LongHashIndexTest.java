@@ -0,0 +1,128 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashIndexTest {
+
+    /**
+     * Basic put, get and remove, including keys at the extremes of the range.
+     */
+    @Test
+    void putGetRemove() {
+        final LongHashIndex<String> index = new LongHashIndex<>();
+        assertTrue(index.isEmpty());
+        assertNull(index.put(0L, "zero"));
+        assertNull(index.put(-1L, "minus one"));
+        assertNull(index.put(Long.MIN_VALUE, "min"));
+        assertEquals("zero", index.put(0L, "ZERO"));
+        assertEquals("min", index.putIfAbsent(Long.MIN_VALUE, "other"));
+        assertEquals(3, index.size());
+
+        assertEquals("ZERO", index.get(0L));
+        assertEquals("minus one", index.get(-1L));
+        assertEquals("min", index.get(Long.MIN_VALUE));
+        assertNull(index.get(1L));
+        assertFalse(index.containsKey(Long.MAX_VALUE));
+
+        assertEquals("minus one", index.remove(-1L));
+        assertNull(index.remove(-1L));
+        assertFalse(index.containsKey(-1L));
+        assertEquals(2, index.size());
+
+        index.clear();
+        assertTrue(index.isEmpty());
+        assertNull(index.get(0L));
+        assertThrows(NullPointerException.class, () -> index.put(1L, null));
+    }
+
+    /**
+     * Random puts and removes, with keys that differ only in their high or low bits, should always agree with a
+     * HashMap, across growth and the backward shifting done on removal.
+     */
+    @Test
+    void matchesHashMap() {
+        final Random random = new Random(0);
+        final LongHashIndex<Long> index = new LongHashIndex<>();
+        final Map<Long, Long> expected = new HashMap<>();
+        for (int operation = 0; operation < 200_000; operation++) {
+            final long key;
+            switch (random.nextInt(3)) {
+                case 0:
+                    key = random.nextInt(5_000);
+                    break;
+                case 1:
+                    key = ((long) random.nextInt(5_000)) << 48;
+                    break;
+                default:
+                    key = random.nextLong();
+                    break;
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), index.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) operation), index.put(key, (long) operation));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+
+        final Map<Long, Long> actual = new HashMap<>();
+        index.forEach((key, value) -> actual.put(key, value));
+        assertEquals(expected, actual);
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), index.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * The primitive valued variant should agree with a HashMap, treating its missing value as absent.
+     */
+    @Test
+    void longLongHashIndex_matchesHashMap() {
+        final Random random = new Random(1);
+        final LongLongHashIndex index = new LongLongHashIndex(0, -1L);
+        final Map<Long, Long> expected = new HashMap<>();
+        for (int operation = 0; operation < 100_000; operation++) {
+            final long key = random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, -1L).longValue(), index.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, -1L).longValue(), index.put(key, operation));
+                expected.put(key, (long) operation);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (final Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), index.get(entry.getKey()));
+        }
+        assertEquals(-1L, index.get(Long.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> index.put(1L, -1L));
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.rest.RestException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies access log records are compact and complete.
+ */
+class AccessLogListenerTest {
+
+    /**
+     * A successful request should be described on a single line, without its body.
+     */
+    @Test
+    void format_successfulRequest_describesExchange() {
+        final Exchange exchange = new Exchange(new HkpClientListener() { }, "get", "/pks/lookup");
+        exchange.recordPhase(Phase.TIME_TO_FIRST_BYTE, 0, 2_000_000);
+        exchange.recordResponse(200, 0, 3921);
+        exchange.end();
+
+        final String record = AccessLogListener.format(exchange);
+        assertTrue(record.startsWith("op=get endpoint=/pks/lookup status=200 ms="), record);
+        assertTrue(record.contains(" ttfbMs=2.000 "), record);
+        assertTrue(record.endsWith(" sent=0 received=3921"), record);
+        assertFalse(record.contains("\n"), record);
+    }
+
+    /**
+     * A failed request should include its error, and omit phases which were not observed.
+     */
+    @Test
+    void format_failedRequest_includesError() {
+        final Exchange exchange = new Exchange(new HkpClientListener() { }, "index", "/pks/lookup");
+        exchange.recordError(new RestException("Connection reset"));
+        exchange.end();
+
+        final String record = AccessLogListener.format(exchange);
+        assertTrue(record.contains(" status=0 "), record);
+        assertFalse(record.contains("ttfbMs"), record);
+        assertTrue(record.endsWith(" error=RestException message=\"Connection reset\""), record);
+    }
+
+    /**
+     * Sample rates outside of (0, 1] are rejected.
+     */
+    @Test
+    void constructor_invalidSampleRate_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogListener(0));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogListener(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogListener(0.5, 0));
+    }
+
+    /**
+     * Requests may still complete after the log is closed, and closing more than once is harmless.
+     */
+    @Test
+    void close_thenRequestEnds_isIgnored() {
+        final AccessLogListener listener = new AccessLogListener();
+        final Exchange exchange = new Exchange(listener, "get", "/pks/lookup");
+        listener.close();
+        listener.close();
+        exchange.end();
+        assertEquals("get", exchange.getOperation());
+    }
+
+    /**
+     * Closing while the first request ends should never leave the writer thread running.
+     */
+    @Test
+    void close_racingFirstRequestEnd_stopsWriter() throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            final AccessLogListener listener = new AccessLogListener();
+            final Exchange exchange = new Exchange(new HkpClientListener() { }, "get", "/pks/lookup");
+            exchange.end();
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final Thread requestEnd = new Thread(() -> {
+                awaitQuietly(start);
+                listener.onRequestEnd(exchange);
+            });
+            final Thread close = new Thread(() -> {
+                awaitQuietly(start);
+                listener.close();
+            });
+            requestEnd.start();
+            close.start();
+            start.countDown();
+            requestEnd.join();
+            close.join();
+        }
+
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("hkp-client-access-log")) {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+                assertFalse(thread.isAlive(), "Writer thread left running after close()");
+            }
+        }
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
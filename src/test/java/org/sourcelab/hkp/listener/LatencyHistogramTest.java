@@ -0,0 +1,83 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.listener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies latencies are bucketed and reported within the histogram's precision.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Percentiles should fall within the bucket holding the true value, which is at most 1/16th wide.
+     */
+    @Test
+    void snapshot_uniformLatencies_reportsPercentilesWithinPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getMedianNanos());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), snapshot.get99thPercentileNanos());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), (long) snapshot.getMeanNanos());
+    }
+
+    /**
+     * An empty histogram reports zeros rather than failing.
+     */
+    @Test
+    void snapshot_empty_reportsZero() {
+        final HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMedianNanos());
+        assertEquals(0, snapshot.getMaxNanos());
+    }
+
+    /**
+     * Every value should land in a bucket whose upper bound covers it, and buckets should only ever grow.
+     */
+    @Test
+    void bucketIndex_values_fallWithinTheirBucket() {
+        long previousBound = -1;
+        for (int index = 0; index < 200; index++) {
+            final long bound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(bound > previousBound, "Bucket bounds should increase");
+            previousBound = bound;
+        }
+        for (long value = 0; value < 100_000; value += 7) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index), "Value " + value + " above its bucket");
+            assertTrue(index == 0 || value > LatencyHistogram.bucketUpperBound(index - 1), "Value " + value + " below its bucket");
+        }
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        final long tolerance = expected / 16 + 1;
+        assertTrue(Math.abs(expected - actual) <= tolerance, "Expected " + expected + " but was " + actual);
+    }
+}
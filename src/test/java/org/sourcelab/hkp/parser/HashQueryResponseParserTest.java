@@ -0,0 +1,75 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.parser;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashQueryResponseParserTest extends AbstractParserTest {
+    private static final byte[] KEY_ONE = new byte[] { (byte) 0x99, 0x00, 0x01, 0x04 };
+    private static final byte[] KEY_TWO = new byte[0];
+
+    @Test
+    @Override
+    public void testParseResponse() throws Exception {
+        final byte[] response = hashQueryResponse(KEY_ONE, KEY_TWO);
+
+        final List<PgpPublicKey> keys = new HashQueryResponseParser().parseResponse(response);
+
+        // Validate each key was split out and armored, including the CRC-24 checksum.
+        assertEquals(2, keys.size());
+        assertEquals(
+            "-----BEGIN PGP PUBLIC KEY BLOCK-----\n\nmQABBA==\n=A8zz\n-----END PGP PUBLIC KEY BLOCK-----\n",
+            keys.get(0).getPublicKey()
+        );
+        assertTrue(keys.get(1).getPublicKey().contains("\n=twTO\n"));
+    }
+
+    /**
+     * A response cut short part way through a key should fail rather than return the keys read so far.
+     */
+    @Test
+    void parseResponse_truncated_fails() throws Exception {
+        final byte[] response = hashQueryResponse(KEY_ONE, KEY_ONE);
+        final byte[] truncated = new byte[response.length - 4];
+        System.arraycopy(response, 0, truncated, 0, truncated.length);
+
+        assertThrows(IOException.class, () -> new HashQueryResponseParser().parseResponse(truncated));
+    }
+
+    private static byte[] hashQueryResponse(final byte[]... keys) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(buffer);
+        output.writeInt(keys.length);
+        for (final byte[] key : keys) {
+            output.writeInt(key.length);
+            output.write(key);
+        }
+        output.write(new byte[] { '\r', '\n' });
+        return buffer.toByteArray();
+    }
+}
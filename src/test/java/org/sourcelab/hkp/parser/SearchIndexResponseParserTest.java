@@ -19,10 +19,16 @@
 package org.sourcelab.hkp.parser;
 
 import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.request.SearchFilters;
+import org.sourcelab.hkp.response.search.PubLine;
 import org.sourcelab.hkp.response.search.SearchIndexResponse;
 
+import java.io.IOException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SearchIndexResponseParserTest extends AbstractParserTest {
 
@@ -42,4 +48,55 @@ class SearchIndexResponseParserTest extends AbstractParserTest {
         // Validate entries
         assertEquals(3, result.getEntries().size());
     }
-}
\ No newline at end of file
+
+    /**
+     * Filtered out entries should be dropped, while the count is still the key server's.
+     */
+    @Test
+    void testParseResponse_filter() throws Exception {
+        final SearchIndexResponse result = new SearchIndexResponseParser(0, (line) -> line.getExpirationTime() < 0, 0, null)
+            .parseResponse(readFile("searchIndex.txt"));
+
+        assertEquals(3, result.getCount());
+        assertEquals(1, result.getEntries().size());
+        assertEquals("BD07DDB80A5FB180185FE1436E9BE863114AC1F2", result.getEntries().get(0).getPub().getKeyId());
+        assertNull(result.getEntries().get(0).getPub().getExpirationDate());
+        assertEquals("Stevie <sxxxx.pxxxxx@gmail.com>", result.getEntries().get(0).getUid().getUid());
+    }
+
+    /**
+     * Top K should keep the highest ranked entries, highest first, and equal ranks in the key server's order.
+     */
+    @Test
+    void testParseResponse_topK() throws Exception {
+        final SearchIndexResponse newest = new SearchIndexResponseParser(0, null, 2, PubLine::getCreationTime)
+            .parseResponse(readFile("searchIndex.txt"));
+        assertEquals(2, newest.getEntries().size());
+        assertEquals("92E73960FC59970DFB12F0146D712A2D27F74CE9", newest.getEntries().get(0).getPub().getKeyId());
+        assertEquals("AADC291B6541ADCA3F702527FD50A4D1D8D54DA6", newest.getEntries().get(1).getPub().getKeyId());
+
+        final SearchIndexResponse oldest = new SearchIndexResponseParser(0, SearchFilters.rsa(4096), 1, (line) -> -line.getCreationTime())
+            .parseResponse(readFile("searchIndex.txt"));
+        assertEquals(1, oldest.getEntries().size());
+        assertEquals("BD07DDB80A5FB180185FE1436E9BE863114AC1F2", oldest.getEntries().get(0).getPub().getKeyId());
+
+        final SearchIndexResponse tied = new SearchIndexResponseParser(0, null, 2, PubLine::getKeyLen)
+            .parseResponse(readFile("searchIndex.txt"));
+        assertEquals("92E73960FC59970DFB12F0146D712A2D27F74CE9", tied.getEntries().get(0).getPub().getKeyId());
+        assertEquals("AADC291B6541ADCA3F702527FD50A4D1D8D54DA6", tied.getEntries().get(1).getPub().getKeyId());
+    }
+
+    /**
+     * Lines ending in carriage returns should parse as if they did not, and malformed lines should fail.
+     */
+    @Test
+    void testParseResponse_lineEndings() throws Exception {
+        final SearchIndexResponse result = new SearchIndexResponseParser()
+            .parseResponse(readFile("searchIndex.txt").replace("\n", "\r\n"));
+        assertEquals(3, result.getEntries().size());
+        assertEquals("", result.getEntries().get(2).getPub().getFlags());
+
+        assertThrows(IOException.class, () -> new SearchIndexResponseParser().parseResponse("info:1:1\npub:ABCD:1:4096\nuid:Name:::\n"));
+        assertThrows(IOException.class, () -> new SearchIndexResponseParser().parseResponse("info:1:1\npub:ABCD:1:4096:1515212983::\n"));
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies GetRequest key id normalization and value semantics.
+ */
+class GetRequestTest {
+
+    /**
+     * Every form of the same key id should produce the same request.
+     */
+    @Test
+    void keyId_normalized() {
+        final GetRequest expected = new GetRequest("0x92E73960FC59970DFB12F0146D712A2D27F74CE9");
+        assertEquals("0x92E73960FC59970DFB12F0146D712A2D27F74CE9", expected.getKeyId());
+
+        final GetRequest[] equivalents = {
+            new GetRequest("92e73960fc59970dfb12f0146d712a2d27f74ce9"),
+            new GetRequest("0X92e73960FC59970DFB12F0146D712A2D27F74CE9"),
+            new GetRequest(" 92E7 3960 FC59 970D FB12  F014 6D71 2A2D 27F7 4CE9 "),
+        };
+        for (final GetRequest equivalent : equivalents) {
+            assertEquals(expected, equivalent);
+            assertEquals(expected.hashCode(), equivalent.hashCode());
+            assertEquals(expected.getQueryString(), equivalent.getQueryString());
+        }
+
+        assertEquals("0x27F74CE9", new GetRequest("27f74ce9").getKeyId());
+        assertEquals("0x6D712A2D27F74CE9", new GetRequest("0x6d712a2d27f74ce9").getKeyId());
+    }
+
+    /**
+     * Values that are not key ids should only be trimmed.
+     */
+    @Test
+    void keyId_notHex_leftUnchanged() {
+        assertEquals("user@example.com", new GetRequest(" user@example.com ").getKeyId());
+        assertEquals("0xZEROC00l", new GetRequest("0xZEROC00l").getKeyId());
+        assertEquals("0x1234", new GetRequest("0x1234").getKeyId());
+        assertThrows(NullPointerException.class, () -> new GetRequest(null));
+    }
+
+    /**
+     * The query string should be sorted by parameter name, encoded once, and never change.
+     */
+    @Test
+    void getQueryString_canonical() {
+        final GetRequest request = new GetRequest("0x27F74CE9");
+        assertEquals("op=get&options=mr&search=0x27F74CE9", request.getQueryString());
+        assertEquals(request.getQueryString(), request.getQueryString());
+        assertEquals("GetRequest{op=get&options=mr&search=0x27F74CE9}", request.toString());
+    }
+
+    /**
+     * Changing the key id should return a new request, leaving the original unchanged.
+     */
+    @Test
+    void withKeyId_returnsNewInstance() {
+        final GetRequest original = new GetRequest("0x27F74CE9");
+        final GetRequest changed = original.withKeyId("0x6D712A2D");
+
+        assertEquals("0x27F74CE9", original.getKeyId());
+        assertEquals("0x6D712A2D", changed.getKeyId());
+        assertNotEquals(original, changed);
+        assertNotEquals(original, new HashGetRequest("27F74CE9"));
+        assertThrows(UnsupportedOperationException.class, () -> original.getRequestParameters().put("op", "index"));
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.request;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.response.search.PubLine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies SearchRequest parameters.
+ */
+class SearchRequestTest {
+
+    /**
+     * Exact matching should toggle the exact parameter.
+     */
+    @Test
+    void withExactMatch() {
+        final SearchRequest request = new SearchRequest("user@example.com");
+        assertEquals("op=index&options=mr&search=user%40example.com", request.getQueryString());
+
+        final SearchRequest exact = request.withExactMatch();
+        assertEquals("exact=on&op=index&options=mr&search=user%40example.com", exact.getQueryString());
+        assertEquals(exact, request.withExactMatch(true));
+        assertEquals(request, exact.withOutExactMatch());
+    }
+
+    /**
+     * Only search terms prefixed with "0x" are key ids, anything else is a text search.
+     */
+    @Test
+    void withSearch_normalizesKeyIdsOnly() {
+        assertEquals("0x27F74CE9", new SearchRequest("0x27f74ce9").getRequestParameters().get("search"));
+        assertEquals("deadbeef", new SearchRequest("deadbeef").getRequestParameters().get("search"));
+        assertEquals(new SearchRequest("0x27F74CE9"), new SearchRequest("deadbeef").withSearch("0X27f74cE9"));
+    }
+
+    /**
+     * Filters and top K are kept as other parameters change, combined when added more than once, and not sent.
+     */
+    @Test
+    void withFilterAndTopK() {
+        final SearchRequest request = new SearchRequest("user@example.com");
+        assertNull(request.getFilter());
+        assertEquals(0, request.getTopK());
+
+        final SearchRequest filtered = request
+            .withFilter(SearchFilters.notRevoked())
+            .withFilter(SearchFilters.rsa(3072))
+            .withNewest(5)
+            .withExactMatch();
+        assertEquals(request.withExactMatch(), filtered);
+        assertEquals(request.withExactMatch().getQueryString(), filtered.getQueryString());
+        assertEquals(5, filtered.getTopK());
+
+        final PubLine line = new PubLine();
+        final String rsa4096 = "pub:ABCD:1:4096:1515212983::";
+        assertTrue(line.reset(rsa4096, 0, rsa4096.length()));
+        assertTrue(filtered.getFilter().test(line));
+        assertEquals(1515212983L, filtered.getRanking().applyAsLong(line));
+
+        final String revoked = "pub:ABCD:1:4096:1515212983::r";
+        assertTrue(line.reset(revoked, 0, revoked.length()));
+        assertFalse(filtered.getFilter().test(line));
+
+        final String rsa2048 = "pub:ABCD:1:2048:1515212983::";
+        assertTrue(line.reset(rsa2048, 0, rsa2048.length()));
+        assertFalse(filtered.getFilter().test(line));
+
+        assertThrows(IllegalArgumentException.class, () -> request.withTopK(0, PubLine::getKeyLen));
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.config.ProxyConfiguration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClient5RestClientTest {
+    private static final int THREADS = 16;
+
+    /**
+     * Concurrent init() calls should build exactly one client and connection pool.
+     */
+    @Test
+    void init_concurrent_buildsSinglePool() throws Exception {
+        final Configuration configuration = Configuration.newBuilder()
+            .withKeyServerHost("http://localhost")
+            .build();
+        final HttpClient5RestClient restClient = new HttpClient5RestClient();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    try {
+                        restClient.init(configuration);
+                        return true;
+                    } catch (final IllegalStateException exception) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int successes = 0;
+            for (final Future<Boolean> future : futures) {
+                if (future.get(10, TimeUnit.SECONDS)) {
+                    successes++;
+                }
+            }
+            assertEquals(1, successes, "Only a single init() call should succeed");
+        } finally {
+            executorService.shutdownNow();
+            restClient.close();
+        }
+    }
+
+    /**
+     * A failed init() should release what it built and leave the client free to be initialized again.
+     */
+    @Test
+    void init_failsOnce_canRetry() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).build()) {
+            final AtomicInteger calls = new AtomicInteger();
+            final Configuration configuration = new Configuration(server.getHost(), new ProxyConfiguration(), false, 10) {
+                @Override
+                public boolean hasProxyConfigured() {
+                    // Fails part way through the first init(), once the connection pool has been built.
+                    if (calls.getAndIncrement() == 0) {
+                        throw new IllegalStateException("Simulated failure");
+                    }
+                    return super.hasProxyConfigured();
+                }
+            };
+            final HttpClient5RestClient restClient = new HttpClient5RestClient();
+            try {
+                assertThrows(IllegalStateException.class, () -> restClient.init(configuration));
+                restClient.init(configuration);
+                assertEquals(200, restClient.submitRequest(new GetRequest("0x" + server.getKeys().get(0).getKeyId())).getHttpCode());
+                assertThrows(IllegalStateException.class, () -> restClient.init(configuration));
+            } finally {
+                restClient.close();
+            }
+        }
+    }
+
+    /**
+     * A key server host without a scheme should be rejected when configured, before any RestClient is initialized.
+     */
+    @Test
+    void withKeyServerHost_withoutScheme_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withKeyServerHost("keys.example.com"));
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withKeyServerHost("hkp://keys.example.com"));
+        assertThrows(IllegalArgumentException.class, () -> Configuration.newBuilder().withKeyServerHost("http://"));
+    }
+
+    /**
+     * Closing more than once is harmless, and the client may not be used afterwards.
+     */
+    @Test
+    void close_multipleTimes_isIdempotent() {
+        final HttpClient5RestClient restClient = new HttpClient5RestClient();
+        restClient.init(Configuration.newBuilder().withKeyServerHost("http://localhost").build());
+
+        restClient.close();
+        restClient.close();
+
+        assertThrows(IllegalStateException.class, () -> restClient.submitRequest(new GetRequest("0x1234")));
+    }
+
+    /**
+     * Warming up should open the configured number of connections, and repeat calls should reuse them.
+     */
+    @Test
+    void warmUp_opensConfiguredConnections() throws Exception {
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            final AtomicInteger accepted = new AtomicInteger();
+            final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+            final Thread acceptor = new Thread(() -> {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        sockets.add(serverSocket.accept());
+                        accepted.incrementAndGet();
+                    }
+                } catch (final IOException exception) {
+                    // Server socket closed.
+                }
+            });
+            acceptor.start();
+
+            final HttpClient5RestClient restClient = new HttpClient5RestClient();
+            restClient.init(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost:" + serverSocket.getLocalPort())
+                .withMaxConnections(4)
+                .withWarmUpConnections(3)
+                .build());
+            try {
+                assertEquals(3, restClient.warmUp());
+                assertEquals(0, restClient.warmUp(), "Idle connections should be reused");
+                waitFor(() -> accepted.get() == 3);
+                assertEquals(3, accepted.get());
+
+                final ConnectionPoolStats poolStats = restClient.getConnectionPoolStats();
+                assertEquals(3, poolStats.getAvailable());
+                assertEquals(0, poolStats.getLeased());
+                assertEquals(4, poolStats.getMax());
+                assertEquals(3, poolStats.getConnectionsOpened());
+                assertEquals(0, poolStats.getTlsHandshakes());
+            } finally {
+                restClient.close();
+                serverSocket.close();
+                for (final Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    private void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.cache.KeyCacheInterceptor;
+import org.sourcelab.hkp.cache.OffHeapKeyCache;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.listener.Exchange;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.Request;
+import org.sourcelab.hkp.request.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies requests pass through interceptors in order, which may short-circuit or re-invoke the chain.
+ */
+class InterceptingRestClientTest {
+    private static final String KEY = "-----BEGIN PGP PUBLIC KEY BLOCK-----\n\nkey\n-----END PGP PUBLIC KEY BLOCK-----\n";
+
+    /**
+     * Interceptors should run in the order registered, the first outermost, both sync and async.
+     */
+    @Test
+    void submitRequest_runsInterceptorsInOrder() {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final CountingRestClient restClient = new CountingRestClient(0);
+        final InterceptingRestClient client = new InterceptingRestClient(restClient, Arrays.asList(
+            new TracingInterceptor("first", calls),
+            new TracingInterceptor("second", calls)
+        ));
+
+        assertEquals(200, client.submitRequest(new GetRequest("0x1")).getHttpCode());
+        assertEquals(Arrays.asList("first", "second"), calls);
+
+        calls.clear();
+        assertEquals(200, client.submitRequestAsync(new GetRequest("0x1")).join().getHttpCode());
+        assertEquals(Arrays.asList("first", "second"), calls);
+        assertEquals(2, restClient.requestCount.get());
+    }
+
+    /**
+     * An interceptor may answer without proceeding, or proceed again after a failure.
+     */
+    @Test
+    void hkpClient_interceptorsShortCircuitAndRetry() {
+        final CountingRestClient restClient = new CountingRestClient(2);
+        final RestInterceptor retry = (request, exchange, chain) -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return chain.proceed(request, exchange);
+                } catch (final RestException exception) {
+                    if (attempt == 3) {
+                        throw exception;
+                    }
+                }
+            }
+        };
+        final RestInterceptor notFound = (request, exchange, chain) -> "0xDEAD".equals(request.getRequestParameters().get("search"))
+            ? new RestResponse("", 404)
+            : chain.proceed(request, exchange);
+
+        try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost")
+                .withInterceptor(notFound)
+                .withInterceptor(retry), restClient)) {
+            assertFalse(hkpClient.get(new GetRequest("0xDEAD")).isPresent());
+            assertEquals(0, restClient.requestCount.get());
+
+            // Fails twice, succeeds on the third attempt.
+            assertTrue(hkpClient.get(new GetRequest("0x1")).isPresent());
+            assertEquals(3, restClient.requestCount.get());
+        }
+    }
+
+    /**
+     * Partial requests should pass through the interceptors to the RestClient's partial read, whose response is
+     * marked partial so a cache never stores it.
+     */
+    @Test
+    void submitPartialRequest_forwardsThroughChain() {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final CountingRestClient restClient = new CountingRestClient(0);
+        final OffHeapKeyCache cache = new OffHeapKeyCache(1024 * 1024);
+        final InterceptingRestClient client = new InterceptingRestClient(restClient, Arrays.asList(
+            new TracingInterceptor("first", calls),
+            new KeyCacheInterceptor(cache)
+        ));
+
+        final RestResponse response = client.submitPartialRequest(new GetRequest("0x0123456789ABCDEF"), null, 10);
+        assertEquals(Arrays.asList("first"), calls);
+        assertEquals(1, restClient.partialRequestCount.get());
+        assertEquals(10, response.getResponseLength());
+        assertTrue(response.isPartial());
+        assertEquals(0, cache.size());
+
+        // Answered by an interceptor with a complete response, which is still cut short.
+        assertEquals(200, client.submitRequest(new GetRequest("0x0123456789ABCDEF")).getHttpCode());
+        assertEquals(1, cache.size());
+        assertEquals(10, client.submitPartialRequest(new GetRequest("0x0123456789ABCDEF"), null, 10).getResponseLength());
+        assertEquals(1, restClient.partialRequestCount.get());
+
+        // Without interceptors, straight to the RestClient.
+        final InterceptingRestClient direct = new InterceptingRestClient(restClient, Collections.emptyList());
+        assertEquals(10, direct.submitPartialRequest(new GetRequest("0x1"), null, 10).getResponseLength());
+        assertEquals(2, restClient.partialRequestCount.get());
+    }
+
+    /**
+     * Identical requests made concurrently should be sent once, all callers receiving the response.
+     */
+    @Test
+    void coalescingInterceptor_sendsConcurrentDuplicatesOnce() throws Exception {
+        final CountDownLatch sent = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingRestClient restClient = new CountingRestClient(0) {
+            @Override
+            public RestResponse submitRequest(final Request request) {
+                sent.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.submitRequest(request);
+            }
+        };
+        final CoalescingInterceptor coalescing = new CoalescingInterceptor();
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try (final HkpClient hkpClient = new HkpClient(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost")
+                .withInterceptor(coalescing), restClient)) {
+            // Hold the first request in flight until the rest have joined it.
+            final List<Future<Optional<?>>> futures = new ArrayList<>();
+            futures.add(executorService.submit(() -> hkpClient.get(new GetRequest("0x1"))));
+            assertTrue(sent.await(10, TimeUnit.SECONDS));
+            for (int thread = 1; thread < 8; thread++) {
+                futures.add(executorService.submit(() -> hkpClient.get(new GetRequest("0x1"))));
+            }
+            awaitSharedCount(coalescing, 7);
+            release.countDown();
+
+            for (final Future<Optional<?>> future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS).isPresent());
+            }
+            assertEquals(1, restClient.requestCount.get(), "Duplicates should have been coalesced");
+            assertEquals(0, coalescing.getInFlightCount());
+        } finally {
+            release.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Asynchronous duplicates should also share the in flight request.
+     */
+    @Test
+    void coalescingInterceptor_sharesAsyncRequest() {
+        final CompletableFuture<RestResponse> pending = new CompletableFuture<>();
+        final CountingRestClient restClient = new CountingRestClient(0) {
+            @Override
+            public CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+                requestCount.incrementAndGet();
+                return pending;
+            }
+        };
+        final CoalescingInterceptor coalescing = new CoalescingInterceptor();
+        final InterceptingRestClient client = new InterceptingRestClient(restClient, Collections.singletonList(coalescing));
+
+        final CompletableFuture<RestResponse> first = client.submitRequestAsync(new GetRequest("0x1"));
+        final CompletableFuture<RestResponse> second = client.submitRequestAsync(new GetRequest("0x1"));
+        final RestResponse response = new RestResponse(KEY, 200);
+        pending.complete(response);
+
+        assertSame(response, first.join());
+        assertSame(response, second.join());
+        assertEquals(1, restClient.requestCount.get());
+        assertEquals(1, coalescing.getSharedCount());
+    }
+
+    /**
+     * The instance installed by withGetDeduplication() should coalesce gets, and send everything else as is.
+     */
+    @Test
+    void coalescingInterceptor_forGets_onlyCoalescesGets() {
+        final CompletableFuture<RestResponse> pending = new CompletableFuture<>();
+        final CountingRestClient restClient = new CountingRestClient(0) {
+            @Override
+            public CompletableFuture<RestResponse> submitRequestAsync(final Request request) {
+                requestCount.incrementAndGet();
+                return pending;
+            }
+        };
+        final CoalescingInterceptor coalescing = CoalescingInterceptor.forGets();
+        final InterceptingRestClient client = new InterceptingRestClient(restClient, Collections.singletonList(coalescing));
+
+        final List<CompletableFuture<RestResponse>> futures = Arrays.asList(
+            client.submitRequestAsync(new GetRequest("0x1")),
+            client.submitRequestAsync(new GetRequest("0x1")),
+            client.submitRequestAsync(new SearchRequest("user@example.com")),
+            client.submitRequestAsync(new SearchRequest("user@example.com"))
+        );
+        assertEquals(3, restClient.requestCount.get());
+        assertEquals(1, coalescing.getSharedCount());
+
+        final RestResponse response = new RestResponse(KEY, 200);
+        pending.complete(response);
+        for (final CompletableFuture<RestResponse> future : futures) {
+            assertSame(response, future.join());
+        }
+    }
+
+    /**
+     * A full read of a key must not share a partial read of it in flight, which would hand it a truncated body.
+     */
+    @Test
+    void coalescingInterceptor_partialReadInFlight_notSharedWithFullRead() throws Exception {
+        final CountDownLatch sent = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingRestClient restClient = new CountingRestClient(0) {
+            @Override
+            public RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) {
+                sent.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.submitPartialRequest(request, exchange, maxBodyBytes);
+            }
+        };
+        final CoalescingInterceptor coalescing = new CoalescingInterceptor();
+        final InterceptingRestClient client = new InterceptingRestClient(restClient, Collections.singletonList(coalescing));
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<RestResponse> partial = executorService.submit(
+                () -> client.submitPartialRequest(new GetRequest("0x1"), null, 10));
+            assertTrue(sent.await(10, TimeUnit.SECONDS));
+
+            final RestResponse full = client.submitRequest(new GetRequest("0x1"));
+            assertFalse(full.isPartial());
+            assertEquals(KEY, full.getResponseStr());
+            release.countDown();
+
+            final RestResponse partialResponse = partial.get(10, TimeUnit.SECONDS);
+            assertTrue(partialResponse.isPartial());
+            assertEquals(10, partialResponse.getResponseLength());
+            assertEquals(2, restClient.requestCount.get());
+            assertEquals(0, coalescing.getSharedCount());
+        } finally {
+            release.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void awaitSharedCount(final CoalescingInterceptor coalescing, final long expected) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (coalescing.getSharedCount() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Callers should join the request in flight");
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Records the order interceptors are invoked in.
+     */
+    private static final class TracingInterceptor implements RestInterceptor {
+        private final String name;
+        private final List<String> calls;
+
+        private TracingInterceptor(final String name, final List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public RestResponse intercept(final Request request, final Exchange exchange, final Chain chain) {
+            calls.add(name);
+            return chain.proceed(request, exchange);
+        }
+
+        @Override
+        public CompletableFuture<RestResponse> interceptAsync(final Request request, final Chain chain) {
+            calls.add(name);
+            return chain.proceedAsync(request);
+        }
+    }
+
+    /**
+     * Counts requests, failing the first few.
+     */
+    private static class CountingRestClient implements RestClient {
+        protected final AtomicInteger requestCount = new AtomicInteger();
+        private final AtomicInteger partialRequestCount = new AtomicInteger();
+        private final int failures;
+
+        private CountingRestClient(final int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void init(final Configuration configuration) {
+        }
+
+        @Override
+        public RestResponse submitRequest(final Request request) {
+            if (requestCount.incrementAndGet() <= failures) {
+                throw new RestException("Failure " + requestCount.get());
+            }
+            return new RestResponse(KEY, 200);
+        }
+
+        @Override
+        public RestResponse submitPartialRequest(final Request request, final Exchange exchange, final int maxBodyBytes) {
+            partialRequestCount.incrementAndGet();
+            return submitRequest(request).truncate(maxBodyBytes);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.AddRequest;
+import org.sourcelab.hkp.request.GetRequest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipeliningRestClientTest {
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 25;
+
+    /**
+     * Responses should be matched to the request that caused them, with at most the configured number of connections.
+     */
+    @Test
+    void submitRequest_concurrent_matchesResponsesToRequests() throws Exception {
+        try (final StubServer server = new StubServer(0)) {
+            final PipeliningRestClient restClient = new PipeliningRestClient();
+            restClient.init(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost:" + server.getPort())
+                .withMaxConnections(2)
+                .withPipelineDepth(8)
+                .build());
+            try {
+                runConcurrently(restClient);
+                assertTrue(server.getConnections() <= 2, "Should never open more than the configured connections");
+            } finally {
+                restClient.close();
+            }
+        }
+    }
+
+    /**
+     * When the server closes the connection with pipelined requests still unanswered, they should be resent.
+     */
+    @Test
+    void submitRequest_serverClosesMidPipeline_resendsUnansweredRequests() throws Exception {
+        try (final StubServer server = new StubServer(3)) {
+            final PipeliningRestClient restClient = new PipeliningRestClient();
+            restClient.init(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost:" + server.getPort())
+                .withMaxConnections(2)
+                .withPipelineDepth(8)
+                .build());
+            try {
+                runConcurrently(restClient);
+                assertTrue(server.getConnections() > 2, "Server should have forced new connections");
+            } finally {
+                restClient.close();
+            }
+        }
+    }
+
+    /**
+     * A request with a body may already have been acted on when the connection is lost, so should not be resent.
+     */
+    @Test
+    void submitRequest_connectionLost_resendsOnlyRequestsWithoutBody() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            final Thread acceptor = new Thread(() -> {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        try (final Socket socket = serverSocket.accept()) {
+                            // Read the request line, then drop the connection without answering.
+                            if (StubServer.readLine(new BufferedInputStream(socket.getInputStream())) != null) {
+                                requests.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (final IOException exception) {
+                    // Server socket closed.
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            final PipeliningRestClient restClient = new PipeliningRestClient();
+            restClient.init(Configuration.newBuilder()
+                .withKeyServerHost("http://localhost:" + serverSocket.getLocalPort())
+                .withMaxConnections(1)
+                .build());
+            try {
+                assertThrows(RestException.class, () -> restClient.submitRequest(new AddRequest(Collections.singletonList("key"))));
+                assertEquals(1, requests.get());
+
+                assertThrows(RestException.class, () -> restClient.submitRequest(new GetRequest("0x1234")));
+                assertEquals(4, requests.get());
+            } finally {
+                restClient.close();
+            }
+        }
+    }
+
+    /**
+     * Proxies are not supported.
+     */
+    @Test
+    void init_withProxy_isRejected() {
+        final PipeliningRestClient restClient = new PipeliningRestClient();
+        assertThrows(IllegalArgumentException.class, () -> restClient.init(Configuration.newBuilder()
+            .withKeyServerHost("http://localhost")
+            .withProxyHttp("localhost", 3128)
+            .build()));
+    }
+
+    /**
+     * Closing more than once is harmless, and the client may not be used afterwards.
+     */
+    @Test
+    void close_multipleTimes_isIdempotent() {
+        final PipeliningRestClient restClient = new PipeliningRestClient();
+        restClient.init(Configuration.newBuilder().withKeyServerHost("http://localhost").build());
+
+        restClient.close();
+        restClient.close();
+
+        assertThrows(IllegalStateException.class, () -> restClient.submitRequest(new GetRequest("0x1234")));
+    }
+
+    private void runConcurrently(final PipeliningRestClient restClient) throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int threadId = thread;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int request = 0; request < REQUESTS_PER_THREAD; request++) {
+                        final String keyId = String.format("0x%02dA%03d", threadId, request);
+                        final RestResponse response = restClient.submitRequest(new GetRequest(keyId));
+                        assertEquals(200, response.getHttpCode());
+                        assertTrue(response.getResponseStr().contains("search=" + keyId), "Unexpected response " + response.getResponseStr());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Echoes each request's target back, alternating between Content-Length and chunked responses.
+     * Optionally closes each connection after a number of responses, regardless of what else was sent.
+     */
+    private static final class StubServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final int closeAfter;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+        StubServer(final int closeAfter) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.closeAfter = closeAfter;
+
+            final Thread acceptor = new Thread(() -> {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        final Socket socket = serverSocket.accept();
+                        sockets.add(socket);
+                        connections.incrementAndGet();
+                        final Thread handler = new Thread(() -> handle(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    }
+                } catch (final IOException exception) {
+                    // Server socket closed.
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        int getConnections() {
+            return connections.get();
+        }
+
+        private void handle(final Socket socket) {
+            try (final Socket client = socket) {
+                final InputStream input = new BufferedInputStream(client.getInputStream());
+                final OutputStream output = client.getOutputStream();
+                int responses = 0;
+                String requestLine;
+                while ((requestLine = readLine(input)) != null) {
+                    // Skip headers.
+                    String header;
+                    do {
+                        header = readLine(input);
+                    } while (header != null && !header.isEmpty());
+
+                    final byte[] body = ("target=" + requestLine.split(" ")[1]).getBytes(StandardCharsets.UTF_8);
+                    responses++;
+                    final boolean closing = closeAfter > 0 && responses >= closeAfter;
+                    if (responses % 2 == 0) {
+                        output.write(("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                            + Integer.toHexString(body.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                        output.write(body);
+                        output.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    } else {
+                        output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        output.write(body);
+                    }
+                    output.flush();
+                    if (closing) {
+                        // Close gracefully like a real server would, closing with unread requests sends a reset which
+                        // can discard responses the client has received but not yet read.
+                        client.shutdownOutput();
+                        while (input.read() != -1) {
+                            // Drain until the client closes its end.
+                        }
+                        return;
+                    }
+                }
+            } catch (final IOException exception) {
+                // Client went away.
+            }
+        }
+
+        private static String readLine(final InputStream input) throws IOException {
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int value;
+            while ((value = input.read()) != -1) {
+                if (value == '\n') {
+                    return line.toString("US-ASCII").trim();
+                }
+                line.write(value);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (final Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
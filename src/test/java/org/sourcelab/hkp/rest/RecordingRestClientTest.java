@@ -0,0 +1,162 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.ConfigurationBuilder;
+import org.sourcelab.hkp.ConnectionFailedException;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.response.search.SearchIndexResponse;
+import org.sourcelab.hkp.server.LatencyDistribution;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies traffic recorded by {@link RecordingRestClient} is served back by {@link ReplayingRestClient}.
+ */
+class RecordingRestClientTest {
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = Files.createTempFile("hkp-recording", ".bin");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Responses should replay identically, including not found responses, without the server.
+     */
+    @Test
+    void replay_servesRecordedResponses() throws IOException {
+        final StubKey key;
+        final Optional<String> recordedKey;
+        final SearchIndexResponse recordedSearch;
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(10).build();
+             final HkpClient hkpClient = new HkpClient(newBuilder(server.getHost()), new RecordingRestClient(new HttpClient5RestClient(), file))) {
+            key = server.getKeys().get(3);
+            recordedKey = hkpClient.get(new GetRequest("0x" + key.getKeyId())).map((found) -> found.getPublicKey());
+            recordedSearch = hkpClient.search(new SearchRequest("user3@example.com").withExactMatch(true));
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+        }
+
+        final List<Recording> recordings = Recording.readAll(file);
+        assertEquals(3, recordings.size());
+        assertEquals(200, recordings.get(0).getHttpCode());
+        assertEquals(404, recordings.get(2).getHttpCode());
+        assertTrue(recordings.get(0).getLatencyNanos() > 0);
+
+        try (final HkpClient hkpClient = new HkpClient(newBuilder("http://localhost:1"), new ReplayingRestClient(file, 0))) {
+            assertEquals(recordedKey, hkpClient.get(new GetRequest("0x" + key.getKeyId())).map((found) -> found.getPublicKey()));
+            final SearchIndexResponse search = hkpClient.search(new SearchRequest("user3@example.com").withExactMatch(true));
+            assertEquals(recordedSearch.getCount(), search.getCount());
+            assertEquals(key.getFingerprint(), search.getEntries().get(0).getPub().getKeyId());
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+
+            // Requests never recorded can not be served.
+            assertThrows(RestException.class, () -> hkpClient.get(new GetRequest("0xAAAAAAAAAAAAAAAA")));
+        }
+    }
+
+    /**
+     * Failures should be recorded and replayed, and a second session should append to the same file.
+     */
+    @Test
+    void record_appendsFailuresAcrossSessions() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).withResetRate(1.0).build()) {
+            for (int session = 0; session < 2; session++) {
+                try (final HkpClient hkpClient = new HkpClient(newBuilder(server.getHost()), new RecordingRestClient(new HttpClient5RestClient(), file))) {
+                    assertThrows(ConnectionFailedException.class, () -> hkpClient.get(new GetRequest("0x0123456789ABCDEF")));
+                }
+            }
+        }
+
+        final List<Recording> recordings = Recording.readAll(file);
+        assertEquals(2, recordings.size());
+        assertTrue(recordings.get(0).isError());
+        assertEquals(0, recordings.get(0).getHttpCode());
+
+        try (final HkpClient hkpClient = new HkpClient(newBuilder("http://localhost:1"), new ReplayingRestClient(file, 0))) {
+            assertThrows(ConnectionFailedException.class, () -> hkpClient.get(new GetRequest("0x0123456789ABCDEF")));
+        }
+    }
+
+    /**
+     * Replay should wait the recorded latency multiplied by the time scale.
+     */
+    @Test
+    void replay_scalesLatency() throws IOException {
+        final String keyId;
+        try (final StubKeyServer server = StubKeyServer.newBuilder()
+                .withSyntheticKeys(1)
+                .withLatency(LatencyDistribution.fixed(Duration.ofMillis(50)))
+                .build();
+             final HkpClient hkpClient = new HkpClient(newBuilder(server.getHost()), new RecordingRestClient(new HttpClient5RestClient(), file))) {
+            keyId = "0x" + server.getKeys().get(0).getKeyId();
+            hkpClient.get(new GetRequest(keyId));
+        }
+
+        try (final HkpClient hkpClient = new HkpClient(newBuilder("http://localhost:1"), new ReplayingRestClient(file, 2.0))) {
+            final long start = System.nanoTime();
+            assertTrue(hkpClient.get(new GetRequest(keyId)).isPresent());
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+        }
+    }
+
+    /**
+     * A record cut short by a crash while writing should be ignored, keeping those before it.
+     */
+    @Test
+    void readAll_ignoresTruncatedRecord() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1).build();
+             final HkpClient hkpClient = new HkpClient(newBuilder(server.getHost()), new RecordingRestClient(new HttpClient5RestClient(), file))) {
+            hkpClient.get(new GetRequest("0x" + server.getKeys().get(0).getKeyId()));
+        }
+        final byte[] recorded = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOfRange(recorded, Recording.MAGIC.length, recorded.length - 10), StandardOpenOption.APPEND);
+
+        assertEquals(1, Recording.readAll(file).size());
+    }
+
+    private static ConfigurationBuilder newBuilder(final String host) {
+        return Configuration.newBuilder().withKeyServerHost(host);
+    }
+}
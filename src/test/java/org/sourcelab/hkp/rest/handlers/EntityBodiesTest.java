@@ -0,0 +1,82 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest.handlers;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.rest.RestResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies bodies are read in full whether or not their length is known up front.
+ */
+class EntityBodiesTest {
+
+    /**
+     * Bodies of known and unknown length, including larger than the scratch buffer, should be read in full.
+     */
+    @Test
+    void toByteArray_knownAndUnknownLength() throws IOException {
+        for (final int size : new int[] { 0, 1, 8192, 100_000, 300_000 }) {
+            final byte[] body = new byte[size];
+            Arrays.fill(body, (byte) 'A');
+
+            assertArrayEquals(body, EntityBodies.toByteArray(new ByteArrayEntity(body, ContentType.TEXT_PLAIN)));
+            assertArrayEquals(body, EntityBodies.toByteArray(new InputStreamEntity(new ByteArrayInputStream(body), -1, ContentType.TEXT_PLAIN)));
+        }
+        assertNull(EntityBodies.toByteArray(null));
+    }
+
+    /**
+     * A body shorter than its Content-Length should fail rather than be returned padded.
+     */
+    @Test
+    void toByteArray_truncated_throws() {
+        final byte[] body = new byte[100];
+        assertThrows(IOException.class, () -> EntityBodies.toByteArray(new InputStreamEntity(new ByteArrayInputStream(body), 200, ContentType.TEXT_PLAIN)));
+    }
+
+    /**
+     * The body should be decoded with the declared charset, defaulting to UTF-8.
+     */
+    @Test
+    void handleResponse_decodesWithDeclaredCharset() throws IOException {
+        final String text = "café";
+        final BasicClassicHttpResponse latin1 = new BasicClassicHttpResponse(200);
+        latin1.setEntity(new ByteArrayEntity(text.getBytes(StandardCharsets.ISO_8859_1), ContentType.parse("text/plain; charset=ISO-8859-1")));
+        final RestResponse response = new RestResponseHandler().handleResponse(latin1);
+        assertEquals(text, response.getResponseStr());
+        assertEquals(200, response.getHttpCode());
+
+        final BasicClassicHttpResponse undeclared = new BasicClassicHttpResponse(200);
+        undeclared.setEntity(new ByteArrayEntity(text.getBytes(StandardCharsets.UTF_8), ContentType.parse("application/pgp-keys")));
+        assertEquals(text, new StringResponseHandler().handleResponse(undeclared));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.server;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Distribution of the latency {@link StubKeyServer} injects before responding to each request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+    /**
+     * Sample the delay to inject before the next response.
+     * @param random Source of randomness, seeded by the server so runs are repeatable.
+     * @return Delay in nanoseconds.
+     */
+    long nextDelayNanos(Random random);
+
+    /**
+     * No injected latency.
+     * @return Distribution.
+     */
+    static LatencyDistribution none() {
+        return (random) -> 0;
+    }
+
+    /**
+     * The same delay before every response.
+     * @param delay Delay.
+     * @return Distribution.
+     */
+    static LatencyDistribution fixed(final Duration delay) {
+        final long nanos = delay.toNanos();
+        return (random) -> nanos;
+    }
+
+    /**
+     * Delays spread evenly between two bounds.
+     * @param min Shortest delay.
+     * @param max Longest delay.
+     * @return Distribution.
+     */
+    static LatencyDistribution uniform(final Duration min, final Duration max) {
+        final long minNanos = min.toNanos();
+        final long rangeNanos = max.toNanos() - minNanos;
+        if (rangeNanos < 0) {
+            throw new IllegalArgumentException("Maximum delay may not be less than the minimum.");
+        }
+        return (random) -> minNanos + (long) (random.nextDouble() * rangeNanos);
+    }
+
+    /**
+     * Exponentially distributed delays, as seen between independent arrivals.
+     * @param mean Mean delay.
+     * @return Distribution.
+     */
+    static LatencyDistribution exponential(final Duration mean) {
+        final long meanNanos = mean.toNanos();
+        return (random) -> (long) (-Math.log(1.0 - random.nextDouble()) * meanNanos);
+    }
+
+    /**
+     * Log-normally distributed delays, the long tailed shape typical of real server response times.
+     * @param median Median delay.
+     * @param sigma Standard deviation of the delay's natural logarithm, larger values give a longer tail.
+     * @return Distribution.
+     */
+    static LatencyDistribution logNormal(final Duration median, final double sigma) {
+        final long medianNanos = median.toNanos();
+        return (random) -> (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+    }
+}
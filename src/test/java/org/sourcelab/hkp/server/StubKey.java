@@ -0,0 +1,479 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A public key served by {@link StubKeyServer}, along with the metadata listed in op=index responses.
+ *
+ * Only as much of RFC 4880 as a key server index needs is understood: version 4 primary keys, their user ids, and
+ * the key expiration time from their self signatures.  Signatures are not verified.
+ */
+public final class StubKey {
+    private static final String ARMOR_HEADER = "-----BEGIN PGP PUBLIC KEY BLOCK-----";
+    private static final String ARMOR_FOOTER = "-----END PGP PUBLIC KEY BLOCK-----";
+
+    private static final int TAG_SIGNATURE = 2;
+    private static final int TAG_PUBLIC_KEY = 6;
+    private static final int TAG_USER_ID = 13;
+
+    private final String fingerprint;
+    private final int algorithm;
+    private final int bits;
+    private final long creationTime;
+    private final long expirationTime;
+    private final List<String> uids;
+    private final byte[] packets;
+
+    private StubKey(
+        final String fingerprint,
+        final int algorithm,
+        final int bits,
+        final long creationTime,
+        final long expirationTime,
+        final List<String> uids,
+        final byte[] packets) {
+        this.fingerprint = fingerprint;
+        this.algorithm = algorithm;
+        this.bits = bits;
+        this.creationTime = creationTime;
+        this.expirationTime = expirationTime;
+        this.uids = Collections.unmodifiableList(uids);
+        this.packets = packets;
+    }
+
+    /**
+     * Parse every key found in a keyring, either ASCII armored or binary.
+     * @param keyring Contents of a keyring or key file.
+     * @return Keys in the order found.
+     * @throws IllegalArgumentException if the keyring is malformed.
+     */
+    public static List<StubKey> parse(final byte[] keyring) {
+        final String text = new String(keyring, StandardCharsets.US_ASCII);
+        if (!text.contains(ARMOR_HEADER)) {
+            return parsePackets(keyring);
+        }
+
+        // A keyring may hold several armored blocks, one after another.
+        final List<StubKey> keys = new ArrayList<>();
+        int start = text.indexOf(ARMOR_HEADER);
+        while (start != -1) {
+            final int end = text.indexOf(ARMOR_FOOTER, start);
+            if (end == -1) {
+                throw new IllegalArgumentException("Armored key block is missing its footer.");
+            }
+            keys.addAll(parsePackets(dearmor(text.substring(start + ARMOR_HEADER.length(), end))));
+            start = text.indexOf(ARMOR_HEADER, end);
+        }
+        return keys;
+    }
+
+    /**
+     * Generate a structurally valid, unsigned, RSA key with a single user id.
+     * @param index Distinguishes the key, appearing in its user id as "user{index}@example.com".
+     * @param random Source of the key material.
+     * @return Synthetic key.
+     */
+    public static StubKey synthetic(final int index, final Random random) {
+        // Version 4, creation time, RSA, then the modulus and exponent as MPIs.
+        final byte[] modulus = new byte[256];
+        random.nextBytes(modulus);
+        modulus[0] |= 0x80;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(270);
+        body.write(4);
+        writeInt(body, 1500000000 + index * 3600);
+        body.write(1);
+        body.write(2048 >> 8);
+        body.write(2048 & 0xFF);
+        body.write(modulus, 0, modulus.length);
+        body.write(new byte[] { 0, 17, 1, 0, 1 }, 0, 5);
+
+        final ByteArrayOutputStream keyring = new ByteArrayOutputStream(512);
+        writePacket(keyring, TAG_PUBLIC_KEY, body.toByteArray());
+        writePacket(keyring, TAG_USER_ID, ("User " + index + " (Synthetic Key) <user" + index + "@example.com>")
+            .getBytes(StandardCharsets.UTF_8));
+        return parsePackets(keyring.toByteArray()).get(0);
+    }
+
+    /**
+     * Whether the key matches an HKP search term.
+     * Terms prefixed with "0x" match a key id or fingerprint suffix, others match user ids case insensitively.
+     * @param search Search term.
+     * @param exact Whether user ids must match the term exactly, or be equal to its email address, rather than contain it.
+     * @return True if the key matches.
+     */
+    public boolean matches(final String search, final boolean exact) {
+        if (search.startsWith("0x") || search.startsWith("0X")) {
+            final String hex = search.substring(2).toUpperCase(Locale.ROOT);
+            return hex.length() >= 8 && fingerprint.endsWith(hex);
+        }
+        final String term = search.toLowerCase(Locale.ROOT);
+        for (final String uid : uids) {
+            final String lowerUid = uid.toLowerCase(Locale.ROOT);
+            if (exact ? lowerUid.equals(term) || lowerUid.contains("<" + term + ">") : lowerUid.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The key as an ASCII armored public key block, as returned by op=get.
+     * @return Armored key.
+     */
+    public String toArmored() {
+        final int crc = crc24(packets);
+        final byte[] checksum = new byte[] { (byte) (crc >> 16), (byte) (crc >> 8), (byte) crc };
+        return ARMOR_HEADER + "\n\n"
+            + new String(Base64.getMimeEncoder(64, new byte[] { '\n' }).encode(packets), StandardCharsets.US_ASCII)
+            + "\n=" + Base64.getEncoder().encodeToString(checksum)
+            + "\n" + ARMOR_FOOTER + "\n";
+    }
+
+    /**
+     * Append the key's machine readable op=index lines, one pub line followed by a uid line per user id.
+     * @param builder Builder to append to.
+     */
+    public void appendIndex(final StringBuilder builder) {
+        final String expires = expirationTime == 0 ? "" : Long.toString(expirationTime);
+        builder.append("pub:").append(fingerprint).append(':').append(algorithm).append(':').append(bits)
+            .append(':').append(creationTime).append(':').append(expires).append(":\n");
+        for (final String uid : uids) {
+            builder.append("uid:").append(escape(uid)).append(':').append(creationTime).append("::\n");
+        }
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getKeyId() {
+        return fingerprint.substring(fingerprint.length() - 16);
+    }
+
+    public int getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * When the key expires.
+     * @return Seconds since the epoch, or 0 if the key does not expire.
+     */
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public List<String> getUids() {
+        return uids;
+    }
+
+    @Override
+    public String toString() {
+        return "StubKey{"
+            + "fingerprint='" + fingerprint + '\''
+            + ", algorithm=" + algorithm
+            + ", bits=" + bits
+            + ", uids=" + uids
+            + '}';
+    }
+
+    /**
+     * Split binary packets into keys, each starting at a public key packet.
+     */
+    private static List<StubKey> parsePackets(final byte[] data) {
+        final List<StubKey> keys = new ArrayList<>();
+        KeyBuilder current = null;
+        boolean isAfterUid = false;
+        int position = 0;
+        while (position < data.length) {
+            final int first = data[position] & 0xFF;
+            if ((first & 0x80) == 0) {
+                throw new IllegalArgumentException("Invalid packet header at offset " + position);
+            }
+
+            // New format headers have bit 6 set, old format headers encode the tag and length type together.
+            final int tag;
+            final int headerLength;
+            final int length;
+            if ((first & 0x40) != 0) {
+                tag = first & 0x3F;
+                final int octet = data[position + 1] & 0xFF;
+                if (octet < 192) {
+                    headerLength = 2;
+                    length = octet;
+                } else if (octet < 224) {
+                    headerLength = 3;
+                    length = ((octet - 192) << 8) + (data[position + 2] & 0xFF) + 192;
+                } else if (octet == 255) {
+                    headerLength = 6;
+                    length = readInt(data, position + 2);
+                } else {
+                    throw new IllegalArgumentException("Partial body lengths are not supported in key packets.");
+                }
+            } else {
+                tag = (first >> 2) & 0x0F;
+                switch (first & 0x03) {
+                    case 0:
+                        headerLength = 2;
+                        length = data[position + 1] & 0xFF;
+                        break;
+                    case 1:
+                        headerLength = 3;
+                        length = ((data[position + 1] & 0xFF) << 8) | (data[position + 2] & 0xFF);
+                        break;
+                    case 2:
+                        headerLength = 5;
+                        length = readInt(data, position + 1);
+                        break;
+                    default:
+                        headerLength = 1;
+                        length = data.length - position - 1;
+                        break;
+                }
+            }
+            final int bodyStart = position + headerLength;
+            final int next = bodyStart + length;
+            if (length < 0 || next > data.length) {
+                throw new IllegalArgumentException("Truncated packet at offset " + position);
+            }
+
+            if (tag == TAG_PUBLIC_KEY) {
+                if (current != null) {
+                    keys.add(current.build(data, position));
+                }
+                current = new KeyBuilder(data, position, bodyStart, length);
+                isAfterUid = false;
+            } else if (current == null) {
+                throw new IllegalArgumentException("Keyring does not start with a public key packet.");
+            } else if (tag == TAG_USER_ID) {
+                current.uids.add(new String(data, bodyStart, length, StandardCharsets.UTF_8));
+                isAfterUid = true;
+            } else if (tag == TAG_SIGNATURE && isAfterUid && current.expiresAfter == 0) {
+                current.expiresAfter = readKeyExpiration(data, bodyStart, length);
+            } else if (tag != TAG_SIGNATURE) {
+                // Subkeys and their bindings follow the user ids.
+                isAfterUid = false;
+            }
+            position = next;
+        }
+        if (current != null) {
+            keys.add(current.build(data, data.length));
+        }
+        return keys;
+    }
+
+    /**
+     * Find the key expiration time subpacket within a version 4 certification signature's hashed area.
+     * @return Seconds after the key's creation, or 0 if not present.
+     */
+    private static long readKeyExpiration(final byte[] data, final int offset, final int length) {
+        final int signatureType = data[offset + 1] & 0xFF;
+        if (length < 6 || data[offset] != 4 || !(signatureType >= 0x10 && signatureType <= 0x13)) {
+            return 0;
+        }
+        final int hashedLength = ((data[offset + 4] & 0xFF) << 8) | (data[offset + 5] & 0xFF);
+        int position = offset + 6;
+        final int end = Math.min(position + hashedLength, offset + length);
+        while (position < end) {
+            final int octet = data[position] & 0xFF;
+            final int subpacketLength;
+            if (octet < 192) {
+                subpacketLength = octet;
+                position += 1;
+            } else if (octet < 255) {
+                subpacketLength = ((octet - 192) << 8) + (data[position + 1] & 0xFF) + 192;
+                position += 2;
+            } else {
+                subpacketLength = readInt(data, position + 1);
+                position += 5;
+            }
+            if ((data[position] & 0x7F) == 9 && subpacketLength == 5) {
+                return readInt(data, position + 1) & 0xFFFFFFFFL;
+            }
+            position += subpacketLength;
+        }
+        return 0;
+    }
+
+    /**
+     * Key size in bits, from the first MPI for RSA, DSA and Elgamal, or the curve for elliptic curve keys.
+     */
+    private static int readBits(final byte[] data, final int offset, final int algorithm) {
+        switch (algorithm) {
+            case 1:
+            case 2:
+            case 3:
+            case 16:
+            case 17:
+            case 20:
+                return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+            case 18:
+            case 19:
+            case 22:
+                final StringBuilder oid = new StringBuilder();
+                for (int index = 0; index < (data[offset] & 0xFF); index++) {
+                    oid.append(String.format("%02X", data[offset + 1 + index]));
+                }
+                switch (oid.toString()) {
+                    case "2A8648CE3D030107":
+                        return 256;
+                    case "2B81040022":
+                        return 384;
+                    case "2B81040023":
+                        return 521;
+                    case "2B06010401DA470F01":
+                    case "2B060104019755010501":
+                        return 255;
+                    default:
+                        return 0;
+                }
+            default:
+                return 0;
+        }
+    }
+
+    private static byte[] dearmor(final String block) {
+        // The block starts with the remainder of the header line, then armor headers end at the first blank line.
+        final String[] lines = block.replace("\r", "").split("\n", -1);
+        int index = 1;
+        while (index < lines.length && !lines[index].trim().isEmpty()) {
+            index++;
+        }
+
+        // Stop at the checksum.
+        final StringBuilder base64 = new StringBuilder(block.length());
+        for (index++; index < lines.length; index++) {
+            final String trimmed = lines[index].trim();
+            if (trimmed.startsWith("=")) {
+                break;
+            }
+            base64.append(trimmed);
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    /**
+     * Percent encode characters which may not appear within an index field.
+     */
+    private static String escape(final String value) {
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (final byte character : value.getBytes(StandardCharsets.UTF_8)) {
+            if (character == ':' || character == '%' || character < 0x20 || character >= 0x7F) {
+                builder.append(String.format("%%%02X", character & 0xFF));
+            } else {
+                builder.append((char) character);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int crc24(final byte[] data) {
+        int crc = 0xB704CE;
+        for (final byte value : data) {
+            crc ^= (value & 0xFF) << 16;
+            for (int bit = 0; bit < 8; bit++) {
+                crc <<= 1;
+                if ((crc & 0x1000000) != 0) {
+                    crc ^= 0x1864CFB;
+                }
+            }
+        }
+        return crc & 0xFFFFFF;
+    }
+
+    private static int readInt(final byte[] data, final int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static void writeInt(final ByteArrayOutputStream output, final int value) {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private static void writePacket(final ByteArrayOutputStream output, final int tag, final byte[] body) {
+        output.write(0xC0 | tag);
+        output.write(0xFF);
+        writeInt(output, body.length);
+        output.write(body, 0, body.length);
+    }
+
+    /**
+     * Accumulates a key's metadata while its packets are walked.
+     */
+    private static final class KeyBuilder {
+        private final int start;
+        private final String fingerprint;
+        private final int algorithm;
+        private final int bits;
+        private final long creationTime;
+        private final List<String> uids = new ArrayList<>();
+        private long expiresAfter = 0;
+
+        private KeyBuilder(final byte[] data, final int start, final int bodyStart, final int length) {
+            if (data[bodyStart] != 4) {
+                throw new IllegalArgumentException("Only version 4 keys are supported, found version " + data[bodyStart]);
+            }
+            this.start = start;
+            this.creationTime = readInt(data, bodyStart + 1) & 0xFFFFFFFFL;
+            this.algorithm = data[bodyStart + 5] & 0xFF;
+            this.bits = readBits(data, bodyStart + 6, algorithm);
+
+            // A version 4 fingerprint is the SHA-1 of the key packet body, with an old format header.
+            try {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                digest.update(new byte[] { (byte) 0x99, (byte) (length >> 8), (byte) length });
+                digest.update(data, bodyStart, length);
+                final StringBuilder hex = new StringBuilder(40);
+                for (final byte value : digest.digest()) {
+                    hex.append(String.format("%02X", value));
+                }
+                this.fingerprint = hex.toString();
+            } catch (final NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception.getMessage(), exception);
+            }
+        }
+
+        private StubKey build(final byte[] data, final int end) {
+            final byte[] packets = new byte[end - start];
+            System.arraycopy(data, start, packets, 0, packets.length);
+            final long expirationTime = expiresAfter == 0 ? 0 : creationTime + expiresAfter;
+            return new StubKey(fingerprint, algorithm, bits, creationTime, expirationTime, uids, packets);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process HKP key server bound to the loopback interface, for exercising the client without a public key server.
+ *
+ * Implements /pks/lookup with op=get, op=index and op=vindex, in machine readable form when options=mr is given,
+ * responding 404 when no key matches.  Keys are loaded from key files, keyrings, or generated.  Latency, error
+ * responses, slow-drip bodies and connection resets can be injected at configurable rates; see
+ * {@link StubKeyServerBuilder}.
+ *
+ * Each connection is served by its own thread, so persistent and pipelined HTTP/1.1 connections are supported.
+ */
+public class StubKeyServer implements AutoCloseable {
+    private static final String PLAIN_TEXT = "text/plain; charset=utf-8";
+
+    private final List<StubKey> keys;
+    private final Map<String, List<StubKey>> keysById = new HashMap<>();
+
+    // Fault injection.
+    private final Random random;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final int errorStatus;
+    private final double resetRate;
+    private final double slowDripRate;
+    private final int slowDripChunkBytes;
+    private final long slowDripChunkDelayNanos;
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errorsInjected = new AtomicLong();
+    private final AtomicLong resetsInjected = new AtomicLong();
+    private final AtomicLong slowDripsInjected = new AtomicLong();
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executorService;
+    private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Creates a new StubKeyServerBuilder instance.
+     * @return StubKeyServerBuilder instance.
+     */
+    public static StubKeyServerBuilder newBuilder() {
+        return new StubKeyServerBuilder();
+    }
+
+    /**
+     * Constructor, starts the server on an ephemeral port.
+     * Note: Use {@link StubKeyServerBuilder} to create instances instead of calling this constructor.
+     */
+    StubKeyServer(
+        final List<StubKey> keys,
+        final Random random,
+        final LatencyDistribution latency,
+        final double errorRate,
+        final int errorStatus,
+        final double resetRate,
+        final double slowDripRate,
+        final int slowDripChunkBytes,
+        final long slowDripChunkDelayNanos) throws IOException {
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.random = random;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.resetRate = resetRate;
+        this.slowDripRate = slowDripRate;
+        this.slowDripChunkBytes = slowDripChunkBytes;
+        this.slowDripChunkDelayNanos = slowDripChunkDelayNanos;
+
+        // Index short and long key ids and fingerprints, the forms clients look keys up by.
+        for (final StubKey key : this.keys) {
+            final String fingerprint = key.getFingerprint();
+            for (final int length : new int[] { 8, 16, 40 }) {
+                keysById.computeIfAbsent(fingerprint.substring(fingerprint.length() - length), (id) -> new ArrayList<>()).add(key);
+            }
+        }
+
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        executorService = Executors.newCachedThreadPool((runnable) -> {
+            final Thread thread = new Thread(runnable, "stub-key-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.submit(this::acceptLoop);
+    }
+
+    /**
+     * The URL to configure as the client's key server host.
+     * @return Host URL.
+     */
+    public String getHost() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    public List<StubKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Number of connections accepted.
+     * @return Connection count.
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Number of requests received, including those answered with an injected fault.
+     * @return Request count.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorsInjected() {
+        return errorsInjected.get();
+    }
+
+    public long getResetsInjected() {
+        return resetsInjected.get();
+    }
+
+    public long getSlowDripsInjected() {
+        return slowDripsInjected.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                sockets.add(socket);
+                executorService.submit(() -> serve(socket));
+            } catch (final IOException exception) {
+                // Server socket closed.
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try {
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            final StringBuilder line = new StringBuilder();
+
+            while (readLine(input, line)) {
+                final String[] requestLine = line.toString().split(" ");
+                if (requestLine.length < 3) {
+                    return;
+                }
+                final String method = requestLine[0];
+                final String target = requestLine[1];
+                boolean keepAlive = !"HTTP/1.0".equals(requestLine[2]);
+
+                // Read headers, noting any that affect the connection, then discard any request body.
+                int contentLength = 0;
+                while (readLine(input, line) && line.length() > 0) {
+                    final String header = line.toString().toLowerCase();
+                    if (header.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    } else if (header.startsWith("connection:") && header.contains("close")) {
+                        keepAlive = false;
+                    }
+                }
+                new DataInputStream(input).readFully(new byte[contentLength]);
+                requests.incrementAndGet();
+
+                // Closing with a zero linger time sends a reset rather than a graceful close.
+                if (chance(resetRate)) {
+                    resetsInjected.incrementAndGet();
+                    socket.setSoLinger(true, 0);
+                    return;
+                }
+
+                final Response response;
+                if (chance(errorRate)) {
+                    errorsInjected.incrementAndGet();
+                    response = new Response(errorStatus, PLAIN_TEXT, "Injected error");
+                } else {
+                    response = respond(target);
+                }
+                TimeUnit.NANOSECONDS.sleep(latency.nextDelayNanos(random));
+
+                output.write(("HTTP/1.1 " + response.status + " " + reasonPhrase(response.status) + "\r\n"
+                    + "Content-Type: " + response.contentType + "\r\n"
+                    + "Content-Length: " + response.body.length + "\r\n"
+                    + (keepAlive ? "" : "Connection: close\r\n")
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                if ("HEAD".equals(method)) {
+                    // Headers only.
+                } else if (response.status == 200 && chance(slowDripRate)) {
+                    slowDripsInjected.incrementAndGet();
+                    for (int offset = 0; offset < response.body.length; offset += slowDripChunkBytes) {
+                        output.flush();
+                        TimeUnit.NANOSECONDS.sleep(slowDripChunkDelayNanos);
+                        output.write(response.body, offset, Math.min(slowDripChunkBytes, response.body.length - offset));
+                    }
+                } else {
+                    output.write(response.body);
+                }
+
+                // Hold back while further pipelined requests are already waiting, writing responses in batches.
+                if (input.available() == 0 || !keepAlive) {
+                    output.flush();
+                }
+                if (!keepAlive) {
+                    return;
+                }
+            }
+        } catch (final IOException | InterruptedException exception) {
+            // Client went away, or server closed.
+        } finally {
+            sockets.remove(socket);
+            try {
+                socket.close();
+            } catch (final IOException exception) {
+                // Ignored.
+            }
+        }
+    }
+
+    private Response respond(final String target) throws UnsupportedEncodingException {
+        final int queryStart = target.indexOf('?');
+        final String path = queryStart == -1 ? target : target.substring(0, queryStart);
+        if (!"/pks/lookup".equals(path)) {
+            return new Response(404, PLAIN_TEXT, "Not found");
+        }
+
+        final Map<String, String> params = new HashMap<>();
+        if (queryStart != -1) {
+            for (final String param : target.substring(queryStart + 1).split("&")) {
+                final int separator = param.indexOf('=');
+                if (separator != -1) {
+                    params.put(
+                        URLDecoder.decode(param.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(param.substring(separator + 1), "UTF-8")
+                    );
+                }
+            }
+        }
+        final String operation = params.getOrDefault("op", "");
+        final String search = params.getOrDefault("search", "").trim();
+        if (search.isEmpty()) {
+            return new Response(400, PLAIN_TEXT, "Missing search parameter");
+        }
+        if (!"get".equals(operation) && !"index".equals(operation) && !"vindex".equals(operation)) {
+            return new Response(501, PLAIN_TEXT, "Operation not supported: " + operation);
+        }
+
+        final List<StubKey> matches = find(search, "on".equals(params.get("exact")));
+        if (matches.isEmpty()) {
+            return new Response(404, PLAIN_TEXT, "No results found");
+        }
+
+        final StringBuilder body = new StringBuilder(matches.size() * 512);
+        if ("get".equals(operation)) {
+            for (final StubKey key : matches) {
+                body.append(key.toArmored());
+            }
+            return new Response(200, "application/pgp-keys", body.toString());
+        }
+        body.append("info:1:").append(matches.size()).append('\n');
+        for (final StubKey key : matches) {
+            key.appendIndex(body);
+        }
+        if (Arrays.asList(params.getOrDefault("options", "").split(",")).contains("mr")) {
+            return new Response(200, PLAIN_TEXT, body.toString());
+        }
+        final String html = body.toString().replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return new Response(200, "text/html; charset=utf-8", "<html><body><pre>\n" + html + "</pre></body></html>\n");
+    }
+
+    private List<StubKey> find(final String search, final boolean exact) {
+        if (search.startsWith("0x") || search.startsWith("0X")) {
+            return keysById.getOrDefault(search.substring(2).toUpperCase(), Collections.emptyList());
+        }
+        final List<StubKey> matches = new ArrayList<>();
+        for (final StubKey key : keys) {
+            if (key.matches(search, exact)) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    private boolean chance(final double rate) {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    private static String reasonPhrase(final int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 500:
+                return "Internal Server Error";
+            case 501:
+                return "Not Implemented";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Error";
+        }
+    }
+
+    private static boolean readLine(final InputStream input, final StringBuilder line) throws IOException {
+        line.setLength(0);
+        int value;
+        while ((value = input.read()) != -1) {
+            if (value == '\n') {
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                }
+                return true;
+            }
+            line.append((char) value);
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (final IOException exception) {
+            // Ignored.
+        }
+        for (final Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (final IOException exception) {
+                // Ignored.
+            }
+        }
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A response to send.
+     */
+    private static final class Response {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        private Response(final int status, final String contentType, final String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builder for {@link StubKeyServer}.  Use {@link StubKeyServer#newBuilder()} to create instances of this.
+ *
+ * Injected faults are decided independently for each request, in this order: a connection reset instead of any
+ * response, an error response, then for successful responses a slow-drip body.  Latency is injected before every
+ * response which is sent.
+ */
+public final class StubKeyServerBuilder {
+    private final List<StubKey> keys = new ArrayList<>();
+    private final List<Path> keyringPaths = new ArrayList<>();
+    private int syntheticKeys = 0;
+
+    private LatencyDistribution latency = LatencyDistribution.none();
+    private double errorRate = 0;
+    private int errorStatus = 503;
+    private double resetRate = 0;
+    private double slowDripRate = 0;
+    private int slowDripChunkBytes = 64;
+    private Duration slowDripChunkDelay = Duration.ZERO;
+    private long seed = 0;
+
+    StubKeyServerBuilder() {
+    }
+
+    /**
+     * Serve every key file found directly within a directory, armored or binary.
+     * @param directory Directory of key files.
+     * @return StubKeyServerBuilder instance.
+     * @throws IOException if the directory can not be listed.
+     */
+    public StubKeyServerBuilder withKeyDirectory(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            keyringPaths.addAll(files.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+        }
+        return this;
+    }
+
+    /**
+     * Serve every key within a keyring file, armored or binary.
+     * @param keyring Keyring file.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withKeyringFile(final Path keyring) {
+        keyringPaths.add(Objects.requireNonNull(keyring));
+        return this;
+    }
+
+    /**
+     * Serve the keys within an armored key block.
+     * @param armoredKey Armored public key block.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withKey(final String armoredKey) {
+        keys.addAll(StubKey.parse(armoredKey.getBytes(StandardCharsets.US_ASCII)));
+        return this;
+    }
+
+    /**
+     * Serve generated keys, with user ids "User {index} (Synthetic Key) &lt;user{index}@example.com&gt;".
+     * @param count How many keys to generate.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withSyntheticKeys(final int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Synthetic key count may not be negative.");
+        }
+        this.syntheticKeys = count;
+        return this;
+    }
+
+    /**
+     * Inject latency before each response.
+     * @param latency Distribution of the injected latency.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withLatency(final LatencyDistribution latency) {
+        this.latency = Objects.requireNonNull(latency);
+        return this;
+    }
+
+    /**
+     * Respond to a fraction of requests with HTTP 503.
+     * @param rate Fraction of requests, between 0 and 1.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withErrorRate(final double rate) {
+        return withErrorRate(rate, 503);
+    }
+
+    /**
+     * Respond to a fraction of requests with an error status.
+     * @param rate Fraction of requests, between 0 and 1.
+     * @param status HTTP status to respond with.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withErrorRate(final double rate, final int status) {
+        if (status < 400 || status > 599) {
+            throw new IllegalArgumentException("Error status must be between 400 and 599.");
+        }
+        this.errorRate = validateRate(rate);
+        this.errorStatus = status;
+        return this;
+    }
+
+    /**
+     * Reset the connection, rather than respond, to a fraction of requests.
+     * @param rate Fraction of requests, between 0 and 1.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withResetRate(final double rate) {
+        this.resetRate = validateRate(rate);
+        return this;
+    }
+
+    /**
+     * Send a fraction of successful response bodies slowly, a chunk at a time.
+     * @param rate Fraction of responses, between 0 and 1.
+     * @param chunkBytes Size of each chunk.
+     * @param chunkDelay Delay before sending each chunk.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withSlowDrip(final double rate, final int chunkBytes, final Duration chunkDelay) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1 byte.");
+        }
+        this.slowDripRate = validateRate(rate);
+        this.slowDripChunkBytes = chunkBytes;
+        this.slowDripChunkDelay = Objects.requireNonNull(chunkDelay);
+        return this;
+    }
+
+    /**
+     * Seed the randomness behind synthetic keys and injected faults, so runs are repeatable.
+     * @param seed Seed, defaults to 0.
+     * @return StubKeyServerBuilder instance.
+     */
+    public StubKeyServerBuilder withSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Load the configured keys, then start the server on an ephemeral loopback port.
+     * @return Running server, close it when done.
+     * @throws IOException if a keyring can not be read or the server can not bind.
+     */
+    public StubKeyServer build() throws IOException {
+        final List<StubKey> allKeys = new ArrayList<>();
+        for (final Path path : keyringPaths) {
+            allKeys.addAll(StubKey.parse(Files.readAllBytes(path)));
+        }
+        allKeys.addAll(keys);
+
+        final Random random = new Random(seed);
+        for (int index = 0; index < syntheticKeys; index++) {
+            allKeys.add(StubKey.synthetic(index, random));
+        }
+
+        return new StubKeyServer(
+            allKeys, random, latency,
+            errorRate, errorStatus, resetRate,
+            slowDripRate, slowDripChunkBytes, slowDripChunkDelay.toNanos()
+        );
+    }
+
+    private static double validateRate(final double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1.");
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.server;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.ConnectionFailedException;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.InvalidRequestException;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.response.get.PgpPublicKey;
+import org.sourcelab.hkp.response.search.Entry;
+import org.sourcelab.hkp.response.search.SearchIndexResponse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the stub key server's HKP semantics and fault injection, through the client.
+ */
+class StubKeyServerTest {
+    private static final String RSA_FINGERPRINT = "2A34EEE775403A30424DD823D53945808CE67103";
+    private static final String ED25519_FINGERPRINT = "2441B343146FD797D3888DC061DA4CE7C46E9DF5";
+
+    private static Path keyDirectory;
+
+    @BeforeAll
+    static void setup() throws URISyntaxException {
+        keyDirectory = Paths.get(StubKeyServerTest.class.getResource("/keys").toURI());
+    }
+
+    /**
+     * Keys loaded from a directory should be parsed for the metadata index responses list.
+     */
+    @Test
+    void withKeyDirectory_parsesKeys() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyDirectory(keyDirectory).build()) {
+            assertEquals(2, server.getKeys().size());
+
+            final StubKey ed25519 = server.getKeys().get(0);
+            assertEquals(ED25519_FINGERPRINT, ed25519.getFingerprint());
+            assertEquals("61DA4CE7C46E9DF5", ed25519.getKeyId());
+            assertEquals(22, ed25519.getAlgorithm());
+            assertEquals(255, ed25519.getBits());
+            assertEquals(1792411889L, ed25519.getCreationTime());
+            assertEquals(1855483889L, ed25519.getExpirationTime());
+            assertEquals("Stub Key Two <two@example.com>", ed25519.getUids().get(0));
+
+            final StubKey rsa = server.getKeys().get(1);
+            assertEquals(RSA_FINGERPRINT, rsa.getFingerprint());
+            assertEquals(1, rsa.getAlgorithm());
+            assertEquals(2048, rsa.getBits());
+            assertEquals(0, rsa.getExpirationTime());
+        }
+    }
+
+    /**
+     * A keyring holding several armored blocks should yield every key, which re-armor to the same packets.
+     */
+    @Test
+    void withKeyringFile_parsesEveryBlock() throws IOException {
+        final Path keyring = Files.createTempFile("keyring", ".asc");
+        keyring.toFile().deleteOnExit();
+        Files.write(keyring, Files.readAllBytes(keyDirectory.resolve(RSA_FINGERPRINT + ".asc")));
+        Files.write(keyring, Files.readAllBytes(keyDirectory.resolve(ED25519_FINGERPRINT + ".asc")), StandardOpenOption.APPEND);
+
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyringFile(keyring).build()) {
+            assertEquals(2, server.getKeys().size());
+            assertEquals(RSA_FINGERPRINT, server.getKeys().get(0).getFingerprint());
+            assertEquals(ED25519_FINGERPRINT, server.getKeys().get(1).getFingerprint());
+
+            final StubKey key = server.getKeys().get(0);
+            assertEquals(key.getFingerprint(), StubKey.parse(key.toArmored().getBytes()).get(0).getFingerprint());
+        }
+    }
+
+    /**
+     * Keys should be found by short id, long id or fingerprint, and unknown keys should be not found.
+     */
+    @Test
+    void get_servesKeysById() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyDirectory(keyDirectory).build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            for (final String keyId : new String[] { "0x8CE67103", "0xD53945808CE67103", "0x" + RSA_FINGERPRINT }) {
+                final Optional<PgpPublicKey> key = hkpClient.get(new GetRequest(keyId));
+                assertTrue(key.isPresent(), keyId);
+                assertTrue(key.get().getPublicKey().startsWith("-----BEGIN PGP PUBLIC KEY BLOCK-----"));
+            }
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+            assertEquals(4, server.getRequestCount());
+        }
+    }
+
+    /**
+     * Index responses should be machine readable, match user ids, and respect exact matching.
+     */
+    @Test
+    void search_listsMatchingKeys() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyDirectory(keyDirectory).build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            final SearchIndexResponse response = hkpClient.search(new SearchRequest("example.com"));
+            assertEquals(2, response.getCount());
+            final Entry entry = response.getEntries().get(0);
+            assertEquals(ED25519_FINGERPRINT, entry.getPub().getKeyId());
+            assertEquals(22, entry.getPub().getAlgo());
+            assertEquals(LocalDateTime.ofEpochSecond(1855483889L, 0, ZoneOffset.UTC), entry.getPub().getExpirationDate());
+            assertEquals("Stub Key Two <two@example.com>", entry.getUid().getUid());
+
+            assertEquals(1, hkpClient.search(new SearchRequest("one@example.com").withExactMatch(true)).getCount());
+
+            // Searches matching nothing are answered 404.
+            assertThrows(InvalidRequestException.class, () -> hkpClient.search(new SearchRequest("example.com").withExactMatch(true)));
+            assertThrows(InvalidRequestException.class, () -> hkpClient.search(new SearchRequest("nobody")));
+        }
+    }
+
+    /**
+     * Synthetic keys should be generated repeatably from the seed.
+     */
+    @Test
+    void withSyntheticKeys_generatesRepeatably() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(1000).withSeed(7).build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            assertEquals(1000, server.getKeys().size());
+            final StubKey key = server.getKeys().get(42);
+            assertEquals(StubKey.synthetic(0, new Random(7)).getFingerprint(), server.getKeys().get(0).getFingerprint());
+            assertEquals(2048, key.getBits());
+
+            final SearchIndexResponse response = hkpClient.search(new SearchRequest("user42@example.com").withExactMatch(true));
+            assertEquals(1, response.getCount());
+            assertEquals(key.getFingerprint(), response.getEntries().get(0).getPub().getKeyId());
+            assertTrue(hkpClient.get(new GetRequest("0x" + key.getKeyId())).isPresent());
+        }
+    }
+
+    /**
+     * Injected errors should surface as the configured status.
+     */
+    @Test
+    void withErrorRate_respondsWithError() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyDirectory(keyDirectory).withErrorRate(1.0).build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            assertThrows(InvalidRequestException.class, () -> hkpClient.get(new GetRequest("0x8CE67103")));
+
+            // The transport may retry a 503 before giving up.
+            assertTrue(server.getErrorsInjected() >= 1);
+        }
+    }
+
+    /**
+     * Injected resets should surface as a failed request.
+     */
+    @Test
+    void withResetRate_resetsConnection() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withKeyDirectory(keyDirectory).withResetRate(1.0).build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            assertThrows(ConnectionFailedException.class, () -> hkpClient.get(new GetRequest("0x8CE67103")));
+            assertTrue(server.getResetsInjected() >= 1);
+        }
+    }
+
+    /**
+     * Injected latency and slow-drip bodies should delay, but not alter, the response.
+     */
+    @Test
+    void withLatencyAndSlowDrip_delaysResponse() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder()
+                .withKeyDirectory(keyDirectory)
+                .withLatency(LatencyDistribution.fixed(Duration.ofMillis(50)))
+                .withSlowDrip(1.0, 100, Duration.ofMillis(10))
+                .build();
+             final HkpClient hkpClient = newClient(server)) {
+
+            final long start = System.nanoTime();
+            final Optional<PgpPublicKey> key = hkpClient.get(new GetRequest("0x" + RSA_FINGERPRINT));
+            final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // The armored RSA key is around 1KB, so is sent in at least 10 chunks.
+            assertTrue(elapsedMillis >= 150, "Elapsed " + elapsedMillis + "ms");
+            assertTrue(key.isPresent());
+            assertEquals(server.getKeys().get(1).toArmored().trim(), key.get().getPublicKey().trim());
+            assertEquals(1, server.getSlowDripsInjected());
+        }
+    }
+
+    /**
+     * Sampled latencies should respect each distribution's bounds, and repeat for the same seed.
+     */
+    @Test
+    void latencyDistribution_samples() {
+        final LatencyDistribution uniform = LatencyDistribution.uniform(Duration.ofMillis(5), Duration.ofMillis(10));
+        final LatencyDistribution exponential = LatencyDistribution.exponential(Duration.ofMillis(5));
+        final long[] first = new long[100];
+        final long[] second = new long[100];
+        final Random random = new Random(1);
+        for (int index = 0; index < first.length; index++) {
+            first[index] = uniform.nextDelayNanos(random);
+            assertTrue(first[index] >= 5_000_000 && first[index] <= 10_000_000);
+            assertTrue(exponential.nextDelayNanos(random) >= 0);
+        }
+        final Random repeat = new Random(1);
+        for (int index = 0; index < second.length; index++) {
+            second[index] = uniform.nextDelayNanos(repeat);
+            exponential.nextDelayNanos(repeat);
+        }
+        assertArrayEquals(first, second);
+        assertEquals(0, LatencyDistribution.none().nextDelayNanos(random));
+        assertThrows(IllegalArgumentException.class, () -> StubKeyServer.newBuilder().withErrorRate(1.5));
+    }
+
+    private static HkpClient newClient(final StubKeyServer server) {
+        return new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the Flight Recorder events emitted for lookups and parses.
+ */
+class LookupEventTest {
+
+    /**
+     * With the events enabled, each lookup should be recorded along with parsing its response.
+     */
+    @Test
+    void get_recordsLookupAndParse() throws IOException {
+        final Path dump = Files.createTempFile("hkp-lookup", ".jfr");
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(5).build();
+             final HkpClient hkpClient = new HkpClient(Configuration.newBuilder().withKeyServerHost(server.getHost()));
+             final Recording recording = new Recording()) {
+            recording.enable("org.sourcelab.hkp.Lookup").withoutThreshold();
+            recording.enable("org.sourcelab.hkp.Parse").withoutThreshold();
+            recording.start();
+
+            final StubKey key = server.getKeys().get(2);
+            assertTrue(hkpClient.get(new GetRequest("0x" + key.getKeyId())).isPresent());
+            assertTrue(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isEmpty());
+
+            recording.stop();
+            recording.dump(dump);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            final List<RecordedEvent> lookups = events.stream()
+                .filter(event -> event.getEventType().getName().equals("org.sourcelab.hkp.Lookup"))
+                .collect(Collectors.toList());
+            assertEquals(2, lookups.size());
+            assertEquals("get", lookups.get(0).getString("operation"));
+            assertEquals(200, lookups.get(0).getInt("statusCode"));
+            assertEquals(("0x" + key.getKeyId()).hashCode(), lookups.get(0).getInt("searchHash"));
+            assertTrue(lookups.get(0).getLong("bytesReceived") > 0);
+            assertEquals("NONE", lookups.get(0).getString("cacheOutcome"));
+            assertEquals(404, lookups.get(1).getInt("statusCode"));
+
+            final List<RecordedEvent> parses = events.stream()
+                .filter(event -> event.getEventType().getName().equals("org.sourcelab.hkp.Parse"))
+                .collect(Collectors.toList());
+            assertEquals(1, parses.size());
+            assertEquals("get", parses.get(0).getString("parser"));
+            assertEquals(1, parses.get(0).getInt("entryCount"));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    /**
+     * Each lookup needs its own event to carry its timing.
+     */
+    @Test
+    void start_returnsNewEvent() {
+        assertNotSame(LookupEvent.start(), LookupEvent.start());
+    }
+}
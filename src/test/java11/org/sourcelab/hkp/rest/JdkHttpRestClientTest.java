@@ -0,0 +1,205 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.HkpClient;
+import org.sourcelab.hkp.ResponseTooLargeException;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.request.SearchRequest;
+import org.sourcelab.hkp.server.StubKey;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the java.net.http based RestClient against the stub key server.
+ */
+class JdkHttpRestClientTest {
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    /**
+     * Gets and searches should be answered as with the default RestClient.
+     */
+    @Test
+    void getAndSearch_answered() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(20).build();
+             final HkpClient hkpClient = new HkpClient(
+                 Configuration.newBuilder().withKeyServerHost(server.getHost()), new JdkHttpRestClient())) {
+            final StubKey key = server.getKeys().get(7);
+            assertTrue(hkpClient.get(new GetRequest("0x" + key.getKeyId())).get().getPublicKey().contains("BEGIN PGP PUBLIC KEY BLOCK"));
+            assertFalse(hkpClient.get(new GetRequest("0x0123456789ABCDEF")).isPresent());
+            assertEquals(1, hkpClient.search(new SearchRequest("user7@example.com").withExactMatch(true)).getCount());
+            assertEquals(20, hkpClient.search(new SearchRequest("example.com")).getCount());
+        }
+    }
+
+    /**
+     * A response over the size limit should fail, without affecting smaller responses on the same client.
+     */
+    @Test
+    void search_overMaxResponseBytes_fails() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(200).build();
+             final HkpClient hkpClient = new HkpClient(
+                 Configuration.newBuilder().withKeyServerHost(server.getHost()).withMaxResponseBytes(4096), new JdkHttpRestClient())) {
+            final ResponseTooLargeException exception = assertThrows(
+                ResponseTooLargeException.class, () -> hkpClient.search(new SearchRequest("example.com")));
+            assertEquals(4096, exception.getLimit());
+
+            assertTrue(hkpClient.get(new GetRequest("0x" + server.getKeys().get(7).getKeyId())).isPresent());
+        }
+    }
+
+    /**
+     * A partial request should return no more than the start of the body, without waiting for the rest.
+     */
+    @Test
+    void submitPartialRequest_readsStartOnly() throws IOException {
+        try (final StubKeyServer server = StubKeyServer.newBuilder()
+                .withSyntheticKeys(1000)
+                .withSlowDrip(1.0, 1024, Duration.ofMillis(50))
+                .build()) {
+            final JdkHttpRestClient restClient = new JdkHttpRestClient();
+            restClient.init(Configuration.newBuilder().withKeyServerHost(server.getHost()).build());
+            try {
+                final RestResponse response = restClient.submitPartialRequest(new SearchRequest("example.com"), null, 100);
+                assertEquals(200, response.getHttpCode());
+                assertEquals(100, response.getResponseLength());
+                assertTrue(response.getResponseStr().startsWith("info:1:1000"));
+
+                // The abandoned response does not hold up requests after it.
+                final StubKey key = server.getKeys().get(0);
+                assertEquals(200, restClient.submitRequestAsync(new GetRequest("0x" + key.getKeyId())).join().getHttpCode());
+            } finally {
+                restClient.close();
+            }
+
+            // Through the client, only the header line is needed.
+            try (final HkpClient hkpClient = new HkpClient(
+                    Configuration.newBuilder().withKeyServerHost(server.getHost()), new JdkHttpRestClient())) {
+                assertEquals(1000, hkpClient.count(new SearchRequest("example.com")));
+            }
+        }
+    }
+
+    /**
+     * With invalid certificates ignored, a certificate for another host should be accepted by both RestClients alike,
+     * and rejected by both otherwise.
+     */
+    @Test
+    void ignoreInvalidSslCertificates_skipsHostnameCheck_likeHttpClient5() throws Exception {
+        try (final SSLServerSocket serverSocket = newWrongHostServerSocket()) {
+            final Thread server = new Thread(() -> serve(serverSocket), "wrong-host-tls");
+            server.setDaemon(true);
+            server.start();
+
+            final String host = "https://localhost:" + serverSocket.getLocalPort();
+            for (final boolean ignoreInvalid : new boolean[] { true, false }) {
+                for (final RestClient restClient : new RestClient[] { new JdkHttpRestClient(), new HttpClient5RestClient() }) {
+                    restClient.init(Configuration.newBuilder()
+                        .withKeyServerHost(host)
+                        .withIgnoreInvalidSslCertificates(ignoreInvalid)
+                        .build());
+                    try {
+                        RestResponse response;
+                        try {
+                            response = restClient.submitRequest(new GetRequest("0x0123456789ABCDEF"));
+                        } catch (final RuntimeException exception) {
+                            // Either client may fail with a RestException or ConnectionFailedException.
+                            response = null;
+                        }
+                        if (ignoreInvalid) {
+                            assertEquals(200, response.getHttpCode(), restClient.getClass().getSimpleName());
+                        } else {
+                            assertNull(response, restClient.getClass().getSimpleName());
+                        }
+                    } finally {
+                        restClient.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The JDK client can only reach a proxy over plain HTTP, so an HTTPS proxy should be rejected rather than ignored.
+     */
+    @Test
+    void init_httpsProxy_rejected() {
+        final JdkHttpRestClient restClient = new JdkHttpRestClient();
+        assertThrows(IllegalArgumentException.class, () -> restClient.init(Configuration.newBuilder()
+            .withKeyServerHost("https://localhost")
+            .withProxyHttps("localhost", 3128)
+            .build()));
+
+        // Nothing was built, so the client may still be initialized.
+        restClient.init(Configuration.newBuilder().withKeyServerHost("https://localhost").withProxyHttp("localhost", 3128).build());
+        restClient.close();
+    }
+
+    private static SSLServerSocket newWrongHostServerSocket() throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (final InputStream input = JdkHttpRestClientTest.class.getResourceAsStream("/tls/wrong-host.p12")) {
+            keyStore.load(input, KEYSTORE_PASSWORD);
+        }
+        final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return (SSLServerSocket) sslContext.getServerSocketFactory().createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Answers every request on its own connection with an empty key.
+     */
+    private static void serve(final SSLServerSocket serverSocket) {
+        while (!serverSocket.isClosed()) {
+            try (final Socket socket = serverSocket.accept()) {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && !line.isEmpty());
+                final OutputStream output = socket.getOutputStream();
+                output.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+                output.flush();
+            } catch (final IOException exception) {
+                // Handshake rejected by the client, or closed.
+            }
+        }
+    }
+}
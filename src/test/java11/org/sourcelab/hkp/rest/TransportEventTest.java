@@ -0,0 +1,108 @@
+/**
+ * Copyright 2021 Stephen Powis https://github.com/sourcelaborg/java-hkp-client
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sourcelab.hkp.rest;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.sourcelab.hkp.config.Configuration;
+import org.sourcelab.hkp.request.GetRequest;
+import org.sourcelab.hkp.server.StubKeyServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the Flight Recorder events emitted for each request's transport phases.
+ */
+class TransportEventTest {
+
+    /**
+     * With the event enabled, each request should be recorded without needing a listener, with connection setup
+     * only recorded when a new connection is opened.
+     */
+    @Test
+    void submitRequest_httpClient5_recordsPhases() throws IOException {
+        final Path dump = Files.createTempFile("hkp-transport", ".jfr");
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(5).build();
+             final Recording recording = new Recording()) {
+            final List<RecordedEvent> events = recordRequests(new HttpClient5RestClient(), server, recording, dump);
+            assertEquals(2, events.size());
+            assertEquals(server.getHost(), events.get(0).getString("keyServer"));
+            assertTrue(events.get(0).getLong("connect") > 0);
+            assertTrue(events.get(0).getLong("timeToFirstByte") > 0);
+            assertTrue(events.get(0).getLong("bodyDownload") > 0);
+
+            // The second request reuses the pooled connection.
+            assertEquals(0, events.get(1).getLong("connect"));
+            assertTrue(events.get(1).getLong("timeToFirstByte") > 0);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    /**
+     * The JDK client does not expose connection setup, so only the response phases are recorded.
+     */
+    @Test
+    void submitRequest_jdkHttp_recordsResponsePhases() throws IOException {
+        final Path dump = Files.createTempFile("hkp-transport", ".jfr");
+        try (final StubKeyServer server = StubKeyServer.newBuilder().withSyntheticKeys(5).build();
+             final Recording recording = new Recording()) {
+            final List<RecordedEvent> events = recordRequests(new JdkHttpRestClient(), server, recording, dump);
+            assertEquals(2, events.size());
+            assertEquals(server.getHost(), events.get(0).getString("keyServer"));
+            assertEquals(0, events.get(0).getLong("connect"));
+            assertTrue(events.get(0).getLong("timeToFirstByte") > 0);
+            assertTrue(events.get(1).getLong("timeToFirstByte") > 0);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static List<RecordedEvent> recordRequests(
+        final RestClient restClient,
+        final StubKeyServer server,
+        final Recording recording,
+        final Path dump) throws IOException {
+        restClient.init(Configuration.newBuilder().withKeyServerHost(server.getHost()).build());
+        try {
+            recording.enable("org.sourcelab.hkp.Transport").withoutThreshold();
+            recording.start();
+
+            final GetRequest request = new GetRequest("0x" + server.getKeys().get(2).getKeyId());
+            assertEquals(200, restClient.submitRequest(request).getHttpCode());
+            assertEquals(200, restClient.submitRequest(request).getHttpCode());
+
+            recording.stop();
+            recording.dump(dump);
+        } finally {
+            restClient.close();
+        }
+        return RecordingFile.readAllEvents(dump).stream()
+            .filter(event -> event.getEventType().getName().equals("org.sourcelab.hkp.Transport"))
+            .collect(Collectors.toList());
+    }
+}